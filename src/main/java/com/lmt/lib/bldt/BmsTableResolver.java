@@ -0,0 +1,692 @@
+package com.lmt.lib.bldt;
+
+import static com.lmt.lib.bldt.DifficultyTables.*;
+import static com.lmt.lib.bldt.internal.Assertion.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.lmt.lib.bldt.internal.ContentReceiver;
+import com.lmt.lib.bldt.internal.JsonPullReader;
+import com.lmt.lib.bldt.internal.Utility;
+import com.lmt.lib.bldt.parser.ScoreJsonParser;
+
+/**
+ * 標準形式の難易度表のWebページから難易度表定義を生成するクラスです。
+ *
+ * <p>多くの難易度表は、以下の形式で難易度表の情報を公開しています。</p>
+ * <ul>
+ * <li>難易度表のWebページに &lt;meta name="bmstable" content="ヘッダ部のURL"&gt; を記述する</li>
+ * <li>ヘッダ部(header.json)に難易度表名称(name)、記号(symbol)、楽曲情報URL(data_url)、
+ * 難易度ラベルリスト(level_order、省略可能)を記述する</li>
+ * <li>楽曲情報URLのデータは {@link ScoreJsonParser} で解析可能な楽曲情報 JSON とする</li>
+ * </ul>
+ *
+ * <p>当クラスはこれらのデータを辿って {@link TableDescription} を生成します。生成した難易度表定義を
+ * {@link DifficultyTables#add(TableDescription)} で追加することで、難易度表定義を個別に記述することなく
+ * 難易度表データベースの更新対象にすることができます。</p>
+ *
+ * <p>取得したヘッダ部は、難易度表ごとにキャッシュ格納先ディレクトリへ保存されます。2回目以降の生成では
+ * Webページを取得せず、保存済みのヘッダ部URLに対して If-None-Match / If-Modified-Since を付けた
+ * リクエストを1回だけ送信します。ヘッダ部が更新されていない(応答が304、またはハッシュ値が一致する)場合は
+ * 保存済みのヘッダ部から難易度表定義を生成します。楽曲情報URLのデータは難易度表データベースの更新で
+ * ETag / 最終更新日時による条件付きリクエストで取得されるため、ヘッダ部と楽曲情報のいずれにも変更がなければ
+ * サイズの大きい楽曲情報がダウンロードされることはありません。</p>
+ *
+ * <p>ヘッダ部に難易度ラベルリストがない場合、楽曲情報に記述された難易度ラベルから難易度ラベルリストを生成します
+ * (数値のラベルを数値の昇順に並べ、その後にそれ以外のラベルを出現順に並べます)。生成した難易度ラベルリストは
+ * ヘッダ部とともに保存し、楽曲情報URLが変わらない限り使用します。楽曲情報URLのデータを取得するのは、
+ * 保存済みの難易度ラベルリストがない場合の1回だけです。この場合に生成する難易度表定義のパーサは、
+ * 難易度表データベースの更新で楽曲情報を解析する際に難易度ラベルリストにないラベルを検出すると、
+ * 楽曲情報から生成し直した難易度ラベルリストを保存して {@link IOException} をスローします。
+ * 楽曲情報が黙って欠落することはなく、難易度表定義を生成し直すことで新しいラベルの楽曲情報も更新対象になります。</p>
+ *
+ * @since 0.3.0
+ */
+public class BmsTableResolver {
+	/**
+	 * キャッシュ格納先ディレクトリの既定値です。
+	 * @since 0.3.0
+	 */
+	public static final Path DEFAULT_CACHE_LOCATION = DifficultyTables.DEFAULT_LOCATION.resolve("bmstable");
+
+	/** ヘッダ部URLを記述した meta タグの正規表現パターン */
+	private static final Pattern META_PATTERN = Pattern.compile(
+			"<meta\\s[^>]*name\\s*=\\s*[\"']?bmstable[\"']?[^>]*>", Pattern.CASE_INSENSITIVE);
+	/** meta タグの content 属性の正規表現パターン */
+	private static final Pattern CONTENT_PATTERN = Pattern.compile(
+			"content\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s\"'>]+))", Pattern.CASE_INSENSITIVE);
+
+	/** キャッシュ格納先ディレクトリ */
+	private Path mCacheLocation;
+
+	/**
+	 * 保存済みのヘッダ部
+	 */
+	private static class HeaderCache {
+		/** 難易度表のWebページのURL */
+		String pageUrl;
+		/** ヘッダ部のURL */
+		String headerUrl;
+		/** ヘッダ部のエンティティタグ */
+		String eTag;
+		/** ヘッダ部の最終更新日時(Last-Modified ヘッダの値) */
+		String lastModified;
+		/** ヘッダ部のハッシュ値 */
+		String hash;
+		/** ヘッダ部 */
+		JSONObject header;
+		/** 楽曲情報から生成した難易度ラベルリスト(ヘッダ部に記述されている場合は null) */
+		List<String> labels;
+		/** 難易度ラベルリストの生成元の楽曲情報URL */
+		String labelsUrl;
+	}
+
+	/**
+	 * 楽曲情報から生成した難易度ラベルリストを使用する難易度表のパーサ
+	 * <p>楽曲情報を {@link ScoreJsonParser} で解析する前に楽曲情報の難易度ラベルを確認し、難易度表定義にない
+	 * ラベルがある場合は楽曲情報を読み飛ばさずにエラーとする。その際、楽曲情報から生成し直した
+	 * 難易度ラベルリストを保存し、次回の難易度表定義の生成で使用する。</p>
+	 */
+	private static class DerivedLabelsParser implements Parser {
+		/** 難易度ラベルリストの保存先 */
+		private final BmsTableResolver mResolver;
+		/** 難易度表定義のID */
+		private final String mId;
+		/** 難易度表のWebページのURL */
+		private final URL mPageUrl;
+		/** 楽曲情報のパーサ */
+		private final ScoreJsonParser mParser = new ScoreJsonParser();
+
+		/**
+		 * コンストラクタ
+		 * @param resolver 難易度ラベルリストの保存先
+		 * @param id 難易度表定義のID
+		 * @param pageUrl 難易度表のWebページのURL
+		 */
+		DerivedLabelsParser(BmsTableResolver resolver, String id, URL pageUrl) {
+			mResolver = resolver;
+			mId = id;
+			mPageUrl = pageUrl;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public List<ContentDescription> parse(TableDescription tableDesc, PlayStyle playStyle, byte[] raw)
+				throws IOException {
+			var styleDesc = tableDesc.getPlayStyleDescription(playStyle);
+			var dataUrl = styleDesc.getContentUrl();
+			var labels = collectLabels(raw, dataUrl);
+			var unknown = new ArrayList<String>();
+			for (var label : labels) {
+				if (styleDesc.getLevelIndex(label) < 0) {
+					unknown.add(label);
+				}
+			}
+			if (!unknown.isEmpty()) {
+				// 未知のラベルの楽曲情報を読み飛ばさないよう、難易度ラベルリストを保存してエラーとする
+				var msg = String.format("%s: Unknown level labels %s, resolve the table description again",
+						dataUrl, unknown);
+				var ex = new IOException(msg);
+				try {
+					mResolver.saveLabels(mId, mPageUrl, dataUrl, labels);
+				} catch (IOException e) {
+					ex.addSuppressed(e);
+				}
+				throw ex;
+			}
+			return mParser.parse(tableDesc, playStyle, raw);
+		}
+	}
+
+	/**
+	 * 受信結果
+	 */
+	private static class Fetched {
+		/** 応答のステータスコード */
+		int statusCode;
+		/** 応答のヘッダ */
+		HttpHeaders headers;
+		/** 受信データ(正常応答以外の場合は null) */
+		ContentReceiver receiver;
+	}
+
+	/**
+	 * 既定のキャッシュ格納先ディレクトリ({@link #DEFAULT_CACHE_LOCATION})を使用するオブジェクトを構築します。
+	 * @since 0.3.0
+	 */
+	public BmsTableResolver() {
+		this(DEFAULT_CACHE_LOCATION);
+	}
+
+	/**
+	 * キャッシュ格納先ディレクトリを指定してオブジェクトを構築します。
+	 * <p>ディレクトリが存在しない場合、ヘッダ部を保存する時点で作成されます。</p>
+	 * @param cacheLocation キャッシュ格納先ディレクトリ
+	 * @throws NullPointerException cacheLocation が null
+	 * @since 0.3.0
+	 */
+	public BmsTableResolver(Path cacheLocation) {
+		assertArgNotNull(cacheLocation, "cacheLocation");
+		mCacheLocation = cacheLocation;
+	}
+
+	/**
+	 * キャッシュ格納先ディレクトリを取得します。
+	 * @return キャッシュ格納先ディレクトリ
+	 * @since 0.3.0
+	 */
+	public Path getCacheLocation() {
+		return mCacheLocation;
+	}
+
+	/**
+	 * 標準形式の難易度表のWebページから難易度表定義を生成します。
+	 * <p>Webページの代わりにヘッダ部のURLを指定することもできます。応答データが JSON オブジェクトの場合は
+	 * ヘッダ部として扱います。</p>
+	 * <p>生成した難易度表定義の公式URLは pageUrl、パーサは {@link ScoreJsonParser} (ヘッダ部に難易度ラベルリストが
+	 * ない場合は、難易度ラベルを確認してから {@link ScoreJsonParser} で解析するパーサ)となり、
+	 * 指定したプレースタイルのみをサポートします。ヘッダ部の記号・難易度ラベルリストが難易度表定義の制約を
+	 * 満たさない場合は {@link IOException} をスローします。</p>
+	 * @param client HTTP通信に使用するクライアントオブジェクト
+	 * @param id 生成する難易度表定義のID
+	 * @param pageUrl 難易度表のWebページのURL
+	 * @param playStyle 難易度表のプレースタイル
+	 * @param timeout サーバー応答タイムアウト。null の場合タイムアウトなし。
+	 * @return 難易度表定義
+	 * @throws NullPointerException client, id, pageUrl, playStyle のいずれかが null
+	 * @throws IllegalArgumentException IDの形式が不正
+	 * @throws IOException HTTP通信で送受信エラーが発生した、正常受信以外の応答を受信した、
+	 * Webページにヘッダ部URLが記述されていない、ヘッダ部の内容が不正(記号・難易度ラベルリストが難易度表定義の
+	 * 制約を満たさない場合を含む)、またはヘッダ部の保存でエラーが発生した
+	 * @throws InterruptedException スレッド割り込みによる処理の中止が発生した
+	 * @since 0.3.0
+	 */
+	public TableDescription resolve(HttpClient client, String id, URL pageUrl, PlayStyle playStyle, Duration timeout)
+			throws IOException, InterruptedException {
+		assertArgNotNull(client, "client");
+		assertArgNotNull(id, "id");
+		assertArg(Utility.isIdValid(id), "'id' is not valid: %s", id);
+		assertArgNotNull(pageUrl, "pageUrl");
+		assertArgNotNull(playStyle, "playStyle");
+		printLog("RESOLVE: ID='%s', URL='%s', PlayStyle=%s", id, pageUrl, playStyle);
+
+		// 保存済みのヘッダ部がある場合は、ヘッダ部のみを条件付きで問い合わせる
+		var cache = loadCache(id, pageUrl);
+		var current = (HeaderCache)null;
+		if (Objects.nonNull(cache)) {
+			try {
+				current = fetchHeader(client, new URL(cache.headerUrl), cache, true, timeout);
+			} catch (IOException e) {
+				// ヘッダ部の場所が変わった可能性があるため、Webページからヘッダ部を辿り直す
+				printLog("Failed to fetch cached header URL: %s", e.getMessage());
+			}
+		}
+		if (Objects.isNull(current)) {
+			current = discoverHeader(client, pageUrl, cache, timeout);
+		}
+
+		// ヘッダ部から難易度表定義を生成する
+		// ヘッダ部が更新されていなくても、難易度ラベルリストを生成し直した場合は保存する
+		var labelsBefore = current.labels;
+		var labelsUrlBefore = current.labelsUrl;
+		var tableDesc = createDescription(client, id, pageUrl, playStyle, current, timeout);
+		if ((current != cache) || !Objects.equals(labelsBefore, current.labels) ||
+				!Objects.equals(labelsUrlBefore, current.labelsUrl)) {
+			saveCache(id, current);
+		}
+		printLog("RESOLVE '%s' complete", id);
+		return tableDesc;
+	}
+
+	/**
+	 * HTTPのリクエスト送受信
+	 * @param client HTTPクライアントオブジェクト
+	 * @param request リクエスト内容
+	 * @return レスポンス内容
+	 * @throws IOException HTTP通信で送受信エラーが発生した
+	 * @throws InterruptedException スレッド割り込みが発生した
+	 */
+	HttpResponse<InputStream> send(HttpClient client, HttpRequest request) throws IOException, InterruptedException {
+		return client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+	}
+
+	/**
+	 * Webページからのヘッダ部の取得
+	 * @param client HTTPクライアントオブジェクト
+	 * @param pageUrl 難易度表のWebページのURL
+	 * @param previous 保存済みのヘッダ部、または null
+	 * @param timeout サーバー応答タイムアウト
+	 * @return ヘッダ部
+	 * @throws IOException 送受信エラー、ヘッダ部URLが記述されていない、またはヘッダ部の内容が不正
+	 * @throws InterruptedException スレッド割り込みが発生した
+	 */
+	private HeaderCache discoverHeader(HttpClient client, URL pageUrl, HeaderCache previous, Duration timeout)
+			throws IOException, InterruptedException {
+		printLog("Discover header from page ...");
+		var fetched = fetch(client, pageUrl, null, timeout);
+		checkStatus(fetched, pageUrl);
+		var raw = fetched.receiver.toByteArray();
+		var text = new String(raw, StandardCharsets.UTF_8).strip();
+		if (text.startsWith("\uFEFF")) {
+			text = text.substring(1);
+		}
+		if (text.startsWith("{")) {
+			// Webページの代わりにヘッダ部が指定された場合はそのまま使用する
+			printLog("Page is header itself");
+			return createCache(pageUrl, pageUrl, fetched, previous);
+		}
+
+		// meta タグからヘッダ部URLを抽出する
+		var meta = META_PATTERN.matcher(text);
+		var content = meta.find() ? CONTENT_PATTERN.matcher(meta.group()) : null;
+		if (Objects.isNull(content) || !content.find()) {
+			throw new IOException(String.format("%s: No bmstable header URL in this page", pageUrl));
+		}
+		var href = Objects.nonNull(content.group(1)) ? content.group(1) :
+				Objects.nonNull(content.group(2)) ? content.group(2) : content.group(3);
+		href = href.strip();
+		var headerUrl = resolveUrl(pageUrl, href);
+		printLog("Header URL='%s'", headerUrl);
+		var current = fetchHeader(client, headerUrl, previous, false, timeout);
+		current.pageUrl = pageUrl.toString();
+		return current;
+	}
+
+	/**
+	 * ヘッダ部の取得
+	 * @param client HTTPクライアントオブジェクト
+	 * @param headerUrl ヘッダ部のURL
+	 * @param previous 保存済みのヘッダ部、または null
+	 * @param conditional 保存済みのヘッダ部のエンティティタグ・最終更新日時で条件付きリクエストを送信するかどうか
+	 * @param timeout サーバー応答タイムアウト
+	 * @return ヘッダ部(更新されていない場合は previous)
+	 * @throws IOException 送受信エラー、正常受信以外の応答を受信した、またはヘッダ部の内容が不正
+	 * @throws InterruptedException スレッド割り込みが発生した
+	 */
+	private HeaderCache fetchHeader(HttpClient client, URL headerUrl, HeaderCache previous, boolean conditional,
+			Duration timeout) throws IOException, InterruptedException {
+		printLog("Fetch header: URL='%s', Conditional=%s", headerUrl, conditional);
+		var fetched = fetch(client, headerUrl, conditional ? previous : null, timeout);
+		if (conditional && (fetched.statusCode == HttpURLConnection.HTTP_NOT_MODIFIED)) {
+			// ヘッダ部が更新されていない場合は保存済みのヘッダ部を使用する
+			printLog("Header is not modified");
+			return previous;
+		}
+		checkStatus(fetched, headerUrl);
+		var pageUrl = Objects.isNull(previous) ? headerUrl : new URL(previous.pageUrl);
+		var current = createCache(pageUrl, headerUrl, fetched, previous);
+		if (conditional && Objects.equals(current.hash, previous.hash) &&
+				Objects.equals(current.eTag, previous.eTag) &&
+				Objects.equals(current.lastModified, previous.lastModified)) {
+			// 内容と応答ヘッダに変化がない場合は、保存済みのヘッダ部を更新しない
+			printLog("Header is not changed");
+			return previous;
+		}
+		return current;
+	}
+
+	/**
+	 * 受信したヘッダ部からの保存用ヘッダ部の生成
+	 * <p>楽曲情報から生成した難易度ラベルリストは、保存済みのヘッダ部から引き継ぐ。</p>
+	 * @param pageUrl 難易度表のWebページのURL
+	 * @param headerUrl ヘッダ部のURL
+	 * @param fetched ヘッダ部の受信結果
+	 * @param previous 保存済みのヘッダ部、または null
+	 * @return 保存用ヘッダ部
+	 * @throws IOException ヘッダ部が JSON オブジェクトではない
+	 */
+	private static HeaderCache createCache(URL pageUrl, URL headerUrl, Fetched fetched, HeaderCache previous)
+			throws IOException {
+		var current = new HeaderCache();
+		var receiver = fetched.receiver;
+		try (var in = Utility.skipUtf8Bom(new ByteArrayInputStream(receiver.toByteArray()))) {
+			current.header = new JSONObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+		} catch (JSONException e) {
+			throw new IOException(String.format("%s: Bad header JSON format", headerUrl), e);
+		}
+		current.pageUrl = pageUrl.toString();
+		current.headerUrl = headerUrl.toString();
+		current.eTag = fetched.headers.firstValue("ETag").orElse(null);
+		current.lastModified = fetched.headers.firstValue("Last-Modified").orElse(null);
+		current.hash = receiver.getSha256();
+		if (Objects.nonNull(previous)) {
+			current.labels = previous.labels;
+			current.labelsUrl = previous.labelsUrl;
+		}
+		return current;
+	}
+
+	/**
+	 * ヘッダ部からの難易度表定義生成
+	 * @param client HTTPクライアントオブジェクト
+	 * @param id 難易度表定義のID
+	 * @param pageUrl 難易度表のWebページのURL
+	 * @param playStyle 難易度表のプレースタイル
+	 * @param cache ヘッダ部
+	 * @param timeout サーバー応答タイムアウト
+	 * @return 難易度表定義
+	 * @throws IOException ヘッダ部の内容が不正、または楽曲情報の取得でエラーが発生した
+	 * @throws InterruptedException スレッド割り込みが発生した
+	 */
+	private TableDescription createDescription(HttpClient client, String id, URL pageUrl, PlayStyle playStyle,
+			HeaderCache cache, Duration timeout) throws IOException, InterruptedException {
+		var header = cache.header;
+		var name = header.optString("name", "").strip();
+		var symbol = header.optString("symbol", "");
+		var dataUrlStr = header.optString("data_url", "").strip();
+		if (name.isEmpty() || symbol.isEmpty() || dataUrlStr.isEmpty()) {
+			var msg = String.format("%s: Header requires 'name', 'symbol' and 'data_url'", cache.headerUrl);
+			throw new IOException(msg);
+		}
+		var dataUrl = resolveUrl(new URL(cache.headerUrl), dataUrlStr);
+
+		// 難易度ラベルリストを決定する
+		// ヘッダ部に記述がない場合は、同じ楽曲情報URLから生成した保存済みの難易度ラベルリストを使用する
+		// 保存済みの難易度ラベルリストがない場合のみ、楽曲情報を取得して生成する
+		var labels = (List<String>)null;
+		var parser = (Parser)new ScoreJsonParser();
+		var levelOrder = header.optJSONArray("level_order");
+		if (Objects.nonNull(levelOrder)) {
+			var set = new LinkedHashSet<String>();
+			for (var i = 0; i < levelOrder.length(); i++) {
+				var label = levelOrder.get(i);
+				if (!Utility.isJsonNull(label) && !label.toString().isEmpty()) {
+					set.add(label.toString());
+				}
+			}
+			labels = new ArrayList<>(set);
+			cache.labels = null;
+			cache.labelsUrl = null;
+		} else {
+			if (Objects.nonNull(cache.labels) && dataUrl.toString().equals(cache.labelsUrl)) {
+				labels = cache.labels;
+			} else {
+				labels = fetchLabels(client, dataUrl, timeout);
+				cache.labels = labels;
+				cache.labelsUrl = dataUrl.toString();
+			}
+			parser = new DerivedLabelsParser(this, id, pageUrl);
+		}
+		if (labels.isEmpty()) {
+			throw new IOException(String.format("%s: No level labels", cache.headerUrl));
+		}
+		printLog("Header: Name='%s', Symbol='%s', Data='%s', Labels=%s", name, symbol, dataUrl, labels);
+
+		// 難易度表定義を生成する
+		// 記号・難易度ラベルリストが難易度表定義の制約を満たさない場合はヘッダ部の内容が不正とする
+		try {
+			var styleDesc = new PlayStyleDescription(symbol, dataUrl, labels);
+			var single = (playStyle == PlayStyle.SINGLE);
+			return new TableDescription(id, name, pageUrl, parser, single ? styleDesc : null, single ? null : styleDesc);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(String.format("%s: %s", cache.headerUrl, e.getMessage()), e);
+		}
+	}
+
+	/**
+	 * 楽曲情報の取得と難易度ラベルリスト生成
+	 * @param client HTTPクライアントオブジェクト
+	 * @param dataUrl 楽曲情報URL
+	 * @param timeout サーバー応答タイムアウト
+	 * @return 難易度ラベルリスト
+	 * @throws IOException 送受信エラー、正常受信以外の応答を受信した、または楽曲情報の構文が不正
+	 * @throws InterruptedException スレッド割り込みが発生した
+	 */
+	private List<String> fetchLabels(HttpClient client, URL dataUrl, Duration timeout)
+			throws IOException, InterruptedException {
+		printLog("Collect level labels from content ...");
+		var fetched = fetch(client, dataUrl, null, timeout);
+		checkStatus(fetched, dataUrl);
+		return collectLabels(fetched.receiver.toByteArray(), dataUrl);
+	}
+
+	/**
+	 * 楽曲情報からの難易度ラベルリスト生成
+	 * <p>数値のラベルを数値の昇順に並べ、その後にそれ以外のラベルを出現順に並べる。</p>
+	 * @param raw 楽曲情報
+	 * @param dataUrl 楽曲情報URL
+	 * @return 難易度ラベルリスト
+	 * @throws IOException 楽曲情報の構文が不正
+	 */
+	private static List<String> collectLabels(byte[] raw, URL dataUrl) throws IOException {
+		// 楽曲情報の level のみを読み込み、それ以外の項目は読み飛ばす
+		var found = new LinkedHashSet<String>();
+		var in = Utility.skipUtf8Bom(new ByteArrayInputStream(raw));
+		var reader = new JsonPullReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		try {
+			reader.beginArray();
+			while (reader.hasNext()) {
+				if (!reader.beginObject()) {
+					reader.skipValue();
+					continue;
+				}
+				for (var name = reader.nextName(); Objects.nonNull(name); name = reader.nextName()) {
+					if (name.equals("level")) {
+						var level = reader.readValue();
+						if (!Utility.isJsonNull(level) && !level.toString().isEmpty()) {
+							found.add(level.toString());
+						}
+					} else {
+						reader.skipValue();
+					}
+				}
+			}
+		} catch (JSONException e) {
+			throw new IOException(String.format("%s: Bad JSON format", dataUrl), e);
+		}
+
+		// 数値のラベルを先頭に昇順で並べる
+		var numbers = new ArrayList<String>();
+		var others = new ArrayList<String>();
+		for (var label : found) {
+			(isNumber(label) ? numbers : others).add(label);
+		}
+		numbers.sort((a, b) -> Double.compare(Double.parseDouble(a), Double.parseDouble(b)));
+		numbers.addAll(others);
+		return numbers;
+	}
+
+	/**
+	 * 条件付きリクエストの送信と応答本文の受信
+	 * @param client HTTPクライアントオブジェクト
+	 * @param url 送信先URL
+	 * @param previous 条件付きリクエストに使用する保存済みのヘッダ部、または null
+	 * @param timeout サーバー応答タイムアウト
+	 * @return 受信結果
+	 * @throws IOException 送受信エラー、またはURLが不正
+	 * @throws InterruptedException スレッド割り込みが発生した
+	 */
+	private Fetched fetch(HttpClient client, URL url, HeaderCache previous, Duration timeout)
+			throws IOException, InterruptedException {
+		// リクエストを生成する
+		var reqBuilder = HttpRequest.newBuilder().GET().header("Accept-Encoding", ContentReceiver.ACCEPT_ENCODING);
+		try {
+			reqBuilder.uri(url.toURI());
+		} catch (URISyntaxException e) {
+			throw new IOException(String.format("%s: Can't use this URL", url), e);
+		}
+		if (Objects.nonNull(timeout)) {
+			reqBuilder.timeout(timeout);
+		}
+		if (Objects.nonNull(previous) && Objects.nonNull(previous.eTag)) {
+			reqBuilder.header("If-None-Match", previous.eTag);
+		}
+		if (Objects.nonNull(previous) && Objects.nonNull(previous.lastModified)) {
+			reqBuilder.header("If-Modified-Since", previous.lastModified);
+		}
+
+		// 正常応答の場合のみ応答本文を受信する
+		var resp = send(client, reqBuilder.build());
+		var fetched = new Fetched();
+		fetched.statusCode = resp.statusCode();
+		fetched.headers = resp.headers();
+		printLog("Response=%d", fetched.statusCode);
+		try (var stream = resp.body()) {
+			if (fetched.statusCode == HttpURLConnection.HTTP_OK) {
+				var receiver = ContentReceiver.of(resp.headers());
+				while (receiver.receive(stream)) {
+					if (Thread.currentThread().isInterrupted()) {
+						throw new InterruptedException();
+					}
+				}
+				receiver.finish();
+				printLog("Received: Length=%dbytes", receiver.getLength());
+				fetched.receiver = receiver;
+			}
+		}
+		return fetched;
+	}
+
+	/**
+	 * 応答ステータスの確認
+	 * @param fetched 受信結果
+	 * @param url 送信先URL
+	 * @throws IOException 正常受信以外の応答を受信した
+	 */
+	private static void checkStatus(Fetched fetched, URL url) throws IOException {
+		if (fetched.statusCode != HttpURLConnection.HTTP_OK) {
+			throw new IOException(String.format("Received %d from '%s'", fetched.statusCode, url));
+		}
+	}
+
+	/**
+	 * 相対URLの解決
+	 * @param base 基準URL
+	 * @param spec URL文字列
+	 * @return 解決したURL
+	 * @throws IOException URLが不正
+	 */
+	private static URL resolveUrl(URL base, String spec) throws IOException {
+		try {
+			return new URL(base, spec);
+		} catch (MalformedURLException e) {
+			throw new IOException(String.format("%s: Invalid URL '%s'", base, spec), e);
+		}
+	}
+
+	/**
+	 * 数値の難易度ラベルかどうかの判定
+	 * @param label 難易度ラベル
+	 * @return 数値の難易度ラベルの場合 true
+	 */
+	private static boolean isNumber(String label) {
+		try {
+			var value = Double.parseDouble(label);
+			return !Double.isNaN(value) && !Double.isInfinite(value);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 保存済みのヘッダ部の読み込み
+	 * <p>保存済みのヘッダ部がない、内容が不正、または異なるWebページのヘッダ部の場合は null を返す。</p>
+	 * @param id 難易度表定義のID
+	 * @param pageUrl 難易度表のWebページのURL
+	 * @return 保存済みのヘッダ部、または null
+	 */
+	private HeaderCache loadCache(String id, URL pageUrl) {
+		var path = mCacheLocation.resolve(String.format("%s.json", id));
+		if (!Files.isRegularFile(path)) {
+			printLog("Header cache is not found: Path='%s'", path);
+			return null;
+		}
+		try {
+			var root = new JSONObject(Files.readString(path, StandardCharsets.UTF_8));
+			var cache = new HeaderCache();
+			cache.pageUrl = root.getString("pageUrl");
+			cache.headerUrl = root.getString("headerUrl");
+			cache.eTag = Utility.isJsonNull(root.opt("eTag")) ? null : root.getString("eTag");
+			cache.lastModified = Utility.isJsonNull(root.opt("lastModified")) ? null : root.getString("lastModified");
+			cache.hash = Utility.isJsonNull(root.opt("hash")) ? null : root.getString("hash");
+			cache.header = root.getJSONObject("header");
+			var labels = root.optJSONArray("labels");
+			if (Objects.nonNull(labels)) {
+				cache.labels = new ArrayList<>();
+				labels.forEach(l -> cache.labels.add(l.toString()));
+			}
+			cache.labelsUrl = Utility.isJsonNull(root.opt("labelsUrl")) ? null : root.getString("labelsUrl");
+			if (!cache.pageUrl.equals(pageUrl.toString())) {
+				// 異なるWebページのヘッダ部は使用しない
+				printLog("Header cache is for another page: URL='%s'", cache.pageUrl);
+				return null;
+			}
+			return cache;
+		} catch (IOException | JSONException e) {
+			// 保存済みのヘッダ部が読み込めない場合は、Webページから取得し直す
+			printLog("Broken header cache: %s", e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * ヘッダ部の保存
+	 * @param id 難易度表定義のID
+	 * @param cache ヘッダ部
+	 * @throws IOException ヘッダ部の書き込みでエラーが発生した
+	 */
+	private void saveCache(String id, HeaderCache cache) throws IOException {
+		var root = new JSONObject();
+		root.put("pageUrl", cache.pageUrl);
+		root.put("headerUrl", cache.headerUrl);
+		root.put("eTag", Utility.valueOrJsonNull(cache.eTag, e -> e));
+		root.put("lastModified", Utility.valueOrJsonNull(cache.lastModified, l -> l));
+		root.put("hash", Utility.valueOrJsonNull(cache.hash, h -> h));
+		root.put("header", cache.header);
+		root.put("labels", Utility.valueOrJsonNull(cache.labels, l -> new JSONArray(l)));
+		root.put("labelsUrl", Utility.valueOrJsonNull(cache.labelsUrl, u -> u));
+
+		// 書き込み途中のファイルが残らないよう、一時ファイルに書き込んでから置き換える
+		Files.createDirectories(mCacheLocation);
+		var tmpPath = mCacheLocation.resolve(String.format(".%s.tmp", id));
+		Files.writeString(tmpPath, root.toString(2), StandardCharsets.UTF_8);
+		Files.move(tmpPath, mCacheLocation.resolve(String.format("%s.json", id)), StandardCopyOption.REPLACE_EXISTING);
+		printLog("Header cache saved: ID='%s'", id);
+	}
+
+	/**
+	 * 楽曲情報から生成し直した難易度ラベルリストの保存
+	 * <p>保存済みのヘッダ部がない場合は何もしない。</p>
+	 * @param id 難易度表定義のID
+	 * @param pageUrl 難易度表のWebページのURL
+	 * @param dataUrl 楽曲情報URL
+	 * @param labels 難易度ラベルリスト
+	 * @throws IOException ヘッダ部の書き込みでエラーが発生した
+	 */
+	private synchronized void saveLabels(String id, URL pageUrl, URL dataUrl, List<String> labels)
+			throws IOException {
+		var cache = loadCache(id, pageUrl);
+		if (Objects.isNull(cache)) {
+			return;
+		}
+		printLog("Level labels changed: ID='%s', Labels=%s", id, labels);
+		cache.labels = labels;
+		cache.labelsUrl = dataUrl.toString();
+		saveCache(id, cache);
+	}
+}
@@ -4,13 +4,11 @@ import static com.lmt.lib.bldt.internal.Assertion.*;
 
 import java.time.ZonedDateTime;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.Objects;
-import java.util.TreeMap;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import com.lmt.lib.bldt.internal.StringPool;
 import com.lmt.lib.bldt.internal.Utility;
 
 /**
@@ -30,14 +28,12 @@ public class ContentCollection {
 	private ZonedDateTime[] mModifiedDateTimes = new ZonedDateTime[PlayStyle.COUNT];
 	/** 楽曲情報の元データのハッシュ値 */
 	private String[] mModifiedDataHashes = new String[PlayStyle.COUNT];
-	/** 楽曲情報リスト */
-	private List<ContentDescription> mContents;
-	/** タイトル・アーティストによる楽曲情報マップ */
-	private Map<String, ContentDescription> mMappedMeta = new HashMap<>();
-	/** MD5による楽曲情報マップ */
-	private Map<String, ContentDescription> mMappedMd5 = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
-	/** SHA-256による楽曲情報マップ */
-	private Map<String, ContentDescription> mMappedSha256 = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+	/** 楽曲情報元データのエンティティタグ */
+	private String[] mModifiedETags = new String[PlayStyle.COUNT];
+	/** 楽曲情報元データの有効期限 */
+	private ZonedDateTime[] mModifiedExpires = new ZonedDateTime[PlayStyle.COUNT];
+	/** 楽曲情報リスト(楽曲情報オブジェクトは取得時に生成する) */
+	private ContentStore mContents;
 
 	/**
 	 * 新しい難易度表情報オブジェクトを構築します。
@@ -59,6 +55,45 @@ public class ContentCollection {
 	public ContentCollection(TableDescription tableDesc, ZonedDateTime lastUpdateDateTime,
 			ZonedDateTime spModifiedDateTime, String spModifiedDataHash,
 			ZonedDateTime dpModifiedDateTime, String dpModifiedDataHash, Collection<ContentDescription> contents) {
+		this(tableDesc, lastUpdateDateTime, spModifiedDateTime, spModifiedDataHash, dpModifiedDateTime,
+				dpModifiedDataHash, contents, null);
+	}
+
+	/**
+	 * 難易度表情報オブジェクト構築
+	 * <p>難易度表データベースが難易度表情報を構築する際に使用する。楽曲情報の文字列は重複排除プールの文字列に
+	 * 置き換えて保持する。</p>
+	 * @param tableDesc 難易度表定義
+	 * @param lastUpdateDateTime 難易度表情報の最終更新日時
+	 * @param spModifiedDateTime シングルプレーの楽曲情報元データの最終更新日時
+	 * @param spModifiedDataHash シングルプレーの楽曲情報元データのハッシュ値
+	 * @param dpModifiedDateTime ダブルプレーの楽曲情報元データの最終更新日時
+	 * @param dpModifiedDataHash ダブルプレーの楽曲情報元データのハッシュ値
+	 * @param contents 楽曲情報リスト
+	 * @param pool 文字列の重複排除プール、または null
+	 */
+	ContentCollection(TableDescription tableDesc, ZonedDateTime lastUpdateDateTime,
+			ZonedDateTime spModifiedDateTime, String spModifiedDataHash,
+			ZonedDateTime dpModifiedDateTime, String dpModifiedDataHash, Collection<ContentDescription> contents,
+			StringPool pool) {
+		this(tableDesc, lastUpdateDateTime, spModifiedDateTime, spModifiedDataHash, dpModifiedDateTime,
+				dpModifiedDataHash, Objects.isNull(contents) ? null : new ContentColumns(contents, pool));
+	}
+
+	/**
+	 * 難易度表情報オブジェクト構築
+	 * <p>構築済みの楽曲情報リストの格納先をそのまま使用する。</p>
+	 * @param tableDesc 難易度表定義
+	 * @param lastUpdateDateTime 難易度表情報の最終更新日時
+	 * @param spModifiedDateTime シングルプレーの楽曲情報元データの最終更新日時
+	 * @param spModifiedDataHash シングルプレーの楽曲情報元データのハッシュ値
+	 * @param dpModifiedDateTime ダブルプレーの楽曲情報元データの最終更新日時
+	 * @param dpModifiedDataHash ダブルプレーの楽曲情報元データのハッシュ値
+	 * @param contents 楽曲情報リストの格納先
+	 */
+	private ContentCollection(TableDescription tableDesc, ZonedDateTime lastUpdateDateTime,
+			ZonedDateTime spModifiedDateTime, String spModifiedDataHash,
+			ZonedDateTime dpModifiedDateTime, String dpModifiedDataHash, ContentStore contents) {
 		assertArgNotNull(tableDesc, "tableDesc");
 		assertArg(Objects.isNull(spModifiedDataHash) || Utility.isSha256(spModifiedDataHash),
 				"'spModifiedDataHash' is not valid: %s", spModifiedDataHash);
@@ -71,12 +106,26 @@ public class ContentCollection {
 		mModifiedDateTimes[PlayStyle.DOUBLE.ordinal()] = dpModifiedDateTime;
 		mModifiedDataHashes[PlayStyle.SINGLE.ordinal()] = Utility.normalizeHash(spModifiedDataHash);
 		mModifiedDataHashes[PlayStyle.DOUBLE.ordinal()] = Utility.normalizeHash(dpModifiedDataHash);
-		mContents = List.copyOf(contents);
-		for (var c : mContents) {
-			mMappedMeta.put(metaKey(c.getTitle(), c.getArtist(), c.getPlayStyle()), c);
-			if (Objects.nonNull(c.getMd5())) { mMappedMd5.put(c.getMd5(), c); }
-			if (Objects.nonNull(c.getSha256())) { mMappedSha256.put(c.getSha256(), c); }
-		}
+		mContents = contents;
+	}
+
+	/**
+	 * 楽曲情報リストの格納先を指定した難易度表情報オブジェクト構築
+	 * <p>メモリマップしたスナップショットから難易度表情報を構築する際に使用する。</p>
+	 * @param tableDesc 難易度表定義
+	 * @param lastUpdateDateTime 難易度表情報の最終更新日時
+	 * @param spModifiedDateTime シングルプレーの楽曲情報元データの最終更新日時
+	 * @param spModifiedDataHash シングルプレーの楽曲情報元データのハッシュ値
+	 * @param dpModifiedDateTime ダブルプレーの楽曲情報元データの最終更新日時
+	 * @param dpModifiedDataHash ダブルプレーの楽曲情報元データのハッシュ値
+	 * @param contents 楽曲情報リストの格納先
+	 * @return 難易度表情報
+	 */
+	static ContentCollection withStore(TableDescription tableDesc, ZonedDateTime lastUpdateDateTime,
+			ZonedDateTime spModifiedDateTime, String spModifiedDataHash,
+			ZonedDateTime dpModifiedDateTime, String dpModifiedDataHash, ContentStore contents) {
+		return new ContentCollection(tableDesc, lastUpdateDateTime, spModifiedDateTime, spModifiedDataHash,
+				dpModifiedDateTime, dpModifiedDataHash, contents);
 	}
 
 	/**
@@ -130,33 +179,147 @@ public class ContentCollection {
 		return mModifiedDataHashes[playStyle.ordinal()];
 	}
 
+	/**
+	 * 指定したプレースタイルの楽曲情報元データのエンティティタグ(ETag)を取得します。
+	 * <p>エンティティタグは楽曲情報元データのダウンロード時にWebサーバが応答した ETag ヘッダの値で、
+	 * 次回の更新時に If-None-Match ヘッダとして送信されます。以下の条件のいずれかを満たす場合、null を返します。</p>
+	 * <ul>
+	 * <li>指定プレースタイルが当該難易度表で非サポート</li>
+	 * <li>当該難易度表で一度も難易度表情報の更新が行われていない</li>
+	 * <li>Webサーバが ETag ヘッダを応答しなかった</li>
+	 * </ul>
+	 * @param playStyle プレースタイル
+	 * @return 楽曲情報元データのエンティティタグ、または null
+	 * @throws NullPointerException playStyle が null
+	 * @since 0.3.0
+	 */
+	public String getModifiedETag(PlayStyle playStyle) {
+		assertArgNotNull(playStyle, "playStyle");
+		return mModifiedETags[playStyle.ordinal()];
+	}
+
+	/**
+	 * 楽曲情報元データのエンティティタグ設定
+	 * <p>難易度表データベースが難易度表情報を構築する際に使用する。</p>
+	 * @param playStyle プレースタイル
+	 * @param eTag 楽曲情報元データのエンティティタグ、または null
+	 * @return この難易度表情報オブジェクトのインスタンス
+	 */
+	ContentCollection setModifiedETag(PlayStyle playStyle, String eTag) {
+		mModifiedETags[playStyle.ordinal()] = eTag;
+		return this;
+	}
+
+	/**
+	 * 指定したプレースタイルの楽曲情報元データの有効期限を取得します。
+	 * <p>有効期限は楽曲情報元データのダウンロード時にWebサーバが応答した Cache-Control ヘッダの max-age、
+	 * または Expires ヘッダから算出した日時です。有効期限内のプレースタイルは、難易度表データベースの更新で
+	 * Webサーバへの問い合わせが省略されます。以下の条件のいずれかを満たす場合、null を返します。</p>
+	 * <ul>
+	 * <li>指定プレースタイルが当該難易度表で非サポート</li>
+	 * <li>当該難易度表で一度も難易度表情報の更新が行われていない</li>
+	 * <li>Webサーバが有効期限を応答しなかった、またはキャッシュを禁止した</li>
+	 * </ul>
+	 * @param playStyle プレースタイル
+	 * @return 楽曲情報元データの有効期限、または null
+	 * @throws NullPointerException playStyle が null
+	 * @since 0.3.0
+	 */
+	public ZonedDateTime getModifiedExpires(PlayStyle playStyle) {
+		assertArgNotNull(playStyle, "playStyle");
+		return mModifiedExpires[playStyle.ordinal()];
+	}
+
+	/**
+	 * 楽曲情報元データの有効期限設定
+	 * <p>難易度表データベースが難易度表情報を構築する際に使用する。</p>
+	 * @param playStyle プレースタイル
+	 * @param expires 楽曲情報元データの有効期限、または null
+	 * @return この難易度表情報オブジェクトのインスタンス
+	 */
+	ContentCollection setModifiedExpires(PlayStyle playStyle, ZonedDateTime expires) {
+		mModifiedExpires[playStyle.ordinal()] = expires;
+		return this;
+	}
+
+	/**
+	 * 楽曲情報リストの格納先取得
+	 * <p>難易度表データベースが楽曲情報オブジェクトを生成せずに楽曲情報を参照する際に使用する。</p>
+	 * @return 楽曲情報リストの格納先
+	 */
+	ContentStore getStore() {
+		return mContents;
+	}
+
 	/**
 	 * 楽曲情報の数を取得します。
 	 * @return 楽曲情報の数
 	 * @since 0.1.0
 	 */
 	public int getCount() {
-		return mContents.size();
+		return mContents.count();
+	}
+
+	/**
+	 * 指定したプレースタイルの難易度ごとの楽曲情報の数を取得します。
+	 * <p>戻り値の配列のインデックス値は難易度インデックスを表し、配列の長さは当該プレースタイルの難易度ラベルの数と
+	 * 一致します。指定プレースタイルが当該難易度表で非サポートの場合は長さ0の配列を返します。</p>
+	 * @param playStyle プレースタイル
+	 * @return 難易度ごとの楽曲情報の数
+	 * @throws NullPointerException playStyle が null
+	 * @since 0.3.0
+	 */
+	public int[] getLevelCounts(PlayStyle playStyle) {
+		assertArgNotNull(playStyle, "playStyle");
+		var styleDesc = mTableDesc.getPlayStyleDescription(playStyle);
+		var counts = new int[Objects.isNull(styleDesc) ? 0 : styleDesc.getLabels().size()];
+		var count = mContents.count();
+		for (var i = 0; i < count; i++) {
+			var levelIndex = mContents.levelIndex(i);
+			if ((mContents.playStyle(i) == playStyle) && (levelIndex < counts.length)) {
+				counts[levelIndex]++;
+			}
+		}
+		return counts;
 	}
 
 	/**
 	 * 全ての楽曲情報のストリームを返します。
+	 * <p>楽曲情報オブジェクトは走査時に生成されます。同じ楽曲情報でも呼び出しごとに異なるオブジェクトとなることに
+	 * 注意してください。</p>
 	 * @return 楽曲情報のストリーム
 	 * @since 0.1.0
 	 */
 	public Stream<ContentDescription> all() {
-		return mContents.stream();
+		return IntStream.range(0, mContents.count()).mapToObj(mContents::get);
+	}
+
+	/**
+	 * 指定したプレースタイルの全ての楽曲情報のストリームを返します。
+	 * <p>プレースタイルの判定は楽曲情報オブジェクトを生成せずに行われます。楽曲情報オブジェクトは {@link #all()}
+	 * と同様に走査時に生成されます。</p>
+	 * @param playStyle プレースタイル
+	 * @return 楽曲情報のストリーム
+	 * @throws NullPointerException playStyle が null
+	 * @since 0.3.0
+	 */
+	public Stream<ContentDescription> all(PlayStyle playStyle) {
+		assertArgNotNull(playStyle, "playStyle");
+		return IntStream.range(0, mContents.count())
+				.filter(i -> mContents.playStyle(i) == playStyle)
+				.mapToObj(mContents::get);
 	}
 
 	/**
 	 * 楽曲情報を取得します。
+	 * <p>楽曲情報オブジェクトは呼び出しのたびに生成されます。</p>
 	 * @param index インデックス値
 	 * @return 楽曲情報
 	 * @throws IndexOutOfBoundsException index が0未満または {@link #getCount()} 以上
 	 * @since 0.1.0
 	 */
 	public ContentDescription get(int index) {
-		assertArgIndexRange(index, mContents.size(), "index");
+		assertArgIndexRange(index, mContents.count(), "index");
 		return mContents.get(index);
 	}
 
@@ -169,7 +332,7 @@ public class ContentCollection {
 	 * 全ての楽曲情報が必ず保有している情報で、確実に検索条件として照合が行われます。</p>
 	 * <p>上記の理由から SHA-256, MD5 は指定省略可能で、タイトル＆アーティスト＆プレースタイルは必須となります。</p>
 	 * <p>正規表現やその他の検索条件を使用して複雑な検索を行いたい場合は {@link #all()} を使用してください。
-	 * 当メソッドで抽出可能な楽曲情報は1件のみです。</p>
+	 * 当メソッドで抽出可能な楽曲情報は1件のみです。楽曲情報オブジェクトは呼び出しのたびに生成されます。</p>
 	 * @param title タイトル
 	 * @param artist アーティスト
 	 * @param playStyle プレースタイル
@@ -188,32 +351,18 @@ public class ContentCollection {
 		assertArgNotNull(playStyle, "playStyle");
 
 		// SHA-256指定があり、SHA-256が定義されている場合、SHA-256による照合を試みる
-		var c = (ContentDescription)null;
-		if (Objects.nonNull(sha256) && Objects.nonNull(c = mMappedSha256.get(sha256))) {
-			return c;
+		var index = -1;
+		if (Objects.nonNull(sha256) && ((index = mContents.indexOfSha256(sha256)) >= 0)) {
+			return mContents.get(index);
 		}
 
 		// MD5指定があり、MD5が定義されている場合、MD5による照合を試みる
-		if (Objects.nonNull(md5) && Objects.nonNull(c = mMappedMd5.get(md5))) {
-			return c;
+		if (Objects.nonNull(md5) && ((index = mContents.indexOfMd5(md5)) >= 0)) {
+			return mContents.get(index);
 		}
 
 		// タイトル・アーティストによる照合を試みる
-		return mMappedMeta.get(metaKey(title, artist, playStyle));
-	}
-
-	/**
-	 * タイトル＆アーティスト検索キー生成
-	 * @param title タイトル
-	 * @param artist アーティスト
-	 * @param playStyle プレースタイル
-	 * @return タイトル＆アーティスト検索キー
-	 */
-	private static String metaKey(String title, String artist, PlayStyle playStyle) {
-		return new StringBuilder()
-				.append("t=").append(title)
-				.append(",a=").append(artist)
-				.append(",s=").append(playStyle.shortName)
-				.toString();
+		index = mContents.indexOfMeta(title, artist, playStyle);
+		return (index < 0) ? null : mContents.get(index);
 	}
 }
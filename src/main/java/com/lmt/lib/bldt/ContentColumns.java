@@ -0,0 +1,305 @@
+package com.lmt.lib.bldt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.lmt.lib.bldt.internal.OpenHashIndex;
+import com.lmt.lib.bldt.internal.StringPool;
+import com.lmt.lib.bldt.internal.Utility;
+
+/**
+ * 楽曲情報リストの列指向ストア
+ *
+ * <p>楽曲情報を1件ずつのオブジェクトではなく、項目ごとの配列(列)で保持する。文字列は難易度表内で重複を排除した
+ * 文字列テーブルへのインデックス値、ハッシュ値はlong値の配列で保持する。プレースタイル・難易度インデックスによる
+ * 集計や絞り込みは、楽曲情報オブジェクトを生成せずに列を走査して行う。
+ * 楽曲情報オブジェクトは {@link #get(int)} で要求された時に列の値から生成する。
+ * 検索用のタイトル・アーティストとインデックス値のマップ、MD5・SHA-256の索引も当クラスで保持する。
+ * MD5・SHA-256の索引はハッシュ値の列を参照するオープンアドレス法のハッシュテーブル({@link OpenHashIndex})で、
+ * 検索時は指定された16進数文字列を1回だけlong値に変換して比較する。</p>
+ *
+ * <p>構築後は変更されないため、当クラスはスレッドセーフである。</p>
+ */
+class ContentColumns implements ContentStore {
+	/** 文字列なしを示すインデックス値 */
+	private static final int NO_STRING = -1;
+	/** DPフラグ */
+	private static final byte FLAG_DP = 0x01;
+	/** MD5ありフラグ */
+	private static final byte FLAG_MD5 = 0x02;
+	/** SHA-256ありフラグ */
+	private static final byte FLAG_SHA256 = 0x04;
+	/** MD5の文字数 */
+	private static final int MD5_LENGTH = 32;
+	/** SHA-256の文字数 */
+	private static final int SHA256_LENGTH = 64;
+	/** ハッシュ値なしの場合のハッシュ値の列 */
+	private static final long[] NO_HASHES = new long[0];
+
+	/** 楽曲情報の数 */
+	private final int mCount;
+	/** 文字列テーブル */
+	private final String[] mStrings;
+	/** タイトルの列(文字列テーブルのインデックス値) */
+	private final int[] mTitles;
+	/** アーティストの列(文字列テーブルのインデックス値) */
+	private final int[] mArtists;
+	/** 楽曲本体入手先URLの列(文字列テーブルのインデックス値) */
+	private final int[] mBodyUrls;
+	/** 差分譜面入手先URLの列(文字列テーブルのインデックス値) */
+	private final int[] mAdditionalUrls;
+	/** プレースタイル・ハッシュ値有無のフラグの列 */
+	private final byte[] mFlags;
+	/** 難易度インデックスの列 */
+	private final int[] mLevelIndices;
+	/** MD5の列(1件につき2要素。MD5を持つ楽曲情報がない場合は空) */
+	private final long[] mMd5s;
+	/** SHA-256の列(1件につき4要素。SHA-256を持つ楽曲情報がない場合は空) */
+	private final long[] mSha256s;
+	/** タイトル・アーティストによる楽曲情報のインデックス値マップ */
+	private final Map<String, Integer> mMappedMeta = new HashMap<>();
+	/** MD5の索引のスロット */
+	private final int[] mMd5Slots;
+	/** SHA-256の索引のスロット */
+	private final int[] mSha256Slots;
+
+	/**
+	 * コンストラクタ
+	 * @param contents 楽曲情報リスト
+	 * @param pool 文字列の重複排除プール、または null
+	 */
+	ContentColumns(Collection<ContentDescription> contents, StringPool pool) {
+		var count = contents.size();
+		var table = new HashMap<String, Integer>();
+		var strings = new ArrayList<String>();
+		var md5s = NO_HASHES;
+		var sha256s = NO_HASHES;
+		mCount = count;
+		mTitles = new int[count];
+		mArtists = new int[count];
+		mBodyUrls = new int[count];
+		mAdditionalUrls = new int[count];
+		mFlags = new byte[count];
+		mLevelIndices = new int[count];
+		var i = 0;
+		for (var c : contents) {
+			mTitles[i] = stringIndex(table, strings, pool, c.getTitle());
+			mArtists[i] = stringIndex(table, strings, pool, c.getArtist());
+			mBodyUrls[i] = stringIndex(table, strings, pool, c.getBodyUrlString());
+			mAdditionalUrls[i] = stringIndex(table, strings, pool, c.getAdditionalUrlString());
+			mLevelIndices[i] = c.getLevelIndex();
+			var flags = (c.getPlayStyle() == PlayStyle.DOUBLE) ? FLAG_DP : 0;
+			if (c.hasMd5()) {
+				// ハッシュ値の列は最初にハッシュ値を持つ楽曲情報が現れた時に確保する
+				md5s = (md5s.length == 0) ? new long[count * 2] : md5s;
+				c.copyMd5(md5s, i * 2);
+				flags |= FLAG_MD5;
+			}
+			if (c.hasSha256()) {
+				sha256s = (sha256s.length == 0) ? new long[count * 4] : sha256s;
+				c.copySha256(sha256s, i * 4);
+				flags |= FLAG_SHA256;
+			}
+			mFlags[i] = flags;
+			mMappedMeta.put(metaKey(c.getTitle(), c.getArtist(), c.getPlayStyle()), i);
+			i++;
+		}
+		mStrings = strings.toArray(String[]::new);
+		mMd5s = md5s;
+		mSha256s = sha256s;
+
+		// ハッシュ値の列を参照する索引を構築する
+		mMd5Slots = OpenHashIndex.build(count, j -> (mFlags[j] & FLAG_MD5) != 0,
+				j -> OpenHashIndex.hashMd5(mMd5s[j * 2], mMd5s[j * 2 + 1]),
+				(j, k) -> Arrays.equals(mMd5s, j * 2, j * 2 + 2, mMd5s, k * 2, k * 2 + 2));
+		mSha256Slots = OpenHashIndex.build(count, j -> (mFlags[j] & FLAG_SHA256) != 0,
+				j -> OpenHashIndex.hashSha256(
+						mSha256s[j * 4], mSha256s[j * 4 + 1], mSha256s[j * 4 + 2], mSha256s[j * 4 + 3]),
+				(j, k) -> Arrays.equals(mSha256s, j * 4, j * 4 + 4, mSha256s, k * 4, k * 4 + 4));
+	}
+
+	/**
+	 * 楽曲情報の数取得
+	 * @return 楽曲情報の数
+	 */
+	@Override
+	public int count() {
+		return mCount;
+	}
+
+	/**
+	 * プレースタイル取得
+	 * @param index インデックス値
+	 * @return プレースタイル
+	 */
+	@Override
+	public PlayStyle playStyle(int index) {
+		return ((mFlags[index] & FLAG_DP) != 0) ? PlayStyle.DOUBLE : PlayStyle.SINGLE;
+	}
+
+	/**
+	 * 難易度インデックス取得
+	 * @param index インデックス値
+	 * @return 難易度インデックス
+	 */
+	@Override
+	public int levelIndex(int index) {
+		return mLevelIndices[index];
+	}
+
+	/**
+	 * 楽曲情報オブジェクト生成
+	 * <p>呼び出しのたびに新しい楽曲情報オブジェクトを生成する。文字列は列指向ストアと共有する。</p>
+	 * @param index インデックス値
+	 * @return 楽曲情報オブジェクト
+	 */
+	@Override
+	public ContentDescription get(int index) {
+		var flags = mFlags[index];
+		return ContentDescription.restore(
+				mStrings[mTitles[index]],
+				mStrings[mArtists[index]],
+				playStyle(index),
+				mLevelIndices[index],
+				string(mBodyUrls[index]),
+				string(mAdditionalUrls[index]),
+				((flags & FLAG_MD5) != 0) ? mMd5s : null, index * 2,
+				((flags & FLAG_SHA256) != 0) ? mSha256s : null, index * 4);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean copyMd5(int index, long[] dest, int offset) {
+		if ((mFlags[index] & FLAG_MD5) == 0) {
+			return false;
+		}
+		System.arraycopy(mMd5s, index * 2, dest, offset, 2);
+		return true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean copySha256(int index, long[] dest, int offset) {
+		if ((mFlags[index] & FLAG_SHA256) == 0) {
+			return false;
+		}
+		System.arraycopy(mSha256s, index * 4, dest, offset, 4);
+		return true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int indexOfSha256(String sha256) {
+		if (!Utility.isHex(sha256, SHA256_LENGTH)) {
+			return -1;
+		}
+		return indexOfSha256(
+				Utility.parseHexLong(sha256, 0),
+				Utility.parseHexLong(sha256, 16),
+				Utility.parseHexLong(sha256, 32),
+				Utility.parseHexLong(sha256, 48));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int indexOfSha256(long a, long b, long c, long d) {
+		var mask = mSha256Slots.length - 1;
+		for (var slot = OpenHashIndex.firstSlot(OpenHashIndex.hashSha256(a, b, c, d), mask); ;
+				slot = OpenHashIndex.nextSlot(slot, mask)) {
+			var entry = mSha256Slots[slot];
+			if (entry == 0) {
+				return -1;
+			}
+			var i = (entry - 1) * 4;
+			if ((mSha256s[i] == a) && (mSha256s[i + 1] == b) && (mSha256s[i + 2] == c) && (mSha256s[i + 3] == d)) {
+				return entry - 1;
+			}
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int indexOfMd5(String md5) {
+		if (!Utility.isHex(md5, MD5_LENGTH)) {
+			return -1;
+		}
+		return indexOfMd5(Utility.parseHexLong(md5, 0), Utility.parseHexLong(md5, 16));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int indexOfMd5(long hi, long lo) {
+		var mask = mMd5Slots.length - 1;
+		for (var slot = OpenHashIndex.firstSlot(OpenHashIndex.hashMd5(hi, lo), mask); ;
+				slot = OpenHashIndex.nextSlot(slot, mask)) {
+			var entry = mMd5Slots[slot];
+			if (entry == 0) {
+				return -1;
+			}
+			var i = (entry - 1) * 2;
+			if ((mMd5s[i] == hi) && (mMd5s[i + 1] == lo)) {
+				return entry - 1;
+			}
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String[] strings() {
+		return mStrings;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int indexOfMeta(String title, String artist, PlayStyle playStyle) {
+		var index = mMappedMeta.get(metaKey(title, artist, playStyle));
+		return Objects.isNull(index) ? -1 : index;
+	}
+
+	/**
+	 * タイトル＆アーティスト検索キー生成
+	 * @param title タイトル
+	 * @param artist アーティスト
+	 * @param playStyle プレースタイル
+	 * @return タイトル＆アーティスト検索キー
+	 */
+	private static String metaKey(String title, String artist, PlayStyle playStyle) {
+		return new StringBuilder()
+				.append("t=").append(title)
+				.append(",a=").append(artist)
+				.append(",s=").append(playStyle.shortName)
+				.toString();
+	}
+
+	/**
+	 * 文字列テーブルからの文字列取得
+	 * @param stringIndex 文字列テーブルのインデックス値
+	 * @return 文字列、または null
+	 */
+	private String string(int stringIndex) {
+		return (stringIndex == NO_STRING) ? null : mStrings[stringIndex];
+	}
+
+	/**
+	 * 文字列テーブルへの文字列登録
+	 * @param table 文字列とインデックス値のマップ
+	 * @param strings 文字列テーブル
+	 * @param pool 文字列の重複排除プール、または null
+	 * @param s 文字列、または null
+	 * @return 文字列テーブルのインデックス値。s が null の場合 {@link #NO_STRING}。
+	 */
+	private static int stringIndex(Map<String, Integer> table, List<String> strings, StringPool pool, String s) {
+		if (Objects.isNull(s)) {
+			return NO_STRING;
+		}
+		return table.computeIfAbsent(s, k -> {
+			strings.add(Objects.isNull(pool) ? k : pool.string(k));
+			return strings.size() - 1;
+		});
+	}
+}
@@ -3,14 +3,16 @@ package com.lmt.lib.bldt;
 import static com.lmt.lib.bldt.DifficultyTables.*;
 import static com.lmt.lib.bldt.internal.Assertion.*;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.net.http.HttpTimeoutException;
@@ -19,26 +21,47 @@ import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
+import com.lmt.lib.bldt.internal.ContentReceiver;
+import com.lmt.lib.bldt.internal.HostScheduler;
+import com.lmt.lib.bldt.internal.JsonPullReader;
 import com.lmt.lib.bldt.internal.LockFile;
+import com.lmt.lib.bldt.internal.RawStore;
+import com.lmt.lib.bldt.internal.RefreshScheduler;
+import com.lmt.lib.bldt.internal.SnapshotFile;
+import com.lmt.lib.bldt.internal.StringPool;
 import com.lmt.lib.bldt.internal.Utility;
 
 /**
@@ -59,21 +82,80 @@ import com.lmt.lib.bldt.internal.Utility;
 public class ContentDatabase {
 	/** デフォルトの難易度表データベース格納先パス */
 	static Path DEFAULT_LOCATION = DifficultyTables.DEFAULT_LOCATION;
-	/** 難易度表データベースのバージョン */
-	public static final int VERSION = 1;
+	/**
+	 * 難易度表データベースのバージョン
+	 * <p>バージョン2で楽曲情報元データのエンティティタグ(modified[].eTag)と有効期限(modified[].expires)が追加されました。
+	 * バージョン1の難易度表情報ファイルはそのまま読み込むことができ、次回の更新時にバージョン2の形式で保存されます。</p>
+	 */
+	public static final int VERSION = 2;
+	/** 読み込み可能な最も古い難易度表データベースのバージョン */
+	private static final int OLDEST_VERSION = 1;
 	/** 読み込み排他用ロックファイル名 */
 	private static final String READ_LOCK_FILE_NAME = ".read.lock";
+	/** 楽曲情報元データ保存先ディレクトリ名 */
+	private static final String RAW_DIRECTORY_NAME = "raw";
+	/** 自動更新の変更履歴ファイル名 */
+	private static final String REFRESH_HISTORY_FILE_NAME = ".refresh.json";
 	/** 書き込み排他用ロックファイル名 */
 	private static final String WRITE_LOCK_FILE_NAME = ".write.lock";
+	/** プレースタイル単位の並行処理を行うエグゼキュータ */
+	private static final ExecutorService STYLE_EXECUTOR = Executors.newCachedThreadPool(
+			Utility.daemonThreadFactory("bldt-style"));
+	/** 難易度表情報の並列読み込み、バックグラウンド読み込みを行うスレッドプール(CPUコア数のスレッドで処理する) */
+	private static final ExecutorService LOAD_EXECUTOR = Executors.newFixedThreadPool(
+			Runtime.getRuntime().availableProcessors(), Utility.daemonThreadFactory("bldt-load"));
+
+	/**
+	 * 同一ホストに対して同時に送信する楽曲情報取得リクエスト数上限の既定値です。
+	 * @see #setHostPolicy(int, Duration)
+	 * @since 0.3.0
+	 */
+	public static final int DEFAULT_HOST_CONCURRENCY = 2;
+	/**
+	 * 同一ホストに対する楽曲情報取得リクエストの送信開始間隔の既定値です。
+	 * @see #setHostPolicy(int, Duration)
+	 * @since 0.3.0
+	 */
+	public static final Duration DEFAULT_HOST_INTERVAL = Duration.ofMillis(100);
+
+	/**
+	 * 難易度表データベースの読み込みオプションです。
+	 * @see ContentDatabase#ContentDatabase(Path, boolean, LoadOption...)
+	 * @since 0.3.0
+	 */
+	public enum LoadOption {
+		/** 遅延読み込みモード(難易度表情報を初回アクセス時に読み込む) */
+		LAZY,
+		/** メモリマップモード(スナップショットをメモリマップし、楽曲情報をヒープに展開せずに参照する) */
+		MAPPED;
+	}
 
 	/** 難易度表データベース格納先パス */
 	private Path mLocation;
-	/** 難易度表情報マップ */
+	/** 難易度表情報マップ(遅延読み込みモードで未読み込みの難易度表は null) */
 	private Map<String, ContentCollection> mCollections;
+	/** 遅延読み込みモードで未読み込みの難易度表定義マップ(mCollections で同期する) */
+	private Map<String, TableDescription> mPending = new LinkedHashMap<>();
+	/** 全難易度表情報のハッシュ値索引(検索時に構築し、難易度表情報の置き換えで破棄する。未構築の場合は null。mCollections で同期する) */
+	private ContentHashIndex mHashIndex = null;
+	/** 遅延読み込みの排他制御用オブジェクト */
+	private final Object mLoadLock = new Object();
 	/** データ読み取り用ロックファイル */
 	private LockFile mReadLock;
 	/** データ書き込み用ロックファイル */
 	private LockFile mWriteLock;
+	/** 楽曲情報元データの保存先 */
+	private RawStore mRawStore;
+	/** 全難易度表情報で共有する楽曲情報の文字列の重複排除プール */
+	private final StringPool mStringPool = new StringPool();
+	/** メモリマップモードかどうか */
+	private boolean mMapped = false;
+	/** 自動更新スケジューラ(自動更新停止中は null) */
+	private volatile RefreshScheduler mRefreshScheduler;
+	/** ホスト単位のリクエスト送信スケジューラ */
+	private volatile HostScheduler mHostScheduler = new HostScheduler(DEFAULT_HOST_CONCURRENCY, DEFAULT_HOST_INTERVAL);
+	/** 楽曲情報元データの有効期限に関わらず更新を行うかどうか(更新処理の開始時に読み取る) */
+	private volatile boolean mForceUpdate = false;
 
 	/**
 	 * 新しい難易度表データベースオブジェクトを構築します。
@@ -84,19 +166,25 @@ public class ContentDatabase {
 	 * @since 0.1.0
 	 */
 	public ContentDatabase() throws IOException {
-		processLoad(DEFAULT_LOCATION, true);
+		processLoad(DEFAULT_LOCATION, true, false, false);
 	}
 
 	/**
 	 * 新しい難易度表データベースオブジェクトを構築します。
 	 * <p>オブジェクトが構築される時、指定された格納先パスから各難易度表情報を読み込み、メモリ上にロードします。
 	 * 難易度表情報ファイルが存在しない場合は空の難易度表情報としてロードされます。</p>
+	 * <p>更新時に難易度表情報ファイルと一緒に書き込まれたスナップショット(&lt;ID&gt;.snapshot)があり、
+	 * 難易度表情報ファイルと一致する(サイズ・最終更新日時・ファイルキーが一致する)場合は、
+	 * 難易度表情報ファイルの解析を省略してスナップショットから読み込みます。
+	 * スナップショットが存在しない、古い、または破損している場合は難易度表情報ファイルから読み込みます。</p>
 	 * <p>格納先パスに指定のディレクトリは必ず存在していなければなりません。存在しない場合は例外をスローします。
 	 * 2番目の引数に true を指定するとディレクトリが存在しない場合にディレクトリが新しく作成されます。
 	 * この場合、全ての難易度表情報が空となります。</p>
 	 * <p>{@link DifficultyTables#add(TableDescription)} で難易度表定義を追加している場合、
 	 * その難易度表情報も読み込もうとします。</p>
+	 * <p>各難易度表情報は並列で読み込まれますが、{@link #all()} は常に難易度表定義の登録順に難易度表情報を走査します。</p>
 	 * <p>難易度表情報の読み込み中にファイル破損を検出したり入出力エラーが発生した場合は例外をスローします。
+	 * 複数の難易度表情報でエラーが発生した場合は、難易度表定義の登録順で最初の難易度表情報の例外をスローします。
 	 * その場合、読み込み途中のデータは全て破棄されます。</p>
 	 * <p>難易度表情報の読み込み中は難易度表データベースの書き込みはロックされ、同データベースに対しての更新処理は
 	 * 全て失敗します。その点の詳細については {@link #update(HttpClient, Duration, UpdateProgress)} を参照してください。</p>
@@ -112,7 +200,53 @@ public class ContentDatabase {
 	 */
 	public ContentDatabase(Path location, boolean createIfNeeded) throws IOException {
 		assertArgNotNull(location, "location");
-		processLoad(location, createIfNeeded);
+		processLoad(location, createIfNeeded, false, false);
+	}
+
+	/**
+	 * 読み込みオプションを指定して新しい難易度表データベースオブジェクトを構築します。
+	 * <p>読み込みオプションを指定しない場合、{@link #ContentDatabase(Path, boolean)} と同じ動作を行います。
+	 * 読み込みオプションは組み合わせて指定できます。同じ読み込みオプションを複数指定しても1個指定した場合と同じです。</p>
+	 * <p>{@link LoadOption#LAZY} を指定すると遅延読み込みモードで構築します。遅延読み込みモードではオブジェクト構築時に
+	 * 難易度表情報ファイルの有無のみを確認し、難易度表情報ファイルの読み込みは行いません。各難易度表情報は
+	 * {@link #get(String)} で初めて取得される時、または {@link #all()} が呼び出された時に読み込まれます。
+	 * 一部の難易度表のみを使用するアプリケーションでは、構築に要する時間が使用する難易度表の分だけになります。
+	 * 残りの難易度表情報をバックグラウンドで読み込む場合は {@link #warmUp()} を使用してください。
+	 * 難易度表データベースの更新では、更新対象以外の難易度表情報は読み込まれません。</p>
+	 * <p>遅延読み込みモードでは、難易度表情報ファイルの破損やデータ改ざんはオブジェクト構築時ではなく、
+	 * 当該難易度表情報の読み込み時に検出されます。読み込みに失敗した難易度表情報は、次回取得時に再度読み込みを試みます。
+	 * 難易度表情報は初めて読み込まれる時点の難易度表情報ファイルの内容となります。</p>
+	 * <p>{@link LoadOption#MAPPED} を指定するとメモリマップモードで構築します。メモリマップモードでは、スナップショットを
+	 * 読み取り専用でメモリにマップし、楽曲情報をヒープに展開せずにマップしたファイルから直接参照します。
+	 * 難易度表情報のヒープ使用量は楽曲情報の数に関わらず一定となり、同じ難易度表データベースを開いている
+	 * 複数のプロセスはOSのページキャッシュを介して同じデータを共有します。
+	 * {@link ContentCollection#query(String, String, PlayStyle, String, String)} による検索はスナップショットに
+	 * 記録された索引で行われます。</p>
+	 * <p>スナップショットが存在しない、古い、または破損している難易度表情報は、メモリマップモードでも
+	 * 難易度表情報ファイルからヒープ上に読み込まれます。難易度表データベースの更新後は、新しく書き込まれた
+	 * スナップショットをマップし直します。スナップショットを置き換えられなかった場合(マップ中のファイルを置き換えられない
+	 * プラットフォーム等)は、更新後の難易度表情報をヒープ上に保持します。</p>
+	 * @param location 難易度表データベースの格納先パス
+	 * @param createIfNeeded location に指定のディレクトリが存在しない場合に新しく作成するかどうか
+	 * @param options 読み込みオプション
+	 * @throws NullPointerException location が null
+	 * @throws NullPointerException options、または options の要素が null
+	 * @throws NoSuchFileException 難易度表データベース格納先パスが存在しない
+	 * @throws NoSuchFileException 難易度表データベース格納先パスがファイル
+	 * @throws IOException 入出力エラーが発生した
+	 * @throws IOException 難易度表データベース読み込み中にファイル破損、データ改ざんを検出した(遅延読み込みモード以外)
+	 * @throws IllegalStateException 難易度表データベースの書き込みがロックされている(データベース更新中)
+	 * @since 0.3.0
+	 */
+	public ContentDatabase(Path location, boolean createIfNeeded, LoadOption... options) throws IOException {
+		assertArgNotNull(location, "location");
+		assertArgNotNull(options, "options");
+		var optionSet = EnumSet.noneOf(LoadOption.class);
+		for (var option : options) {
+			assertArgNotNull(option, "options[]");
+			optionSet.add(option);
+		}
+		processLoad(location, createIfNeeded, optionSet.contains(LoadOption.LAZY), optionSet.contains(LoadOption.MAPPED));
 	}
 
 	/**
@@ -124,25 +258,167 @@ public class ContentDatabase {
 		return mLocation;
 	}
 
+	/**
+	 * 楽曲情報の重複排除で削減したメモリ量の概算値を取得します。
+	 * <p>同じ楽曲が複数の難易度表に登録されている場合、タイトル・アーティスト・URLの文字列は
+	 * 全ての難易度表情報で同じオブジェクトを共有します。当メソッドは、現在読み込まれている難易度表情報の間で
+	 * 共有している文字列について、2個目以降の難易度表情報が保持するはずだったオブジェクトのサイズの概算値の合計を
+	 * 返します。難易度表情報が更新で置き換えられた場合は、置き換え後の難易度表情報で計算し直した値になります。
+	 * 遅延読み込みモードで未読み込みの難易度表情報と、メモリマップモードでスナップショットを参照している
+	 * 難易度表情報は計算の対象外です。</p>
+	 * <p>当メソッドは呼び出しのたびに全ての難易度表情報の文字列を走査して計算します。</p>
+	 * @return 重複排除で削減しているメモリ量の概算値(バイト)
+	 * @since 0.3.0
+	 */
+	public long getDeduplicatedBytes() {
+		var tables = new ArrayList<String[]>();
+		synchronized (mCollections) {
+			mCollections.values().stream().filter(Objects::nonNull).forEach(c -> tables.add(c.getStore().strings()));
+		}
+		return StringPool.sharedBytes(tables);
+	}
+
 	/**
 	 * 全ての難易度表情報を走査するストリームを返します。
+	 * <p>遅延読み込みモードの場合、未読み込みの難易度表情報を全て読み込んでからストリームを返します。</p>
 	 * @return 全ての難易度表情報を走査するストリーム
+	 * @throws UncheckedIOException 遅延読み込みモードで、難易度表情報の読み込み中に入出力エラー、ファイル破損、
+	 *         データ改ざんを検出した
 	 * @since 0.1.0
 	 */
 	public Stream<ContentCollection> all() {
+		try {
+			loadPendingCollections();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
 		return mCollections.values().stream();
 	}
 
+	/**
+	 * 指定したMD5の楽曲情報を登録している全ての難易度表情報から、楽曲情報を検索します。
+	 * <p>当メソッドは難易度表データベース全体のハッシュ値索引を1回検索し、各難易度表情報で
+	 * {@link ContentCollection#query(String, String, PlayStyle, String, String)} を呼び出すことなく結果を返します。
+	 * 戻り値のマップのキーは難易度表ID、値は当該難易度表情報の楽曲情報で、難易度表定義の登録順に走査されます。
+	 * 1個の難易度表情報に同じMD5の楽曲情報が複数ある場合は {@link ContentCollection#query} と同じ楽曲情報となります。
+	 * MD5は大文字・小文字を区別せず、MD5の形式ではない場合は空のマップを返します。</p>
+	 * <p>ハッシュ値索引は初回の呼び出し時に構築され、難易度表データベースの更新で難易度表情報が置き換えられた場合は
+	 * 次回の呼び出し時に自動的に構築し直されます。索引の構築時は楽曲情報オブジェクトを生成せず、
+	 * 検索でヒットした楽曲情報のみを生成します。遅延読み込みモードの場合、未読み込みの難易度表情報を全て読み込んでから検索します。</p>
+	 * @param md5 MD5
+	 * @return 難易度表IDと楽曲情報のマップ。該当なしの場合は空のマップ。
+	 * @throws NullPointerException md5 が null
+	 * @throws UncheckedIOException 遅延読み込みモードで、難易度表情報の読み込み中に入出力エラー、ファイル破損、
+	 *         データ改ざんを検出した
+	 * @since 0.3.0
+	 */
+	public Map<String, ContentDescription> queryByMd5(String md5) {
+		assertArgNotNull(md5, "md5");
+		return Utility.isMd5(md5) ? queryByHash(index -> index.findMd5(md5)) : Map.of();
+	}
+
+	/**
+	 * 指定したSHA-256の楽曲情報を登録している全ての難易度表情報から、楽曲情報を検索します。
+	 * <p>SHA-256で検索すること以外は {@link #queryByMd5(String)} と同じです。</p>
+	 * @param sha256 SHA-256
+	 * @return 難易度表IDと楽曲情報のマップ。該当なしの場合は空のマップ。
+	 * @throws NullPointerException sha256 が null
+	 * @throws UncheckedIOException 遅延読み込みモードで、難易度表情報の読み込み中に入出力エラー、ファイル破損、
+	 *         データ改ざんを検出した
+	 * @since 0.3.0
+	 */
+	public Map<String, ContentDescription> queryBySha256(String sha256) {
+		assertArgNotNull(sha256, "sha256");
+		return Utility.isSha256(sha256) ? queryByHash(index -> index.findSha256(sha256)) : Map.of();
+	}
+
 	/**
 	 * 指定したIDに該当する難易度表情報を取得します。
+	 * <p>遅延読み込みモードの場合、未読み込みの難易度表情報はここで読み込まれます。</p>
 	 * @param id ID
 	 * @return 難易度表情報、該当する難易度表情報が存在しない場合は null
 	 * @throws NullPointerException id が null
+	 * @throws UncheckedIOException 遅延読み込みモードで、難易度表情報の読み込み中に入出力エラー、ファイル破損、
+	 *         データ改ざんを検出した
 	 * @since 0.1.0
 	 */
 	public ContentCollection get(String id) {
 		assertArgNotNull(id, "id");
-		return mCollections.get(id);
+		try {
+			return loadedCollection(id);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * 遅延読み込みモードで未読み込みの難易度表情報をバックグラウンドで読み込みます。
+	 * <p>難易度表情報は難易度表定義の登録順に1件ずつ読み込まれます。読み込み中の難易度表情報を {@link #get(String)}
+	 * で取得した場合、読み込みの完了を待って読み込んだ難易度表情報を返します。遅延読み込みモード以外、
+	 * または全ての難易度表情報が読み込み済みの場合は何も行わず完了します。</p>
+	 * @return 読み込みの完了を通知するフューチャー。読み込み中に入出力エラー、ファイル破損、データ改ざんを検出した場合、
+	 *         IOException を原因として例外的に完了し、後続の難易度表情報は読み込まれません。
+	 * @since 0.3.0
+	 */
+	public CompletableFuture<Void> warmUp() {
+		return CompletableFuture.runAsync(() -> {
+			try {
+				loadPendingCollections();
+			} catch (IOException e) {
+				throw new CompletionException(e);
+			}
+		}, LOAD_EXECUTOR);
+	}
+
+	/**
+	 * 楽曲情報取得リクエストのホスト単位の送信ポリシーを設定します。
+	 * <p>難易度表データベースの更新では、楽曲情報URL({@link PlayStyleDescription#getContentUrl()})のホストごとに
+	 * 同時に送信するリクエストの数と、リクエストの送信開始間隔を制限します。同一ホストで複数の難易度表を提供している
+	 * 場合に、並列更新や非同期更新で同一ホストにリクエストが集中しないようにするためです。
+	 * 異なるホストへのリクエストは互いに制限し合うことはなく、並列度の範囲で同時に送信されます。</p>
+	 * <p>同時送信数上限に達している場合、後続のリクエストは先行するリクエストの応答本文の受信が完了するまで
+	 * 送信を待機します。送信開始間隔は同一ホストに対するリクエストの送信開始時刻の最小間隔です。</p>
+	 * <p>既定値は同時送信数上限 {@link #DEFAULT_HOST_CONCURRENCY}、送信開始間隔 {@link #DEFAULT_HOST_INTERVAL}
+	 * です。設定した内容は、設定以降に開始される更新処理から有効になります。</p>
+	 * <p>更新処理の実行中は、実行中の更新処理の全てのリクエストに同じ制限を適用するため、送信ポリシーを変更できません。
+	 * {@link #update(HttpClient, Duration, UpdateProgress)}、{@link #updateAsync(HttpClient, Duration, UpdateProgress)}
+	 * 等による更新処理の実行中に当メソッドを呼び出すと IllegalStateException をスローします。
+	 * 自動更新({@link #startRefresh(HttpClient, Duration, Duration, Duration, UpdateProgress)})では難易度表ごとの
+	 * 更新処理の実行中のみが対象となり、設定した内容は次の難易度表の更新から有効になります。</p>
+	 * @param maxConcurrency 同一ホストに対して同時に送信するリクエスト数上限
+	 * @param minInterval 同一ホストに対するリクエストの送信開始間隔
+	 * @throws IllegalArgumentException maxConcurrency が1未満
+	 * @throws NullPointerException minInterval が null
+	 * @throws IllegalArgumentException minInterval が負の値
+	 * @throws IllegalStateException 更新処理の実行中
+	 * @since 0.3.0
+	 */
+	public void setHostPolicy(int maxConcurrency, Duration minInterval) {
+		assertArg(maxConcurrency >= 1, "'maxConcurrency' is less than 1: %d", maxConcurrency);
+		assertArgNotNull(minInterval, "minInterval");
+		assertArg(!minInterval.isNegative(), "'minInterval' is negative: %s", minInterval);
+
+		// ロックファイルの操作はロックファイルオブジェクトで同期しているため、同期中は更新処理を開始できない
+		synchronized (mWriteLock) {
+			assertField(!mWriteLock.isLocked(), "Cannot change host policy while updating");
+			mHostScheduler = new HostScheduler(maxConcurrency, minInterval);
+		}
+	}
+
+	/**
+	 * 楽曲情報元データの有効期限に関わらず更新を行うかどうかを設定します。
+	 * <p>難易度表データベースの更新では、楽曲情報元データのダウンロード時にWebサーバが応答した
+	 * Cache-Control ヘッダの max-age、または Expires ヘッダから楽曲情報元データの有効期限を記録します
+	 * ({@link ContentCollection#getModifiedExpires(PlayStyle)})。有効期限内のプレースタイルはWebサーバへの
+	 * 接続を行わず、進捗報告に {@link UpdateProgress.Status#UNNECESSARY} を報告します。</p>
+	 * <p>true を設定すると有効期限を無視し、全てのプレースタイルでWebサーバへの問い合わせを行います。
+	 * 既定値は false です。設定した内容は更新処理の開始時に読み取られ、設定以降に開始される更新処理から有効になります。
+	 * 実行中の更新処理(自動更新で実行中の難易度表の更新を含む)の途中で設定を変更しても、その更新処理には影響しません。</p>
+	 * @param force 楽曲情報元データの有効期限に関わらず更新を行う場合 true
+	 * @since 0.3.0
+	 */
+	public void setForceUpdate(boolean force) {
+		mForceUpdate = force;
 	}
 
 	/**
@@ -174,7 +450,7 @@ public class ContentDatabase {
 
 		try {
 			lock(true, true);
-			processUpdate(client, tableDesc, 0, 1, timeout, progress);
+			processUpdate(client, tableDesc, 0, 1, timeout, progress, mForceUpdate);
 		} finally {
 			unlock(true, true);
 		}
@@ -220,8 +496,9 @@ public class ContentDatabase {
 			lock(true, true);
 			var tableDescs = DifficultyTables.all().collect(Collectors.toList());
 			var numDesc = tableDescs.size();
+			var force = mForceUpdate;
 			for (var i = 0; i < numDesc; i++) {
-				processUpdate(client, tableDescs.get(i), i, numDesc, timeout, progress);
+				processUpdate(client, tableDescs.get(i), i, numDesc, timeout, progress, force);
 			}
 		} finally {
 			unlock(true, true);
@@ -266,19 +543,59 @@ public class ContentDatabase {
 	 */
 	public void update(HttpClient client, Duration timeout, UpdateProgress progress, Map<String, UpdateResult> results)
 			throws InterruptedException {
+		update(client, timeout, progress, results, 1);
+	}
+
+	/**
+	 * 難易度表データベースの更新を行います。
+	 * <p>当メソッドは複数の難易度表を並列で更新する点を除き、
+	 * {@link #update(HttpClient, Duration, UpdateProgress, Map)} と同様の動作を行います。</p>
+	 * <p>並列度には同時に更新処理を行う難易度表の最大数を指定します。1を指定すると難易度表を1個ずつ順番に更新し、
+	 * {@link #update(HttpClient, Duration, UpdateProgress, Map)} と全く同じ動作になります。
+	 * 2以上を指定すると、更新処理は並列度と同数の専用スレッドで実行され、当メソッドを呼び出したスレッドは
+	 * 全ての難易度表の更新が完了するまで待機します。</p>
+	 * <p>並列で更新を行う場合、進捗報告ハンドラは更新処理を実行する各スレッドから呼び出されます。
+	 * 進捗報告ハンドラの呼び出しは同時に行われないように排他制御されますが、報告の順番は難易度表定義の登録順には
+	 * なりません。どの難易度表の報告であるかは進捗報告ハンドラの入力パラメータで判別してください。</p>
+	 * <p>待機中に当メソッドを呼び出したスレッドへの割り込みを検出すると、実行中の全ての更新処理を中止し、
+	 * 全ての更新処理の終了を待ってから InterruptedException をスローします。その場合、割り込み検出以前に
+	 * 更新が完了していた難易度表の結果はそのまま results に格納され、それ以外の難易度表の結果は全て「中止」となります。</p>
+	 * @param client HTTP通信に使用するクライアントオブジェクト
+	 * @param timeout 楽曲情報データダウンロード時のサーバー応答タイムアウト。null の場合タイムアウトなし。
+	 * @param progress 更新処理の進捗情報を報告するハンドラオブジェクト
+	 * @param results 更新処理の結果を格納するマップ
+	 * @param parallelism 並列度(同時に更新処理を行う難易度表の最大数)
+	 * @throws NullPointerException client が null
+	 * @throws NullPointerException progress が null
+	 * @throws NullPointerException results が null
+	 * @throws IllegalArgumentException parallelism が1未満
+	 * @throws UnsupportedOperationException results が変更不可のマップ
+	 * @throws InterruptedException スレッド割り込みによる更新処理の中止が発生した
+	 * @throws IllegalStateException 読み書き排他処理エラーが発生した
+	 * @since 0.3.0
+	 */
+	public void update(HttpClient client, Duration timeout, UpdateProgress progress, Map<String, UpdateResult> results,
+			int parallelism) throws InterruptedException {
 		assertArgNotNull(client, "client");
 		assertArgNotNull(progress, "progress");
 		assertArgNotNull(results, "results");
+		assertArg(parallelism >= 1, "'parallelism' is less than 1: %d", parallelism);
 		results.clear();
 		try {
 			lock(true, true);
 			var tableDescs = DifficultyTables.all().collect(Collectors.toList());
 			var numDesc = tableDescs.size();
+			var force = mForceUpdate;
+			if (parallelism > 1) {
+				// 並列度が2以上の場合は専用スレッドで並列に更新する
+				processParallelUpdate(client, tableDescs, timeout, progress, results, parallelism, force);
+				return;
+			}
 			for (var i = 0; i < numDesc; i++) {
 				var td = tableDescs.get(i);
 				try {
 					// 指定した難易度表の更新を実行する
-					processUpdate(client, td, i, numDesc, timeout, progress);
+					processUpdate(client, td, i, numDesc, timeout, progress, force);
 					results.put(td.getId(), new UpdateResult(UpdateResult.Type.SUCCESS));
 				} catch (InterruptedException e) {
 					// スレッド割り込みを検知した場合は未更新分の難易度表の結果を全て「中止」とする
@@ -296,6 +613,412 @@ public class ContentDatabase {
 		}
 	}
 
+	/**
+	 * 難易度表データベースの非同期更新を行います。
+	 * <p>当メソッドは指定されたIDの難易度表定義のみを更新する点を除き、
+	 * {@link #updateAsync(HttpClient, Duration, UpdateProgress, Map)} と同様の動作を行います。</p>
+	 * <p>返されたフューチャーは難易度表の更新結果で完了し、例外的に完了することはありません。
+	 * 更新処理中にエラーが発生した場合、更新結果の種別は「エラー」となります。</p>
+	 * @param client HTTP通信に使用するクライアントオブジェクト
+	 * @param id 更新対象の難易度表定義のID
+	 * @param timeout 楽曲情報データダウンロード時のサーバー応答タイムアウト。null の場合タイムアウトなし。
+	 * @param progress 更新処理の進捗情報を報告するハンドラオブジェクト
+	 * @return 難易度表の更新結果を返すフューチャー
+	 * @throws NullPointerException client が null
+	 * @throws NullPointerException id が null
+	 * @throws NullPointerException progress が null
+	 * @throws IllegalArgumentException id に該当する難易度表定義が存在しない
+	 * @throws IllegalStateException 読み書き排他処理エラーが発生した
+	 * @since 0.3.0
+	 */
+	public CompletableFuture<UpdateResult> updateAsync(HttpClient client, String id, Duration timeout,
+			UpdateProgress progress) {
+		assertArgNotNull(client, "client");
+		assertArgNotNull(id, "id");
+		assertArgNotNull(progress, "progress");
+
+		var tableDesc = DifficultyTables.get(id);
+		assertArg(Objects.nonNull(tableDesc), "No difficulty table with such ID: %s", id);
+
+		// 更新処理が全て終了した時点で排他を解除し、フューチャーを完了させる
+		// 更新処理の開始中に例外がスローされた場合は排他を解除してから再スローする
+		lock(true, true);
+		try {
+			var ctx = new AsyncContext(null);
+			var result = new CompletableFuture<UpdateResult>();
+			result.whenComplete((r, e) -> { if (result.isCancelled()) { ctx.cancel(); } });
+			processUpdateAsync(ctx, client, tableDesc, 0, 1, timeout, progress, mForceUpdate).whenComplete((r, e) -> {
+				unlock(true, true);
+				result.complete(r);
+			});
+			return result;
+		} catch (RuntimeException | Error e) {
+			unlock(true, true);
+			throw e;
+		}
+	}
+
+	/**
+	 * 難易度表データベースの非同期更新を行います。
+	 * <p>当メソッドは難易度表ごとの更新状況を参照しない点を除き、
+	 * {@link #updateAsync(HttpClient, Duration, UpdateProgress, Map)} と同様の動作を行います。</p>
+	 * @param client HTTP通信に使用するクライアントオブジェクト
+	 * @param timeout 楽曲情報データダウンロード時のサーバー応答タイムアウト。null の場合タイムアウトなし。
+	 * @param progress 更新処理の進捗情報を報告するハンドラオブジェクト
+	 * @return 全ての難易度表の更新結果を返すフューチャー
+	 * @throws NullPointerException client が null
+	 * @throws NullPointerException progress が null
+	 * @throws IllegalStateException 読み書き排他処理エラーが発生した
+	 * @since 0.3.0
+	 */
+	public CompletableFuture<Map<String, UpdateResult>> updateAsync(HttpClient client, Duration timeout,
+			UpdateProgress progress) {
+		return updateAsync(client, timeout, progress, new HashMap<>());
+	}
+
+	/**
+	 * 難易度表データベースの非同期更新を行います。
+	 * <p>当メソッドは {@link DifficultyTables#all()} で取得できる全ての難易度表定義の更新を
+	 * {@link HttpClient#sendAsync(HttpRequest, HttpResponse.BodyHandler)} を使用して非同期に開始し、
+	 * 更新処理の完了を待たずに復帰します。更新処理の内容は
+	 * {@link #update(HttpClient, Duration, UpdateProgress, Map)} と同様ですが、全ての難易度表の楽曲情報取得
+	 * リクエストは一斉に送信され、応答の待機中にスレッドを占有することはありません。楽曲情報の解析と
+	 * 難易度表情報ファイルの書き込みは、HTTPクライアントオブジェクトに設定されたエグゼキュータで実行されます。</p>
+	 * <p>難易度表データベースの読み書きのロックは当メソッドの呼び出し時に行われ、ロックできない場合は
+	 * IllegalStateException がスローされます。ロックは全ての難易度表の更新処理が終了した時点で解除され、
+	 * その後に返されたフューチャーが完了します。フューチャーの結果は難易度表IDをキーとした更新結果のマップで、
+	 * 難易度表定義の登録順に格納されます。返されたフューチャーが例外的に完了することはありません。
+	 * 更新処理の開始中に例外がスローされた場合は開始済みの更新処理を中止し、それらが終了した時点でロックを解除します。</p>
+	 * <p>難易度表ごとの更新結果は入力パラメータ tableFutures に格納されるフューチャーで個別に参照できます。
+	 * このマップのキーは難易度表IDです。難易度表ごとのフューチャーは、その難易度表の更新処理が終了した時点で
+	 * 完了します。</p>
+	 * <p>返されたフューチャーをキャンセルすると実行中の全ての更新処理を中止し、未完了の難易度表の更新結果は
+	 * 「中止」となります。難易度表ごとのフューチャーをキャンセルした場合はその難易度表の更新処理のみを中止します。
+	 * いずれの場合も、中止された難易度表は難易度表情報ファイルには保存されません。</p>
+	 * <p>進捗報告ハンドラはHTTPクライアントオブジェクトのエグゼキュータのスレッド、および当メソッドを呼び出した
+	 * スレッドから呼び出されます。進捗報告ハンドラの呼び出しは同時に行われないように排他制御されますが、
+	 * 異なる難易度表の報告の順番は難易度表定義の登録順にはなりません。</p>
+	 * @param client HTTP通信に使用するクライアントオブジェクト
+	 * @param timeout 楽曲情報データダウンロード時のサーバー応答タイムアウト。null の場合タイムアウトなし。
+	 * @param progress 更新処理の進捗情報を報告するハンドラオブジェクト
+	 * @param tableFutures 難易度表ごとの更新結果を返すフューチャーを格納するマップ
+	 * @return 全ての難易度表の更新結果を返すフューチャー
+	 * @throws NullPointerException client が null
+	 * @throws NullPointerException progress が null
+	 * @throws NullPointerException tableFutures が null
+	 * @throws UnsupportedOperationException tableFutures が変更不可のマップ
+	 * @throws IllegalStateException 読み書き排他処理エラーが発生した
+	 * @since 0.3.0
+	 */
+	public CompletableFuture<Map<String, UpdateResult>> updateAsync(HttpClient client, Duration timeout,
+			UpdateProgress progress, Map<String, CompletableFuture<UpdateResult>> tableFutures) {
+		assertArgNotNull(client, "client");
+		assertArgNotNull(progress, "progress");
+		assertArgNotNull(tableFutures, "tableFutures");
+		tableFutures.clear();
+
+		// 全ての難易度表の更新処理を開始する
+		// 開始中に例外がスローされた場合は開始済みの更新処理を中止し、それらが全て終了した時点で排他を解除する
+		lock(true, true);
+		var tableDescs = (List<TableDescription>)null;
+		var root = new AsyncContext(null);
+		var internals = new ArrayList<CompletableFuture<UpdateResult>>();
+		try {
+			tableDescs = DifficultyTables.all().collect(Collectors.toList());
+			var numDesc = tableDescs.size();
+			var syncProgress = synchronizedProgress(progress);
+			var force = mForceUpdate;
+			for (var i = 0; i < numDesc; i++) {
+				var td = tableDescs.get(i);
+				var tableCtx = new AsyncContext(root);
+				var internal = processUpdateAsync(tableCtx, client, td, i, numDesc, timeout, syncProgress, force);
+				var tableFuture = new CompletableFuture<UpdateResult>();
+				tableFuture.whenComplete((r, e) -> { if (tableFuture.isCancelled()) { tableCtx.cancel(); } });
+				internal.thenAccept(tableFuture::complete);
+				internals.add(internal);
+				tableFutures.put(td.getId(), tableFuture);
+			}
+		} catch (RuntimeException | Error e) {
+			root.cancel();
+			CompletableFuture.allOf(internals.toArray(CompletableFuture[]::new)).whenComplete((v, x) -> {
+				unlock(true, true);
+			});
+			throw e;
+		}
+
+		// 全ての難易度表の更新処理が終了した時点で排他を解除し、フューチャーを完了させる
+		var result = new CompletableFuture<Map<String, UpdateResult>>();
+		result.whenComplete((r, e) -> { if (result.isCancelled()) { root.cancel(); } });
+		var ids = tableDescs.stream().map(TableDescription::getId).collect(Collectors.toList());
+		CompletableFuture.allOf(internals.toArray(CompletableFuture[]::new)).whenComplete((v, e) -> {
+			unlock(true, true);
+			var results = new LinkedHashMap<String, UpdateResult>();
+			for (var i = 0; i < ids.size(); i++) {
+				results.put(ids.get(i), internals.get(i).join());
+			}
+			printLog("UPDATE ASYNC complete");
+			result.complete(results);
+		});
+		return result;
+	}
+
+	/**
+	 * 難易度表データベースの自動更新を開始します。
+	 * <p>自動更新を開始すると、{@link DifficultyTables#all()} で取得できる全ての難易度表を専用スレッドで
+	 * 繰り返し更新します。難易度表ごとの更新は {@link #update(HttpClient, String, Duration, UpdateProgress)}
+	 * と同じ処理で行われ、進捗情報は指定したハンドラオブジェクトに報告されます。進捗報告ハンドラは
+	 * 自動更新用のスレッドから呼び出されます。</p>
+	 * <p>更新間隔は難易度表ごとに、観測した変更履歴(最終更新日時、ハッシュ値の変化)に応じて調整されます。
+	 * 頻繁に変更される難易度表は短い間隔で、長期間変更されない難易度表は長い間隔で更新されます。
+	 * 更新間隔は最小間隔から最大間隔の範囲で決定され、自動更新開始直後は全ての難易度表を即座に更新します。
+	 * 変更履歴には変更を検出した日時ではなく、難易度表情報の最終更新日時
+	 * ({@link ContentCollection#getModifiedDateTime(PlayStyle)})を記録します。最終更新日時が不明な場合のみ
+	 * 検出した日時を記録します。変更履歴は格納先パスのファイル(.refresh.json)に保存され、次回の自動更新開始時に
+	 * 読み込まれるため、アプリケーションを再起動しても更新間隔の調整は引き継がれます。</p>
+	 * <p>更新でエラーが発生した場合、その難易度表は変更なしとして扱い、次回の更新で再度更新を試みます。
+	 * 他のスレッドで更新処理を実行中で排他処理エラーとなった場合も同様です。</p>
+	 * <p>自動更新は {@link #stopRefresh()} で停止するまで継続します。自動更新用のスレッドはデーモンスレッドのため、
+	 * 自動更新がアプリケーションの終了を妨げることはありません。</p>
+	 * @param client HTTP通信に使用するクライアントオブジェクト
+	 * @param timeout 楽曲情報データダウンロード時のサーバー応答タイムアウト。null の場合タイムアウトなし。
+	 * @param minInterval 難易度表ごとの最小の更新間隔
+	 * @param maxInterval 難易度表ごとの最大の更新間隔
+	 * @param progress 更新処理の進捗情報を報告するハンドラオブジェクト
+	 * @throws NullPointerException client が null
+	 * @throws NullPointerException minInterval が null
+	 * @throws NullPointerException maxInterval が null
+	 * @throws NullPointerException progress が null
+	 * @throws IllegalArgumentException minInterval が0以下
+	 * @throws IllegalArgumentException maxInterval が minInterval 未満
+	 * @throws IllegalStateException 自動更新が既に開始されている
+	 * @since 0.3.0
+	 */
+	public void startRefresh(HttpClient client, Duration timeout, Duration minInterval, Duration maxInterval,
+			UpdateProgress progress) {
+		assertArgNotNull(client, "client");
+		assertArgNotNull(minInterval, "minInterval");
+		assertArgNotNull(maxInterval, "maxInterval");
+		assertArgNotNull(progress, "progress");
+		assertArg(!minInterval.isNegative() && !minInterval.isZero(), "'minInterval' is not positive: %s", minInterval);
+		assertArg(maxInterval.compareTo(minInterval) >= 0, "'maxInterval' is less than 'minInterval': %s", maxInterval);
+
+		var scheduler = (RefreshScheduler)null;
+		synchronized (this) {
+			assertField(Objects.isNull(mRefreshScheduler), "Refresh is already started");
+			scheduler = new RefreshScheduler(id -> {
+				var before = get(id);
+				update(client, id, timeout, progress);
+				return changedDateTime(before, get(id));
+			}, mLocation.resolve(REFRESH_HISTORY_FILE_NAME), minInterval, maxInterval);
+			mRefreshScheduler = scheduler;
+		}
+
+		// 難易度表情報の最終更新日時を変更履歴の起点とする
+		var ids = DifficultyTables.all().map(TableDescription::getId).collect(Collectors.toList());
+		var lastChanges = new HashMap<String, Instant>();
+		for (var id : ids) {
+			var collection = get(id);
+			if (Objects.nonNull(collection)) {
+				Stream.of(PlayStyle.values())
+						.map(collection::getModifiedDateTime)
+						.filter(Objects::nonNull)
+						.map(ZonedDateTime::toInstant)
+						.max(Instant::compareTo)
+						.ifPresent(i -> lastChanges.put(id, i));
+			}
+		}
+		printLog("REFRESH START: Tables=%d, Interval=%s..%s", ids.size(), minInterval, maxInterval);
+		scheduler.start(ids, lastChanges);
+	}
+
+	/**
+	 * 難易度表データベースの自動更新を停止します。
+	 * <p>更新処理の実行中に当メソッドを呼び出すと、実行中の更新処理を中止し、その終了を待ってから復帰します。
+	 * 中止された難易度表は難易度表情報ファイルには保存されません。進捗報告ハンドラから呼び出した場合は
+	 * 終了を待たずに復帰します。自動更新を開始していない場合は何も行いません。</p>
+	 * @since 0.3.0
+	 */
+	public void stopRefresh() {
+		var scheduler = (RefreshScheduler)null;
+		synchronized (this) {
+			scheduler = mRefreshScheduler;
+			mRefreshScheduler = null;
+		}
+		if (Objects.nonNull(scheduler)) {
+			scheduler.stop();
+			printLog("REFRESH STOP");
+		}
+	}
+
+	/**
+	 * 自動更新における難易度表の現在の更新間隔を取得します。
+	 * <p>更新間隔は難易度表が更新されるたびに、変更履歴に応じて見直されます。</p>
+	 * @param id 難易度表ID
+	 * @return 現在の更新間隔、自動更新を開始していない、または自動更新の対象外の難易度表の場合は null
+	 * @throws NullPointerException id が null
+	 * @since 0.3.0
+	 */
+	public Duration getRefreshInterval(String id) {
+		assertArgNotNull(id, "id");
+		var scheduler = mRefreshScheduler;
+		return Objects.isNull(scheduler) ? null : scheduler.getInterval(id);
+	}
+
+	/**
+	 * 保存済みの楽曲情報元データから難易度表情報を再構築します。
+	 * <p>当メソッドは指定されたIDの難易度表定義のみを再構築する点を除き、
+	 * {@link #reparse(UpdateProgress)} と同様の動作を行います。</p>
+	 * @param id 再構築対象の難易度表定義のID
+	 * @param progress 再構築処理の進捗情報を報告するハンドラオブジェクト
+	 * @throws NullPointerException id が null
+	 * @throws NullPointerException progress が null
+	 * @throws IllegalArgumentException id に該当する難易度表定義が存在しない
+	 * @throws IOException 楽曲情報元データの読み込み、楽曲情報の解析、または難易度表情報ファイルの書き込みでエラーが発生した
+	 * @throws InterruptedException スレッド割り込みによる再構築処理の中止が発生した
+	 * @throws IllegalStateException 読み書き排他処理エラーが発生した
+	 * @since 0.3.0
+	 */
+	public void reparse(String id, UpdateProgress progress) throws IOException, InterruptedException {
+		assertArgNotNull(id, "id");
+		assertArgNotNull(progress, "progress");
+
+		var tableDesc = DifficultyTables.get(id);
+		assertArg(Objects.nonNull(tableDesc), "No difficulty table with such ID: %s", id);
+
+		try {
+			lock(true, true);
+			processReparse(tableDesc, 0, 1, progress);
+		} finally {
+			unlock(true, true);
+		}
+	}
+
+	/**
+	 * 保存済みの楽曲情報元データから難易度表情報を再構築します。
+	 * <p>難易度表データベースの更新では、ダウンロードした楽曲情報元データを難易度表データベース格納先パスの
+	 * raw ディレクトリに、そのハッシュ値({@link ContentCollection#getModifiedDataHash(PlayStyle)})を
+	 * ファイル名として保存しています。当メソッドはネットワークに接続せず、保存済みの楽曲情報元データを
+	 * 難易度表定義に登録されたパーサ({@link Parser})で解析し直し、その結果で難易度表情報ファイルとメモリ上の
+	 * 楽曲情報を置き換えます。パーサを改良した場合に、全ての難易度表をダウンロードし直すことなく楽曲情報を
+	 * 更新する用途を想定しています。</p>
+	 * <p>楽曲情報元データが保存されていないプレースタイルでは進捗報告に {@link UpdateProgress.Status#UNNECESSARY}
+	 * を報告し、楽曲情報はそのまま維持されます。最終更新日時・ハッシュ値等の最終更新情報は変化しません。</p>
+	 * <p>排他制御、スレッド割り込み時の動作は {@link #update(HttpClient, Duration, UpdateProgress)} と同様です。</p>
+	 * @param progress 再構築処理の進捗情報を報告するハンドラオブジェクト
+	 * @throws NullPointerException progress が null
+	 * @throws IOException 楽曲情報元データの読み込み、楽曲情報の解析、または難易度表情報ファイルの書き込みでエラーが発生した
+	 * @throws InterruptedException スレッド割り込みによる再構築処理の中止が発生した
+	 * @throws IllegalStateException 読み書き排他処理エラーが発生した
+	 * @since 0.3.0
+	 */
+	public void reparse(UpdateProgress progress) throws IOException, InterruptedException {
+		assertArgNotNull(progress, "progress");
+		try {
+			lock(true, true);
+			var tableDescs = DifficultyTables.all().collect(Collectors.toList());
+			var numDesc = tableDescs.size();
+			for (var i = 0; i < numDesc; i++) {
+				processReparse(tableDescs.get(i), i, numDesc, progress);
+			}
+		} finally {
+			unlock(true, true);
+		}
+	}
+
+	/**
+	 * 難易度表データベースの並列更新処理
+	 * @param client HTTPクライアントオブジェクト
+	 * @param tableDescs 更新対象の難易度表定義リスト
+	 * @param timeout 楽曲情報データダウンロード時のサーバー応答タイムアウト。null の場合タイムアウトなし。
+	 * @param progress 更新処理の進捗情報を報告するハンドラオブジェクト
+	 * @param results 更新処理の結果を格納するマップ
+	 * @param parallelism 並列度
+	 * @param force 楽曲情報元データの有効期限に関わらず更新を行うかどうか
+	 * @throws InterruptedException スレッド割り込みによる更新処理の中止が発生した
+	 */
+	private void processParallelUpdate(HttpClient client, List<TableDescription> tableDescs, Duration timeout,
+			UpdateProgress progress, Map<String, UpdateResult> results, int parallelism, boolean force)
+			throws InterruptedException {
+		var numDesc = tableDescs.size();
+		var numThreads = Math.max(1, Math.min(parallelism, numDesc));
+		printLog("PARALLEL UPDATE: Tables=%d, Threads=%d", numDesc, numThreads);
+
+		// 進捗報告ハンドラは複数スレッドから同時に呼び出されないように排他制御する
+		var syncProgress = synchronizedProgress(progress);
+
+		// 全ての難易度表の更新処理をスレッドプールに投入する
+		// 各スレッドでは例外をキャッチし、難易度表ごとの更新結果として返す
+		var executor = Executors.newFixedThreadPool(numThreads, Utility.daemonThreadFactory("bldt-update"));
+		var futures = new ArrayList<Future<UpdateResult>>(numDesc);
+		try {
+			for (var i = 0; i < numDesc; i++) {
+				var td = tableDescs.get(i);
+				var iDesc = i;
+				futures.add(executor.submit(() -> {
+					try {
+						processUpdate(client, td, iDesc, numDesc, timeout, syncProgress, force);
+						return new UpdateResult(UpdateResult.Type.SUCCESS);
+					} catch (InterruptedException e) {
+						return new UpdateResult(UpdateResult.Type.ABORT);
+					} catch (Exception e) {
+						return new UpdateResult(e);
+					}
+				}));
+			}
+			executor.shutdown();
+
+			// 難易度表定義の登録順に更新結果を回収する
+			for (var i = 0; i < numDesc; i++) {
+				results.put(tableDescs.get(i).getId(), waitResult(futures.get(i)));
+			}
+			printLog("PARALLEL UPDATE complete");
+		} catch (InterruptedException e) {
+			// 待機中の割り込みを検知した場合は全ての更新処理を中止し、スレッドの終了を待つ
+			// 割り込み検知以前に完了した難易度表の結果はそのまま採用し、それ以外は全て「中止」とする
+			printLog("Interrupted, abort all updates");
+			executor.shutdownNow();
+			Utility.awaitTerminationUninterruptibly(executor);
+			for (var i = 0; i < numDesc; i++) {
+				var future = futures.get(i);
+				var done = future.isDone() && !future.isCancelled();
+				var result = done ? waitResult(future) : new UpdateResult(UpdateResult.Type.ABORT);
+				results.putIfAbsent(tableDescs.get(i).getId(), result);
+			}
+			throw e;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * 進捗報告ハンドラの排他制御
+	 * @param progress 進捗報告ハンドラ
+	 * @return 複数スレッドから同時に呼び出されないように排他制御した進捗報告ハンドラ
+	 */
+	private static UpdateProgress synchronizedProgress(UpdateProgress progress) {
+		var lockProgress = new Object();
+		return (td, ps, i, num, sts) -> {
+			synchronized (lockProgress) {
+				progress.publish(td, ps, i, num, sts);
+			}
+		};
+	}
+
+	/**
+	 * 並列更新処理の更新結果待機
+	 * @param future 更新処理のフューチャー
+	 * @return 更新結果
+	 * @throws InterruptedException 待機中にスレッド割り込みが発生した
+	 */
+	private static UpdateResult waitResult(Future<UpdateResult> future) throws InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			// 更新処理内で捕捉されなかった例外(Error等)は、その難易度表の「エラー」とする
+			return new UpdateResult(e.getCause());
+		}
+	}
+
 	/**
 	 * HTTPのリクエスト送受信
 	 * @param client HTTPクライアントオブジェクト
@@ -309,14 +1032,30 @@ public class ContentDatabase {
 		return client.send(request, HttpResponse.BodyHandlers.ofInputStream());
 	}
 
+	/**
+	 * HTTPのリクエスト非同期送受信
+	 * @param <T> 応答本文の型
+	 * @param client HTTPクライアントオブジェクト
+	 * @param request リクエスト内容
+	 * @param handler 応答本文のハンドラ
+	 * @return レスポンス内容を返すフューチャー
+	 */
+	<T> CompletableFuture<HttpResponse<T>> sendAsync(HttpClient client, HttpRequest request,
+			HttpResponse.BodyHandler<T> handler) {
+		return client.sendAsync(request, handler);
+	}
+
 	/**
 	 * 難易度表データベース読み込み処理
 	 * @param location 難易度表データベースの格納先パス
 	 * @param createIfNeeded location に指定のディレクトリが存在しない場合に新しく作成するかどうか
+	 * @param lazy 遅延読み込みモードかどうか
+	 * @param mapped メモリマップモードかどうか
 	 * @throws IOException 入出力エラーが発生した
 	 */
-	private void processLoad(Path location, boolean createIfNeeded) throws IOException {
-		printLog("LOAD: Location='%s', create=%s", location, createIfNeeded);
+	private void processLoad(Path location, boolean createIfNeeded, boolean lazy, boolean mapped) throws IOException {
+		printLog("LOAD: Location='%s', create=%s, lazy=%s, mapped=%s", location, createIfNeeded, lazy, mapped);
+		mMapped = mapped;
 
 		// DB格納先フォルダのチェック
 		mLocation = location;
@@ -335,379 +1074,932 @@ public class ContentDatabase {
 		// これから読み込み処理を行うので、その間は書き込みをロックする
 		mReadLock = new LockFile(mLocation.resolve(READ_LOCK_FILE_NAME));
 		mWriteLock = new LockFile(mLocation.resolve(WRITE_LOCK_FILE_NAME));
+		mRawStore = new RawStore(mLocation.resolve(RAW_DIRECTORY_NAME));
 		try {
 			// 書き込みをロックする
 			lock(false, true);
 
 			// 難易度表定義に基づいて楽曲情報をファイルから読み込む
 			mCollections = new LinkedHashMap<String, ContentCollection>();
-			var iSp = PlayStyle.SINGLE.ordinal();
-			var iDp = PlayStyle.DOUBLE.ordinal();
-			var modifiedDateTimes = new ZonedDateTime[PlayStyle.COUNT];
-			var modifiedDataHashes = new String[PlayStyle.COUNT];
+			// 難易度表情報の読み込みは難易度表ごとに独立しているため、全ての難易度表を並列で読み込む
+			// 読み込み結果は難易度表定義の登録順に回収し、最初に失敗した難易度表の例外をスローする(逐次処理と同じ)
 			var tableDescs = DifficultyTables.all().collect(Collectors.toList());
-			for (var tableDesc : tableDescs) {
-				// 楽曲情報を構成する情報の初期値を生成する
-				var id = tableDesc.getId();
-				var contents = new ArrayList<ContentDescription>();
-				printLog("Loading '%s'...", id);
-
-				// 楽曲情報のJSONファイルから情報を読み込む
-				var contentFileName = String.format("%s.json", tableDesc.getId());
-				var contentFilePath = mLocation.resolve(contentFileName);
-				if (!Files.isRegularFile(contentFilePath)) {
-					// 該当するファイルが存在しない、またはファイルとして読み込めない場合はスキップ
-					printLog("Skip load because database file is not found: Path='%s'", contentFilePath);
-					var emptyCollection = new ContentCollection(
-							tableDesc, null, null, null, null, null, contents);
-					mCollections.put(id, emptyCollection);
-					continue;
+			var futures = new ArrayList<Future<ContentCollection>>(tableDescs.size());
+			try {
+				for (var tableDesc : tableDescs) {
+					var id = tableDesc.getId();
+					if (lazy && Files.isRegularFile(mLocation.resolve(String.format("%s.json", id)))) {
+						// 遅延読み込みモードでは、難易度表情報ファイルがある難易度表は初回アクセス時に読み込む
+						printLog("Defer loading '%s'", id);
+						futures.add(null);
+					} else {
+						futures.add(LOAD_EXECUTOR.submit(() -> loadCollection(tableDesc)));
+					}
 				}
-
-				try {
-					// 楽曲情報のJSONを解析後、ソースコードを直ちに破棄する
-					printLog("Read and parse database: Path='%s'", contentFilePath);
-					var jsonSource = new String(Files.readAllBytes(contentFilePath), StandardCharsets.UTF_8);
-					var root = new JSONObject(jsonSource);
-					jsonSource = null;
-
-					// 難易度表データベースのバージョンを確認する
-					// ※現状、バージョンは1以外有り得ないので、それ以外の値は改ざんと判定する
-					// ※将来的に、必要に応じてマイグレーション処理が行われる想定
-					var inVersion = root.getInt("version");
-					if (inVersion != VERSION) {
-						printLog("Invalid version: Value='%s'", inVersion);
-						tampering(contentFilePath, null);
+				for (var i = 0; i < tableDescs.size(); i++) {
+					// 難易度表定義の登録順を維持するため、遅延読み込みの難易度表は読み込むまで null を登録しておく
+					var tableDesc = tableDescs.get(i);
+					var future = futures.get(i);
+					mCollections.put(tableDesc.getId(), Objects.isNull(future) ? null : waitCollection(future));
+					if (Objects.isNull(future)) {
+						mPending.put(tableDesc.getId(), tableDesc);
 					}
+				}
+			} finally {
+				// 読み込みに失敗した場合、未完了の後続の難易度表の読み込みを中止する(完了済みの読み込みには影響しない)
+				futures.stream().filter(Objects::nonNull).forEach(f -> f.cancel(true));
+			}
+			printLog("LOAD '%s' complete", location);
+		} finally {
+			// 書き込みロックを解除する
+			unlock(false, true);
+		}
+	}
 
-					// IDが難易度表情報と一致していること
-					var inId = root.getString("id");
-					if (!id.equals(inId)) {
-						printLog("Invalid ID: Value='%s'", inId);
-						tampering(contentFilePath, null);
-					}
+	/**
+	 * 並列読み込みした難易度表情報の待機
+	 * <p>データベースの読み込みはスレッド割り込みで中止しないため、待機中のスレッド割り込みは読み込み完了後に
+	 * 割り込み状態として復元する。</p>
+	 * @param future 難易度表情報の読み込み処理のフューチャー
+	 * @return 難易度表情報
+	 * @throws IOException 入出力エラーが発生した、またはJSONファイルの改ざん・破損を検出した
+	 */
+	private static ContentCollection waitCollection(Future<ContentCollection> future) throws IOException {
+		var interrupted = false;
+		try {
+			while (true) {
+				try {
+					return future.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					// 読み込み処理でスローされた例外をそのままスローする
+					var cause = e.getCause();
+					if (cause instanceof IOException) {
+						throw (IOException)cause;
+					} else if (cause instanceof RuntimeException) {
+						throw (RuntimeException)cause;
+					} else if (cause instanceof Error) {
+						throw (Error)cause;
+					} else {
+						throw new IOException(cause);
+					}
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * 読み込み済みの難易度表情報取得
+	 * <p>遅延読み込みモードで未読み込みの難易度表情報はここで読み込む。複数スレッドから同じ難易度表情報が
+	 * 要求された場合、読み込みは1回のみ行う。難易度表情報ファイルは書き込み時に一時ファイルからの置き換えで
+	 * 更新されるため、読み込み時に書き込みのロックは行わない。</p>
+	 * @param id 難易度表ID
+	 * @return 難易度表情報、該当する難易度表情報が存在しない場合は null
+	 * @throws IOException 入出力エラーが発生した、またはJSONファイルの改ざん・破損を検出した
+	 */
+	private ContentCollection loadedCollection(String id) throws IOException {
+		var tableDesc = (TableDescription)null;
+		synchronized (mCollections) {
+			tableDesc = mPending.get(id);
+			if (Objects.isNull(tableDesc)) {
+				return mCollections.get(id);
+			}
+		}
+
+		synchronized (mLoadLock) {
+			// 待機中に他のスレッドで読み込み済みになっていれば、その難易度表情報を返す
+			synchronized (mCollections) {
+				if (!mPending.containsKey(id)) {
+					return mCollections.get(id);
+				}
+			}
+
+			// 難易度表情報を読み込んで登録する
+			// 読み込み中に更新処理で置き換えられた場合は、置き換えられた難易度表情報を優先する
+			var collection = loadCollection(tableDesc);
+			synchronized (mCollections) {
+				if (Objects.nonNull(mPending.remove(id))) {
+					putCollection(id, collection);
+				}
+				return mCollections.get(id);
+			}
+		}
+	}
+
+	/**
+	 * 難易度表情報の登録・置き換え
+	 * <p>ハッシュ値索引が構築済みの場合は索引を破棄し、次回の検索時に構築し直す。mCollections で同期して呼び出すこと。</p>
+	 * @param id 難易度表ID
+	 * @param collection 難易度表情報
+	 */
+	private void putCollection(String id, ContentCollection collection) {
+		mCollections.put(id, collection);
+		mHashIndex = null;
+	}
 
-					// データ更新日時を取得する
-					var inLastUpdated = root.getString("lastUpdated");
-					var lastUpdateDateTime = (ZonedDateTime)null;
+	/**
+	 * ハッシュ値索引による楽曲情報の検索処理
+	 * @param finder ハッシュ値索引の検索関数
+	 * @return 難易度表IDと楽曲情報のマップ(難易度表定義の登録順)
+	 * @throws UncheckedIOException 遅延読み込みモードで、難易度表情報の読み込み中に入出力エラー、ファイル破損、
+	 *         データ改ざんを検出した
+	 */
+	private Map<String, ContentDescription> queryByHash(Function<ContentHashIndex, List<ContentHashIndex.Entry>> finder) {
+		try {
+			loadPendingCollections();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		// 索引を検索する(未構築の場合は読み込み済みの全難易度表情報から構築する)
+		var index = (ContentHashIndex)null;
+		synchronized (mCollections) {
+			if (Objects.isNull(mHashIndex)) {
+				var ids = new ArrayList<String>();
+				var collections = new ArrayList<ContentCollection>();
+				mCollections.forEach((id, collection) -> {
+					if (Objects.nonNull(collection)) {
+						ids.add(id);
+						collections.add(collection);
+					}
+				});
+				mHashIndex = new ContentHashIndex(ids, collections);
+			}
+			index = mHashIndex;
+		}
+		var entries = finder.apply(index);
+		if (entries.isEmpty()) {
+			return Map.of();
+		}
+
+		// ヒットした楽曲情報のみを生成する(検索結果は難易度表定義の登録順)
+		var result = new LinkedHashMap<String, ContentDescription>();
+		entries.forEach(e -> result.put(e.id, e.collection.get(e.index)));
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * 未読み込みの難易度表情報の読み込み処理
+	 * @throws IOException 入出力エラーが発生した、またはJSONファイルの改ざん・破損を検出した
+	 */
+	private void loadPendingCollections() throws IOException {
+		var ids = (List<String>)null;
+		synchronized (mCollections) {
+			ids = new ArrayList<>(mPending.keySet());
+		}
+		for (var id : ids) {
+			loadedCollection(id);
+		}
+	}
+
+	/**
+	 * 難易度表情報の読み込み処理
+	 * <p>スナップショットが使用可能であればスナップショットから読み込み、そうでなければJSONファイルを解析する。
+	 * メモリマップモードでは、まずスナップショットのメモリマップを試みる。</p>
+	 * @param tableDesc 難易度表定義
+	 * @return 難易度表情報
+	 * @throws IOException 入出力エラーが発生した、またはJSONファイルの改ざん・破損を検出した
+	 */
+	private ContentCollection loadCollection(TableDescription tableDesc) throws IOException {
+		var id = tableDesc.getId();
+		printLog("Loading '%s'...", id);
+
+		// 楽曲情報のJSONファイルが存在しない場合は楽曲情報0件とする
+		var contentFilePath = mLocation.resolve(String.format("%s.json", id));
+		if (!Files.isRegularFile(contentFilePath)) {
+			// 該当するファイルが存在しない、またはファイルとして読み込めない場合はスキップ
+			printLog("Skip load because database file is not found: Path='%s'", contentFilePath);
+			return new ContentCollection(tableDesc, null, null, null, null, null, List.of());
+		}
+
+		// スナップショットが使用できない場合はJSONファイルから読み込む
+		var collection = mMapped ? mapSnapshot(tableDesc, contentFilePath) : null;
+		collection = Objects.isNull(collection) ? loadSnapshot(tableDesc, contentFilePath) : collection;
+		if (Objects.isNull(collection)) {
+			collection = loadJson(tableDesc, contentFilePath);
+		}
+		printLog("Load '%s' complete", id);
+		return collection;
+	}
+
+	/**
+	 * スナップショットからの難易度表情報読み込み処理
+	 * <p>スナップショットが存在しない、JSONファイルより古い、破損している、または現在の難易度表定義に合わない
+	 * 楽曲情報を含む場合は null を返す。スナップショットの問題は改ざんとは扱わない。</p>
+	 * @param tableDesc 難易度表定義
+	 * @param contentFilePath 難易度表情報のJSONファイルのパス
+	 * @return 難易度表情報、または null
+	 */
+	private ContentCollection loadSnapshot(TableDescription tableDesc, Path contentFilePath) {
+		var snapshotPath = mLocation.resolve(String.format("%s.snapshot", tableDesc.getId()));
+		var snapshot = (SnapshotFile)null;
+		try {
+			printLog("Read snapshot: Path='%s'", snapshotPath);
+			snapshot = SnapshotFile.read(snapshotPath, contentFilePath, (title, artist, ps, lv, body, add, md5, sha256) -> {
+				// JSONファイルの読み込みでスキップされる楽曲情報を含む場合、スナップショットは使用しない
+				var styleDesc = tableDesc.getPlayStyleDescription(ps);
+				if (title.isEmpty() || Objects.isNull(styleDesc) || (lv < 0) || (lv >= styleDesc.getLabels().size())) {
+					return null;
+				}
+				return ContentDescription.restore(title, artist, ps, lv, body, add, md5, sha256);
+			});
+		} catch (IOException e) {
+			printLog("Failed to read snapshot: %s", e);
+			return null;
+		}
+		if (Objects.isNull(snapshot) || !tableDesc.getId().equals(snapshot.getId())) {
+			return null;
+		}
+
+		// スナップショットの内容で難易度表情報を構築する
+		return new ContentCollection(
+				tableDesc,
+				snapshot.getLastUpdateDateTime(),
+				snapshot.getModifiedDateTime(PlayStyle.SINGLE), snapshot.getModifiedDataHash(PlayStyle.SINGLE),
+				snapshot.getModifiedDateTime(PlayStyle.DOUBLE), snapshot.getModifiedDataHash(PlayStyle.DOUBLE),
+				snapshot.getContents(),
+				mStringPool)
+				.setModifiedETag(PlayStyle.SINGLE, snapshot.getModifiedETag(PlayStyle.SINGLE))
+				.setModifiedETag(PlayStyle.DOUBLE, snapshot.getModifiedETag(PlayStyle.DOUBLE))
+				.setModifiedExpires(PlayStyle.SINGLE, snapshot.getModifiedExpires(PlayStyle.SINGLE))
+				.setModifiedExpires(PlayStyle.DOUBLE, snapshot.getModifiedExpires(PlayStyle.DOUBLE));
+	}
+
+	/**
+	 * メモリマップしたスナップショットによる難易度表情報構築処理
+	 * <p>スナップショットが使用できない場合は {@link #loadSnapshot(TableDescription, Path)} と同様に null を返す。
+	 * スナップショットの問題は改ざんとは扱わない。</p>
+	 * @param tableDesc 難易度表定義
+	 * @param contentFilePath 難易度表情報のJSONファイルのパス
+	 * @return 難易度表情報、または null
+	 */
+	private ContentCollection mapSnapshot(TableDescription tableDesc, Path contentFilePath) {
+		var snapshotPath = mLocation.resolve(String.format("%s.snapshot", tableDesc.getId()));
+		var snapshot = (SnapshotFile)null;
+		try {
+			printLog("Map snapshot: Path='%s'", snapshotPath);
+			snapshot = SnapshotFile.map(snapshotPath, contentFilePath);
+		} catch (IOException e) {
+			printLog("Failed to map snapshot: %s", e);
+			return null;
+		}
+		if (Objects.isNull(snapshot) || !tableDesc.getId().equals(snapshot.getId())) {
+			return null;
+		}
+		var store = MappedContentStore.of(tableDesc, snapshot.getMappedContents());
+		if (Objects.isNull(store)) {
+			printLog("Snapshot contents are not acceptable: Path='%s'", snapshotPath);
+			return null;
+		}
+
+		// マップしたスナップショットを参照する難易度表情報を構築する
+		return ContentCollection.withStore(
+				tableDesc,
+				snapshot.getLastUpdateDateTime(),
+				snapshot.getModifiedDateTime(PlayStyle.SINGLE), snapshot.getModifiedDataHash(PlayStyle.SINGLE),
+				snapshot.getModifiedDateTime(PlayStyle.DOUBLE), snapshot.getModifiedDataHash(PlayStyle.DOUBLE),
+				store)
+				.setModifiedETag(PlayStyle.SINGLE, snapshot.getModifiedETag(PlayStyle.SINGLE))
+				.setModifiedETag(PlayStyle.DOUBLE, snapshot.getModifiedETag(PlayStyle.DOUBLE))
+				.setModifiedExpires(PlayStyle.SINGLE, snapshot.getModifiedExpires(PlayStyle.SINGLE))
+				.setModifiedExpires(PlayStyle.DOUBLE, snapshot.getModifiedExpires(PlayStyle.DOUBLE));
+	}
+
+	/**
+	 * JSONファイルからの難易度表情報読み込み処理
+	 * @param tableDesc 難易度表定義
+	 * @param contentFilePath 難易度表情報のJSONファイルのパス
+	 * @return 難易度表情報
+	 * @throws IOException 入出力エラーが発生した、またはJSONファイルの改ざん・破損を検出した
+	 */
+	private ContentCollection loadJson(TableDescription tableDesc, Path contentFilePath) throws IOException {
+		var id = tableDesc.getId();
+		var iSp = PlayStyle.SINGLE.ordinal();
+		var iDp = PlayStyle.DOUBLE.ordinal();
+		var modifiedDateTimes = new ZonedDateTime[PlayStyle.COUNT];
+		var modifiedDataHashes = new String[PlayStyle.COUNT];
+		var modifiedETags = new String[PlayStyle.COUNT];
+		var modifiedExpires = new ZonedDateTime[PlayStyle.COUNT];
+		var contents = new ArrayList<ContentDescription>();
+		try (var in = Files.newInputStream(contentFilePath)) {
+			// 楽曲情報のJSONを先頭から逐次読み込む
+			// 書き込み時のメンバーの順番は不定で、楽曲情報リストが他のメンバーより先にある場合もある。
+			// 楽曲情報は1件ずつ解析して楽曲情報リストに追加し、それ以外のメンバーは小さなオブジェクトに集めておき、
+			// 全体の読み込み後に従来と同じ順番で検証する。
+			printLog("Read and parse database: Path='%s'", contentFilePath);
+			var reader = new JsonPullReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+			if (!reader.beginObject()) {
+				throw new JSONException("A JSONObject text must begin with '{'");
+			}
+			var root = new JSONObject();
+			var hasContents = false;
+			for (var name = reader.nextName(); Objects.nonNull(name); name = reader.nextName()) {
+				switch (name) {
+				case "version":
+				case "id":
+				case "lastUpdated":
+				case "modified":
+					root.put(name, reader.readValue());
+					break;
+				case "contents":
+					hasContents = readContents(reader, tableDesc, contents);
+					break;
+				default:
+					reader.skipValue();
+					break;
+				}
+			}
+
+			// 難易度表データベースのバージョンを確認する
+			// ※読み込み可能なバージョン以外の値は改ざんと判定する
+			// ※古いバージョンのファイルは、不足する情報を初期値として読み込む(次回更新時に最新の形式で保存される)
+			var inVersion = root.getInt("version");
+			if ((inVersion < OLDEST_VERSION) || (inVersion > VERSION)) {
+				printLog("Invalid version: Value='%s'", inVersion);
+				tampering(contentFilePath, null);
+			}
+
+			// IDが難易度表情報と一致していること
+			var inId = root.getString("id");
+			if (!id.equals(inId)) {
+				printLog("Invalid ID: Value='%s'", inId);
+				tampering(contentFilePath, null);
+			}
+
+			// データ更新日時を取得する
+			var inLastUpdated = root.getString("lastUpdated");
+			var lastUpdateDateTime = (ZonedDateTime)null;
+			try {
+				lastUpdateDateTime = ZonedDateTime.parse(inLastUpdated);
+			} catch (DateTimeParseException e) {
+				printLog("Invalid lastUpdated: Value='%s'", inLastUpdated);
+				tampering(contentFilePath, e);
+			}
+
+			// 最終更新情報を解析する
+			var inModifiedList = root.getJSONArray("modified");
+			if (inModifiedList.length() != PlayStyle.COUNT) {
+				// 最終更新情報のデータ構成がおかしい(個数が合わない)場合は改ざんと見なす
+				printLog("Invalid modified: Length=%d", inModifiedList.length());
+				tampering(contentFilePath, null);
+			}
+			for (var i = 0; i < PlayStyle.COUNT; i++) {
+				// 最終更新日時を取得する(nullの場合もある)
+				var inModified = inModifiedList.getJSONObject(i);
+				var inDateTime = inModified.get("dateTime");
+				if (Utility.isJsonNull(inDateTime)) {
+					modifiedDateTimes[i] = null;
+				} else {
 					try {
-						lastUpdateDateTime = ZonedDateTime.parse(inLastUpdated);
+						modifiedDateTimes[i] = ZonedDateTime.parse(inDateTime.toString());
 					} catch (DateTimeParseException e) {
-						printLog("Invalid lastUpdated: Value='%s'", inLastUpdated);
+						printLog("Invalid modified[%d].dateTime: Value='%s'", i, inDateTime);
 						tampering(contentFilePath, e);
 					}
+				}
 
-					// 最終更新情報を解析する
-					Arrays.fill(modifiedDateTimes, null);
-					Arrays.fill(modifiedDataHashes, null);
-					var inModifiedList = root.getJSONArray("modified");
-					if (inModifiedList.length() != PlayStyle.COUNT) {
-						// 最終更新情報のデータ構成がおかしい(個数が合わない)場合は改ざんと見なす
-						printLog("Invalid modified: Length=%d", inModifiedList.length());
+				// 最終更新データハッシュを取得する(nullの場合もある)
+				var inDataHash = inModified.get("dataHash");
+				if (Utility.isJsonNull(inDataHash)) {
+					modifiedDataHashes[i] = null;
+				} else if (Utility.isSha256(inDataHash.toString())) {
+					modifiedDataHashes[i] = inDataHash.toString();
+				} else {
+					printLog("Invalid modified[%d].dataHash: Value='%s'", i, inDataHash);
+					tampering(contentFilePath, null);
+				}
+
+				// エンティティタグを取得する(nullの場合もある)
+				// バージョン1のファイルにはエンティティタグがないため、常にnullとする
+				if (inVersion >= 2) {
+					var inETag = inModified.get("eTag");
+					if (Utility.isJsonNull(inETag)) {
+						modifiedETags[i] = null;
+					} else if (inETag instanceof String) {
+						modifiedETags[i] = inETag.toString();
+					} else {
+						printLog("Invalid modified[%d].eTag: Value='%s'", i, inETag);
 						tampering(contentFilePath, null);
 					}
-					for (var i = 0; i < PlayStyle.COUNT; i++) {
-						// 最終更新日時を取得する(nullの場合もある)
-						var inModified = inModifiedList.getJSONObject(i);
-						var inDateTime = inModified.get("dateTime");
-						if (Utility.isJsonNull(inDateTime)) {
-							modifiedDateTimes[i] = null;
-						} else {
-							try {
-								modifiedDateTimes[i] = ZonedDateTime.parse(inDateTime.toString());
-							} catch (DateTimeParseException e) {
-								printLog("Invalid modified[%d].dateTime: Value='%s'", i, inDateTime);
-								tampering(contentFilePath, e);
-							}
-						}
-
-						// 最終更新データハッシュを取得する(nullの場合もある)
-						var inDataHash = inModified.get("dataHash");
-						if (Utility.isJsonNull(inDataHash)) {
-							modifiedDataHashes[i] = null;
-						} else if (Utility.isSha256(inDataHash.toString())) {
-							modifiedDataHashes[i] = inDataHash.toString();
-						} else {
-							printLog("Invalid modified[%d].dataHash: Value='%s'", i, inDataHash);
-							tampering(contentFilePath, null);
-						}
-					}
 
-					// 楽曲情報リストを取得する
-					var inContents = root.getJSONArray("contents");
-					var numContents = inContents.length();
-					for (var i = 0; i < numContents; i++) {
-						// 楽曲情報1件を取得する(objectでない場合は当該データを無視する)
-						var inContent = inContents.optJSONObject(i);
-						if (Objects.isNull(inContent)) {
-							printLog("contents[%d]: Skip because it's not object type", i);
-							continue;
-						}
-
-						// タイトルとアーティストを取得する
-						var inTitle = inContent.optString("title", "");
-						var inArtist = inContent.optString("artist", "");
-						if (inTitle.isEmpty()) {
-							// タイトルが未定義、空文字の楽曲情報は不正データとする
-							printLog("contents[%d]: Skip because invalid title", i);
-							continue;
-						}
-						if (inArtist.isEmpty() && !inContent.has("artist")) {
-							// アーティストが未定義の場合は不正データとする ※空文字は許容
-							printLog("contents[%d]: Skip because artist not found", i);
-							continue;
-						}
-
-						// DPモードかどうかを取得する
-						var inPlayStyle = PlayStyle.fromBoolean(inContent.optBoolean("dpMode", false));
-						var styleDesc = tableDesc.getPlayStyleDescription(inPlayStyle);
-						if (Objects.isNull(styleDesc)) {
-							// 難易度表が該当プレースタイルに非対応の場合は不正データとする
-							printLog("contents[%d]: Skip because un-supported play style", i);
-							continue;
-						}
-
-						// 難易度表インデックスを取得する
-						var inLevelIndex = inContent.optInt("levelIndex", -1);
-						if ((inLevelIndex < 0) || (inLevelIndex >= styleDesc.getLabels().size())) {
-							// 難易度表インデックスが有効範囲外の場合は不正データとする
-							printLog("contents[%d]: Skip because levelIndex out of range: Value=%d", i, inLevelIndex);
-							continue;
-						}
-
-						// その他の任意情報を解析する
-						var fi = i;
-						var inBodyUrl = Utility.optionalJsonUrl(inContent.optString("bodyUrl", ""), v -> {
-							printLog("contents[%d]: Invalid body URL: Value='%s'", fi, v);
-						});
-						var inAddUrl = Utility.optionalJsonUrl(inContent.optString("additionalUrl", ""), v -> {
-							printLog("contents[%d]: Invalid additional URL: Value='%s'", fi, v);
-						});
-						var inMd5 = Utility.optionalJsonHash(inContent.optString("md5"), Utility::isMd5, v -> {
-							printLog("contents[%d]: Invalid MD5: Value='%s'", fi, v);
-						});
-						var inSha256 = Utility.optionalJsonHash(inContent.optString("sha256"), Utility::isSha256, v -> {
-							printLog("contents[%d]: Invalid SHA-256: Value='%s'", fi, v);
-						});
-
-						// 楽曲情報を登録する
-						contents.add(new ContentDescription(
-								inTitle, inArtist, inPlayStyle, inLevelIndex,
-								inBodyUrl, inAddUrl, inMd5, inSha256));
+					// 有効期限を取得する(nullの場合もある)
+					var inExpires = inModified.get("expires");
+					try {
+						modifiedExpires[i] = Utility.isJsonNull(inExpires) ? null :
+								ZonedDateTime.parse(inExpires.toString(), DateTimeFormatter.ISO_ZONED_DATE_TIME);
+					} catch (DateTimeParseException e) {
+						printLog("Invalid modified[%d].expires: Value='%s'", i, inExpires);
+						tampering(contentFilePath, e);
 					}
-
-					// 難易度表情報を登録する
-					var collection = new ContentCollection(
-							tableDesc,
-							lastUpdateDateTime,
-							modifiedDateTimes[iSp], modifiedDataHashes[iSp],
-							modifiedDateTimes[iDp], modifiedDataHashes[iDp],
-							contents);
-					mCollections.put(id, collection);
-					printLog("Load '%s' complete", id);
-				} catch (IOException e) {
-					// IOExceptionはそのままスロー
-					throw e;
-				} catch (Exception e) {
-					// JSON解析中のエラーはデータ破損としてIOExceptionをスローする
-					printLog("Un-expected exception: %s", e.getMessage());
-					var msg = String.format("%s: Broken database", contentFilePath);
-					throw new IOException(msg, e);
 				}
 			}
-			printLog("LOAD '%s' complete", location);
-		} finally {
-			// 書き込みロックを解除する
-			unlock(false, true);
+
+			// 楽曲情報リストが配列であること(楽曲情報は読み込み時に解析済み)
+			if (!hasContents) {
+				throw new JSONException("JSONObject[\"contents\"] is not found or not a JSONArray.");
+			}
+
+			// 難易度表情報を構築する
+			return new ContentCollection(
+					tableDesc,
+					lastUpdateDateTime,
+					modifiedDateTimes[iSp], modifiedDataHashes[iSp],
+					modifiedDateTimes[iDp], modifiedDataHashes[iDp],
+					contents,
+					mStringPool)
+					.setModifiedETag(PlayStyle.SINGLE, modifiedETags[iSp])
+					.setModifiedETag(PlayStyle.DOUBLE, modifiedETags[iDp])
+					.setModifiedExpires(PlayStyle.SINGLE, modifiedExpires[iSp])
+					.setModifiedExpires(PlayStyle.DOUBLE, modifiedExpires[iDp]);
+		} catch (IOException e) {
+			// IOExceptionはそのままスロー
+			throw e;
+		} catch (Exception e) {
+			// JSON解析中のエラーはデータ破損としてIOExceptionをスローする
+			printLog("Un-expected exception: %s", e.getMessage());
+			var msg = String.format("%s: Broken database", contentFilePath);
+			throw new IOException(msg, e);
 		}
 	}
 
+	/**
+	 * 楽曲情報リストの逐次読み込み処理
+	 * <p>楽曲情報を1件ずつ読み込んで解析し、有効な楽曲情報を楽曲情報リストに追加する。楽曲情報リストが配列でない場合は
+	 * 値を読み飛ばす。</p>
+	 * @param reader 楽曲情報リストの値の直前まで読み込んだJSON読み込みオブジェクト
+	 * @param tableDesc 難易度表定義
+	 * @param contents 楽曲情報リスト
+	 * @return 楽曲情報リストが配列の場合 true
+	 * @throws IOException 入力元の読み込みでエラーが発生した
+	 * @throws JSONException 構文エラー
+	 */
+	private static boolean readContents(JsonPullReader reader, TableDescription tableDesc,
+			List<ContentDescription> contents) throws IOException {
+		if (!reader.tryBeginArray()) {
+			reader.skipValue();
+			return false;
+		}
+		for (var i = 0; reader.hasNext(); i++) {
+			var content = parseContent(tableDesc, i, reader.readValue());
+			if (Objects.nonNull(content)) {
+				contents.add(content);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 楽曲情報1件の解析処理
+	 * @param tableDesc 難易度表定義
+	 * @param i 楽曲情報リスト内のインデックス値
+	 * @param element 楽曲情報リストの要素
+	 * @return 楽曲情報。不正データの場合 null。
+	 */
+	private static ContentDescription parseContent(TableDescription tableDesc, int i, Object element) {
+		// 楽曲情報1件を取得する(objectでない場合は当該データを無視する)
+		if (!(element instanceof JSONObject)) {
+			printLog("contents[%d]: Skip because it's not object type", i);
+			return null;
+		}
+		var inContent = (JSONObject)element;
+
+		// タイトルとアーティストを取得する
+		var inTitle = inContent.optString("title", "");
+		var inArtist = inContent.optString("artist", "");
+		if (inTitle.isEmpty()) {
+			// タイトルが未定義、空文字の楽曲情報は不正データとする
+			printLog("contents[%d]: Skip because invalid title", i);
+			return null;
+		}
+		if (inArtist.isEmpty() && !inContent.has("artist")) {
+			// アーティストが未定義の場合は不正データとする ※空文字は許容
+			printLog("contents[%d]: Skip because artist not found", i);
+			return null;
+		}
+
+		// DPモードかどうかを取得する
+		var inPlayStyle = PlayStyle.fromBoolean(inContent.optBoolean("dpMode", false));
+		var styleDesc = tableDesc.getPlayStyleDescription(inPlayStyle);
+		if (Objects.isNull(styleDesc)) {
+			// 難易度表が該当プレースタイルに非対応の場合は不正データとする
+			printLog("contents[%d]: Skip because un-supported play style", i);
+			return null;
+		}
+
+		// 難易度表インデックスを取得する
+		var inLevelIndex = inContent.optInt("levelIndex", -1);
+		if ((inLevelIndex < 0) || (inLevelIndex >= styleDesc.getLabels().size())) {
+			// 難易度表インデックスが有効範囲外の場合は不正データとする
+			printLog("contents[%d]: Skip because levelIndex out of range: Value=%d", i, inLevelIndex);
+			return null;
+		}
+
+		// その他の任意情報を解析する
+		var inBodyUrl = Utility.optionalJsonUrl(inContent.optString("bodyUrl", ""), v -> {
+			printLog("contents[%d]: Invalid body URL: Value='%s'", i, v);
+		});
+		var inAddUrl = Utility.optionalJsonUrl(inContent.optString("additionalUrl", ""), v -> {
+			printLog("contents[%d]: Invalid additional URL: Value='%s'", i, v);
+		});
+		var inMd5 = Utility.optionalJsonHash(inContent.optString("md5"), Utility::isMd5, v -> {
+			printLog("contents[%d]: Invalid MD5: Value='%s'", i, v);
+		});
+		var inSha256 = Utility.optionalJsonHash(inContent.optString("sha256"), Utility::isSha256, v -> {
+			printLog("contents[%d]: Invalid SHA-256: Value='%s'", i, v);
+		});
+
+		// 楽曲情報を生成する
+		return new ContentDescription(
+				inTitle, inArtist, inPlayStyle, inLevelIndex,
+				inBodyUrl, inAddUrl, inMd5, inSha256);
+	}
+
 	/**
 	 * 難易度表データベース更新処理
+	 * <p>難易度表が複数のプレースタイルに対応している場合、2番目以降のプレースタイルの楽曲情報は別スレッドで
+	 * 並行してダウンロード・解析を行う。ただし、進捗報告は別スレッドで記録しておき、先行するプレースタイルの
+	 * 処理完了後に呼び出し元スレッドで報告することで、逐次処理と同じ順番で報告されるようにする。</p>
 	 * @param client HTTPクライアントオブジェクト
 	 * @param tableDesc 難易度表定義
 	 * @param iDesc 更新対象の難易度表定義のインデックス値
 	 * @param numDesc 更新対象の難易度表定義の数
 	 * @param timeout 楽曲情報データダウンロード時のサーバー応答タイムアウト。null の場合タイムアウトなし。
 	 * @param progress 更新処理の進捗情報を報告するハンドラオブジェクト
+	 * @param force 楽曲情報元データの有効期限に関わらず更新を行うかどうか
 	 * @throws HttpTimeoutException HTTP通信で接続・応答タイムアウトが発生した
 	 * @throws IOException HTTP通信で送受信エラーが発生した
 	 * @throws InterruptedException スレッド割り込みによる更新処理の中止が発生した
 	 * @throws IllegalStateException 読み書き排他処理エラーが発生した
 	 */
 	private void processUpdate(HttpClient client, TableDescription tableDesc, int iDesc, int numDesc,
-			Duration timeout, UpdateProgress progress) throws IOException, InterruptedException {
+			Duration timeout, UpdateProgress progress, boolean force) throws IOException, InterruptedException {
 		printLog("UPDATE: ID='%s', Name='%s', Desc=%d/%d, Timeout=%s",
 				tableDesc.getId(), tableDesc.getName(), iDesc, numDesc, timeout);
 
+		// 最終更新情報を取得するための難易度表情報を取得する
+		var collection = loadedCollection(tableDesc.getId());
+
+		// 当該難易度表で対応しているプレースタイルを抽出する
+		var playStyles = supportedPlayStyles(tableDesc);
+
+		// 2番目以降のプレースタイルは別スレッドで先行して処理を開始する
+		// 進捗報告は報告種別を記録しておき、後で呼び出し元スレッドから報告する
+		var cc = collection;
+		var numStyles = playStyles.size();
+		var futures = new ArrayList<Future<StyleUpdate>>(numStyles);
+		var deferredStatuses = new ArrayList<List<UpdateProgress.Status>>(numStyles);
+		for (var i = 1; i < numStyles; i++) {
+			var playStyle = playStyles.get(i);
+			var statuses = Collections.synchronizedList(new ArrayList<UpdateProgress.Status>());
+			deferredStatuses.add(statuses);
+			futures.add(STYLE_EXECUTOR.submit(() -> {
+				return processUpdateStyle(client, tableDesc, playStyle, cc, timeout, force, statuses::add);
+			}));
+		}
+
 		// SP/DPの楽曲情報をWebサーバからダウンロードする
-		var dirty = false;
-		var outModifiedDateTimes = new ZonedDateTime[PlayStyle.COUNT];
-		var outModifiedDataHashes = new String[PlayStyle.COUNT];
-		var outContents = new ArrayList<List<ContentDescription>>();
-		IntStream.range(0, PlayStyle.COUNT).forEach(i -> outContents.add(new ArrayList<>()));
-		for (var playStyle : PlayStyle.values()) {
-			// 当該難易度表で非対応のプレースタイルはスキップする
-			var styleDesc = tableDesc.getPlayStyleDescription(playStyle);
-			if (Objects.isNull(styleDesc)) {
-				printLog("Play style='%s': Unsupported", playStyle);
-				continue;
-			} else {
-				printLog("Play style='%s': Supported", playStyle);
-				progress.publish(tableDesc, playStyle, iDesc, numDesc, UpdateProgress.Status.START);
+		var updates = new StyleUpdate[PlayStyle.COUNT];
+		try {
+			for (var i = 0; i < numStyles; i++) {
+				var playStyle = playStyles.get(i);
+				Consumer<UpdateProgress.Status> publisher = sts -> {
+					progress.publish(tableDesc, playStyle, iDesc, numDesc, sts);
+				};
+				if (i == 0) {
+					// 先頭のプレースタイルは呼び出し元スレッドで処理する
+					updates[playStyle.ordinal()] = processUpdateStyle(
+							client, tableDesc, playStyle, cc, timeout, force, publisher);
+				} else {
+					// 別スレッドで処理したプレースタイルは処理完了を待ち、記録した進捗報告を順番に報告する
+					updates[playStyle.ordinal()] = waitStyleUpdate(
+							futures.get(i - 1), deferredStatuses.get(i - 1), publisher);
+				}
 			}
+		} finally {
+			// エラー、割り込み等で処理を中断した場合は別スレッドの処理を中止する
+			futures.forEach(f -> f.cancel(true));
+		}
 
-			// 最終更新情報を取得する
-			var modDateTime = (ZonedDateTime)null;
-			var modDataHash = (String)null;
-			var collection = mCollections.get(tableDesc.getId());
-			if (Objects.nonNull(collection)) {
-				modDateTime = collection.getModifiedDateTime(playStyle);
-				modDataHash = collection.getModifiedDataHash(playStyle);
-				printLog("Current modified: DateTime='%s', Hash=%s", modDateTime, modDataHash);
-			} else {
-				printLog("Current modified: None because collection is not found");
+		// 更新結果を難易度表情報ファイルとメモリ上の難易度表情報に反映する
+		commitUpdate(tableDesc, updates);
+	}
+
+	/**
+	 * 難易度表データベース再構築処理
+	 * @param tableDesc 難易度表定義
+	 * @param iDesc 再構築対象の難易度表定義のインデックス値
+	 * @param numDesc 再構築対象の難易度表定義の数
+	 * @param progress 再構築処理の進捗情報を報告するハンドラオブジェクト
+	 * @throws IOException 楽曲情報元データの読み込み、楽曲情報の解析、または難易度表情報ファイルの書き込みでエラーが発生した
+	 * @throws InterruptedException スレッド割り込みによる再構築処理の中止が発生した
+	 */
+	private void processReparse(TableDescription tableDesc, int iDesc, int numDesc, UpdateProgress progress)
+			throws IOException, InterruptedException {
+		printLog("REPARSE: ID='%s', Name='%s', Desc=%d/%d", tableDesc.getId(), tableDesc.getName(), iDesc, numDesc);
+
+		// 難易度表情報を取得する
+		var collection = loadedCollection(tableDesc.getId());
+
+		// 対応するプレースタイルの楽曲情報を保存済みの楽曲情報元データから解析する
+		var updates = new StyleUpdate[PlayStyle.COUNT];
+		for (var playStyle : supportedPlayStyles(tableDesc)) {
+			if (Thread.currentThread().isInterrupted()) {
+				throw new InterruptedException();
 			}
+			Consumer<UpdateProgress.Status> publisher = sts -> {
+				progress.publish(tableDesc, playStyle, iDesc, numDesc, sts);
+			};
+			updates[playStyle.ordinal()] = processReparseStyle(tableDesc, playStyle, collection, publisher);
+		}
+
+		// 解析結果を難易度表情報ファイルとメモリ上の難易度表情報に反映する
+		commitUpdate(tableDesc, updates);
+	}
+
+	/**
+	 * 難易度表データベース非同期更新処理
+	 * <p>対応する全てのプレースタイルの楽曲情報取得リクエストを一斉に送信し、応答を受信したプレースタイルから
+	 * 順に解析を行う。進捗報告は {@link #processUpdate(HttpClient, TableDescription, int, int, Duration, UpdateProgress, boolean)}
+	 * と同様に、プレースタイルの順番で行われるようにする。</p>
+	 * <p>返されるフューチャーは例外で完了することはなく、常に難易度表の更新結果で完了する。</p>
+	 * @param ctx 当該難易度表の非同期処理コンテキスト
+	 * @param client HTTPクライアントオブジェクト
+	 * @param tableDesc 難易度表定義
+	 * @param iDesc 更新対象の難易度表定義のインデックス値
+	 * @param numDesc 更新対象の難易度表定義の数
+	 * @param timeout 楽曲情報データダウンロード時のサーバー応答タイムアウト。null の場合タイムアウトなし。
+	 * @param progress 更新処理の進捗情報を報告するハンドラオブジェクト
+	 * @param force 楽曲情報元データの有効期限に関わらず更新を行うかどうか
+	 * @return 難易度表の更新結果を返すフューチャー
+	 */
+	private CompletableFuture<UpdateResult> processUpdateAsync(AsyncContext ctx, HttpClient client,
+			TableDescription tableDesc, int iDesc, int numDesc, Duration timeout, UpdateProgress progress,
+			boolean force) {
+		printLog("UPDATE ASYNC: ID='%s', Name='%s', Desc=%d/%d, Timeout=%s",
+				tableDesc.getId(), tableDesc.getName(), iDesc, numDesc, timeout);
 
-			// 更新前のデータを予め設定しておく
-			// 更新不要の場合、以下の値がそのままデータベースに入ることとなる
-			outModifiedDateTimes[playStyle.ordinal()] = modDateTime;
-			outModifiedDataHashes[playStyle.ordinal()] = modDataHash;
-			outContents.set(playStyle.ordinal(), collection.all()
-					.filter(c -> c.getPlayStyle() == playStyle)
-					.collect(Collectors.toList()));
+		// 最終更新情報を取得するための難易度表情報を取得する
+		var collection = (ContentCollection)null;
+		try {
+			collection = loadedCollection(tableDesc.getId());
+		} catch (IOException e) {
+			printLog("UPDATE ASYNC '%s' failed: %s", tableDesc.getId(), e);
+			return CompletableFuture.completedFuture(new UpdateResult(e));
+		}
+
+		// 対応する全てのプレースタイルの更新処理を開始する
+		// 先頭のプレースタイルの進捗は直接報告し、それ以外は記録しておき先行するプレースタイルの完了後に報告する
+		var playStyles = supportedPlayStyles(tableDesc);
+		var numStyles = playStyles.size();
+		var styleCtxs = new ArrayList<AsyncContext>(numStyles);
+		var futures = new ArrayList<CompletableFuture<StyleUpdate>>(numStyles);
+		var publishers = new ArrayList<Consumer<UpdateProgress.Status>>(numStyles);
+		var deferredStatuses = new ArrayList<List<UpdateProgress.Status>>(numStyles);
+		for (var i = 0; i < numStyles; i++) {
+			var playStyle = playStyles.get(i);
+			var styleCtx = new AsyncContext(ctx);
+			Consumer<UpdateProgress.Status> publisher = sts -> {
+				progress.publish(tableDesc, playStyle, iDesc, numDesc, sts);
+			};
+			var statuses = (i == 0) ? null : Collections.synchronizedList(new ArrayList<UpdateProgress.Status>());
+			var actualPublisher = Objects.isNull(statuses) ? publisher : (Consumer<UpdateProgress.Status>)statuses::add;
+			styleCtxs.add(styleCtx);
+			publishers.add(publisher);
+			deferredStatuses.add(statuses);
+			futures.add(processUpdateStyleAsync(
+					styleCtx, client, tableDesc, playStyle, collection, timeout, force, actualPublisher));
+		}
 
-			// 楽曲情報URLを生成する
-			var contentUri = (URI)null;
+		// プレースタイルの順番に更新結果を回収する
+		// 先行するプレースタイルが失敗した場合、後続のプレースタイルの結果は回収せず進捗も報告しない
+		var updates = new StyleUpdate[PlayStyle.COUNT];
+		var chain = CompletableFuture.<Void>completedFuture(null);
+		for (var i = 0; i < numStyles; i++) {
+			var future = futures.get(i);
+			var publisher = publishers.get(i);
+			var statuses = deferredStatuses.get(i);
+			chain = chain.thenCompose(x -> future.handle((update, e) -> {
+				if (Objects.nonNull(statuses)) {
+					synchronized (statuses) {
+						statuses.forEach(publisher);
+					}
+				}
+				if (Objects.nonNull(e)) {
+					throw (e instanceof CompletionException) ? (CompletionException)e : new CompletionException(e);
+				}
+				updates[update.playStyle.ordinal()] = update;
+				return null;
+			}));
+		}
+
+		// 全てのプレースタイルの更新結果が揃ったら難易度表情報に反映する
+		return chain.thenApply(x -> {
+			if (ctx.isCancelled()) {
+				throw new CancellationException();
+			}
 			try {
-				printLog("Content URL='%s'", styleDesc.getContentUrl());
-				contentUri = styleDesc.getContentUrl().toURI();
-			} catch (URISyntaxException e) {
-				printLog("Bad content URL: %s", e.getMessage());
-				progress.publish(tableDesc, playStyle, iDesc, numDesc, UpdateProgress.Status.ERROR);
-				var msg = String.format("%s: Can't use this content URL", styleDesc.getContentUrl());
-				throw new IOException(msg, e);
+				commitUpdate(tableDesc, updates);
+				return new UpdateResult(UpdateResult.Type.SUCCESS);
+			} catch (IOException e) {
+				throw new CompletionException(e);
+			}
+		}).handle((result, e) -> {
+			if (Objects.isNull(e)) {
+				return result;
 			}
 
-			// リクエストを生成する
-			var reqBuilder = HttpRequest.newBuilder().GET().uri(contentUri);
-			if (Objects.nonNull(timeout)) {
-				// リクエストタイムアウトが設定されている場合はタイムアウト時間を設定する
-				reqBuilder.timeout(timeout);
+			// エラー、中止等で処理を中断した場合は未完了のプレースタイルの処理を中止する
+			styleCtxs.forEach(AsyncContext::cancel);
+			var cause = Utility.unwrapCompletionCause(e);
+			if (ctx.isCancelled() || (cause instanceof CancellationException) ||
+					(cause instanceof InterruptedException)) {
+				printLog("UPDATE ASYNC '%s' aborted", tableDesc.getId());
+				return new UpdateResult(UpdateResult.Type.ABORT);
+			} else {
+				printLog("UPDATE ASYNC '%s' failed: %s", tableDesc.getId(), cause);
+				return new UpdateResult(cause);
 			}
-			if (Objects.nonNull(modDateTime)) {
-				// 最終更新日時が判明している場合は If-Modified-Since を設定する
-				reqBuilder.header("If-Modified-Since", modDateTime.format(DateTimeFormatter.RFC_1123_DATE_TIME));
+		});
+	}
+
+	/**
+	 * 難易度表情報の変更日時取得
+	 * <p>いずれかのプレースタイルで最終更新日時、またはハッシュ値が変化した場合に変更ありとし、
+	 * 変更されたプレースタイルの最終更新日時のうち最も新しい日時を返す。最終更新日時が不明な場合は現在日時を返す。</p>
+	 * @param before 更新前の難易度表情報、または null
+	 * @param after 更新後の難易度表情報、または null
+	 * @return 難易度表情報の変更日時、変更されていない場合は null
+	 */
+	private static Instant changedDateTime(ContentCollection before, ContentCollection after) {
+		var changedAt = (Instant)null;
+		for (var playStyle : PlayStyle.values()) {
+			var dtBefore = Objects.isNull(before) ? null : before.getModifiedDateTime(playStyle);
+			var dtAfter = Objects.isNull(after) ? null : after.getModifiedDateTime(playStyle);
+			var hashBefore = Objects.isNull(before) ? null : before.getModifiedDataHash(playStyle);
+			var hashAfter = Objects.isNull(after) ? null : after.getModifiedDataHash(playStyle);
+			if (!Objects.equals(dtBefore, dtAfter) || !Objects.equals(hashBefore, hashAfter)) {
+				var at = Objects.isNull(dtAfter) ? Instant.now() : dtAfter.toInstant();
+				changedAt = (Objects.isNull(changedAt) || at.isAfter(changedAt)) ? at : changedAt;
 			}
+		}
+		return changedAt;
+	}
 
-			// 楽曲情報の元データ取得リクエストを送信する
-			printLog("Waiting response ...");
-			var resp = send(client, reqBuilder.build());
-			var statusCode = resp.statusCode();
-			printLog("Response=%d", statusCode);
-			if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
-				// 最終更新日時から内容が変更されていない場合は何もしない
-				progress.publish(tableDesc, playStyle, iDesc, numDesc, UpdateProgress.Status.UNNECESSARY);
-				continue;
-			} else if (statusCode != HttpURLConnection.HTTP_OK) {
-				// その他、正常受信以外の場合はエラーとする
-				progress.publish(tableDesc, playStyle, iDesc, numDesc, UpdateProgress.Status.ERROR);
-				var msg = String.format("Received %d from '%s'", statusCode, contentUri);
-				throw new IOException(msg);
+	/**
+	 * 難易度表で対応しているプレースタイルの抽出
+	 * @param tableDesc 難易度表定義
+	 * @return 対応しているプレースタイルのリスト(プレースタイルの定義順)
+	 */
+	private static List<PlayStyle> supportedPlayStyles(TableDescription tableDesc) {
+		var playStyles = new ArrayList<PlayStyle>(PlayStyle.COUNT);
+		for (var playStyle : PlayStyle.values()) {
+			if (Objects.isNull(tableDesc.getPlayStyleDescription(playStyle))) {
+				printLog("Play style='%s': Unsupported", playStyle);
 			} else {
-				// Do nothing
+				printLog("Play style='%s': Supported", playStyle);
+				playStyles.add(playStyle);
 			}
+		}
+		return playStyles;
+	}
 
-			// 楽曲情報元データ受信処理
-			// この処理は通信環境の影響で時間がかかる場合があるためスレッド割り込みを監視する
-			printLog("Receiving body ...");
-			var stream = resp.body();
-			var rcv = 0;
-			var rcvBuffer = new byte[4096];
-			var rawBuffer = new ByteArrayOutputStream(65536);
-			while ((rcv = stream.read(rcvBuffer)) != -1) {
-				rawBuffer.write(rcvBuffer, 0, rcv);
-				if (Thread.currentThread().isInterrupted()) {
-					// データ受信中にスレッドが割り込まれた場合は処理を中止する
-					throw new InterruptedException();
+	/**
+	 * 難易度表データベース更新結果の反映処理
+	 * <p>プレースタイルごとの更新結果を集約し、難易度表情報ファイルの書き込みとメモリ上の難易度表情報の置き換えを行う。
+	 * いずれのプレースタイルにも更新がない場合は何も行わない。</p>
+	 * <p>受信した楽曲情報元データは、更新の有無に関わらず楽曲情報元データの保存先に保存する。</p>
+	 * @param tableDesc 難易度表定義
+	 * @param updates プレースタイルごとの更新結果(非対応のプレースタイルは null)
+	 * @throws IOException 難易度表情報ファイル、または楽曲情報元データの書き込みでエラーが発生した
+	 */
+	private void commitUpdate(TableDescription tableDesc, StyleUpdate[] updates) throws IOException {
+		// 受信した楽曲情報元データを保存する
+		// 保存したデータは、難易度表情報に反映するまで他の難易度表の更新で削除されないようにする
+		var rawHashes = new ArrayList<String>(PlayStyle.COUNT);
+		try {
+			for (var update : updates) {
+				if (Objects.nonNull(update) && Objects.nonNull(update.rawHash)) {
+					rawHashes.add(update.rawHash);
+					mRawStore.put(update.rawHash, update.raw);
+					update.raw = null;
 				}
 			}
-			var raw = rawBuffer.toByteArray();
-			rcvBuffer = null;
-			rawBuffer = null;
-			printLog("Received: Length=%dbytes", raw.length);
+			commitCollection(tableDesc, updates);
+		} finally {
+			mRawStore.release(rawHashes);
+		}
 
-			// 楽曲情報元データの最終更新日時を取得する
-			var respModDateTime = resp.headers().firstValue("Last-Modified");
-			if (respModDateTime.isPresent()) {
-				printLog("Last-modified='%s'", respModDateTime.get());
-				try {
-					// 最終更新日時が応答されている場合はそれを記録する
-					var dt = ZonedDateTime.parse(respModDateTime.get(), DateTimeFormatter.RFC_1123_DATE_TIME);
-					outModifiedDateTimes[playStyle.ordinal()] = dt;
-					dirty = true;
-				} catch (DateTimeParseException e) {
-					// Webサーバが下手こいて変な日時を返した場合の処遇は知らん
-					printLog("Bad Last-modified: %s", e.getMessage());
-				}
-			} else {
-				// 楽曲情報元データの最終更新日時が含まれない場合は元の日時を更新しない
-				printLog("Last-modified was not presented");
+		// 参照されなくなった楽曲情報元データを削除する
+		// 削除に失敗しても更新結果には影響しないため、エラーは無視する
+		if (!rawHashes.isEmpty()) {
+			try {
+				mRawStore.prune(referencedDataHashes());
+			} catch (IOException e) {
+				printLog("Failed to prune raw contents: %s", e);
 			}
+		}
+	}
 
-			// 楽曲情報元データのハッシュ値を計算する
-			try {
-				var hash = MessageDigest.getInstance("SHA-256").digest(raw);
-				var sha256 = Utility.byteArrayToString(hash);
-				printLog("Content-hash: %s", sha256);
-				if (Objects.nonNull(modDataHash) && modDataHash.equalsIgnoreCase(sha256)) {
-					// 受信データのハッシュ値が最終更新データハッシュと一致する場合は更新しない
-					progress.publish(tableDesc, playStyle, iDesc, numDesc, UpdateProgress.Status.UNNECESSARY);
+	/**
+	 * 難易度表情報から参照されている楽曲情報元データのハッシュ値取得
+	 * <p>遅延読み込みモードで未読み込みの難易度表情報は、読み込まずに難易度表情報ファイルの最終更新情報のみを
+	 * 読み取ってハッシュ値を取得する。</p>
+	 * @return 全ての難易度表情報から参照されている楽曲情報元データのハッシュ値(英小文字)
+	 * @throws IOException 未読み込みの難易度表情報ファイルの読み取りでエラーが発生した
+	 */
+	private Set<String> referencedDataHashes() throws IOException {
+		var hashes = new HashSet<String>();
+		var pending = (List<TableDescription>)null;
+		synchronized (mCollections) {
+			for (var collection : mCollections.values()) {
+				if (Objects.isNull(collection)) {
+					// 未読み込みの難易度表情報は後で難易度表情報ファイルから読み取る
 					continue;
-				} else {
-					// 次回更新時のハッシュ値チェックのために、計算したハッシュ値を記録する
-					printLog("Changed content or first update");
-					outModifiedDataHashes[playStyle.ordinal()] = sha256;
-					dirty = true;
 				}
-			} catch (NoSuchAlgorithmException e) {
-				// Don't care
+				for (var playStyle : PlayStyle.values()) {
+					var hash = collection.getModifiedDataHash(playStyle);
+					if (Objects.nonNull(hash)) {
+						hashes.add(hash.toLowerCase(Locale.ROOT));
+					}
+				}
 			}
+			pending = new ArrayList<>(mPending.values());
+		}
+		for (var tableDesc : pending) {
+			readDataHashes(mLocation.resolve(String.format("%s.json", tableDesc.getId())), hashes);
+		}
+		return hashes;
+	}
 
-			// 受信データから楽曲情報を解析する
-			printLog("Parsing content...");
-			var parser = tableDesc.getParser();
-			var contents = (List<ContentDescription>)null;
-			try {
-				contents = parser.parse(tableDesc, playStyle, raw);
-			} catch (IOException e) {
-				progress.publish(tableDesc, playStyle, iDesc, numDesc, UpdateProgress.Status.ERROR);
-				throw e;
-			} catch (Exception e) {
-				progress.publish(tableDesc, playStyle, iDesc, numDesc, UpdateProgress.Status.ERROR);
-				throw new IOException("Parser thrown an exception", e);
+	/**
+	 * 難易度表情報ファイルからの最終更新データハッシュの読み取り
+	 * <p>最終更新情報のみを読み取り、楽曲情報リストは解析せずに読み飛ばす。ファイルが存在しない場合は何もしない。</p>
+	 * @param contentFilePath 難易度表情報のJSONファイルのパス
+	 * @param dest 読み取ったハッシュ値(英小文字)の格納先
+	 * @throws IOException 入出力エラーが発生した、またはJSONの構文が不正
+	 */
+	private static void readDataHashes(Path contentFilePath, Set<String> dest) throws IOException {
+		if (!Files.isRegularFile(contentFilePath)) {
+			return;
+		}
+		try (var in = Files.newInputStream(contentFilePath)) {
+			var reader = new JsonPullReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+			if (!reader.beginObject()) {
+				throw new JSONException("A JSONObject text must begin with '{'");
 			}
+			for (var name = reader.nextName(); Objects.nonNull(name); name = reader.nextName()) {
+				if (!name.equals("modified")) {
+					reader.skipValue();
+					continue;
+				}
+				var inModified = reader.readValue();
+				if (!(inModified instanceof JSONArray)) {
+					throw new JSONException("JSONObject[\"modified\"] is not a JSONArray.");
+				}
+				for (var modified : (JSONArray)inModified) {
+					var dataHash = (modified instanceof JSONObject) ? ((JSONObject)modified).opt("dataHash") : null;
+					if (!Utility.isJsonNull(dataHash)) {
+						dest.add(dataHash.toString().toLowerCase(Locale.ROOT));
+					}
+				}
+				return;
+			}
+		} catch (JSONException e) {
+			throw new IOException(String.format("%s: Can't read modified data hashes", contentFilePath), e);
+		}
+	}
 
-			// 解析結果を確認する
-			if (Thread.currentThread().isInterrupted()) {
-				// 解析処理中にスレッドが割り込まれた場合は処理を中止する
-				printLog("Interrupted");
-				throw new InterruptedException();
-			} else if (Objects.isNull(contents)) {
-				// パーサがnullを返した場合は異常終了とする
-				printLog("Parser returned null");
-				progress.publish(tableDesc, playStyle, iDesc, numDesc, UpdateProgress.Status.ERROR);
-				var msg = String.format("Parser '%s' returned null contents", parser.getClass().getName());
-				throw new IOException(msg);
-			} else {
-				// 解析した楽曲情報をリストに追記する
-				// リストは最終的にSP/DP混合のリストになる
-				printLog("Parse complete: Count=%d", contents.size());
-				outContents.set(playStyle.ordinal(), contents);
-				dirty = true;
-				progress.publish(tableDesc, playStyle, iDesc, numDesc, UpdateProgress.Status.DONE);
+	/**
+	 * 難易度表情報の書き込みと置き換え処理
+	 * @param tableDesc 難易度表定義
+	 * @param updates プレースタイルごとの更新結果(非対応のプレースタイルは null)
+	 * @throws IOException 難易度表情報ファイルの書き込みでエラーが発生した
+	 */
+	private void commitCollection(TableDescription tableDesc, StyleUpdate[] updates) throws IOException {
+		// プレースタイルごとの更新結果を集約する
+		// 非対応のプレースタイルは最終更新情報なし、楽曲情報0件とする
+		var dirty = false;
+		var outModifiedDateTimes = new ZonedDateTime[PlayStyle.COUNT];
+		var outModifiedDataHashes = new String[PlayStyle.COUNT];
+		var outModifiedETags = new String[PlayStyle.COUNT];
+		var outModifiedExpires = new ZonedDateTime[PlayStyle.COUNT];
+		var outContents = new ArrayList<List<ContentDescription>>();
+		IntStream.range(0, PlayStyle.COUNT).forEach(i -> outContents.add(new ArrayList<>()));
+		for (var i = 0; i < PlayStyle.COUNT; i++) {
+			var update = updates[i];
+			if (Objects.nonNull(update)) {
+				outModifiedDateTimes[i] = update.modifiedDateTime;
+				outModifiedDataHashes[i] = update.modifiedDataHash;
+				outModifiedETags[i] = update.modifiedETag;
+				outModifiedExpires[i] = update.modifiedExpires;
+				outContents.set(i, update.contents);
+				dirty = dirty || update.dirty;
 			}
-			printLog("Play style='%s' Done", playStyle);
 		}
 
 		// 難易度表データベースの更新がない場合は何もしない
@@ -731,6 +2023,9 @@ public class ContentDatabase {
 			var dt = outModifiedDateTimes[i];
 			jsonMod.put("dateTime", Utility.valueOrJsonNull(dt, d -> d.format(DateTimeFormatter.ISO_ZONED_DATE_TIME)));
 			jsonMod.put("dataHash", Utility.valueOrJsonNull(outModifiedDataHashes[i], d -> d));
+			jsonMod.put("eTag", Utility.valueOrJsonNull(outModifiedETags[i], e -> e));
+			var ex = outModifiedExpires[i];
+			jsonMod.put("expires", Utility.valueOrJsonNull(ex, e -> e.format(DateTimeFormatter.ISO_ZONED_DATE_TIME)));
 			jsonModArray.put(jsonMod);
 		}
 		jsonObj.put("modified", jsonModArray);
@@ -757,7 +2052,8 @@ public class ContentDatabase {
 		jsonObj.put("contents", jsonContentsArray);
 
 		// 難易度表情報のJSONを一時ファイルに保存する
-		var tmpPath = mLocation.resolve(".tmp");
+		// 並列更新時に他の難易度表と競合しないよう、一時ファイルは難易度表ごとに分ける
+		var tmpPath = mLocation.resolve(String.format(".%s.tmp", tableDesc.getId()));
 		var jsonObjStr = jsonObj.toString(2);
 		jsonObj = null;
 		Files.writeString(tmpPath, jsonObjStr, StandardCharsets.UTF_8);
@@ -768,6 +2064,7 @@ public class ContentDatabase {
 		printLog("Write complete");
 
 		// メモリ上の難易度表情報を新しい内容で置き換える
+		// パーサが生成した楽曲情報の文字列は、他の難易度表情報と共有する文字列に置き換えて保持する
 		var iSp = PlayStyle.SINGLE.ordinal();
 		var iDp = PlayStyle.DOUBLE.ordinal();
 		var newCollection = new ContentCollection(
@@ -775,11 +2072,633 @@ public class ContentDatabase {
 				lastUpdateDateTime,
 				outModifiedDateTimes[iSp], outModifiedDataHashes[iSp],
 				outModifiedDateTimes[iDp], outModifiedDataHashes[iDp],
-				allContents);
-		mCollections.put(tableDesc.getId(), newCollection);
+				allContents,
+				mStringPool)
+				.setModifiedETag(PlayStyle.SINGLE, outModifiedETags[iSp])
+				.setModifiedETag(PlayStyle.DOUBLE, outModifiedETags[iDp])
+				.setModifiedExpires(PlayStyle.SINGLE, outModifiedExpires[iSp])
+				.setModifiedExpires(PlayStyle.DOUBLE, outModifiedExpires[iDp]);
+		writeSnapshot(newCollection, filePath);
+		if (mMapped) {
+			// メモリマップモードでは書き込んだスナップショットをマップし直し、ヒープ上の楽曲情報は破棄する
+			// スナップショットを置き換えられなかった場合は古いスナップショットとして扱われ、ヒープ上の楽曲情報を使用する
+			var mappedCollection = mapSnapshot(tableDesc, filePath);
+			newCollection = Objects.isNull(mappedCollection) ? newCollection : mappedCollection;
+		}
+		synchronized (mCollections) {
+			putCollection(tableDesc.getId(), newCollection);
+			mPending.remove(tableDesc.getId());
+		}
 		printLog("UPDATE '%s' complete", tableDesc.getId());
 	}
 
+	/**
+	 * 難易度表情報のスナップショット書き込み処理
+	 * <p>スナップショットは次回読み込み時にJSONファイルの解析を省略するためのものであり、書き込みに失敗しても
+	 * 更新結果には影響しないため、エラーは無視する。書き込みに失敗した場合、古いスナップショットは削除する。</p>
+	 * @param collection 難易度表情報
+	 * @param contentFilePath 書き込み済みの難易度表情報のJSONファイルのパス
+	 */
+	private void writeSnapshot(ContentCollection collection, Path contentFilePath) {
+		var snapshotPath = mLocation.resolve(String.format("%s.snapshot", collection.getTableDescription().getId()));
+		try {
+			SnapshotFile.write(snapshotPath, contentFilePath, collection);
+		} catch (IOException e) {
+			printLog("Failed to write snapshot: %s", e);
+			try {
+				Files.deleteIfExists(snapshotPath);
+			} catch (IOException e2) {
+				printLog("Failed to delete snapshot: %s", e2);
+			}
+		}
+	}
+
+	/**
+	 * プレースタイル単位の難易度表データベース更新処理
+	 * @param client HTTPクライアントオブジェクト
+	 * @param tableDesc 難易度表定義
+	 * @param playStyle 処理対象のプレースタイル
+	 * @param collection 更新前の難易度表情報、または null
+	 * @param timeout 楽曲情報データダウンロード時のサーバー応答タイムアウト。null の場合タイムアウトなし。
+	 * @param force 楽曲情報元データの有効期限に関わらず更新を行うかどうか
+	 * @param publisher 当該プレースタイルの進捗報告関数
+	 * @return プレースタイルごとの更新結果
+	 * @throws HttpTimeoutException HTTP通信で接続・応答タイムアウトが発生した
+	 * @throws IOException HTTP通信で送受信エラーが発生した
+	 * @throws InterruptedException スレッド割り込みによる更新処理の中止が発生した
+	 */
+	private StyleUpdate processUpdateStyle(HttpClient client, TableDescription tableDesc, PlayStyle playStyle,
+			ContentCollection collection, Duration timeout, boolean force, Consumer<UpdateProgress.Status> publisher)
+			throws IOException, InterruptedException {
+		var update = beginStyleUpdate(tableDesc, playStyle, collection, timeout, force, publisher);
+		if (Objects.isNull(update.request)) {
+			// 楽曲情報元データが有効期限内の場合はWebサーバに接続しない
+			return update;
+		}
+
+		// 同一ホストへのリクエストが集中しないよう、送信許可を得てから送信する
+		// 送信許可は応答本文の受信完了まで保持する
+		var scheduler = mHostScheduler;
+		var host = update.request.uri().getHost();
+		var resp = (HttpResponse<InputStream>)null;
+		var receiver = (ContentReceiver)null;
+		scheduler.acquire(host);
+		try {
+			// 楽曲情報の元データ取得リクエストを送信する
+			printLog("Waiting response ...");
+			resp = send(client, update.request);
+			if (!checkStyleResponse(update, resp.statusCode(), resp.headers())) {
+				return update;
+			}
+
+			// 楽曲情報元データ受信処理
+			// 受信データは Content-Length で確保したバッファに直接格納し、受信と同時にハッシュ値を計算する
+			// 符号化(gzip/deflate)されている場合は受信と同時に復号し、ハッシュ値は復号後のデータで計算する
+			// この処理は通信環境の影響で時間がかかる場合があるためスレッド割り込みを監視する
+			printLog("Receiving body ...");
+			var stream = resp.body();
+			receiver = ContentReceiver.of(resp.headers());
+			var parser = update.tableDesc.getParser();
+			if ((parser instanceof StreamingParser) && isStyleContentChanged(update, resp.headers())) {
+				// 逐次解析パーサで内容の変更が明らかな場合は受信と並行して解析する
+				// それ以外の場合は受信完了後にハッシュ値を確認し、最終更新データハッシュと一致しなければ解析する
+				// 解析結果と解析エラーは受信完了まで保留する
+				printLog("Parsing content while receiving ...");
+				var contents = new ArrayList<ContentDescription>();
+				update.streamed = true;
+				try {
+					((StreamingParser)parser).parse(update.tableDesc, update.playStyle, receiver.stream(stream),
+							contents::add);
+					update.streamedContents = contents;
+				} catch (Exception e) {
+					update.streamedError = e;
+				}
+				if (Thread.currentThread().isInterrupted()) {
+					// 解析中にスレッドが割り込まれた場合は処理を中止する
+					throw new InterruptedException();
+				}
+			}
+			while (receiver.receive(stream)) {
+				if (Thread.currentThread().isInterrupted()) {
+					// データ受信中にスレッドが割り込まれた場合は処理を中止する
+					throw new InterruptedException();
+				}
+			}
+			receiver.finish();
+			printLog("Received: Length=%dbytes", receiver.getLength());
+		} finally {
+			scheduler.release(host);
+		}
+
+		return finishStyleUpdate(update, resp.headers(), receiver);
+	}
+
+	/**
+	 * プレースタイル単位の難易度表データベース非同期更新処理
+	 * <p>返されるフューチャーは、当該プレースタイルの処理が中止された場合 CancellationException、
+	 * それ以外のエラーの場合は発生した例外で例外的に完了する。</p>
+	 * @param ctx 当該プレースタイルの非同期処理コンテキスト
+	 * @param client HTTPクライアントオブジェクト
+	 * @param tableDesc 難易度表定義
+	 * @param playStyle 処理対象のプレースタイル
+	 * @param collection 更新前の難易度表情報、または null
+	 * @param timeout 楽曲情報データダウンロード時のサーバー応答タイムアウト。null の場合タイムアウトなし。
+	 * @param force 楽曲情報元データの有効期限に関わらず更新を行うかどうか
+	 * @param publisher 当該プレースタイルの進捗報告関数
+	 * @return プレースタイルごとの更新結果を返すフューチャー
+	 */
+	private CompletableFuture<StyleUpdate> processUpdateStyleAsync(AsyncContext ctx, HttpClient client,
+			TableDescription tableDesc, PlayStyle playStyle, ContentCollection collection, Duration timeout,
+			boolean force, Consumer<UpdateProgress.Status> publisher) {
+		// 楽曲情報の元データ取得リクエストを送信する
+		// 正常応答以外の場合は応答本文を読み捨てる
+		var http = (CompletableFuture<HttpResponse<ContentReceiver>>)null;
+		var update = (StyleUpdate)null;
+		try {
+			update = beginStyleUpdate(tableDesc, playStyle, collection, timeout, force, publisher);
+			if (ctx.isCancelled()) {
+				throw new CancellationException();
+			} else if (Objects.isNull(update.request)) {
+				// 楽曲情報元データが有効期限内の場合はWebサーバに接続しない
+				return CompletableFuture.completedFuture(update);
+			}
+
+			// 同一ホストへのリクエストが集中しないよう、送信許可を得てから送信する
+			// 送信許可は応答本文の受信完了まで保持する
+			var scheduler = mHostScheduler;
+			var host = update.request.uri().getHost();
+			var request = update.request;
+			var permit = scheduler.acquireAsync(host);
+			ctx.register(permit);
+			http = permit.thenCompose(x -> {
+				printLog("Sending request: %s", request.uri());
+				var sending = (CompletableFuture<HttpResponse<ContentReceiver>>)null;
+				try {
+					sending = sendAsync(client, request, info -> {
+						return (info.statusCode() == HttpURLConnection.HTTP_OK) ?
+								ContentReceiver.subscriber(info) :
+								HttpResponse.BodySubscribers.replacing((ContentReceiver)null);
+					});
+				} catch (RuntimeException e) {
+					scheduler.release(host);
+					throw e;
+				}
+				sending.whenComplete((r, e) -> scheduler.release(host));
+				ctx.register(sending);
+				return sending;
+			});
+		} catch (Exception e) {
+			return CompletableFuture.failedFuture(e);
+		}
+
+		// 応答を受信したら楽曲情報を解析する
+		var su = update;
+		return http.thenApply(resp -> {
+			if (ctx.isCancelled()) {
+				throw new CancellationException();
+			}
+			try {
+				if (!checkStyleResponse(su, resp.statusCode(), resp.headers())) {
+					return su;
+				}
+				var receiver = resp.body();
+				printLog("Received: Length=%dbytes", receiver.getLength());
+				return finishStyleUpdate(su, resp.headers(), receiver);
+			} catch (IOException | InterruptedException e) {
+				throw new CompletionException(e);
+			}
+		});
+	}
+
+	/**
+	 * プレースタイル単位の難易度表データベース更新開始処理
+	 * <p>進捗報告(開始)を行い、更新前の最終更新情報を設定した更新結果と楽曲情報取得リクエストを生成する。
+	 * 楽曲情報元データが有効期限内の場合は進捗報告(更新不要)を行い、楽曲情報取得リクエストは生成しない。</p>
+	 * @param tableDesc 難易度表定義
+	 * @param playStyle 処理対象のプレースタイル
+	 * @param collection 更新前の難易度表情報、または null
+	 * @param timeout 楽曲情報データダウンロード時のサーバー応答タイムアウト。null の場合タイムアウトなし。
+	 * @param force 楽曲情報元データの有効期限に関わらず更新を行うかどうか
+	 * @param publisher 当該プレースタイルの進捗報告関数
+	 * @return プレースタイルごとの更新結果(有効期限内の場合、楽曲情報取得リクエストは null)
+	 * @throws IOException 楽曲情報URLが不正
+	 */
+	private static StyleUpdate beginStyleUpdate(TableDescription tableDesc, PlayStyle playStyle,
+			ContentCollection collection, Duration timeout, boolean force, Consumer<UpdateProgress.Status> publisher)
+			throws IOException {
+		var styleDesc = tableDesc.getPlayStyleDescription(playStyle);
+		publisher.accept(UpdateProgress.Status.START);
+
+		// 更新前のデータを予め設定しておく
+		// 更新不要の場合、以下の値がそのままデータベースに入ることとなる
+		var update = createStyleUpdate(tableDesc, playStyle, collection, publisher);
+		var modDateTime = update.modifiedDateTime;
+		var modETag = update.modifiedETag;
+		var modExpires = update.modifiedExpires;
+
+		// 楽曲情報元データが有効期限内であればWebサーバに問い合わせる必要はない
+		if (!force && Objects.nonNull(modExpires) && ZonedDateTime.now().isBefore(modExpires)) {
+			printLog("Content is fresh until '%s'", modExpires);
+			publisher.accept(UpdateProgress.Status.UNNECESSARY);
+			return update;
+		}
+
+		// 楽曲情報URLを生成する
+		var contentUri = (URI)null;
+		try {
+			printLog("Content URL='%s'", styleDesc.getContentUrl());
+			contentUri = styleDesc.getContentUrl().toURI();
+		} catch (URISyntaxException e) {
+			printLog("Bad content URL: %s", e.getMessage());
+			publisher.accept(UpdateProgress.Status.ERROR);
+			var msg = String.format("%s: Can't use this content URL", styleDesc.getContentUrl());
+			throw new IOException(msg, e);
+		}
+
+		// リクエストを生成する
+		// HttpClient は応答を自動で復号しないため、受け入れ可能な符号化方式は受信処理で復号できるものに限定する
+		var reqBuilder = HttpRequest.newBuilder().GET().uri(contentUri)
+				.header("Accept-Encoding", ContentReceiver.ACCEPT_ENCODING);
+		if (Objects.nonNull(timeout)) {
+			// リクエストタイムアウトが設定されている場合はタイムアウト時間を設定する
+			reqBuilder.timeout(timeout);
+		}
+		if (Objects.nonNull(modDateTime)) {
+			// 最終更新日時が判明している場合は If-Modified-Since を設定する
+			reqBuilder.header("If-Modified-Since", modDateTime.format(DateTimeFormatter.RFC_1123_DATE_TIME));
+		}
+		if (Objects.nonNull(modETag)) {
+			// エンティティタグが判明している場合は If-None-Match を設定する
+			reqBuilder.header("If-None-Match", modETag);
+		}
+		update.request = reqBuilder.build();
+		return update;
+	}
+
+	/**
+	 * プレースタイル単位の難易度表データベース再解析処理
+	 * <p>保存済みの楽曲情報元データから楽曲情報を解析する。楽曲情報元データが保存されていない場合は
+	 * 進捗報告(更新不要)を行い、更新前の楽曲情報をそのまま使用する。</p>
+	 * @param tableDesc 難易度表定義
+	 * @param playStyle 処理対象のプレースタイル
+	 * @param collection 更新前の難易度表情報、または null
+	 * @param publisher 当該プレースタイルの進捗報告関数
+	 * @return プレースタイルごとの更新結果
+	 * @throws IOException 楽曲情報元データの読み込み、または楽曲情報の解析でエラーが発生した
+	 * @throws InterruptedException スレッド割り込みによる処理の中止が発生した
+	 */
+	private StyleUpdate processReparseStyle(TableDescription tableDesc, PlayStyle playStyle,
+			ContentCollection collection, Consumer<UpdateProgress.Status> publisher)
+			throws IOException, InterruptedException {
+		publisher.accept(UpdateProgress.Status.START);
+		var update = createStyleUpdate(tableDesc, playStyle, collection, publisher);
+
+		// 保存済みの楽曲情報元データを読み込む
+		var hash = update.modifiedDataHash;
+		var raw = (byte[])null;
+		try {
+			raw = Objects.isNull(hash) ? null : mRawStore.get(hash);
+		} catch (IOException e) {
+			publisher.accept(UpdateProgress.Status.ERROR);
+			throw e;
+		}
+		if (Objects.isNull(raw)) {
+			// 楽曲情報元データが保存されていない場合は再解析できないので何もしない
+			printLog("Raw content is not found: Hash=%s", hash);
+			publisher.accept(UpdateProgress.Status.UNNECESSARY);
+			return update;
+		}
+
+		// 楽曲情報元データから楽曲情報を解析する
+		printLog("Raw content: Hash=%s, Length=%dbytes", hash, raw.length);
+		return parseStyleContent(update, raw);
+	}
+
+	/**
+	 * プレースタイル単位の更新結果生成
+	 * <p>更新前の難易度表情報から最終更新情報と楽曲情報を取り出し、更新結果の初期値とする。</p>
+	 * @param tableDesc 難易度表定義
+	 * @param playStyle 処理対象のプレースタイル
+	 * @param collection 更新前の難易度表情報、または null
+	 * @param publisher 当該プレースタイルの進捗報告関数
+	 * @return プレースタイルごとの更新結果
+	 */
+	private static StyleUpdate createStyleUpdate(TableDescription tableDesc, PlayStyle playStyle,
+			ContentCollection collection, Consumer<UpdateProgress.Status> publisher) {
+		// 最終更新情報を取得する
+		var modDateTime = (ZonedDateTime)null;
+		var modDataHash = (String)null;
+		var modETag = (String)null;
+		var modExpires = (ZonedDateTime)null;
+		if (Objects.nonNull(collection)) {
+			modDateTime = collection.getModifiedDateTime(playStyle);
+			modDataHash = collection.getModifiedDataHash(playStyle);
+			modETag = collection.getModifiedETag(playStyle);
+			modExpires = collection.getModifiedExpires(playStyle);
+			printLog("Current modified: DateTime='%s', Hash=%s, ETag=%s, Expires='%s'",
+					modDateTime, modDataHash, modETag, modExpires);
+		} else {
+			printLog("Current modified: None because collection is not found");
+		}
+
+		var update = new StyleUpdate(tableDesc, playStyle, publisher);
+		update.modifiedDateTime = modDateTime;
+		update.modifiedDataHash = modDataHash;
+		update.modifiedETag = modETag;
+		update.modifiedExpires = modExpires;
+		update.contents = Objects.isNull(collection) ? List.of() : collection.all(playStyle)
+				.collect(Collectors.toList());
+		return update;
+	}
+
+	/**
+	 * プレースタイル単位の応答ステータス確認処理
+	 * <p>正常応答、または更新なし(304)の場合は応答ヘッダから楽曲情報元データの有効期限を記録する。</p>
+	 * @param update プレースタイルごとの更新結果
+	 * @param statusCode 応答のステータスコード
+	 * @param headers 応答のヘッダ
+	 * @return 応答本文の受信・解析が必要な場合 true、更新不要の場合 false
+	 * @throws IOException 正常受信以外の応答を受信した
+	 */
+	private static boolean checkStyleResponse(StyleUpdate update, int statusCode, HttpHeaders headers)
+			throws IOException {
+		printLog("Response=%d", statusCode);
+		if ((statusCode == HttpURLConnection.HTTP_OK) || (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED)) {
+			// 有効期限が変化した場合は新しい値を記録する
+			// 更新なし(304)の場合も、次回更新時に問い合わせを省略できるよう有効期限は記録する
+			var expires = parseExpires(headers, ZonedDateTime.now());
+			printLog("Expires='%s'", expires);
+			if (!Objects.equals(expires, update.modifiedExpires)) {
+				update.modifiedExpires = expires;
+				update.dirty = true;
+			}
+		}
+		if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+			// 最終更新日時から内容が変更されていない場合は何もしない
+			update.publisher.accept(UpdateProgress.Status.UNNECESSARY);
+			return false;
+		} else if (statusCode != HttpURLConnection.HTTP_OK) {
+			// その他、正常受信以外の場合はエラーとする
+			update.publisher.accept(UpdateProgress.Status.ERROR);
+			var msg = String.format("Received %d from '%s'", statusCode, update.request.uri());
+			throw new IOException(msg);
+		} else {
+			return true;
+		}
+	}
+
+	/**
+	 * 楽曲情報元データの変更有無判定
+	 * <p>最終更新データハッシュが記録されていない場合、または応答ヘッダのエンティティタグ・最終更新日時が
+	 * 記録済みの値と異なる場合に、楽曲情報元データが変更されたものと判定する。いずれも判断できない場合は
+	 * 変更なしと判定し、受信データのハッシュ値で変更有無を確認する。</p>
+	 * @param update プレースタイルごとの更新結果(応答ヘッダの値を記録する前のもの)
+	 * @param headers 応答のヘッダ
+	 * @return 楽曲情報元データが変更されたことが明らかな場合 true
+	 */
+	private static boolean isStyleContentChanged(StyleUpdate update, HttpHeaders headers) {
+		if (Objects.isNull(update.modifiedDataHash)) {
+			// 最終更新データハッシュがない場合はハッシュ値で変更有無を確認できない
+			return true;
+		}
+		var respETag = headers.firstValue("ETag").orElse(null);
+		if (Objects.nonNull(respETag) && Objects.nonNull(update.modifiedETag) &&
+				!respETag.equals(update.modifiedETag)) {
+			return true;
+		}
+		var respModDateTime = headers.firstValue("Last-Modified");
+		if (respModDateTime.isPresent() && Objects.nonNull(update.modifiedDateTime)) {
+			try {
+				var dt = ZonedDateTime.parse(respModDateTime.get(), DateTimeFormatter.RFC_1123_DATE_TIME);
+				return !dt.isEqual(update.modifiedDateTime);
+			} catch (DateTimeParseException e) {
+				// 不正な日時では判断できない
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 応答ヘッダからの楽曲情報元データの有効期限算出
+	 * <p>Cache-Control ヘッダの max-age を優先し、max-age がない場合は Expires ヘッダを使用する。
+	 * Cache-Control ヘッダに no-store、no-cache が含まれる場合や、算出した有効期限が既に過ぎている場合は
+	 * 有効期限なしとする。max-age は Age ヘッダ、Expires は Date ヘッダとの差分で補正する。</p>
+	 * @param headers 応答のヘッダ
+	 * @param now 現在日時
+	 * @return 楽曲情報元データの有効期限、有効期限なしの場合は null
+	 */
+	private static ZonedDateTime parseExpires(HttpHeaders headers, ZonedDateTime now) {
+		// Cache-Control ヘッダを解析する
+		var maxAge = (Long)null;
+		for (var value : headers.allValues("Cache-Control")) {
+			for (var directive : value.split(",")) {
+				var kv = directive.trim().split("=", 2);
+				var name = kv[0].trim().toLowerCase(Locale.ROOT);
+				if (name.equals("no-store") || name.equals("no-cache")) {
+					return null;
+				} else if (name.equals("max-age") && (kv.length == 2) && Objects.isNull(maxAge)) {
+					try {
+						maxAge = Long.parseLong(kv[1].trim().replace("\"", ""));
+					} catch (NumberFormatException e) {
+						printLog("Bad max-age: %s", kv[1]);
+						return null;
+					}
+				}
+			}
+		}
+
+		// 有効期限を算出する
+		var expires = (ZonedDateTime)null;
+		try {
+			if (Objects.nonNull(maxAge)) {
+				var age = headers.firstValueAsLong("Age").orElse(0L);
+				expires = now.plusSeconds(maxAge - Math.max(age, 0L));
+			} else {
+				var respExpires = headers.firstValue("Expires");
+				if (respExpires.isEmpty()) {
+					return null;
+				}
+				expires = ZonedDateTime.parse(respExpires.get(), DateTimeFormatter.RFC_1123_DATE_TIME);
+				var respDate = headers.firstValue("Date");
+				if (respDate.isPresent()) {
+					// Webサーバとの時刻のずれを補正する
+					var date = ZonedDateTime.parse(respDate.get(), DateTimeFormatter.RFC_1123_DATE_TIME);
+					expires = now.plus(Duration.between(date, expires));
+				}
+			}
+		} catch (DateTimeParseException | NumberFormatException e) {
+			// 不正な値は期限切れを表すものとして扱う
+			printLog("Bad expiration: %s", e.getMessage());
+			return null;
+		}
+		return expires.isAfter(now) ? expires : null;
+	}
+
+	/**
+	 * プレースタイル単位の受信データ解析処理
+	 * @param update プレースタイルごとの更新結果
+	 * @param headers 応答のヘッダ
+	 * @param receiver 楽曲情報元データの受信結果
+	 * @return プレースタイルごとの更新結果
+	 * @throws IOException 楽曲情報の解析でエラーが発生した
+	 * @throws InterruptedException スレッド割り込みによる更新処理の中止が発生した
+	 */
+	private static StyleUpdate finishStyleUpdate(StyleUpdate update, HttpHeaders headers, ContentReceiver receiver)
+			throws IOException, InterruptedException {
+		var tableDesc = update.tableDesc;
+		var playStyle = update.playStyle;
+		var publisher = update.publisher;
+		var modDataHash = update.modifiedDataHash;
+
+		// 楽曲情報元データの最終更新日時を取得する
+		var respModDateTime = headers.firstValue("Last-Modified");
+		if (respModDateTime.isPresent()) {
+			printLog("Last-modified='%s'", respModDateTime.get());
+			try {
+				// 最終更新日時が応答されている場合はそれを記録する
+				var dt = ZonedDateTime.parse(respModDateTime.get(), DateTimeFormatter.RFC_1123_DATE_TIME);
+				update.modifiedDateTime = dt;
+				update.dirty = true;
+			} catch (DateTimeParseException e) {
+				// Webサーバが下手こいて変な日時を返した場合の処遇は知らん
+				printLog("Bad Last-modified: %s", e.getMessage());
+			}
+		} else {
+			// 楽曲情報元データの最終更新日時が含まれない場合は元の日時を更新しない
+			printLog("Last-modified was not presented");
+		}
+
+		// 楽曲情報元データのエンティティタグを取得する
+		// エンティティタグが変化した場合(応答されなくなった場合を含む)は新しい値を記録する
+		var respETag = headers.firstValue("ETag").orElse(null);
+		printLog("ETag=%s", respETag);
+		if (!Objects.equals(respETag, update.modifiedETag)) {
+			update.modifiedETag = respETag;
+			update.dirty = true;
+		}
+
+		// 楽曲情報元データのハッシュ値を確認する
+		// ハッシュ値は受信と同時に計算済みのため、受信データを再走査する必要はない
+		var sha256 = receiver.getSha256();
+		if (Objects.nonNull(sha256)) {
+			// 受信データは再解析用に保存するため、ハッシュ値とともに記録しておく
+			printLog("Content-hash: %s", sha256);
+			update.raw = receiver.toByteArray();
+			update.rawHash = sha256;
+			if (Objects.nonNull(modDataHash) && modDataHash.equalsIgnoreCase(sha256)) {
+				// 受信データのハッシュ値が最終更新データハッシュと一致する場合は解析せずに更新しない
+				publisher.accept(UpdateProgress.Status.UNNECESSARY);
+				return update;
+			} else {
+				// 次回更新時のハッシュ値チェックのために、計算したハッシュ値を記録する
+				printLog("Changed content or first update");
+				update.modifiedDataHash = sha256;
+				update.dirty = true;
+			}
+		}
+
+		// 受信データから楽曲情報を解析する
+		// 受信データはバッファをコピーせずにそのままパーサに渡す
+		return parseStyleContent(update, receiver.toByteArray());
+	}
+
+	/**
+	 * プレースタイル単位の楽曲情報解析処理
+	 * @param update プレースタイルごとの更新結果
+	 * @param raw 楽曲情報元データ
+	 * @return プレースタイルごとの更新結果
+	 * @throws IOException 楽曲情報の解析でエラーが発生した
+	 * @throws InterruptedException スレッド割り込みによる更新処理の中止が発生した
+	 */
+	private static StyleUpdate parseStyleContent(StyleUpdate update, byte[] raw)
+			throws IOException, InterruptedException {
+		var tableDesc = update.tableDesc;
+		var playStyle = update.playStyle;
+		var publisher = update.publisher;
+		printLog("Parsing content...");
+		var parser = tableDesc.getParser();
+		var contents = (List<ContentDescription>)null;
+		try {
+			if (update.streamed) {
+				// 受信と並行して解析済みの場合はその結果を使用する
+				if (Objects.nonNull(update.streamedError)) {
+					throw update.streamedError;
+				}
+				contents = update.streamedContents;
+			} else {
+				contents = parser.parse(tableDesc, playStyle, raw);
+			}
+		} catch (IOException e) {
+			publisher.accept(UpdateProgress.Status.ERROR);
+			throw e;
+		} catch (Exception e) {
+			publisher.accept(UpdateProgress.Status.ERROR);
+			throw new IOException("Parser thrown an exception", e);
+		}
+
+		// 解析結果を確認する
+		if (Thread.currentThread().isInterrupted()) {
+			// 解析処理中にスレッドが割り込まれた場合は処理を中止する
+			printLog("Interrupted");
+			throw new InterruptedException();
+		} else if (Objects.isNull(contents)) {
+			// パーサがnullを返した場合は異常終了とする
+			printLog("Parser returned null");
+			publisher.accept(UpdateProgress.Status.ERROR);
+			var msg = String.format("Parser '%s' returned null contents", parser.getClass().getName());
+			throw new IOException(msg);
+		} else {
+			// 解析した楽曲情報を記録する
+			// 楽曲情報は最終的にSP/DP混合のリストになる
+			printLog("Parse complete: Count=%d", contents.size());
+			update.contents = contents;
+			update.dirty = true;
+			publisher.accept(UpdateProgress.Status.DONE);
+		}
+		printLog("Play style='%s' Done", playStyle);
+		return update;
+	}
+
+	/**
+	 * 別スレッドで処理したプレースタイル単位の更新結果待機
+	 * <p>処理完了後、別スレッドで記録された進捗報告を記録順に報告する。</p>
+	 * @param future 更新処理のフューチャー
+	 * @param statuses 別スレッドで記録された報告種別リスト
+	 * @param publisher 当該プレースタイルの進捗報告関数
+	 * @return プレースタイルごとの更新結果
+	 * @throws IOException 別スレッドでの処理中に入出力エラーが発生した
+	 * @throws InterruptedException 待機中、または別スレッドでの処理中にスレッド割り込みが発生した
+	 */
+	private static StyleUpdate waitStyleUpdate(Future<StyleUpdate> future, List<UpdateProgress.Status> statuses,
+			Consumer<UpdateProgress.Status> publisher) throws IOException, InterruptedException {
+		var cause = (Throwable)null;
+		var update = (StyleUpdate)null;
+		try {
+			update = future.get();
+		} catch (ExecutionException e) {
+			cause = e.getCause();
+		}
+
+		// 記録された進捗報告を報告し、別スレッドでスローされた例外は呼び出し元スレッドで再スローする
+		synchronized (statuses) {
+			statuses.forEach(publisher);
+		}
+		if (Objects.isNull(cause)) {
+			return update;
+		} else if (cause instanceof IOException) {
+			throw (IOException)cause;
+		} else if (cause instanceof InterruptedException) {
+			throw (InterruptedException)cause;
+		} else if (cause instanceof RuntimeException) {
+			throw (RuntimeException)cause;
+		} else if (cause instanceof Error) {
+			throw (Error)cause;
+		} else {
+			throw new IOException(cause);
+		}
+	}
+
 	/**
 	 * 読み込み・書き込みの排他処理
 	 * @param read 読み込みロックを行うかどうか
@@ -787,12 +2706,14 @@ public class ContentDatabase {
 	 * @throws IllegalStateException 読み書き排他処理エラーが発生した
 	 */
 	private void lock(boolean read, boolean write) throws IllegalStateException {
+		// ロックに失敗した場合は当メソッドでロックしたものだけを解除する
+		// 他のスレッドの更新処理が保持しているロックを解除しないようにするため
+		var readLocked = false;
 		try {
-			if (read) { assertField(mReadLock.lock(), "Failed to lock read"); }
+			if (read) { assertField(mReadLock.lock(), "Failed to lock read"); readLocked = true; }
 			if (write) { assertField(mWriteLock.lock(), "Failed to write lock"); }
 		} catch (IllegalStateException e) {
-			mReadLock.unlock();
-			mWriteLock.unlock();
+			if (readLocked) { mReadLock.unlock(); }
 			throw e;
 		}
 	}
@@ -817,4 +2738,114 @@ public class ContentDatabase {
 		var msg = String.format("%s: Unacceptable tampering was detected", contentFilePath);
 		throw new IOException(msg, cause);
 	}
+
+	/**
+	 * プレースタイルごとの更新結果
+	 */
+	private static class StyleUpdate {
+		/** 難易度表定義 */
+		final TableDescription tableDesc;
+		/** 処理対象のプレースタイル */
+		final PlayStyle playStyle;
+		/** 当該プレースタイルの進捗報告関数 */
+		final Consumer<UpdateProgress.Status> publisher;
+		/** 楽曲情報取得リクエスト */
+		HttpRequest request;
+		/** 楽曲情報元データの最終更新日時 */
+		ZonedDateTime modifiedDateTime;
+		/** 楽曲情報元データのハッシュ値 */
+		String modifiedDataHash;
+		/** 楽曲情報元データのエンティティタグ */
+		String modifiedETag;
+		/** 楽曲情報元データの有効期限 */
+		ZonedDateTime modifiedExpires;
+		/** 楽曲情報リスト */
+		List<ContentDescription> contents = List.of();
+		/** 保存する楽曲情報元データ(保存不要の場合は null) */
+		byte[] raw;
+		/** 保存する楽曲情報元データのハッシュ値(保存不要の場合は null) */
+		String rawHash;
+		/** 受信と並行して楽曲情報を解析したかどうか */
+		boolean streamed = false;
+		/** 受信と並行して解析した楽曲情報リスト */
+		List<ContentDescription> streamedContents;
+		/** 受信と並行して行った解析で発生したエラー */
+		Exception streamedError;
+		/** 難易度表情報ファイルの更新が必要かどうか */
+		boolean dirty = false;
+
+		/**
+		 * コンストラクタ
+		 * @param tableDesc 難易度表定義
+		 * @param playStyle 処理対象のプレースタイル
+		 * @param publisher 当該プレースタイルの進捗報告関数
+		 */
+		StyleUpdate(TableDescription tableDesc, PlayStyle playStyle, Consumer<UpdateProgress.Status> publisher) {
+			this.tableDesc = tableDesc;
+			this.playStyle = playStyle;
+			this.publisher = publisher;
+		}
+	}
+
+	/**
+	 * 非同期更新処理のコンテキスト
+	 * <p>非同期更新処理の中止要求を管理する。コンテキストは親子関係を持ち、親コンテキストの中止要求は
+	 * 子コンテキストにも及ぶ。子コンテキストに登録されたフューチャーは親コンテキストにも登録される。</p>
+	 */
+	private static class AsyncContext {
+		/** 親コンテキスト */
+		private final AsyncContext mParent;
+		/** 中止要求の有無 */
+		private volatile boolean mCancelled = false;
+		/** 中止要求時にキャンセルするフューチャーのリスト */
+		private final List<Future<?>> mFutures = new ArrayList<>();
+
+		/**
+		 * コンストラクタ
+		 * @param parent 親コンテキスト、または null
+		 */
+		AsyncContext(AsyncContext parent) {
+			mParent = parent;
+		}
+
+		/**
+		 * 中止要求の有無取得
+		 * @return 当コンテキスト、または親コンテキストに中止要求がある場合 true
+		 */
+		boolean isCancelled() {
+			return mCancelled || (Objects.nonNull(mParent) && mParent.isCancelled());
+		}
+
+		/**
+		 * 中止要求時にキャンセルするフューチャーの登録
+		 * <p>既に中止要求がある場合、フューチャーは即座にキャンセルされる。</p>
+		 * @param future フューチャー
+		 */
+		void register(Future<?> future) {
+			if (Objects.nonNull(mParent)) {
+				mParent.register(future);
+			}
+			synchronized (mFutures) {
+				if (!mCancelled) {
+					mFutures.add(future);
+					return;
+				}
+			}
+			future.cancel(true);
+		}
+
+		/**
+		 * 中止要求
+		 * <p>登録済みの全てのフューチャーをキャンセルする。</p>
+		 */
+		void cancel() {
+			var futures = (List<Future<?>>)null;
+			synchronized (mFutures) {
+				mCancelled = true;
+				futures = new ArrayList<>(mFutures);
+				mFutures.clear();
+			}
+			futures.forEach(f -> f.cancel(true));
+		}
+	}
 }
@@ -2,6 +2,7 @@ package com.lmt.lib.bldt;
 
 import static com.lmt.lib.bldt.internal.Assertion.*;
 
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Objects;
 
@@ -17,6 +18,11 @@ import com.lmt.lib.bldt.internal.Utility;
  * @since 0.1.0
  */
 public class ContentDescription {
+	/** MD5ありフラグ */
+	private static final int FLAG_MD5 = 0x01;
+	/** SHA-256ありフラグ */
+	private static final int FLAG_SHA256 = 0x02;
+
 	/** タイトル */
 	private String mTitle;
 	/** アーティスト */
@@ -25,14 +31,24 @@ public class ContentDescription {
 	private PlayStyle mPlayStyle;
 	/** 難易度インデックス */
 	private int mLevelIndex;
-	/** 楽曲本体入手先URL */
-	private URL mBodyUrl;
-	/** 差分譜面入手先URL */
-	private URL mAdditionalUrl;
-	/** MD5 */
-	private String mMd5;
-	/** SHA-256 */
-	private String mSha256;
+	/** 楽曲本体入手先URLの文字列表現(URLオブジェクトは取得時に生成する) */
+	private String mBodyUrl;
+	/** 差分譜面入手先URLの文字列表現(URLオブジェクトは取得時に生成する) */
+	private String mAdditionalUrl;
+	/** ハッシュ値の有無フラグ */
+	private byte mHashFlags;
+	/** MD5(上位64ビット) */
+	private long mMd5Hi;
+	/** MD5(下位64ビット) */
+	private long mMd5Lo;
+	/** SHA-256(先頭64ビット) */
+	private long mSha256A;
+	/** SHA-256(65～128ビット目) */
+	private long mSha256B;
+	/** SHA-256(129～192ビット目) */
+	private long mSha256C;
+	/** SHA-256(末尾64ビット) */
+	private long mSha256D;
 
 	/**
 	 * 新しい楽曲情報オブジェクトを構築します。
@@ -53,6 +69,7 @@ public class ContentDescription {
 	 * @throws IllegalArgumentException levelIndex が負の値
 	 * @throws IllegalArgumentException md5 がMD5の形式ではない
 	 * @throws IllegalArgumentException sha256 がSHA-256の形式ではない
+	 * @throws IllegalArgumentException bodyUrl, additionalUrl の文字列表現からURLを再構築できない
 	 * @since 0.1.0
 	 */
 	public ContentDescription(String title, String artist, PlayStyle playStyle, int levelIndex, URL bodyUrl,
@@ -68,10 +85,155 @@ public class ContentDescription {
 		mArtist = artist;
 		mPlayStyle = playStyle;
 		mLevelIndex = levelIndex;
-		mBodyUrl = bodyUrl;
-		mAdditionalUrl = additionalUrl;
-		mMd5 = Utility.normalizeHash(md5);
-		mSha256 = Utility.normalizeHash(sha256);
+		mBodyUrl = toUrlString(bodyUrl, "bodyUrl");
+		mAdditionalUrl = toUrlString(additionalUrl, "additionalUrl");
+		setHashes(md5, sha256);
+	}
+
+	/**
+	 * 検証済みの楽曲情報オブジェクト構築用コンストラクタ
+	 */
+	private ContentDescription() {
+		// Do nothing
+	}
+
+	/**
+	 * 検証済みの値から楽曲情報オブジェクトを構築する
+	 * <p>難易度表情報のスナップショットなど、書き込み時に検証済みの値を読み込む際に使用する。
+	 * 引数の検証は行わないため、URLは {@link URL} として解析可能な文字列表現を指定すること。</p>
+	 * @param title タイトル
+	 * @param artist アーティスト
+	 * @param playStyle プレースタイル
+	 * @param levelIndex 難易度インデックス
+	 * @param bodyUrl 楽曲本体入手先URLの文字列表現、または null
+	 * @param additionalUrl 差分譜面入手先URLの文字列表現、または null
+	 * @param md5 MD5、または null
+	 * @param sha256 SHA-256、または null
+	 * @return 楽曲情報オブジェクト
+	 */
+	static ContentDescription restore(String title, String artist, PlayStyle playStyle, int levelIndex,
+			String bodyUrl, String additionalUrl, String md5, String sha256) {
+		var content = new ContentDescription();
+		content.mTitle = title;
+		content.mArtist = artist;
+		content.mPlayStyle = playStyle;
+		content.mLevelIndex = levelIndex;
+		content.mBodyUrl = bodyUrl;
+		content.mAdditionalUrl = additionalUrl;
+		content.setHashes(md5, sha256);
+		return content;
+	}
+
+	/**
+	 * ハッシュ値設定
+	 * <p>文字列表現のハッシュ値をバイナリ値に変換して保持する。大文字・小文字は区別しない。</p>
+	 * @param md5 MD5、または null
+	 * @param sha256 SHA-256、または null
+	 */
+	private void setHashes(String md5, String sha256) {
+		var flags = 0;
+		if (Objects.nonNull(md5)) {
+			mMd5Hi = Utility.parseHexLong(md5, 0);
+			mMd5Lo = Utility.parseHexLong(md5, 16);
+			flags |= FLAG_MD5;
+		}
+		if (Objects.nonNull(sha256)) {
+			mSha256A = Utility.parseHexLong(sha256, 0);
+			mSha256B = Utility.parseHexLong(sha256, 16);
+			mSha256C = Utility.parseHexLong(sha256, 32);
+			mSha256D = Utility.parseHexLong(sha256, 48);
+			flags |= FLAG_SHA256;
+		}
+		mHashFlags = (byte)flags;
+	}
+
+	/**
+	 * 列指向ストアの値から楽曲情報オブジェクトを構築する
+	 * <p>{@link ContentStore} が楽曲情報を要求された際に使用する。引数の検証は行わない。</p>
+	 * @param title タイトル
+	 * @param artist アーティスト
+	 * @param playStyle プレースタイル
+	 * @param levelIndex 難易度インデックス
+	 * @param bodyUrl 楽曲本体入手先URLの文字列表現、または null
+	 * @param additionalUrl 差分譜面入手先URLの文字列表現、または null
+	 * @param md5s MD5の配列(offset から2要素)、または null
+	 * @param md5Offset MD5の配列の開始位置
+	 * @param sha256s SHA-256の配列(offset から4要素)、または null
+	 * @param sha256Offset SHA-256の配列の開始位置
+	 * @return 楽曲情報オブジェクト
+	 */
+	static ContentDescription restore(String title, String artist, PlayStyle playStyle, int levelIndex,
+			String bodyUrl, String additionalUrl, long[] md5s, int md5Offset, long[] sha256s, int sha256Offset) {
+		var content = restore(title, artist, playStyle, levelIndex, bodyUrl, additionalUrl, null, null);
+		var flags = 0;
+		if (Objects.nonNull(md5s)) {
+			content.mMd5Hi = md5s[md5Offset];
+			content.mMd5Lo = md5s[md5Offset + 1];
+			flags |= FLAG_MD5;
+		}
+		if (Objects.nonNull(sha256s)) {
+			content.mSha256A = sha256s[sha256Offset];
+			content.mSha256B = sha256s[sha256Offset + 1];
+			content.mSha256C = sha256s[sha256Offset + 2];
+			content.mSha256D = sha256s[sha256Offset + 3];
+			flags |= FLAG_SHA256;
+		}
+		content.mHashFlags = (byte)flags;
+		return content;
+	}
+
+	/**
+	 * 楽曲本体入手先URLの文字列表現取得
+	 * @return 楽曲本体入手先URLの文字列表現、または null
+	 */
+	String getBodyUrlString() {
+		return mBodyUrl;
+	}
+
+	/**
+	 * 差分譜面入手先URLの文字列表現取得
+	 * @return 差分譜面入手先URLの文字列表現、または null
+	 */
+	String getAdditionalUrlString() {
+		return mAdditionalUrl;
+	}
+
+	/**
+	 * MD5の有無判定
+	 * @return MD5がある場合 true
+	 */
+	boolean hasMd5() {
+		return (mHashFlags & FLAG_MD5) != 0;
+	}
+
+	/**
+	 * SHA-256の有無判定
+	 * @return SHA-256がある場合 true
+	 */
+	boolean hasSha256() {
+		return (mHashFlags & FLAG_SHA256) != 0;
+	}
+
+	/**
+	 * MD5のバイナリ値を配列へ書き込む
+	 * @param dest 書き込み先配列
+	 * @param offset 書き込み先配列の開始位置(ここから2要素を書き込む)
+	 */
+	void copyMd5(long[] dest, int offset) {
+		dest[offset] = mMd5Hi;
+		dest[offset + 1] = mMd5Lo;
+	}
+
+	/**
+	 * SHA-256のバイナリ値を配列へ書き込む
+	 * @param dest 書き込み先配列
+	 * @param offset 書き込み先配列の開始位置(ここから4要素を書き込む)
+	 */
+	void copySha256(long[] dest, int offset) {
+		dest[offset] = mSha256A;
+		dest[offset + 1] = mSha256B;
+		dest[offset + 2] = mSha256C;
+		dest[offset + 3] = mSha256D;
 	}
 
 	/**
@@ -121,11 +283,12 @@ public class ContentDescription {
 	 * あくまで参考値として活用するようにしてください。</p>
 	 * <p>信頼できないサイトが公開している難易度表に記述されたURLでは、悪意のあるサイトへ誘導される可能性があります。
 	 * アプリケーションはその点に留意して仕様を決定するようにしてください。</p>
+	 * <p>URLオブジェクトは当メソッドを呼び出すたびに生成されます。</p>
 	 * @return 楽曲本体入手先URL。未提供の場合 null。
 	 * @since 0.1.0
 	 */
 	public URL getBodyUrl() {
-		return mBodyUrl;
+		return toUrl(mBodyUrl);
 	}
 
 	/**
@@ -135,11 +298,12 @@ public class ContentDescription {
 	 * 楽曲本体入手先URLと同様に、URL未提供、リンク切れの可能性があることに留意してください。</p>
 	 * <p>信頼できないサイトが公開している難易度表に記述されたURLでは、悪意のあるサイトへ誘導される可能性があります。
 	 * アプリケーションはその点に留意して仕様を決定するようにしてください。</p>
+	 * <p>URLオブジェクトは当メソッドを呼び出すたびに生成されます。</p>
 	 * @return 差分譜面入手先URL。未提供の場合 null。
 	 * @since 0.1.0
 	 */
 	public URL getAdditionalUrl() {
-		return mAdditionalUrl;
+		return toUrl(mAdditionalUrl);
 	}
 
 	/**
@@ -150,7 +314,13 @@ public class ContentDescription {
 	 * @since 0.1.0
 	 */
 	public String getMd5() {
-		return mMd5;
+		if (!hasMd5()) {
+			return null;
+		}
+		var sb = new StringBuilder(32);
+		Utility.appendHexLong(sb, mMd5Hi);
+		Utility.appendHexLong(sb, mMd5Lo);
+		return sb.toString();
 	}
 
 	/**
@@ -161,6 +331,51 @@ public class ContentDescription {
 	 * @since 0.1.0
 	 */
 	public String getSha256() {
-		return mSha256;
+		if (!hasSha256()) {
+			return null;
+		}
+		var sb = new StringBuilder(64);
+		Utility.appendHexLong(sb, mSha256A);
+		Utility.appendHexLong(sb, mSha256B);
+		Utility.appendHexLong(sb, mSha256C);
+		Utility.appendHexLong(sb, mSha256D);
+		return sb.toString();
+	}
+
+	/**
+	 * URLオブジェクトを文字列表現へ変換
+	 * <p>URLオブジェクトは文字列表現から再構築するため、独自の {@link java.net.URLStreamHandler} を指定したURL等、
+	 * 文字列表現から再構築できないURLはここで拒否する。</p>
+	 * @param url URLオブジェクト、または null
+	 * @param name 引数名
+	 * @return URLの文字列表現、または null
+	 * @throws IllegalArgumentException URLの文字列表現からURLを再構築できない
+	 */
+	private static String toUrlString(URL url, String name) {
+		if (Objects.isNull(url)) {
+			return null;
+		}
+		var str = url.toExternalForm();
+		try {
+			new URL(str);
+		} catch (MalformedURLException e) {
+			var msg = String.format("%s can't be rebuilt from its string form: %s", name, str);
+			throw new IllegalArgumentException(msg, e);
+		}
+		return str;
+	}
+
+	/**
+	 * URLの文字列表現をURLオブジェクトへ変換
+	 * @param url URLの文字列表現、または null
+	 * @return URLオブジェクト、または null
+	 */
+	private static URL toUrl(String url) {
+		try {
+			return Objects.isNull(url) ? null : new URL(url);
+		} catch (MalformedURLException e) {
+			// 構築時に再構築できることを確認したURLの文字列表現のみを保持するため、ここには到達しない
+			throw new IllegalStateException(e);
+		}
 	}
 }
@@ -0,0 +1,230 @@
+package com.lmt.lib.bldt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.lmt.lib.bldt.internal.OpenHashIndex;
+import com.lmt.lib.bldt.internal.Utility;
+
+/**
+ * 難易度表データベース全体のハッシュ値索引
+ *
+ * <p>MD5・SHA-256から、そのハッシュ値を持つ楽曲情報を登録している全ての難易度表情報と楽曲情報のインデックス値を
+ * 1回の検索で取得する。索引はハッシュ値をlong値に変換したキーによるオープンアドレス法のハッシュテーブル
+ * ({@link OpenHashIndex})で、同じハッシュ値を登録している難易度表を登録順に連結する。
+ * 構築時は各難易度表情報の格納先からハッシュ値のlong値のみを読み出し、楽曲情報オブジェクトは生成しない。
+ * 検索でヒットした難易度表では、楽曲情報のインデックス値を格納先の索引で求める。</p>
+ *
+ * <p>構築後は変更されない。難易度表情報が置き換えられた場合、難易度表データベースは索引を破棄し、
+ * 次回の検索時に構築し直す。構築後は変更されないため、当クラスはスレッドセーフである。</p>
+ */
+class ContentHashIndex {
+	/** MD5のlong値の数 */
+	private static final int MD5_WORDS = 2;
+	/** SHA-256のlong値の数 */
+	private static final int SHA256_WORDS = 4;
+
+	/**
+	 * 索引の検索結果
+	 */
+	static class Entry {
+		/** 難易度表ID */
+		final String id;
+		/** 難易度表情報 */
+		final ContentCollection collection;
+		/** 楽曲情報のインデックス値 */
+		final int index;
+
+		/**
+		 * コンストラクタ
+		 * @param id 難易度表ID
+		 * @param collection 難易度表情報
+		 * @param index 楽曲情報のインデックス値
+		 */
+		Entry(String id, ContentCollection collection, int index) {
+			this.id = id;
+			this.collection = collection;
+			this.index = index;
+		}
+	}
+
+	/**
+	 * ハッシュ値の種類ごとのハッシュテーブル
+	 */
+	private static class HashTable {
+		/** ハッシュ値1個あたりのlong値の数 */
+		private final int mWords;
+		/** 登録の数 */
+		private int mCount = 0;
+		/** 登録したハッシュ値(登録1件につき mWords 要素) */
+		private long[] mKeys = new long[0];
+		/** 登録した難易度表の番号 */
+		private int[] mTables = new int[0];
+		/** 同じハッシュ値の次の登録(登録番号+1。0は終端) */
+		private int[] mNext;
+		/** 索引のスロット(同じハッシュ値の最初の登録番号+1。0は空きスロット) */
+		private int[] mSlots;
+
+		/**
+		 * コンストラクタ
+		 * @param words ハッシュ値1個あたりのlong値の数
+		 */
+		HashTable(int words) {
+			mWords = words;
+		}
+
+		/**
+		 * ハッシュ値の登録
+		 * <p>難易度表の登録順、難易度表内では楽曲情報の順に呼び出すこと。</p>
+		 * @param key ハッシュ値のlong値
+		 * @param table 難易度表の番号
+		 */
+		void add(long[] key, int table) {
+			if (mCount == mTables.length) {
+				var capacity = Math.max(16, mCount * 2);
+				mKeys = Arrays.copyOf(mKeys, capacity * mWords);
+				mTables = Arrays.copyOf(mTables, capacity);
+			}
+			System.arraycopy(key, 0, mKeys, mCount * mWords, mWords);
+			mTables[mCount] = table;
+			mCount++;
+		}
+
+		/**
+		 * 索引の構築
+		 * <p>全てのハッシュ値の登録後に1回だけ呼び出す。</p>
+		 */
+		void build() {
+			var capacity = OpenHashIndex.capacity(mCount);
+			var mask = capacity - 1;
+			var tails = new int[capacity];
+			mNext = new int[mCount];
+			mSlots = new int[capacity];
+			for (var i = 0; i < mCount; i++) {
+				for (var slot = OpenHashIndex.firstSlot(hash(mKeys, i * mWords), mask); ;
+						slot = OpenHashIndex.nextSlot(slot, mask)) {
+					var entry = mSlots[slot];
+					if (entry == 0) {
+						mSlots[slot] = i + 1;
+						tails[slot] = i;
+						break;
+					}
+					if (Arrays.equals(mKeys, (entry - 1) * mWords, entry * mWords, mKeys, i * mWords, (i + 1) * mWords)) {
+						// 同じハッシュ値の登録は末尾に連結する
+						mNext[tails[slot]] = i + 1;
+						tails[slot] = i;
+						break;
+					}
+				}
+			}
+		}
+
+		/**
+		 * ハッシュ値を登録している難易度表の検索
+		 * @param key ハッシュ値のlong値
+		 * @return 難易度表の番号のリスト(登録順、重複なし)。該当なしの場合は空リスト。
+		 */
+		List<Integer> find(long[] key) {
+			var mask = mSlots.length - 1;
+			for (var slot = OpenHashIndex.firstSlot(hash(key, 0), mask); ;
+					slot = OpenHashIndex.nextSlot(slot, mask)) {
+				var entry = mSlots[slot];
+				if (entry == 0) {
+					return List.of();
+				}
+				if (!Arrays.equals(mKeys, (entry - 1) * mWords, entry * mWords, key, 0, mWords)) {
+					continue;
+				}
+
+				// 1個の難易度表に同じハッシュ値が複数ある場合、その登録は連続している
+				var tables = new ArrayList<Integer>();
+				for (var i = entry - 1; i >= 0; i = mNext[i] - 1) {
+					if (tables.isEmpty() || (tables.get(tables.size() - 1) != mTables[i])) {
+						tables.add(mTables[i]);
+					}
+				}
+				return tables;
+			}
+		}
+
+		/**
+		 * ハッシュ値のハッシュ値計算
+		 * @param keys ハッシュ値のlong値の配列
+		 * @param offset ハッシュ値の開始位置
+		 * @return ハッシュ値
+		 */
+		private int hash(long[] keys, int offset) {
+			return (mWords == MD5_WORDS) ?
+					OpenHashIndex.hashMd5(keys[offset], keys[offset + 1]) :
+					OpenHashIndex.hashSha256(keys[offset], keys[offset + 1], keys[offset + 2], keys[offset + 3]);
+		}
+	}
+
+	/** 難易度表IDリスト(登録順) */
+	private final String[] mIds;
+	/** 難易度表情報リスト(登録順) */
+	private final ContentCollection[] mCollections;
+	/** MD5による索引 */
+	private final HashTable mMd5 = new HashTable(MD5_WORDS);
+	/** SHA-256による索引 */
+	private final HashTable mSha256 = new HashTable(SHA256_WORDS);
+
+	/**
+	 * コンストラクタ
+	 * @param ids 難易度表IDリスト(登録順)
+	 * @param collections 難易度表情報リスト(ids と同じ順番)
+	 */
+	ContentHashIndex(List<String> ids, List<ContentCollection> collections) {
+		mIds = ids.toArray(String[]::new);
+		mCollections = collections.toArray(ContentCollection[]::new);
+		var md5 = new long[MD5_WORDS];
+		var sha256 = new long[SHA256_WORDS];
+		for (var t = 0; t < mCollections.length; t++) {
+			var store = mCollections[t].getStore();
+			var count = store.count();
+			for (var i = 0; i < count; i++) {
+				if (store.copyMd5(i, md5, 0)) {
+					mMd5.add(md5, t);
+				}
+				if (store.copySha256(i, sha256, 0)) {
+					mSha256.add(sha256, t);
+				}
+			}
+		}
+		mMd5.build();
+		mSha256.build();
+	}
+
+	/**
+	 * MD5による検索
+	 * @param md5 MD5(形式確認済み、大文字・小文字は区別しない)
+	 * @return 該当する検索結果のリスト(登録順)。該当なしの場合は空リスト。
+	 */
+	List<Entry> findMd5(String md5) {
+		var key = new long[] { Utility.parseHexLong(md5, 0), Utility.parseHexLong(md5, 16) };
+		var entries = new ArrayList<Entry>();
+		for (var t : mMd5.find(key)) {
+			var index = mCollections[t].getStore().indexOfMd5(key[0], key[1]);
+			entries.add(new Entry(mIds[t], mCollections[t], index));
+		}
+		return entries;
+	}
+
+	/**
+	 * SHA-256による検索
+	 * @param sha256 SHA-256(形式確認済み、大文字・小文字は区別しない)
+	 * @return 該当する検索結果のリスト(登録順)。該当なしの場合は空リスト。
+	 */
+	List<Entry> findSha256(String sha256) {
+		var key = new long[] {
+				Utility.parseHexLong(sha256, 0), Utility.parseHexLong(sha256, 16),
+				Utility.parseHexLong(sha256, 32), Utility.parseHexLong(sha256, 48) };
+		var entries = new ArrayList<Entry>();
+		for (var t : mSha256.find(key)) {
+			var index = mCollections[t].getStore().indexOfSha256(key[0], key[1], key[2], key[3]);
+			entries.add(new Entry(mIds[t], mCollections[t], index));
+		}
+		return entries;
+	}
+}
@@ -0,0 +1,105 @@
+package com.lmt.lib.bldt;
+
+/**
+ * 難易度表情報の楽曲情報リストの格納先
+ *
+ * <p>楽曲情報はインデックス値で参照し、楽曲情報オブジェクトは {@link #get(int)} で要求された時に生成する。
+ * ヒープ上の列で保持する {@link ContentColumns} と、メモリマップしたスナップショットを参照する
+ * {@link MappedContentStore} がある。いずれの実装も構築後は変更されず、スレッドセーフである。</p>
+ */
+interface ContentStore {
+	/**
+	 * 楽曲情報の数取得
+	 * @return 楽曲情報の数
+	 */
+	int count();
+
+	/**
+	 * プレースタイル取得
+	 * @param index インデックス値
+	 * @return プレースタイル
+	 */
+	PlayStyle playStyle(int index);
+
+	/**
+	 * 難易度インデックス取得
+	 * @param index インデックス値
+	 * @return 難易度インデックス
+	 */
+	int levelIndex(int index);
+
+	/**
+	 * 楽曲情報オブジェクト生成
+	 * <p>呼び出しのたびに新しい楽曲情報オブジェクトを生成する。</p>
+	 * @param index インデックス値
+	 * @return 楽曲情報オブジェクト
+	 */
+	ContentDescription get(int index);
+
+	/**
+	 * MD5のlong値配列へのコピー
+	 * @param index インデックス値
+	 * @param dest コピー先配列
+	 * @param offset コピー先配列の開始位置(ここから2要素をコピーする)
+	 * @return 楽曲情報がMD5を持つ場合 true。持たない場合はコピーせずに false。
+	 */
+	boolean copyMd5(int index, long[] dest, int offset);
+
+	/**
+	 * SHA-256のlong値配列へのコピー
+	 * @param index インデックス値
+	 * @param dest コピー先配列
+	 * @param offset コピー先配列の開始位置(ここから4要素をコピーする)
+	 * @return 楽曲情報がSHA-256を持つ場合 true。持たない場合はコピーせずに false。
+	 */
+	boolean copySha256(int index, long[] dest, int offset);
+
+	/**
+	 * SHA-256による楽曲情報の検索(大文字・小文字は区別しない)
+	 * @param sha256 SHA-256
+	 * @return 楽曲情報のインデックス値。該当なしの場合は -1。
+	 */
+	int indexOfSha256(String sha256);
+
+	/**
+	 * MD5による楽曲情報の検索(大文字・小文字は区別しない)
+	 * @param md5 MD5
+	 * @return 楽曲情報のインデックス値。該当なしの場合は -1。
+	 */
+	int indexOfMd5(String md5);
+
+	/**
+	 * long値に変換したSHA-256による楽曲情報の検索
+	 * @param a SHA-256(先頭64ビット)
+	 * @param b SHA-256(65～128ビット目)
+	 * @param c SHA-256(129～192ビット目)
+	 * @param d SHA-256(末尾64ビット)
+	 * @return 楽曲情報のインデックス値。該当なしの場合は -1。
+	 */
+	int indexOfSha256(long a, long b, long c, long d);
+
+	/**
+	 * long値に変換したMD5による楽曲情報の検索
+	 * @param hi MD5(上位64ビット)
+	 * @param lo MD5(下位64ビット)
+	 * @return 楽曲情報のインデックス値。該当なしの場合は -1。
+	 */
+	int indexOfMd5(long hi, long lo);
+
+	/**
+	 * タイトル・アーティスト・プレースタイルによる楽曲情報の検索
+	 * <p>該当する楽曲情報が複数ある場合は、後の楽曲情報を返す。</p>
+	 * @param title タイトル
+	 * @param artist アーティスト
+	 * @param playStyle プレースタイル
+	 * @return 楽曲情報のインデックス値。該当なしの場合は -1。
+	 */
+	int indexOfMeta(String title, String artist, PlayStyle playStyle);
+
+	/**
+	 * ヒープ上の文字列テーブル取得
+	 * <p>返した配列は変更しないこと。</p>
+	 * @return 楽曲情報の文字列(重複なし)。文字列をヒープ上に保持しない場合は空配列。
+	 */
+	String[] strings();
+}
@@ -22,8 +22,11 @@ import java.util.stream.Stream;
 
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
 
 /**
  * LDTライブラリが持つ難易度表定義にアクセスするためのプレースホルダクラスです。
@@ -62,6 +65,8 @@ public class DifficultyTables implements Runnable {
 
 	/** 動作モード：難易度表更新 */
 	private static final String MODE_UPDATE = "update";
+	/** 動作モード：難易度表再構築 */
+	private static final String MODE_REPARSE = "reparse";
 	/** 動作モード：楽曲情報出力 */
 	private static final String MODE_SHOW = "show";
 	/** 動作モード：難易度表定義出力 */
@@ -83,7 +88,7 @@ public class DifficultyTables implements Runnable {
 			index = "0",
 			arity = "1",
 			paramLabel = "MODE",
-			description = "Operation mode. \"update\", \"show\" or \"presets\".")
+			description = "Operation mode. \"update\", \"reparse\", \"show\" or \"presets\".")
 	private String mMode;
 	/** ID */
 	@Option(names = { "-t", "--target-id" },
@@ -97,12 +102,22 @@ public class DifficultyTables implements Runnable {
 					paramLabel = "LOCATION",
 			description = "Database location. If omitted, the default location will be used.")
 	private String mLocation;
+	/** 難易度表更新の並列度 */
+	private int mParallelism = 1;
+	/** 有効期限に関わらず難易度表を更新するかどうか */
+	@Option(names = { "-f", "--force" },
+			description = "Update difficulty tables even if the downloaded content has not expired yet.")
+	private boolean mForce;
 	/** デバッグモードかどうか */
 	@Option(names = "--debug",
 			hidden = true,
 			description = "Enable debug mode. This option is hidden.")
 	private boolean mIsDebugMode;
 
+	/** コマンドの仕様 */
+	@Spec
+	private CommandSpec mSpec;
+
 	/** 静的イニシャライザ */
 	static {
 		setLocale(Locale.getDefault());
@@ -218,6 +233,7 @@ public class DifficultyTables implements Runnable {
 	 * <p>CLIがサポートする機能</p>
 	 * <ul>
 	 * <li>update: {@link Presets} に定義されたプリセット難易度表の更新機能(インターネット接続が必要です)</li>
+	 * <li>reparse: 保存済みの楽曲情報元データからのプリセット難易度表の再構築機能(インターネット接続は不要です)</li>
 	 * <li>show: {@link Presets} に定義されたプリセット難易度表の楽曲情報一覧出力</li>
 	 * <li>presets: {@link Presets} に定義されたプリセット難易度表の定義内容一覧出力</li>
 	 * </ul>
@@ -229,6 +245,12 @@ public class DifficultyTables implements Runnable {
 	 * <p><strong>-t, --target-id</strong></p>
 	 * <p>処理対象となる難易度表定義のIDを1個指定します。複数指定はできません。
 	 * 省略時は全ての難易度表定義が処理対象となります(デフォルトの動作)。不明なIDを指定するとエラーになります。</p>
+	 * <p><strong>-p, --parallelism</strong></p>
+	 * <p>全ての難易度表を更新する時、同時に更新処理を行う難易度表の最大数を指定します。
+	 * 省略時は1となり、難易度表を1個ずつ順番に更新します。1未満の値を指定すると使用方法のエラーになります。</p>
+	 * <p><strong>-f, --force</strong></p>
+	 * <p>難易度表更新時、前回ダウンロードした楽曲情報元データの有効期限内であってもWebサーバへの問い合わせを行います。
+	 * 省略時は有効期限内の難易度表への問い合わせを省略します。</p>
 	 * <p>以下にCLI実行コマンド例を記載します。ライブラリのファイル名・パスは実際の格納場所で読み替えてください。</p>
 	 * <pre>
 	 * LDTライブラリのバージョンを表示する
@@ -240,9 +262,18 @@ public class DifficultyTables implements Runnable {
 	 * 難易度表を全て更新する
 	 * java -jar bms-ldt-x.x.x.jar update
 	 *
+	 * 難易度表を4個ずつ並列で全て更新する
+	 * java -jar bms-ldt-x.x.x.jar update -p 4
+	 *
+	 * 有効期限に関わらず難易度表を全て更新する
+	 * java -jar bms-ldt-x.x.x.jar update -f
+	 *
 	 * 指定したディレクトリの難易度表データベースに特定の難易度表をダウンロード・更新する
 	 * java -jar bms-ldt-x.x.x.jar update -l C:\Users\john\bldt -t genocide_i
 	 *
+	 * 保存済みの楽曲情報元データから難易度表を全て再構築する
+	 * java -jar bms-ldt-x.x.x.jar reparse
+	 *
 	 * 指定した難易度表の楽曲情報一覧を出力する
 	 * java -jar bms-ldt-x.x.x.jar show -t satellite
 	 *
@@ -274,6 +305,12 @@ public class DifficultyTables implements Runnable {
 				verifyId();
 				update();
 				System.exit(0);
+			} else if (mMode.equals(MODE_REPARSE)) {
+				// 難易度表再構築モード
+				verifyLocation();
+				verifyId();
+				reparse();
+				System.exit(0);
 			} else if (mMode.equals(MODE_SHOW)) {
 				// 難易度表出力モード
 				verifyLocation();
@@ -318,6 +355,24 @@ public class DifficultyTables implements Runnable {
 		}
 	}
 
+	/**
+	 * 難易度表更新の並列度設定
+	 * @param parallelism 難易度表更新の並列度
+	 * @throws ParameterException parallelismが1未満
+	 */
+	@Option(names = { "-p", "--parallelism" },
+			defaultValue = "1",
+			paramLabel = "NUM",
+			description = "Number of difficulty tables updated in parallel. If omitted, tables are updated one by one.")
+	private void setParallelism(int parallelism) {
+		// 1未満の並列度は引数解析の時点で使用方法のエラーとする
+		if (parallelism < 1) {
+			var msg = String.format("Invalid value '%d' for option '--parallelism': must be 1 or greater.", parallelism);
+			throw new ParameterException(mSpec.commandLine(), msg);
+		}
+		mParallelism = parallelism;
+	}
+
 	/**
 	 * 難易度表更新処理
 	 * @throws Exception 何らかのエラーが発生した
@@ -333,10 +388,16 @@ public class DifficultyTables implements Runnable {
 
 		// 難易度表データベースの更新処理
 		var db = new ContentDatabase(Path.of(mLocation), true);
+		db.setForceUpdate(mForce);
 		if (mId.isEmpty()) {
 			// 全ての難易度表を更新する
 			System.out.println("Update all preset difficulty tables.");
-			db.update(httpClient, DEFAULT_TIMEOUT, UpdateProgress.stdout(), new HashMap<>());
+			var progress = UpdateProgress.stdout();
+			if (mParallelism > 1) {
+				// 並列更新時は難易度表ごとの報告が混ざらないように1行単位で出力する
+				progress = DifficultyTables::printParallelProgress;
+			}
+			db.update(httpClient, DEFAULT_TIMEOUT, progress, new HashMap<>(), mParallelism);
 		} else {
 			// 指定されたIDの難易度表を更新する
 			db.update(httpClient, mId, DEFAULT_TIMEOUT, UpdateProgress.stdout());
@@ -345,6 +406,42 @@ public class DifficultyTables implements Runnable {
 		System.out.println("Completed");
 	}
 
+	/**
+	 * 難易度表再構築処理
+	 * @throws Exception 何らかのエラーが発生した
+	 */
+	private void reparse() throws Exception {
+		// 保存済みの楽曲情報元データから難易度表情報を再構築する
+		var db = new ContentDatabase(Path.of(mLocation), false);
+		if (mId.isEmpty()) {
+			// 全ての難易度表を再構築する
+			System.out.println("Reparse all preset difficulty tables.");
+			db.reparse(UpdateProgress.stdout());
+		} else {
+			// 指定されたIDの難易度表を再構築する
+			db.reparse(mId, UpdateProgress.stdout());
+		}
+
+		System.out.println("Completed");
+	}
+
+	/**
+	 * 並列更新時の進捗出力処理
+	 * <p>並列更新時は複数の難易度表の報告が交互に行われるため、報告内容を1行にまとめて出力する。</p>
+	 * @param desc 更新対象の難易度表定義
+	 * @param playStyle 更新対象のプレースタイル
+	 * @param iDesc 更新対象の難易度表定義のインデックス値
+	 * @param numDesc 更新対象の難易度表の数
+	 * @param status 報告種別
+	 */
+	private static void printParallelProgress(TableDescription desc, PlayStyle playStyle, int iDesc, int numDesc,
+			UpdateProgress.Status status) {
+		if (status != UpdateProgress.Status.START) {
+			System.out.printf("(%d/%d) Updated '%s' %s ... %s\n",
+					(iDesc + 1), numDesc, desc.getName(), playStyle, status);
+		}
+	}
+
 	/**
 	 * 楽曲情報一覧出力処理
 	 * @throws Exception 何らかのエラーが発生した
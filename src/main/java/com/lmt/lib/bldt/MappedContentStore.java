@@ -0,0 +1,163 @@
+package com.lmt.lib.bldt;
+
+import java.util.Objects;
+
+import com.lmt.lib.bldt.internal.MappedContents;
+import com.lmt.lib.bldt.internal.Utility;
+
+/**
+ * メモリマップしたスナップショットを参照する楽曲情報リストの格納先
+ *
+ * <p>楽曲情報はヒープに展開せず、スナップショットファイルをマップしたバッファから取得時に読み出す。
+ * そのため難易度表情報のヒープ使用量は楽曲情報の数に関わらず一定となり、同じデータベースを開いている
+ * 他のプロセスともOSのページキャッシュを共有する。MD5・SHA-256・タイトル＆アーティストによる検索は
+ * スナップショットの索引で行い、検索中にオブジェクトを生成しない。</p>
+ */
+class MappedContentStore implements ContentStore {
+	/** MD5の文字数 */
+	private static final int MD5_LENGTH = 32;
+	/** SHA-256の文字数 */
+	private static final int SHA256_LENGTH = 64;
+
+	/** メモリマップした楽曲情報リスト */
+	private final MappedContents mContents;
+
+	/**
+	 * コンストラクタ
+	 * @param contents メモリマップした楽曲情報リスト
+	 */
+	private MappedContentStore(MappedContents contents) {
+		mContents = contents;
+	}
+
+	/**
+	 * 楽曲情報リストの格納先生成
+	 * <p>JSONファイルの読み込みでスキップされる楽曲情報(タイトルが空、非サポートのプレースタイル、
+	 * 難易度インデックスが範囲外)を含む場合、スナップショットは現在の難易度表定義に合わないため使用しない。</p>
+	 * @param tableDesc 難易度表定義
+	 * @param contents メモリマップした楽曲情報リスト
+	 * @return 楽曲情報リストの格納先。難易度表定義に合わない楽曲情報を含む場合は null。
+	 */
+	static MappedContentStore of(TableDescription tableDesc, MappedContents contents) {
+		var store = new MappedContentStore(contents);
+		var count = contents.count();
+		for (var i = 0; i < count; i++) {
+			var styleDesc = tableDesc.getPlayStyleDescription(store.playStyle(i));
+			var lv = contents.levelIndex(i);
+			if (contents.isTitleEmpty(i) || Objects.isNull(styleDesc) || (lv < 0) || (lv >= styleDesc.getLabels().size())) {
+				return null;
+			}
+		}
+		return store;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int count() {
+		return mContents.count();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public PlayStyle playStyle(int index) {
+		return mContents.isDp(index) ? PlayStyle.DOUBLE : PlayStyle.SINGLE;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int levelIndex(int index) {
+		return mContents.levelIndex(index);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public ContentDescription get(int index) {
+		var md5s = mContents.hasMd5(index) ? new long[2] : null;
+		var sha256s = mContents.hasSha256(index) ? new long[4] : null;
+		if (Objects.nonNull(md5s)) {
+			mContents.copyMd5(index, md5s, 0);
+		}
+		if (Objects.nonNull(sha256s)) {
+			mContents.copySha256(index, sha256s, 0);
+		}
+		return ContentDescription.restore(
+				mContents.title(index),
+				mContents.artist(index),
+				playStyle(index),
+				mContents.levelIndex(index),
+				mContents.bodyUrl(index),
+				mContents.additionalUrl(index),
+				md5s, 0,
+				sha256s, 0);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean copyMd5(int index, long[] dest, int offset) {
+		if (!mContents.hasMd5(index)) {
+			return false;
+		}
+		mContents.copyMd5(index, dest, offset);
+		return true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean copySha256(int index, long[] dest, int offset) {
+		if (!mContents.hasSha256(index)) {
+			return false;
+		}
+		mContents.copySha256(index, dest, offset);
+		return true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int indexOfSha256(String sha256) {
+		if (!Utility.isHex(sha256, SHA256_LENGTH)) {
+			return -1;
+		}
+		return mContents.indexOfSha256(
+				Utility.parseHexLong(sha256, 0),
+				Utility.parseHexLong(sha256, 16),
+				Utility.parseHexLong(sha256, 32),
+				Utility.parseHexLong(sha256, 48));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int indexOfMd5(String md5) {
+		if (!Utility.isHex(md5, MD5_LENGTH)) {
+			return -1;
+		}
+		return mContents.indexOfMd5(Utility.parseHexLong(md5, 0), Utility.parseHexLong(md5, 16));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int indexOfSha256(long a, long b, long c, long d) {
+		return mContents.indexOfSha256(a, b, c, d);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int indexOfMd5(long hi, long lo) {
+		return mContents.indexOfMd5(hi, lo);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int indexOfMeta(String title, String artist, PlayStyle playStyle) {
+		return mContents.indexOfMeta(title, artist, playStyle == PlayStyle.DOUBLE);
+	}
+
+	/**
+	 * ヒープ上の文字列テーブル取得
+	 * <p>文字列はマップしたスナップショットから取得の都度生成するため、常に空配列を返す。</p>
+	 * @return 空配列
+	 */
+	@Override
+	public String[] strings() {
+		return new String[0];
+	}
+}
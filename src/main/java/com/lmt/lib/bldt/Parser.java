@@ -13,6 +13,8 @@ import java.util.List;
  * <p>当ライブラリがサポートするデータ形式のパーサは {@link com.lmt.lib.bldt.parser} パッケージに定義されます。
  * {@link DifficultyTables#add(TableDescription)} で追加する難易度表定義で、これらのパーサを使用できます。</p>
  *
+ * <p>元データのダウンロードと並行して解析を行う場合は {@link StreamingParser} を実装してください。</p>
+ *
  * @since 0.1.0
  */
 @FunctionalInterface
@@ -0,0 +1,97 @@
+package com.lmt.lib.bldt;
+
+import static com.lmt.lib.bldt.internal.Assertion.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * 難易度表の元データを入力ストリームから逐次解析するパーサインターフェイスです。
+ *
+ * <p>{@link Parser} は元データ全体をダウンロードしてから解析を開始し、解析結果を楽曲情報一覧として返します。
+ * 当インターフェイスを実装したパーサは、ダウンロード中の元データを入力ストリームから読み込みながら解析し、
+ * 解析した楽曲情報を1件ずつ出力先へ渡します。これにより元データのダウンロードと解析が並行して行われ、
+ * パーサが元データ全体を文字列等に変換して保持する必要がなくなります。</p>
+ *
+ * <p>{@link ContentDatabase} は、前回の更新で元データのハッシュ値を記録していない場合、
+ * または応答のETag・最終更新日時から元データの変更が明らかな場合にのみ受信と並行して解析します。
+ * それ以外の場合は受信完了後に元データのハッシュ値を確認し、前回の更新から変更されていなければ解析を行いません。
+ * 変更されていれば受信済みの元データを {@link Parser#parse(TableDescription, PlayStyle, byte[])} で解析します。</p>
+ *
+ * <p>当インターフェイスは {@link Parser} を継承しているため、{@link TableDescription} のパーサとして
+ * そのまま使用できます。{@link Parser#parse(TableDescription, PlayStyle, byte[])} はバイトデータを入力ストリームとして
+ * 逐次解析するデフォルト実装を提供します。逐次解析に対応しない既存のパーサは {@link #of(Parser)}
+ * で当インターフェイスに適合させることができます。</p>
+ *
+ * @since 0.3.0
+ */
+@FunctionalInterface
+public interface StreamingParser extends Parser {
+	/**
+	 * 入力ストリームから元データを読み込みながら楽曲情報を解析し、解析した楽曲情報を出力先へ渡します。
+	 * <p>入力ストリームは各難易度表のサーバからダウンロード中の無加工のバイトデータです。ダウンロード中の場合、
+	 * 入力ストリームの読み込みはデータを受信するまで待機します。パーサは楽曲情報を1件解析するごとに出力先へ渡し、
+	 * 楽曲情報一覧の順番は出力先へ渡した順番になります。楽曲情報の抽出に必要なデータを読み終えた場合、
+	 * 入力ストリームを終端まで読み込む必要はありません。また、入力ストリームをクローズしないでください。</p>
+	 * <p>元データの内容に関する扱いは {@link Parser#parse(TableDescription, PlayStyle, byte[])} と同様です。
+	 * IOException をスローした場合、それまでに出力先へ渡した楽曲情報は破棄されます。</p>
+	 * @param tableDesc 処理対象の難易度表定義
+	 * @param playStyle 処理対象のプレースタイル
+	 * @param in 難易度表のサーバからダウンロードされる無加工のバイトデータの入力ストリーム
+	 * @param sink 解析した楽曲情報の出力先
+	 * @throws IOException 入出力エラー、またはデータ不正の検出により解析が続行不可
+	 * @since 0.3.0
+	 */
+	void parse(TableDescription tableDesc, PlayStyle playStyle, InputStream in, Consumer<ContentDescription> sink)
+			throws IOException;
+
+	/**
+	 * 入力された情報を使用して楽曲情報を解析し、楽曲情報一覧を生成して返します。
+	 * <p>当メソッドはバイトデータを入力ストリームとして
+	 * {@link #parse(TableDescription, PlayStyle, InputStream, Consumer)} を呼び出し、出力先へ渡された楽曲情報を
+	 * その順番で楽曲情報一覧として返します。</p>
+	 * @param tableDesc 処理対象の難易度表定義
+	 * @param playStyle 処理対象のプレースタイル
+	 * @param raw 難易度表のサーバからダウンロードされた無加工のバイトデータ
+	 * @return 解析された楽曲情報一覧
+	 * @throws IOException 入出力エラー、またはデータ不正の検出により解析が続行不可
+	 * @since 0.3.0
+	 */
+	@Override
+	default List<ContentDescription> parse(TableDescription tableDesc, PlayStyle playStyle, byte[] raw)
+			throws IOException {
+		var contents = new ArrayList<ContentDescription>();
+		parse(tableDesc, playStyle, new ByteArrayInputStream(raw), contents::add);
+		return contents;
+	}
+
+	/**
+	 * 指定パーサを逐次解析パーサに適合させます。
+	 * <p>指定パーサが逐次解析パーサの場合はそのまま返します。それ以外の場合、入力ストリームを終端まで読み込んでから
+	 * {@link Parser#parse(TableDescription, PlayStyle, byte[])} で解析し、返された楽曲情報一覧を順に出力先へ渡す
+	 * 逐次解析パーサを返します。この場合、ダウンロードと解析は並行して行われません。</p>
+	 * @param parser パーサ
+	 * @return 逐次解析パーサ
+	 * @throws NullPointerException parser が null
+	 * @since 0.3.0
+	 */
+	static StreamingParser of(Parser parser) {
+		assertArgNotNull(parser, "parser");
+		if (parser instanceof StreamingParser) {
+			return (StreamingParser)parser;
+		}
+		return (tableDesc, playStyle, in, sink) -> {
+			var contents = parser.parse(tableDesc, playStyle, in.readAllBytes());
+			if (Objects.isNull(contents)) {
+				var msg = String.format("Parser '%s' returned null contents", parser.getClass().getName());
+				throw new IOException(msg);
+			}
+			contents.forEach(sink);
+		};
+	}
+}
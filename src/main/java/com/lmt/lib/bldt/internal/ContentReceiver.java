@@ -0,0 +1,647 @@
+package com.lmt.lib.bldt.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * 楽曲情報元データ受信クラス
+ *
+ * 受信データを格納するバッファを Content-Length で予め確保し、受信データを直接バッファに格納する。
+ * 受信と同時に受信データのハッシュ値(SHA-256)を計算するため、受信完了後にデータ全体を再走査する必要はない。
+ * Content-Length と実際の受信データ長が一致する場合、受信完了後のデータはバッファをそのまま返し、コピーは行わない。
+ * 応答が gzip/deflate で符号化されている場合は受信と同時に復号し、復号後のデータをバッファに格納する。
+ * ハッシュ値は復号後のデータに対して計算するため、Webサーバが選択した符号化方式に関わらず同じ値になる。
+ * 受信完了後は {@link #finish()} を呼び出し、符号化されたデータが終端まで揃っていることを確認すること。
+ * {@link #stream(InputStream)} で生成した入力ストリームを使用すると、受信したデータを受信と並行して読み込める。
+ *
+ * @hidden
+ */
+public class ContentReceiver {
+	/** Content-Length 不明時のバッファ初期サイズ */
+	private static final int DEFAULT_CAPACITY = 65536;
+	/** Content-Length で予め確保するバッファサイズの上限 */
+	private static final int MAX_PRESIZE = 64 * 1024 * 1024;
+	/** 受信可能なデータ長の上限 */
+	private static final int MAX_LENGTH = Integer.MAX_VALUE - 8;
+	/** 符号化された応答の Content-Length に対する復号後データ長の見込み倍率 */
+	private static final int DECODED_RATIO = 4;
+	/** 符号化された受信データの一時格納バッファサイズ */
+	private static final int SCRATCH_SIZE = 16384;
+
+	/** 楽曲情報取得リクエストで受け入れ可能な符号化方式(Accept-Encoding ヘッダの値) */
+	public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+	/** 受信データを格納するバッファ */
+	private byte[] mBuffer;
+	/** 受信済みデータ長 */
+	private int mLength = 0;
+	/** 受信データのハッシュ値計算オブジェクト(SHA-256が使用できない場合 null) */
+	private MessageDigest mDigest;
+	/** 受信データのハッシュ値の文字列表現 */
+	private String mSha256 = null;
+	/** 受信データの復号処理(符号化されていない場合 null) */
+	private Decoder mDecoder;
+	/** 符号化された受信データの一時格納バッファ */
+	private byte[] mScratch;
+
+	/**
+	 * コンストラクタ
+	 * @param contentLength 応答の Content-Length、不明な場合は負の値
+	 */
+	public ContentReceiver(long contentLength) {
+		this(contentLength, null);
+	}
+
+	/**
+	 * コンストラクタ
+	 * @param contentLength 応答の Content-Length、不明な場合は負の値
+	 * @param decoder 受信データの復号処理、符号化されていない場合は null
+	 */
+	private ContentReceiver(long contentLength, Decoder decoder) {
+		// 符号化されている場合の Content-Length は符号化後のデータ長のため、復号後のデータ長を見込んで確保する
+		var expected = (Objects.isNull(decoder) || (contentLength < 0L)) ? contentLength : contentLength * DECODED_RATIO;
+		var capacity = (expected < 0L) ? DEFAULT_CAPACITY : (int)Math.min(expected, MAX_PRESIZE);
+		mBuffer = new byte[capacity];
+		try {
+			mDigest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			mDigest = null;
+		}
+		if (Objects.nonNull(decoder)) {
+			mDecoder = decoder;
+			mScratch = new byte[SCRATCH_SIZE];
+		}
+	}
+
+	/**
+	 * 応答ヘッダの Content-Length, Content-Encoding から受信オブジェクトを生成
+	 * @param headers 応答ヘッダ
+	 * @return 受信オブジェクト
+	 * @throws IOException 応答の符号化方式が非サポート
+	 */
+	public static ContentReceiver of(HttpHeaders headers) throws IOException {
+		var contentLength = headers.firstValueAsLong("Content-Length").orElse(-1L);
+		var encoding = headers.firstValue("Content-Encoding").orElse("").trim().toLowerCase(Locale.ROOT);
+		switch (encoding) {
+		case "":
+		case "identity":
+			return new ContentReceiver(contentLength, null);
+		case "gzip":
+		case "x-gzip":
+			return new ContentReceiver(contentLength, new Decoder(true));
+		case "deflate":
+			return new ContentReceiver(contentLength, new Decoder(false));
+		default:
+			throw new IOException(String.format("Unsupported content encoding: '%s'", encoding));
+		}
+	}
+
+	/**
+	 * 応答情報から受信オブジェクトを生成
+	 * @param info 応答情報
+	 * @return 受信オブジェクト
+	 * @throws IOException 応答の符号化方式が非サポート
+	 */
+	public static ContentReceiver of(HttpResponse.ResponseInfo info) throws IOException {
+		return of(info.headers());
+	}
+
+	/**
+	 * 入力ストリームからの受信
+	 * <p>入力ストリームから1回分のデータを読み込み、バッファに直接格納する。
+	 * バッファが満杯の場合は入力ストリームの終端を確認し、終端でなければバッファを拡張する。</p>
+	 * @param in 入力ストリーム
+	 * @return データを受信した場合 true、入力ストリームが終端に達した場合 false
+	 * @throws IOException 入力ストリームの読み込みでエラーが発生した、または受信データ長が上限を超えた
+	 */
+	public boolean receive(InputStream in) throws IOException {
+		if (Objects.nonNull(mDecoder)) {
+			// 符号化されている場合は一時格納バッファに読み込み、復号してからバッファに格納する
+			var read = in.read(mScratch, 0, mScratch.length);
+			if (read < 0) {
+				return false;
+			}
+			mDecoder.decode(this, mScratch, 0, read);
+			return true;
+		}
+		if (mLength == mBuffer.length) {
+			// バッファが満杯の場合は、終端に達したかを確認してから拡張する
+			var b = in.read();
+			if (b < 0) {
+				return false;
+			}
+			ensureCapacity(1);
+			mBuffer[mLength] = (byte)b;
+			update(mLength, 1);
+			return true;
+		}
+		var read = in.read(mBuffer, mLength, mBuffer.length - mLength);
+		if (read < 0) {
+			return false;
+		}
+		update(mLength, read);
+		return true;
+	}
+
+	/**
+	 * バイトバッファからの受信
+	 * @param buffer 受信データが格納されたバイトバッファ
+	 * @throws IOException 受信データ長が上限を超えた
+	 */
+	public void receive(ByteBuffer buffer) throws IOException {
+		if (Objects.nonNull(mDecoder)) {
+			// 符号化されている場合は復号してからバッファに格納する
+			if (buffer.hasArray()) {
+				mDecoder.decode(this, buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+				buffer.position(buffer.limit());
+			} else {
+				while (buffer.hasRemaining()) {
+					var size = Math.min(buffer.remaining(), mScratch.length);
+					buffer.get(mScratch, 0, size);
+					mDecoder.decode(this, mScratch, 0, size);
+				}
+			}
+			return;
+		}
+		var size = buffer.remaining();
+		ensureCapacity(size);
+		buffer.get(mBuffer, mLength, size);
+		update(mLength, size);
+	}
+
+	/**
+	 * 受信完了処理
+	 * <p>符号化されている場合、符号化されたデータが終端まで受信されたことを確認し、復号処理を終了する。</p>
+	 * @throws IOException 符号化されたデータが途中で途切れている
+	 */
+	public void finish() throws IOException {
+		if (Objects.nonNull(mDecoder)) {
+			mDecoder.finish();
+			mScratch = null;
+		}
+	}
+
+	/**
+	 * 受信データ取得
+	 * <p>受信データ長とバッファサイズが一致する場合はバッファをそのまま返す。</p>
+	 * @return 受信データ
+	 */
+	public byte[] toByteArray() {
+		if (mLength != mBuffer.length) {
+			mBuffer = Arrays.copyOf(mBuffer, mLength);
+		}
+		return mBuffer;
+	}
+
+	/**
+	 * 受信データ長取得
+	 * @return 受信データ長
+	 */
+	public int getLength() {
+		return mLength;
+	}
+
+	/**
+	 * 受信データのハッシュ値(SHA-256)取得
+	 * <p>当メソッドは受信完了後に呼び出すこと。</p>
+	 * @return 受信データのハッシュ値の文字列表現、SHA-256が使用できない場合 null
+	 */
+	public String getSha256() {
+		if (Objects.isNull(mSha256) && Objects.nonNull(mDigest)) {
+			mSha256 = Utility.byteArrayToString(mDigest.digest());
+			mDigest = null;
+		}
+		return mSha256;
+	}
+
+	/**
+	 * 受信データを読み込む入力ストリームの生成
+	 * <p>返される入力ストリームはバッファに格納済みの受信データを読み込み、格納済みのデータを読み終えると
+	 * 受信元の入力ストリームから次のデータを受信する。受信したデータは通常の受信と同様にバッファに格納され、
+	 * ハッシュ値が計算される。入力ストリームを終端まで読み込まずに読み込みを終えた場合、残りのデータは
+	 * {@link #receive(InputStream)} で受信すること。受信待ちの間にスレッドが割り込まれた場合、
+	 * 入力ストリームの読み込みは InterruptedIOException をスローする。</p>
+	 * @param source 受信元の入力ストリーム
+	 * @return 受信データを読み込む入力ストリーム
+	 */
+	public InputStream stream(InputStream source) {
+		return new ReceivingStream(source);
+	}
+
+	/**
+	 * 受信オブジェクトを結果とするボディサブスクライバの生成
+	 * @param info 応答情報
+	 * @return ボディサブスクライバ
+	 */
+	public static HttpResponse.BodySubscriber<ContentReceiver> subscriber(HttpResponse.ResponseInfo info) {
+		try {
+			return new Subscriber(of(info), null);
+		} catch (IOException e) {
+			return new Subscriber(null, e);
+		}
+	}
+
+	/**
+	 * 受信済みデータのハッシュ値計算と受信済みデータ長の更新
+	 * @param offset 今回受信したデータのバッファ内オフセット
+	 * @param length 今回受信したデータ長
+	 */
+	private void update(int offset, int length) {
+		if (Objects.nonNull(mDigest)) {
+			mDigest.update(mBuffer, offset, length);
+		}
+		mLength += length;
+	}
+
+	/**
+	 * バッファの空き容量確保
+	 * @param size 追加で格納するデータ長
+	 * @throws IOException 受信データ長が上限を超えた
+	 */
+	private void ensureCapacity(int size) throws IOException {
+		var required = (long)mLength + size;
+		if (required > MAX_LENGTH) {
+			throw new IOException(String.format("Too large content: Over %d bytes", MAX_LENGTH));
+		}
+		if (required > mBuffer.length) {
+			var newCapacity = Math.max(required, Math.min((long)mBuffer.length * 2L, MAX_LENGTH));
+			mBuffer = Arrays.copyOf(mBuffer, (int)Math.max(newCapacity, DEFAULT_CAPACITY));
+		}
+	}
+
+	/**
+	 * 復号したデータのバッファへの格納
+	 * <p>インフレータから取り出せるだけのデータを取り出し、バッファに格納する。</p>
+	 * @param inflater インフレータ
+	 * @param crc 復号したデータのCRC32計算オブジェクト、不要な場合は null
+	 * @throws IOException 符号化されたデータが不正、または受信データ長が上限を超えた
+	 */
+	private void inflate(Inflater inflater, CRC32 crc) throws IOException {
+		try {
+			while (!inflater.finished()) {
+				if (mLength == mBuffer.length) {
+					ensureCapacity(1);
+				}
+				var n = inflater.inflate(mBuffer, mLength, mBuffer.length - mLength);
+				if (n > 0) {
+					if (Objects.nonNull(crc)) {
+						crc.update(mBuffer, mLength, n);
+					}
+					update(mLength, n);
+				} else if (inflater.needsInput()) {
+					break;
+				} else if (inflater.needsDictionary()) {
+					throw new IOException("Invalid compressed content: Preset dictionary is not supported");
+				}
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Invalid compressed content: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * gzip/deflate で符号化された受信データの復号処理
+	 * <p>受信データは任意の位置で分割されて渡されるため、ヘッダ・トレーラのように分割して処理できない部分は
+	 * 必要なデータが揃うまで保留する。deflate は zlib 形式を標準とするが、zlib ヘッダがない場合は
+	 * ヘッダなしの deflate データとして扱う。</p>
+	 */
+	private static class Decoder {
+		/** gzip のヘッダ・トレーラのフラグ */
+		private static final int FHCRC = 2, FEXTRA = 4, FNAME = 8, FCOMMENT = 16;
+		/** gzip のトレーラサイズ */
+		private static final int TRAILER_SIZE = 8;
+
+		/** gzip 形式かどうか */
+		private boolean mGzip;
+		/** インフレータ(ヘッダ解析前、または終端到達後は null) */
+		private Inflater mInflater = null;
+		/** gzip メンバの復号データのCRC32計算オブジェクト */
+		private CRC32 mCrc = new CRC32();
+		/** gzip メンバの復号データ長 */
+		private long mMemberLength = 0L;
+		/** gzip のトレーラ待ちかどうか */
+		private boolean mTrailer = false;
+		/** 少なくとも1つのデータが終端まで復号されたかどうか */
+		private boolean mCompleted = false;
+		/** 終端到達後の不要なデータを読み捨てるかどうか */
+		private boolean mDiscard = false;
+		/** 受信済み符号化データ長 */
+		private long mInputLength = 0L;
+		/** 必要なデータが揃うまで保留中の符号化データ */
+		private byte[] mPending = new byte[0];
+
+		/**
+		 * コンストラクタ
+		 * @param gzip gzip 形式の場合 true、deflate 形式の場合 false
+		 */
+		Decoder(boolean gzip) {
+			mGzip = gzip;
+		}
+
+		/**
+		 * 符号化データの復号
+		 * @param receiver 復号したデータの格納先
+		 * @param in 符号化データ
+		 * @param offset 符号化データの開始位置
+		 * @param length 符号化データ長
+		 * @throws IOException 符号化されたデータが不正、または受信データ長が上限を超えた
+		 */
+		void decode(ContentReceiver receiver, byte[] in, int offset, int length) throws IOException {
+			mInputLength += length;
+			if (mDiscard) {
+				return;
+			}
+
+			// 保留中のデータがある場合は今回のデータと連結して処理する
+			var data = in;
+			var pos = offset;
+			var end = offset + length;
+			if (mPending.length > 0) {
+				data = Arrays.copyOf(mPending, mPending.length + length);
+				System.arraycopy(in, offset, data, mPending.length, length);
+				pos = 0;
+				end = data.length;
+				mPending = new byte[0];
+			}
+
+			while (pos < end) {
+				if (mTrailer) {
+					// gzip のトレーラで復号データのCRC32とデータ長を検証する
+					if (end - pos < TRAILER_SIZE) {
+						break;
+					}
+					var crc = readInt(data, pos);
+					var size = readInt(data, pos + 4);
+					if ((crc != (int)mCrc.getValue()) || (size != (int)mMemberLength)) {
+						throw new IOException("Invalid compressed content: Corrupt GZIP trailer");
+					}
+					pos += TRAILER_SIZE;
+					mTrailer = false;
+					mCompleted = true;
+				} else if (Objects.isNull(mInflater)) {
+					// ヘッダを解析してインフレータを生成する
+					if (mGzip) {
+						if (mCompleted && (data[pos] != (byte)0x1f)) {
+							// 後続の gzip メンバでなければ、以降のデータは読み捨てる
+							mDiscard = true;
+							return;
+						}
+						var headerSize = gzipHeaderSize(data, pos, end);
+						if (headerSize < 0) {
+							break;
+						}
+						pos += headerSize;
+						mInflater = new Inflater(true);
+						mCrc.reset();
+						mMemberLength = 0L;
+					} else {
+						if (mCompleted) {
+							mDiscard = true;
+							return;
+						}
+						if (end - pos < 2) {
+							break;
+						}
+						mInflater = new Inflater(!isZlibHeader(data[pos], data[pos + 1]));
+					}
+				} else {
+					// 符号化データを復号してバッファに格納する
+					var before = receiver.mLength;
+					mInflater.setInput(data, pos, end - pos);
+					receiver.inflate(mInflater, mGzip ? mCrc : null);
+					mMemberLength += receiver.mLength - before;
+					pos = end - mInflater.getRemaining();
+					if (mInflater.finished()) {
+						mInflater.end();
+						mInflater = null;
+						if (mGzip) {
+							mTrailer = true;
+						} else {
+							mCompleted = true;
+						}
+					}
+				}
+			}
+
+			// 未処理のデータは次回受信時まで保留する
+			if (pos < end) {
+				mPending = Arrays.copyOfRange(data, pos, end);
+			}
+		}
+
+		/**
+		 * 復号処理の終了
+		 * @throws IOException 符号化されたデータが途中で途切れている
+		 */
+		void finish() throws IOException {
+			if (Objects.nonNull(mInflater)) {
+				mInflater.end();
+				mInflater = null;
+				throw new IOException("Invalid compressed content: Unexpected end of data");
+			}
+			if ((mInputLength > 0L) && (!mCompleted || mTrailer || (!mDiscard && (mPending.length > 0)))) {
+				throw new IOException("Invalid compressed content: Unexpected end of data");
+			}
+		}
+
+		/**
+		 * gzip ヘッダのサイズ取得
+		 * @param data 符号化データ
+		 * @param pos gzip ヘッダの開始位置
+		 * @param end 符号化データの終了位置
+		 * @return gzip ヘッダのサイズ、データが不足している場合は負の値
+		 * @throws IOException gzip ヘッダが不正
+		 */
+		private static int gzipHeaderSize(byte[] data, int pos, int end) throws IOException {
+			if (end - pos < 10) {
+				return -1;
+			}
+			if ((data[pos] != (byte)0x1f) || (data[pos + 1] != (byte)0x8b) || (data[pos + 2] != 8)) {
+				throw new IOException("Invalid compressed content: Not in GZIP format");
+			}
+			var flags = data[pos + 3] & 0xff;
+			var p = pos + 10;
+			if ((flags & FEXTRA) != 0) {
+				if (end - p < 2) {
+					return -1;
+				}
+				p += 2 + ((data[p] & 0xff) | ((data[p + 1] & 0xff) << 8));
+			}
+			for (var flag : new int[] { FNAME, FCOMMENT }) {
+				if ((flags & flag) != 0) {
+					while ((p < end) && (data[p] != 0)) {
+						p++;
+					}
+					p++;
+				}
+			}
+			if ((flags & FHCRC) != 0) {
+				p += 2;
+			}
+			return (p > end) ? -1 : (p - pos);
+		}
+
+		/**
+		 * zlib ヘッダかどうかの判定
+		 * @param b0 先頭1バイト目
+		 * @param b1 先頭2バイト目
+		 * @return zlib ヘッダであれば true
+		 */
+		private static boolean isZlibHeader(byte b0, byte b1) {
+			return ((b0 & 0x0f) == 8) && ((((b0 & 0xff) << 8) | (b1 & 0xff)) % 31 == 0);
+		}
+
+		/**
+		 * リトルエンディアンの32ビット整数読み込み
+		 * @param data データ
+		 * @param pos 読み込み位置
+		 * @return 読み込んだ値
+		 */
+		private static int readInt(byte[] data, int pos) {
+			return (data[pos] & 0xff) | ((data[pos + 1] & 0xff) << 8) |
+					((data[pos + 2] & 0xff) << 16) | ((data[pos + 3] & 0xff) << 24);
+		}
+	}
+
+	/**
+	 * 受信と並行して受信データを読み込む入力ストリーム
+	 */
+	private class ReceivingStream extends InputStream {
+		/** 受信元の入力ストリーム */
+		private InputStream mSource;
+		/** 次に読み込む受信データのバッファ内位置 */
+		private int mPosition = 0;
+
+		/**
+		 * コンストラクタ
+		 * @param source 受信元の入力ストリーム
+		 */
+		ReceivingStream(InputStream source) {
+			mSource = source;
+		}
+
+		@Override
+		public int read() throws IOException {
+			var b = new byte[1];
+			return (read(b, 0, 1) < 0) ? -1 : (b[0] & 0xff);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, b.length);
+			if (len == 0) {
+				return 0;
+			}
+
+			// 格納済みのデータを読み終えている場合は次のデータを受信する
+			// 復号処理ではデータが格納されない受信もあるため、データが格納されるまで受信を繰り返す
+			while (mPosition >= mLength) {
+				if (Thread.currentThread().isInterrupted()) {
+					throw new InterruptedIOException();
+				}
+				if (!receive(mSource)) {
+					return -1;
+				}
+			}
+			var size = Math.min(len, mLength - mPosition);
+			System.arraycopy(mBuffer, mPosition, b, off, size);
+			mPosition += size;
+			return size;
+		}
+
+		@Override
+		public int available() {
+			return mLength - mPosition;
+		}
+	}
+
+	/**
+	 * 受信オブジェクトに受信データを格納するボディサブスクライバ
+	 */
+	private static class Subscriber implements HttpResponse.BodySubscriber<ContentReceiver> {
+		/** 受信オブジェクト */
+		private ContentReceiver mReceiver;
+		/** 受信オブジェクト生成時に発生したエラー */
+		private IOException mError;
+		/** 受信結果のフューチャー */
+		private CompletableFuture<ContentReceiver> mResult = new CompletableFuture<>();
+		/** サブスクリプション */
+		private Flow.Subscription mSubscription;
+
+		/**
+		 * コンストラクタ
+		 * @param receiver 受信オブジェクト
+		 * @param error 受信オブジェクト生成時に発生したエラー、または null
+		 */
+		Subscriber(ContentReceiver receiver, IOException error) {
+			mReceiver = receiver;
+			mError = error;
+		}
+
+		@Override
+		public CompletionStage<ContentReceiver> getBody() {
+			return mResult;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			mSubscription = subscription;
+			if (Objects.nonNull(mError)) {
+				// 受信できない応答の場合は受信を中止する
+				subscription.cancel();
+				mResult.completeExceptionally(mError);
+				return;
+			}
+			subscription.request(Long.MAX_VALUE);
+		}
+
+		@Override
+		public void onNext(List<ByteBuffer> item) {
+			if (mResult.isDone()) {
+				return;
+			}
+			try {
+				for (var buffer : item) {
+					mReceiver.receive(buffer);
+				}
+			} catch (IOException e) {
+				mSubscription.cancel();
+				mResult.completeExceptionally(e);
+			}
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			mResult.completeExceptionally(throwable);
+		}
+
+		@Override
+		public void onComplete() {
+			if (mResult.isDone()) {
+				return;
+			}
+			try {
+				mReceiver.finish();
+				mResult.complete(mReceiver);
+			} catch (IOException e) {
+				mResult.completeExceptionally(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.lmt.lib.bldt.internal;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ホスト単位のリクエスト送信スケジューラ
+ *
+ * 同一ホストへのリクエストが集中しないよう、ホストごとに同時に実行中のリクエスト数の上限と、
+ * リクエスト送信開始の最小間隔を制御する。異なるホストへのリクエストは互いに制限し合わない。
+ * リクエスト送信前に送信許可を取得し、応答受信完了後に送信許可を返却すること。
+ * 送信許可は要求順に与えられる。
+ *
+ * @hidden
+ */
+public class HostScheduler {
+	/** ホストごとの送信許可の状態 */
+	private static class HostState {
+		/** 実行中のリクエスト数 */
+		int inFlight = 0;
+		/** 次のリクエストの送信開始が可能になる時刻(System.nanoTime()基準) */
+		long nextStart = System.nanoTime();
+		/** 送信許可待ちのフューチャーのキュー */
+		ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+	}
+
+	/** ホストごとの同時実行リクエスト数上限 */
+	private int mMaxConcurrency;
+	/** 同一ホストへのリクエスト送信開始の最小間隔(ナノ秒) */
+	private long mMinIntervalNanos;
+	/** ホスト名とホストごとの送信許可の状態のマップ */
+	private Map<String, HostState> mHosts = new HashMap<>();
+
+	/**
+	 * コンストラクタ
+	 * @param maxConcurrency ホストごとの同時実行リクエスト数上限
+	 * @param minInterval 同一ホストへのリクエスト送信開始の最小間隔
+	 */
+	public HostScheduler(int maxConcurrency, Duration minInterval) {
+		mMaxConcurrency = maxConcurrency;
+		mMinIntervalNanos = minInterval.toNanos();
+	}
+
+	/**
+	 * 送信許可の取得(完了待機)
+	 * <p>送信許可が得られるまで待機する。待機中にスレッド割り込みが発生した場合は送信許可の要求を取り下げる。</p>
+	 * @param host ホスト名(null の場合は空文字のホストとして扱う)
+	 * @throws InterruptedException 待機中にスレッド割り込みが発生した
+	 */
+	public void acquire(String host) throws InterruptedException {
+		var permit = acquireAsync(host);
+		try {
+			permit.get();
+		} catch (InterruptedException e) {
+			// 要求の取り下げより先に送信許可が与えられていた場合は送信許可を返却する
+			if (!permit.cancel(false) && !permit.isCancelled()) {
+				release(host);
+			}
+			throw e;
+		} catch (ExecutionException e) {
+			// 送信許可のフューチャーが例外的に完了することはない
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * 送信許可の取得(非同期)
+	 * <p>送信許可が得られた時点で完了するフューチャーを返す。送信許可が与えられる前にフューチャーをキャンセルすると
+	 * 送信許可の要求を取り下げる。</p>
+	 * @param host ホスト名(null の場合は空文字のホストとして扱う)
+	 * @return 送信許可が得られた時点で完了するフューチャー
+	 */
+	public CompletableFuture<Void> acquireAsync(String host) {
+		var key = Objects.requireNonNullElse(host, "");
+		var permit = new CompletableFuture<Void>();
+		var complete = (Runnable)null;
+		synchronized (mHosts) {
+			var state = mHosts.computeIfAbsent(key, k -> new HostState());
+			if ((state.inFlight < mMaxConcurrency) && state.waiters.isEmpty()) {
+				complete = grant(key, state, permit);
+			} else {
+				state.waiters.add(permit);
+			}
+		}
+		if (Objects.nonNull(complete)) {
+			complete.run();
+		}
+		return permit;
+	}
+
+	/**
+	 * 送信許可の返却
+	 * @param host ホスト名(null の場合は空文字のホストとして扱う)
+	 */
+	public void release(String host) {
+		var key = Objects.requireNonNullElse(host, "");
+		var completes = new ArrayList<Runnable>();
+		synchronized (mHosts) {
+			var state = mHosts.get(key);
+			if (Objects.isNull(state) || (state.inFlight <= 0)) {
+				return;
+			}
+
+			// 送信許可待ちがあれば、取り下げられていない先頭の要求に送信許可を与える
+			state.inFlight--;
+			while (!state.waiters.isEmpty() && (state.inFlight < mMaxConcurrency)) {
+				var waiter = state.waiters.poll();
+				if (!waiter.isDone()) {
+					Optional.ofNullable(grant(key, state, waiter)).ifPresent(completes::add);
+				}
+			}
+
+			// 実行中・送信許可待ちがなく、送信間隔の制限も過ぎたホストの状態は破棄する
+			if ((state.inFlight == 0) && state.waiters.isEmpty() && (System.nanoTime() - state.nextStart >= 0)) {
+				mHosts.remove(key);
+			}
+		}
+
+		// 即座に送信許可を与えたフューチャーは、後続処理が排他中に実行されないよう排他の外で完了させる
+		completes.forEach(Runnable::run);
+	}
+
+	/**
+	 * 送信許可の付与
+	 * <p>送信開始の最小間隔に達していない場合は、最小間隔に達した時点で送信許可のフューチャーを完了させる。
+	 * フューチャーが完了する前にキャンセルされていた場合、付与した送信許可は返却する。</p>
+	 * @param key ホスト名
+	 * @param state ホストごとの送信許可の状態
+	 * @param permit 送信許可のフューチャー
+	 * @return 即座に送信許可を与える場合、フューチャーを完了させる処理。それ以外は null。
+	 */
+	private Runnable grant(String key, HostState state, CompletableFuture<Void> permit) {
+		var now = System.nanoTime();
+		var start = (now - state.nextStart >= 0) ? now : state.nextStart;
+		var delay = start - now;
+		state.inFlight++;
+		state.nextStart = start + mMinIntervalNanos;
+		Runnable complete = () -> {
+			if (!permit.complete(null)) {
+				release(key);
+			}
+		};
+		if (delay <= 0L) {
+			return complete;
+		} else {
+			CompletableFuture.runAsync(complete, CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS));
+			return null;
+		}
+	}
+}
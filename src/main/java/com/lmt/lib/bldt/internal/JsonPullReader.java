@@ -0,0 +1,556 @@
+package com.lmt.lib.bldt.internal;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * プル型のJSON読み込みクラス
+ *
+ * JSONテキストを先頭から1文字ずつ読み込み、配列の要素・オブジェクトのメンバーを呼び出し元の要求に応じて順に返す。
+ * JSON全体を文字列やDOM({@link JSONArray}, {@link JSONObject})として保持しないため、大きなJSONでも
+ * 少ないメモリで読み込める。読み飛ばす値は文字列を生成せずに構文のみを検査する。
+ * 受け入れる構文とエラーとなる条件は org.json の {@link org.json.JSONTokener} による解析と同一とする。
+ * 具体的には引用符なしの値・単一引用符の文字列・区切り文字 ';' などの寛容な構文を受け入れ、
+ * オブジェクトのキー重複はエラーとする。構文エラーは {@link JSONException} をスローする。
+ *
+ * <p>読み込みは以下の順で行う。</p>
+ * <pre>
+ * reader.beginArray();
+ * while (reader.hasNext()) {
+ *     if (reader.beginObject()) {
+ *         for (var name = reader.nextName(); name != null; name = reader.nextName()) {
+ *             reader.readValue() または reader.skipValue();
+ *         }
+ *     } else {
+ *         reader.skipValue();
+ *     }
+ * }</pre>
+ *
+ * @hidden
+ */
+public class JsonPullReader {
+	/** 読み込みバッファサイズ */
+	private static final int BUFFER_SIZE = 8192;
+	/** 引用符なしの値の終端となる文字 */
+	private static final String TOKEN_TERMINATORS = ",:]}/\\\"[{;=#";
+
+	/** 配列・オブジェクトの読み込み状態 */
+	private static class Frame {
+		/** 配列かどうか */
+		final boolean array;
+		/** 最初の要素・メンバーの前かどうか */
+		boolean first = true;
+		/** オブジェクトで読み込み済みのキー(配列の場合 null) */
+		final Set<String> names;
+
+		/**
+		 * コンストラクタ
+		 * @param array 配列かどうか
+		 */
+		Frame(boolean array) {
+			this.array = array;
+			this.names = array ? null : new HashSet<>();
+		}
+	}
+
+	/** 入力元 */
+	private Reader mReader;
+	/** 読み込みバッファ */
+	private char[] mBuffer = new char[BUFFER_SIZE];
+	/** 読み込みバッファ内の次に読み込む位置 */
+	private int mPosition = 0;
+	/** 読み込みバッファ内の有効な文字数 */
+	private int mLimit = 0;
+	/** 直前に読み込んだ文字 */
+	private char mPrevious = 0;
+	/** 直前に読み込んだ文字を再度読み込むかどうか */
+	private boolean mUsePrevious = false;
+	/** 1文字以上読み込んだかどうか */
+	private boolean mStarted = false;
+	/** 終端に達したかどうか */
+	private boolean mEof = false;
+	/** 文字列・引用符なしの値の生成に使用する作業領域 */
+	private StringBuilder mWork = new StringBuilder();
+	/** 読み込み中の配列・オブジェクト */
+	private ArrayDeque<Frame> mFrames = new ArrayDeque<>();
+
+	/**
+	 * コンストラクタ
+	 * @param reader 入力元
+	 */
+	public JsonPullReader(Reader reader) {
+		mReader = reader;
+	}
+
+	/**
+	 * 配列の読み込み開始
+	 * <p>当メソッドはJSONテキストの先頭で呼び出すこと。</p>
+	 * @throws IOException 入力元の読み込みでエラーが発生した
+	 * @throws JSONException 配列で始まっていない
+	 */
+	public void beginArray() throws IOException {
+		if (nextClean() != '[') {
+			throw syntaxError("A JSONArray text must start with '['");
+		}
+		mFrames.push(new Frame(true));
+	}
+
+	/**
+	 * 値を配列として読み込み開始
+	 * <p>値が配列でない場合は何も読み込まない。その場合は {@link #skipValue()} で値を読み飛ばすこと。
+	 * 配列の場合、以降は {@link #hasNext()} で要素の有無を判定しながら要素を読み込む。</p>
+	 * @return 値が配列の場合 true
+	 * @throws IOException 入力元の読み込みでエラーが発生した
+	 */
+	public boolean tryBeginArray() throws IOException {
+		if (nextClean() != '[') {
+			back();
+			return false;
+		}
+		mFrames.push(new Frame(true));
+		return true;
+	}
+
+	/**
+	 * 配列の次の要素の有無判定
+	 * <p>次の要素がない場合、配列の読み込みを終了する。</p>
+	 * @return 次の要素がある場合 true
+	 * @throws IOException 入力元の読み込みでエラーが発生した
+	 * @throws JSONException 構文エラー
+	 */
+	public boolean hasNext() throws IOException {
+		var frame = mFrames.peek();
+		if (frame.first) {
+			frame.first = false;
+			var c = nextClean();
+			if (c == 0) {
+				throw syntaxError("Expected a ',' or ']'");
+			} else if (c == ']') {
+				mFrames.pop();
+				return false;
+			}
+			back();
+			return true;
+		}
+		switch (nextClean()) {
+		case ',':
+			var c = nextClean();
+			if (c == 0) {
+				throw syntaxError("Expected a ',' or ']'");
+			} else if (c == ']') {
+				mFrames.pop();
+				return false;
+			}
+			back();
+			return true;
+		case ']':
+			mFrames.pop();
+			return false;
+		default:
+			throw syntaxError("Expected a ',' or ']'");
+		}
+	}
+
+	/**
+	 * 配列の要素、またはJSONテキスト先頭の値をオブジェクトとして読み込み開始
+	 * <p>要素がオブジェクトでない場合は何も読み込まない。その場合は {@link #skipValue()} で要素を読み飛ばすこと。</p>
+	 * @return 要素がオブジェクトの場合 true
+	 * @throws IOException 入力元の読み込みでエラーが発生した
+	 */
+	public boolean beginObject() throws IOException {
+		if (nextClean() != '{') {
+			back();
+			return false;
+		}
+		mFrames.push(new Frame(false));
+		return true;
+	}
+
+	/**
+	 * オブジェクトの次のメンバーのキー取得
+	 * <p>次のメンバーがない場合、オブジェクトの読み込みを終了する。キーを取得した後は、
+	 * {@link #readValue()} または {@link #skipValue()} でメンバーの値を読み込むこと。</p>
+	 * @return 次のメンバーのキー、次のメンバーがない場合 null
+	 * @throws IOException 入力元の読み込みでエラーが発生した
+	 * @throws JSONException 構文エラー、またはキーが重複している
+	 */
+	public String nextName() throws IOException {
+		var frame = mFrames.peek();
+		if (!frame.first && !nextSeparator()) {
+			mFrames.pop();
+			return null;
+		}
+		frame.first = false;
+		var key = nextKey();
+		if (Objects.isNull(key)) {
+			mFrames.pop();
+			return null;
+		}
+		if (!frame.names.add(key)) {
+			throw syntaxError("Duplicate key \"" + key + "\"");
+		}
+		return key;
+	}
+
+	/**
+	 * 値の読み込み
+	 * <p>値は org.json と同じ型(String, Number, Boolean, {@link JSONObject#NULL}, {@link JSONObject},
+	 * {@link JSONArray})で返す。</p>
+	 * @return 値
+	 * @throws IOException 入力元の読み込みでエラーが発生した
+	 * @throws JSONException 構文エラー
+	 */
+	public Object readValue() throws IOException {
+		return element(true);
+	}
+
+	/**
+	 * 値の読み飛ばし
+	 * <p>値の構文のみを検査し、文字列やDOMは生成しない。</p>
+	 * @throws IOException 入力元の読み込みでエラーが発生した
+	 * @throws JSONException 構文エラー
+	 */
+	public void skipValue() throws IOException {
+		element(false);
+	}
+
+	/**
+	 * 読み込み中の配列の要素、またはオブジェクトのメンバーの値の読み込み
+	 * @param keep 値を生成するかどうか
+	 * @return 値、値を生成しない場合 null
+	 * @throws IOException 入力元の読み込みでエラーが発生した
+	 * @throws JSONException 構文エラー
+	 */
+	private Object element(boolean keep) throws IOException {
+		var frame = mFrames.peek();
+		if (Objects.nonNull(frame) && frame.array) {
+			// 配列で値が省略されている場合は null として扱う
+			var c = nextClean();
+			back();
+			if (c == ',') {
+				return keep ? JSONObject.NULL : null;
+			}
+		}
+		return value(keep);
+	}
+
+	/**
+	 * 値の読み込み
+	 * @param keep 値を生成するかどうか
+	 * @return 値、値を生成しない場合 null
+	 * @throws IOException 入力元の読み込みでエラーが発生した
+	 * @throws JSONException 構文エラー
+	 */
+	private Object value(boolean keep) throws IOException {
+		var c = nextClean();
+		switch (c) {
+		case '"':
+		case '\'':
+			return string(c, keep);
+		case '{':
+			back();
+			try {
+				return object(keep);
+			} catch (StackOverflowError e) {
+				throw new JSONException("JSON Array or Object depth too large to process.", e);
+			}
+		case '[':
+			back();
+			try {
+				return array(keep);
+			} catch (StackOverflowError e) {
+				throw new JSONException("JSON Array or Object depth too large to process.", e);
+			}
+		default:
+			break;
+		}
+
+		// 引用符なしの値は終端となる文字の直前までを値とする
+		// 値を生成しない場合も、前後の空白を除いて空になる値はエラーとする
+		var work = mWork;
+		var blank = true;
+		work.setLength(0);
+		while ((c >= ' ') && (TOKEN_TERMINATORS.indexOf(c) < 0)) {
+			blank = blank && (c == ' ');
+			if (keep) {
+				work.append(c);
+			}
+			c = next();
+		}
+		if (!mEof) {
+			back();
+		}
+		if (blank) {
+			throw syntaxError("Missing value");
+		}
+		return keep ? JSONObject.stringToValue(work.toString().trim()) : null;
+	}
+
+	/**
+	 * 文字列の読み込み
+	 * @param quote 文字列を囲む引用符
+	 * @param keep 文字列を生成するかどうか
+	 * @return 文字列、文字列を生成しない場合 null
+	 * @throws IOException 入力元の読み込みでエラーが発生した
+	 * @throws JSONException 構文エラー
+	 */
+	private String string(char quote, boolean keep) throws IOException {
+		var work = mWork;
+		work.setLength(0);
+		for (;;) {
+			var c = next();
+			switch (c) {
+			case 0:
+			case '\n':
+			case '\r':
+				throw syntaxError("Unterminated string");
+			case '\\':
+				c = next();
+				switch (c) {
+				case 'b':
+					c = '\b';
+					break;
+				case 't':
+					c = '\t';
+					break;
+				case 'n':
+					c = '\n';
+					break;
+				case 'f':
+					c = '\f';
+					break;
+				case 'r':
+					c = '\r';
+					break;
+				case 'u':
+					try {
+						c = (char)Integer.parseInt(next(4), 16);
+					} catch (NumberFormatException e) {
+						throw new JSONException("Illegal escape.", e);
+					}
+					break;
+				case '"':
+				case '\'':
+				case '\\':
+				case '/':
+					break;
+				default:
+					throw syntaxError("Illegal escape.");
+				}
+				if (keep) {
+					work.append(c);
+				}
+				break;
+			default:
+				if (c == quote) {
+					return keep ? work.toString() : null;
+				}
+				if (keep) {
+					work.append(c);
+				}
+				break;
+			}
+		}
+	}
+
+	/**
+	 * オブジェクトの読み込み
+	 * @param keep オブジェクトを生成するかどうか
+	 * @return オブジェクト、オブジェクトを生成しない場合 null
+	 * @throws IOException 入力元の読み込みでエラーが発生した
+	 * @throws JSONException 構文エラー、またはキーが重複している
+	 */
+	private JSONObject object(boolean keep) throws IOException {
+		if (nextClean() != '{') {
+			throw syntaxError("A JSONObject text must begin with '{'");
+		}
+		var object = keep ? new JSONObject() : null;
+		var names = new HashSet<String>();
+		for (var first = true; first || nextSeparator(); first = false) {
+			var key = nextKey();
+			if (Objects.isNull(key)) {
+				break;
+			}
+			if (!names.add(key)) {
+				throw syntaxError("Duplicate key \"" + key + "\"");
+			}
+			var value = value(keep);
+			if (keep) {
+				object.put(key, value);
+			}
+		}
+		return object;
+	}
+
+	/**
+	 * 配列の読み込み
+	 * @param keep 配列を生成するかどうか
+	 * @return 配列、配列を生成しない場合 null
+	 * @throws IOException 入力元の読み込みでエラーが発生した
+	 * @throws JSONException 構文エラー
+	 */
+	private JSONArray array(boolean keep) throws IOException {
+		var array = keep ? new JSONArray() : null;
+		beginArray();
+		while (hasNext()) {
+			var value = element(keep);
+			if (keep) {
+				array.put(value);
+			}
+		}
+		return array;
+	}
+
+	/**
+	 * オブジェクトのキーとその後の ':' の読み込み
+	 * @return キー、オブジェクトの終端に達した場合 null
+	 * @throws IOException 入力元の読み込みでエラーが発生した
+	 * @throws JSONException 構文エラー
+	 */
+	private String nextKey() throws IOException {
+		var prev = mPrevious;
+		var c = nextClean();
+		switch (c) {
+		case 0:
+			throw syntaxError("A JSONObject text must end with '}'");
+		case '}':
+			return null;
+		case '{':
+		case '[':
+			if (prev == '{') {
+				throw syntaxError("A JSON Object can not directly nest another JSON Object or JSON Array.");
+			}
+			back();
+			break;
+		default:
+			back();
+			break;
+		}
+		var key = value(true).toString();
+		if (nextClean() != ':') {
+			throw syntaxError("Expected a ':' after a key");
+		}
+		return key;
+	}
+
+	/**
+	 * オブジェクトのメンバーの区切りの読み込み
+	 * @return 次のメンバーがある場合 true、オブジェクトの終端に達した場合 false
+	 * @throws IOException 入力元の読み込みでエラーが発生した
+	 * @throws JSONException 構文エラー
+	 */
+	private boolean nextSeparator() throws IOException {
+		switch (nextClean()) {
+		case ';':
+		case ',':
+			if (nextClean() == '}') {
+				return false;
+			}
+			back();
+			return true;
+		case '}':
+			return false;
+		default:
+			throw syntaxError("Expected a ',' or '}'");
+		}
+	}
+
+	/**
+	 * 1文字読み込み
+	 * <p>終端に達した場合、または文字コード0を読み込んだ場合は0を返し、終端に達したものとして扱う。</p>
+	 * @return 読み込んだ文字
+	 * @throws IOException 入力元の読み込みでエラーが発生した
+	 */
+	private char next() throws IOException {
+		if (mUsePrevious) {
+			mUsePrevious = false;
+		} else {
+			if (mPosition >= mLimit) {
+				mLimit = mReader.read(mBuffer, 0, mBuffer.length);
+				mPosition = 0;
+				if (mLimit <= 0) {
+					mLimit = 0;
+					mEof = true;
+					return 0;
+				}
+			}
+			var c = mBuffer[mPosition++];
+			if (c == 0) {
+				mEof = true;
+				return 0;
+			}
+			mPrevious = c;
+			mStarted = true;
+		}
+		return mPrevious;
+	}
+
+	/**
+	 * 指定文字数の読み込み
+	 * @param n 文字数
+	 * @return 読み込んだ文字列
+	 * @throws IOException 入力元の読み込みでエラーが発生した
+	 * @throws JSONException 指定文字数を読み込む前に終端に達した
+	 */
+	private String next(int n) throws IOException {
+		var chars = new char[n];
+		for (var i = 0; i < n; i++) {
+			chars[i] = next();
+			if (end()) {
+				throw syntaxError("Substring bounds error");
+			}
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * 空白以外の1文字読み込み
+	 * @return 読み込んだ文字、終端に達した場合は0
+	 * @throws IOException 入力元の読み込みでエラーが発生した
+	 */
+	private char nextClean() throws IOException {
+		for (;;) {
+			var c = next();
+			if ((c == 0) || (c > ' ')) {
+				return c;
+			}
+		}
+	}
+
+	/**
+	 * 直前に読み込んだ文字を戻す
+	 * @throws JSONException 2文字以上戻そうとした
+	 */
+	private void back() {
+		if (mUsePrevious || !mStarted) {
+			throw new JSONException("Stepping back two steps is not supported");
+		}
+		mUsePrevious = true;
+		mEof = false;
+	}
+
+	/**
+	 * 終端に達したかどうか
+	 * @return 終端に達し、戻した文字もない場合 true
+	 */
+	private boolean end() {
+		return mEof && !mUsePrevious;
+	}
+
+	/**
+	 * 構文エラーの例外生成
+	 * @param message エラーメッセージ
+	 * @return 構文エラーの例外
+	 */
+	private static JSONException syntaxError(String message) {
+		return new JSONException(message);
+	}
+}
@@ -11,6 +11,7 @@ import java.nio.file.StandardOpenOption;
  *
  * プロセス間で排他制御を行うにあたり、ファイルロックの仕組みを利用する。
  * 当クラスは1クラスあたり1ファイルのロックを表す。
+ * 非同期更新ではロックしたスレッドとは別のスレッドでロックを解除するため、各操作は同期して行う。
  *
  * @hidden
  */
@@ -34,7 +35,7 @@ public class LockFile {
 	 * ファイルロックを実施
 	 * @return ファイルロックに成功するとtrue、失敗時はfalse。
 	 */
-	public boolean lock() {
+	public synchronized boolean lock() {
 		// ロック済みの場合はロック不可
 		if (isLocked()) {
 			return false;
@@ -79,7 +80,7 @@ public class LockFile {
 	 * ファイルロックを解除
 	 * @return ロック解除に成功するとtrue、失敗時はfalse。
 	 */
-	public boolean unlock() {
+	public synchronized boolean unlock() {
 		// ロック済みの場合はアンロック不可
 		if (!isLocked()) {
 			return false;
@@ -110,7 +111,7 @@ public class LockFile {
 	 * ファイルがロック中かどうかを判定
 	 * @return ファイルがロック中の場合true
 	 */
-	public boolean isLocked() {
+	public synchronized boolean isLocked() {
 		return (mFileLock != null);
 	}
 
@@ -118,7 +119,7 @@ public class LockFile {
 	 * ファイルがロック可能であるかどうかを判定
 	 * @return ファイルがロック可能であればtrue
 	 */
-	public boolean test() {
+	public synchronized boolean test() {
 		// ロックしてみてその結果を返す
 		boolean lockable = lock();
 		if (lockable) { unlock(); }
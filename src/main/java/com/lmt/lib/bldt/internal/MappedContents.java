@@ -0,0 +1,449 @@
+package com.lmt.lib.bldt.internal;
+
+import static com.lmt.lib.bldt.internal.SnapshotFile.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * メモリマップしたスナップショットの楽曲情報リスト
+ *
+ * スナップショットファイルをマップしたバッファを直接参照し、楽曲情報をヒープに展開せずに各項目の値を返す。
+ * 楽曲情報の数に関わらず、当クラスのヒープ使用量はバッファ上の各セクションの位置のみで一定となる。
+ * タイトル・アーティスト、MD5、SHA-256による検索はスナップショットに記録された索引で行い、
+ * 検索中にオブジェクトを生成しない。文字列はバッファからの取得時にデコードする。
+ * バッファへのアクセスは全て位置を指定した読み込みで行うため、当クラスはスレッドセーフである。
+ *
+ * @hidden
+ */
+public class MappedContents {
+	/** タイトルのレコード内位置 */
+	private static final int TITLE = 0;
+	/** アーティストのレコード内位置 */
+	private static final int ARTIST = 4;
+	/** フラグのレコード内位置 */
+	private static final int FLAGS = 8;
+	/** 難易度インデックスのレコード内位置 */
+	private static final int LEVEL = 9;
+	/** MD5のレコード内位置 */
+	private static final int MD5 = LEVEL + 4;
+	/** SHA-256のレコード内位置 */
+	private static final int SHA256 = MD5 + MD5_SIZE;
+	/** 楽曲本体入手先URLのレコード内位置 */
+	private static final int BODY_URL = SHA256 + SHA256_SIZE;
+	/** 差分譜面入手先URLのレコード内位置 */
+	private static final int ADDITIONAL_URL = BODY_URL + 4;
+
+	/** スナップショットファイルをマップしたバッファ */
+	private final ByteBuffer mBuf;
+	/** 楽曲情報の数 */
+	private final int mCount;
+	/** 先頭レコードの位置 */
+	private final int mRecords;
+	/** 文字列の数 */
+	private final int mNumStrings;
+	/** 文字列位置表の位置 */
+	private final int mStringOffsets;
+	/** タイトル・アーティスト索引の先頭スロットの位置 */
+	private final int mMetaIndex;
+	/** タイトル・アーティスト索引のスロット数-1 */
+	private final int mMetaMask;
+	/** MD5索引の先頭スロットの位置 */
+	private final int mMd5Index;
+	/** MD5索引のスロット数-1 */
+	private final int mMd5Mask;
+	/** SHA-256索引の先頭スロットの位置 */
+	private final int mSha256Index;
+	/** SHA-256索引のスロット数-1 */
+	private final int mSha256Mask;
+
+	/**
+	 * コンストラクタ
+	 * @param buf スナップショットファイルをマップしたバッファ
+	 * @param count 楽曲情報の数
+	 * @param records 先頭レコードの位置
+	 * @param numStrings 文字列の数
+	 * @param stringOffsets 文字列位置表の位置
+	 * @param metaIndex タイトル・アーティスト索引の位置
+	 * @param md5Index MD5索引の位置
+	 * @param sha256Index SHA-256索引の位置
+	 */
+	private MappedContents(ByteBuffer buf, int count, int records, int numStrings, int stringOffsets,
+			int metaIndex, int md5Index, int sha256Index) {
+		mBuf = buf;
+		mCount = count;
+		mRecords = records;
+		mNumStrings = numStrings;
+		mStringOffsets = stringOffsets;
+		mMetaIndex = metaIndex + 4;
+		mMetaMask = buf.getInt(metaIndex) - 1;
+		mMd5Index = md5Index + 4;
+		mMd5Mask = buf.getInt(md5Index) - 1;
+		mSha256Index = sha256Index + 4;
+		mSha256Mask = buf.getInt(sha256Index) - 1;
+	}
+
+	/**
+	 * メモリマップした楽曲情報リストの生成
+	 * <p>データ部先頭のセクション位置、文字列位置表、索引、レコードの文字列テーブルのインデックス値が
+	 * データ部の範囲内に収まることを検証する。以降の参照では範囲の検証を行わない。</p>
+	 * @param buf ヘッダ部とチェックサムを検証済みのバッファ
+	 * @param end データ部の終端位置
+	 * @return メモリマップした楽曲情報リスト。データ部が破損している場合は null。
+	 */
+	static MappedContents of(ByteBuffer buf, int end) {
+		// 各セクションの位置を検証する
+		var dir = HEADER_SIZE;
+		var recordsOffset = buf.getInt(dir + 4);
+		var stringOffsets = buf.getInt(dir + 8);
+		var metaIndex = buf.getInt(dir + 12);
+		var md5Index = buf.getInt(dir + 16);
+		var sha256Index = buf.getInt(dir + 20);
+		var numStrings = buf.getInt(HEADER_SIZE + DIRECTORY_SIZE);
+		if (!within(recordsOffset, 4, end) || !within(stringOffsets, numStrings * 4L, end) || (numStrings < 0)) {
+			return null;
+		}
+		var count = buf.getInt(recordsOffset);
+		if ((count < 0) || !within(recordsOffset + 4, (long)count * RECORD_SIZE, end)) {
+			return null;
+		}
+		for (var index : new int[] { metaIndex, md5Index, sha256Index }) {
+			if (!isIndexValid(buf, index, count, end)) {
+				return null;
+			}
+		}
+
+		// 文字列の位置と、レコードが参照する文字列テーブルのインデックス値を検証する
+		for (var i = 0; i < numStrings; i++) {
+			var offset = buf.getInt(stringOffsets + i * 4);
+			if (!within(offset, 4, end) || !within(offset + 4L, buf.getInt(offset), end)) {
+				return null;
+			}
+		}
+		var records = recordsOffset + 4;
+		for (var i = 0; i < count; i++) {
+			var record = records + i * RECORD_SIZE;
+			for (var field : new int[] { TITLE, ARTIST, BODY_URL, ADDITIONAL_URL }) {
+				var stringIndex = buf.getInt(record + field);
+				var nullable = (field == BODY_URL) || (field == ADDITIONAL_URL);
+				if ((stringIndex >= numStrings) || (stringIndex < (nullable ? NO_STRING : 0))) {
+					return null;
+				}
+			}
+		}
+		return new MappedContents(buf, count, records, numStrings, stringOffsets, metaIndex, md5Index, sha256Index);
+	}
+
+	/**
+	 * 楽曲情報の数取得
+	 * @return 楽曲情報の数
+	 */
+	public int count() {
+		return mCount;
+	}
+
+	/**
+	 * DPモード判定
+	 * @param index インデックス値
+	 * @return DPモードの楽曲情報であれば true
+	 */
+	public boolean isDp(int index) {
+		return (flags(index) & FLAG_DP) != 0;
+	}
+
+	/**
+	 * MD5の有無判定
+	 * @param index インデックス値
+	 * @return MD5を持つ楽曲情報であれば true
+	 */
+	public boolean hasMd5(int index) {
+		return (flags(index) & FLAG_MD5) != 0;
+	}
+
+	/**
+	 * SHA-256の有無判定
+	 * @param index インデックス値
+	 * @return SHA-256を持つ楽曲情報であれば true
+	 */
+	public boolean hasSha256(int index) {
+		return (flags(index) & FLAG_SHA256) != 0;
+	}
+
+	/**
+	 * 難易度インデックス取得
+	 * @param index インデックス値
+	 * @return 難易度インデックス
+	 */
+	public int levelIndex(int index) {
+		return mBuf.getInt(record(index) + LEVEL);
+	}
+
+	/**
+	 * タイトルが空文字列かどうか判定
+	 * @param index インデックス値
+	 * @return タイトルが空文字列であれば true
+	 */
+	public boolean isTitleEmpty(int index) {
+		return mBuf.getInt(stringOffset(mBuf.getInt(record(index) + TITLE))) == 0;
+	}
+
+	/**
+	 * タイトル取得
+	 * @param index インデックス値
+	 * @return タイトル
+	 */
+	public String title(int index) {
+		return string(mBuf.getInt(record(index) + TITLE));
+	}
+
+	/**
+	 * アーティスト取得
+	 * @param index インデックス値
+	 * @return アーティスト
+	 */
+	public String artist(int index) {
+		return string(mBuf.getInt(record(index) + ARTIST));
+	}
+
+	/**
+	 * 楽曲本体入手先URLの文字列表現取得
+	 * @param index インデックス値
+	 * @return 楽曲本体入手先URLの文字列表現、または null
+	 */
+	public String bodyUrl(int index) {
+		return string(mBuf.getInt(record(index) + BODY_URL));
+	}
+
+	/**
+	 * 差分譜面入手先URLの文字列表現取得
+	 * @param index インデックス値
+	 * @return 差分譜面入手先URLの文字列表現、または null
+	 */
+	public String additionalUrl(int index) {
+		return string(mBuf.getInt(record(index) + ADDITIONAL_URL));
+	}
+
+	/**
+	 * MD5のlong値配列へのコピー
+	 * @param index インデックス値
+	 * @param dest コピー先配列
+	 * @param offset コピー先配列の開始位置(ここから2要素をコピーする)
+	 */
+	public void copyMd5(int index, long[] dest, int offset) {
+		var pos = record(index) + MD5;
+		dest[offset] = mBuf.getLong(pos);
+		dest[offset + 1] = mBuf.getLong(pos + 8);
+	}
+
+	/**
+	 * SHA-256のlong値配列へのコピー
+	 * @param index インデックス値
+	 * @param dest コピー先配列
+	 * @param offset コピー先配列の開始位置(ここから4要素をコピーする)
+	 */
+	public void copySha256(int index, long[] dest, int offset) {
+		var pos = record(index) + SHA256;
+		for (var i = 0; i < 4; i++) {
+			dest[offset + i] = mBuf.getLong(pos + i * 8);
+		}
+	}
+
+	/**
+	 * 文字列テーブルからの文字列取得
+	 * @param stringIndex 文字列テーブルのインデックス値
+	 * @return 文字列。stringIndex が {@link SnapshotFile#NO_STRING} の場合は null。
+	 * @throws IndexOutOfBoundsException stringIndex が文字列テーブルの範囲外
+	 */
+	public String string(int stringIndex) {
+		if (stringIndex == NO_STRING) {
+			return null;
+		}
+		var offset = stringOffset(stringIndex);
+		var bytes = new byte[mBuf.getInt(offset)];
+		mBuf.duplicate().position(offset + 4).get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * MD5による楽曲情報の検索
+	 * @param hi MD5(上位64ビット)
+	 * @param lo MD5(下位64ビット)
+	 * @return 楽曲情報のインデックス値。該当なしの場合は -1。
+	 */
+	public int indexOfMd5(long hi, long lo) {
+		var mask = mMd5Mask;
+		for (var slot = OpenHashIndex.firstSlot(OpenHashIndex.hashMd5(hi, lo), mask); ;
+				slot = OpenHashIndex.nextSlot(slot, mask)) {
+			var entry = mBuf.getInt(mMd5Index + slot * 4);
+			if (entry == 0) {
+				return -1;
+			}
+			var pos = record(entry - 1) + MD5;
+			if ((mBuf.getLong(pos) == hi) && (mBuf.getLong(pos + 8) == lo)) {
+				return entry - 1;
+			}
+		}
+	}
+
+	/**
+	 * SHA-256による楽曲情報の検索
+	 * @param a SHA-256(先頭64ビット)
+	 * @param b SHA-256(65～128ビット目)
+	 * @param c SHA-256(129～192ビット目)
+	 * @param d SHA-256(末尾64ビット)
+	 * @return 楽曲情報のインデックス値。該当なしの場合は -1。
+	 */
+	public int indexOfSha256(long a, long b, long c, long d) {
+		var mask = mSha256Mask;
+		for (var slot = OpenHashIndex.firstSlot(OpenHashIndex.hashSha256(a, b, c, d), mask); ;
+				slot = OpenHashIndex.nextSlot(slot, mask)) {
+			var entry = mBuf.getInt(mSha256Index + slot * 4);
+			if (entry == 0) {
+				return -1;
+			}
+			var pos = record(entry - 1) + SHA256;
+			if ((mBuf.getLong(pos) == a) && (mBuf.getLong(pos + 8) == b) &&
+					(mBuf.getLong(pos + 16) == c) && (mBuf.getLong(pos + 24) == d)) {
+				return entry - 1;
+			}
+		}
+	}
+
+	/**
+	 * タイトル・アーティストによる楽曲情報の検索
+	 * <p>バッファ上のUTF-8のバイト列と指定文字列を直接比較するため、文字列のデコードは行わない。</p>
+	 * @param title タイトル
+	 * @param artist アーティスト
+	 * @param dp DPモードの楽曲情報を検索する場合 true
+	 * @return 楽曲情報のインデックス値。該当なしの場合は -1。
+	 */
+	public int indexOfMeta(String title, String artist, boolean dp) {
+		var mask = mMetaMask;
+		for (var slot = OpenHashIndex.firstSlot(OpenHashIndex.hashMeta(title, artist, dp), mask); ;
+				slot = OpenHashIndex.nextSlot(slot, mask)) {
+			var entry = mBuf.getInt(mMetaIndex + slot * 4);
+			if (entry == 0) {
+				return -1;
+			}
+			var record = record(entry - 1);
+			if ((isDp(entry - 1) == dp) &&
+					equalsUtf8(mBuf.getInt(record + TITLE), title) &&
+					equalsUtf8(mBuf.getInt(record + ARTIST), artist)) {
+				return entry - 1;
+			}
+		}
+	}
+
+	/**
+	 * 文字列テーブルの文字列と指定文字列の比較
+	 * <p>指定文字列をUTF-8に変換しながら、バッファ上のバイト列と1バイトずつ比較する。対になっていない
+	 * サロゲート文字は {@link String#getBytes(java.nio.charset.Charset)} と同様に '?' として扱う。</p>
+	 * @param stringIndex 文字列テーブルのインデックス値
+	 * @param s 比較する文字列
+	 * @return 一致する場合 true
+	 */
+	private boolean equalsUtf8(int stringIndex, String s) {
+		var offset = stringOffset(stringIndex);
+		var pos = offset + 4;
+		var end = pos + mBuf.getInt(offset);
+		var length = s.length();
+		for (var i = 0; i < length; i++) {
+			int cp = s.charAt(i);
+			if (Character.isHighSurrogate((char)cp) && (i + 1 < length) && Character.isLowSurrogate(s.charAt(i + 1))) {
+				cp = Character.toCodePoint((char)cp, s.charAt(++i));
+			} else if (Character.isSurrogate((char)cp)) {
+				cp = '?';
+			}
+			if (cp < 0x80) {
+				if ((pos >= end) || (mBuf.get(pos++) != (byte)cp)) {
+					return false;
+				}
+				continue;
+			}
+			var numBytes = (cp < 0x800) ? 2 : (cp < 0x10000) ? 3 : 4;
+			if (end - pos < numBytes) {
+				return false;
+			}
+			var lead = (numBytes == 2) ? 0xc0 : (numBytes == 3) ? 0xe0 : 0xf0;
+			if (mBuf.get(pos++) != (byte)(lead | (cp >> (6 * (numBytes - 1))))) {
+				return false;
+			}
+			for (var shift = 6 * (numBytes - 2); shift >= 0; shift -= 6) {
+				if (mBuf.get(pos++) != (byte)(0x80 | ((cp >> shift) & 0x3f))) {
+					return false;
+				}
+			}
+		}
+		return pos == end;
+	}
+
+	/**
+	 * レコードの位置取得
+	 * @param index インデックス値
+	 * @return レコードの位置
+	 */
+	private int record(int index) {
+		return mRecords + index * RECORD_SIZE;
+	}
+
+	/**
+	 * フラグ取得
+	 * @param index インデックス値
+	 * @return フラグ
+	 */
+	private int flags(int index) {
+		return mBuf.get(record(index) + FLAGS);
+	}
+
+	/**
+	 * 文字列の位置取得
+	 * @param stringIndex 文字列テーブルのインデックス値
+	 * @return 文字列(長さ)の位置
+	 * @throws IndexOutOfBoundsException stringIndex が文字列テーブルの範囲外
+	 */
+	private int stringOffset(int stringIndex) {
+		if ((stringIndex < 0) || (stringIndex >= mNumStrings)) {
+			throw new IndexOutOfBoundsException(stringIndex);
+		}
+		return mBuf.getInt(mStringOffsets + stringIndex * 4);
+	}
+
+	/**
+	 * 索引の検証
+	 * @param buf バッファ
+	 * @param index 索引の位置
+	 * @param count 楽曲情報の数
+	 * @param end データ部の終端位置
+	 * @return 索引が正しければ true
+	 */
+	private static boolean isIndexValid(ByteBuffer buf, int index, int count, int end) {
+		// 検索が必ず終了するよう、空きスロットがあることも確認する
+		if (!within(index, 4, end)) {
+			return false;
+		}
+		var capacity = buf.getInt(index);
+		if ((capacity <= 0) || (Integer.bitCount(capacity) != 1) || !within(index + 4L, capacity * 4L, end)) {
+			return false;
+		}
+		var empty = false;
+		for (var i = 0; i < capacity; i++) {
+			var entry = buf.getInt(index + 4 + i * 4);
+			if ((entry < 0) || (entry > count)) {
+				return false;
+			}
+			empty |= (entry == 0);
+		}
+		return empty;
+	}
+
+	/**
+	 * 範囲がデータ部に収まるかどうか判定
+	 * @param offset 開始位置
+	 * @param size サイズ
+	 * @param end データ部の終端位置
+	 * @return データ部に収まる場合 true
+	 */
+	private static boolean within(long offset, long size, int end) {
+		return (offset >= HEADER_SIZE + DIRECTORY_SIZE) && (size >= 0) && (offset + size <= end);
+	}
+}
@@ -0,0 +1,136 @@
+package com.lmt.lib.bldt.internal;
+
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * オープンアドレス法による楽曲情報の索引
+ *
+ * 索引は線形探索のハッシュテーブルで、int値の配列の各スロットに楽曲情報のインデックス値+1を格納する。
+ * 0は空きスロットを表す。キーは楽曲情報側の配列やバッファに置いたまま索引には格納しないため、
+ * 検索側は索引から取り出したインデックス値でキーを比較する。スロット数は2の累乗で、キーの数の2倍以上とするため
+ * 必ず空きスロットが残り、検索は該当なしでも終了する。
+ * MD5・SHA-256はlong値に変換した値からハッシュ値を計算する。ヒープ上の索引とスナップショットに記録する索引で
+ * 同じハッシュ値を使用する。
+ *
+ * @hidden
+ */
+public class OpenHashIndex {
+	/**
+	 * 索引構築時のキー比較関数
+	 */
+	@FunctionalInterface
+	public interface KeyEquality {
+		/**
+		 * キーの比較
+		 * @param i 楽曲情報のインデックス値
+		 * @param j 楽曲情報のインデックス値
+		 * @return 2個の楽曲情報のキーが等しい場合 true
+		 */
+		boolean test(int i, int j);
+	}
+
+	/**
+	 * 索引の構築
+	 * <p>同じキーの楽曲情報が複数ある場合は、後の楽曲情報を優先する。</p>
+	 * @param count 楽曲情報の数
+	 * @param exists 楽曲情報がキーを持つかどうかの判定関数
+	 * @param hashOf 楽曲情報のキーのハッシュ値計算関数
+	 * @param sameKey 2個の楽曲情報のキーが等しいかどうかの判定関数
+	 * @return 索引のスロット
+	 */
+	public static int[] build(int count, IntPredicate exists, IntUnaryOperator hashOf, KeyEquality sameKey) {
+		var numKeys = 0;
+		for (var i = 0; i < count; i++) {
+			numKeys += exists.test(i) ? 1 : 0;
+		}
+		var capacity = capacity(numKeys);
+		var mask = capacity - 1;
+		var slots = new int[capacity];
+		for (var i = 0; i < count; i++) {
+			if (!exists.test(i)) {
+				continue;
+			}
+			for (var slot = spread(hashOf.applyAsInt(i)) & mask; ; slot = (slot + 1) & mask) {
+				var entry = slots[slot];
+				if ((entry == 0) || sameKey.test(entry - 1, i)) {
+					slots[slot] = i + 1;
+					break;
+				}
+			}
+		}
+		return slots;
+	}
+
+	/**
+	 * スロット数の計算
+	 * @param numKeys キーの数
+	 * @return キーの数の2倍以上の2の累乗
+	 */
+	public static int capacity(int numKeys) {
+		return (numKeys == 0) ? 1 : Integer.highestOneBit(numKeys * 2 - 1) << 1;
+	}
+
+	/**
+	 * タイトル・アーティスト・プレースタイルのハッシュ値計算
+	 * @param title タイトル
+	 * @param artist アーティスト
+	 * @param dp DPモードかどうか
+	 * @return ハッシュ値
+	 */
+	public static int hashMeta(String title, String artist, boolean dp) {
+		return (title.hashCode() * 31 + artist.hashCode()) * 31 + (dp ? 1 : 0);
+	}
+
+	/**
+	 * MD5のハッシュ値計算
+	 * @param hi MD5(上位64ビット)
+	 * @param lo MD5(下位64ビット)
+	 * @return ハッシュ値
+	 */
+	public static int hashMd5(long hi, long lo) {
+		return Long.hashCode(hi * 31 + lo);
+	}
+
+	/**
+	 * SHA-256のハッシュ値計算
+	 * @param a SHA-256(先頭64ビット)
+	 * @param b SHA-256(65～128ビット目)
+	 * @param c SHA-256(129～192ビット目)
+	 * @param d SHA-256(末尾64ビット)
+	 * @return ハッシュ値
+	 */
+	public static int hashSha256(long a, long b, long c, long d) {
+		return Long.hashCode(((a * 31 + b) * 31 + c) * 31 + d);
+	}
+
+	/**
+	 * 先頭スロットの位置計算
+	 * @param hash キーのハッシュ値
+	 * @param mask スロット数-1
+	 * @return 先頭スロットの位置
+	 */
+	public static int firstSlot(int hash, int mask) {
+		return spread(hash) & mask;
+	}
+
+	/**
+	 * 次のスロットの位置計算
+	 * @param slot スロットの位置
+	 * @param mask スロット数-1
+	 * @return 次のスロットの位置
+	 */
+	public static int nextSlot(int slot, int mask) {
+		return (slot + 1) & mask;
+	}
+
+	/**
+	 * ハッシュ値の拡散
+	 * <p>スロットの位置はハッシュ値の下位ビットで決まるため、上位ビットを下位ビットに混ぜる。</p>
+	 * @param hash ハッシュ値
+	 * @return 拡散したハッシュ値
+	 */
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -0,0 +1,246 @@
+package com.lmt.lib.bldt.internal;
+
+import static com.lmt.lib.bldt.DifficultyTables.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+import com.lmt.lib.bldt.DifficultyTables;
+
+/**
+ * 楽曲情報の要素の並列変換
+ *
+ * パーサが元データから読み込んだ楽曲情報の要素を変換し、読み込んだ順番で出力先へ渡す。
+ * 要素数が閾値以下の間は、要素を受け取ったスレッドで1件ずつ変換して即座に出力先へ渡す。
+ * 閾値を超えた要素は閾値と同じ件数ずつまとめ、ForkJoinPool で範囲を分割して並列に変換した後、元の順番で出力先へ渡す。
+ * 並列に変換する際、変換処理が出力したデバッグログと変換処理でスローされた例外は要素ごとに保持しておき、
+ * 出力先へ渡す時点で元の順番で出力・スローする。これにより、デバッグログの順番やスローされる例外は
+ * 1件ずつ変換した場合と同じになる。
+ *
+ * @param <T> 要素の型
+ * @param <R> 変換結果の型
+ * @hidden
+ */
+public class ParallelConverter<T, R> {
+	/** 並列変換を開始する要素数の既定の閾値 */
+	public static final int DEFAULT_THRESHOLD = 4096;
+	/** ForkJoinPool の並列度に対する範囲の分割数の倍率 */
+	private static final int SPLIT_FACTOR = 4;
+	/** 即座にデバッグログを出力する出力先 */
+	private static final Logger DIRECT_LOGGER = DifficultyTables::printLog;
+
+	/**
+	 * デバッグログの出力先
+	 */
+	@FunctionalInterface
+	public interface Logger {
+		/**
+		 * デバッグログ出力
+		 * @param format メッセージの書式
+		 * @param args メッセージの引数リスト
+		 */
+		void printLog(String format, Object...args);
+	}
+
+	/**
+	 * 要素の変換処理
+	 * <p>変換処理は複数のスレッドから同時に呼び出される可能性がある。</p>
+	 * @param <T> 要素の型
+	 * @param <R> 変換結果の型
+	 */
+	@FunctionalInterface
+	public interface Conversion<T, R> {
+		/**
+		 * 要素の変換
+		 * @param index 要素のインデックス
+		 * @param element 要素
+		 * @param logger デバッグログの出力先
+		 * @return 変換結果、出力先へ渡さない場合は null
+		 */
+		R convert(int index, T element, Logger logger);
+	}
+
+	/**
+	 * 並列に変換した要素の変換結果
+	 * @param <R> 変換結果の型
+	 */
+	private static class Slot<R> implements Logger {
+		/** 変換結果 */
+		R result;
+		/** 変換処理が出力したデバッグログの書式と引数リスト */
+		List<Object[]> logs;
+		/** 変換処理でスローされた例外 */
+		RuntimeException error;
+
+		/** {@inheritDoc} */
+		@Override
+		public void printLog(String format, Object...args) {
+			// 書式の解決はデバッグログを出力する時点で行う
+			if (Objects.isNull(logs)) {
+				logs = new ArrayList<>();
+			}
+			logs.add(new Object[] { format, args });
+		}
+	}
+
+	/**
+	 * 範囲を分割して要素を変換するタスク
+	 */
+	private class ConvertAction extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		/** 変換結果の格納先 */
+		private Slot<R>[] mSlots;
+		/** 変換対象範囲の開始位置 */
+		private int mStart;
+		/** 変換対象範囲の終了位置(この位置を含まない) */
+		private int mEnd;
+		/** 分割しない範囲の最大要素数 */
+		private int mLeafSize;
+
+		/**
+		 * コンストラクタ
+		 * @param slots 変換結果の格納先
+		 * @param start 変換対象範囲の開始位置
+		 * @param end 変換対象範囲の終了位置(この位置を含まない)
+		 * @param leafSize 分割しない範囲の最大要素数
+		 */
+		ConvertAction(Slot<R>[] slots, int start, int end, int leafSize) {
+			mSlots = slots;
+			mStart = start;
+			mEnd = end;
+			mLeafSize = leafSize;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		protected void compute() {
+			if ((mEnd - mStart) > mLeafSize) {
+				var mid = (mStart + mEnd) >>> 1;
+				invokeAll(new ConvertAction(mSlots, mStart, mid, mLeafSize),
+						new ConvertAction(mSlots, mid, mEnd, mLeafSize));
+				return;
+			}
+			for (var i = mStart; i < mEnd; i++) {
+				var slot = new Slot<R>();
+				try {
+					slot.result = mConversion.convert(mPendingBase + i, mPending.get(i), slot);
+				} catch (RuntimeException e) {
+					slot.error = e;
+				}
+				mSlots[i] = slot;
+			}
+		}
+	}
+
+	/** 並列変換を開始する要素数の閾値 */
+	private int mThreshold;
+	/** 変換処理 */
+	private Conversion<T, R> mConversion;
+	/** 変換結果の出力先 */
+	private Consumer<R> mSink;
+	/** 受け取った要素数 */
+	private int mCount = 0;
+	/** 並列変換待ちの要素リスト */
+	private List<T> mPending = new ArrayList<>();
+	/** 並列変換待ちの先頭要素のインデックス */
+	private int mPendingBase = 0;
+
+	/**
+	 * コンストラクタ
+	 * @param threshold 並列変換を開始する要素数の閾値
+	 * @param conversion 変換処理
+	 * @param sink 変換結果の出力先
+	 */
+	public ParallelConverter(int threshold, Conversion<T, R> conversion, Consumer<R> sink) {
+		mThreshold = threshold;
+		mConversion = conversion;
+		mSink = sink;
+	}
+
+	/**
+	 * 受け取った要素数取得
+	 * @return 受け取った要素数
+	 */
+	public int getCount() {
+		return mCount;
+	}
+
+	/**
+	 * 要素の変換
+	 * <p>閾値以下の要素は即座に変換して出力先へ渡す。閾値を超えた要素は閾値と同じ件数に達するまで保持し、
+	 * 達した時点でまとめて並列に変換する。</p>
+	 * @param element 要素
+	 */
+	public void accept(T element) {
+		var index = mCount++;
+		if (index < mThreshold) {
+			// 閾値以下の要素は受け取ったスレッドで変換する
+			var result = mConversion.convert(index, element, DIRECT_LOGGER);
+			if (Objects.nonNull(result)) {
+				mSink.accept(result);
+			}
+			return;
+		}
+		if (mPending.isEmpty()) {
+			mPendingBase = index;
+		}
+		mPending.add(element);
+		if (mPending.size() >= mThreshold) {
+			flush();
+		}
+	}
+
+	/**
+	 * 変換の終了
+	 * <p>並列変換待ちの要素を全て変換し、出力先へ渡す。</p>
+	 */
+	public void finish() {
+		flush();
+	}
+
+	/**
+	 * 変換の中止
+	 * <p>並列変換待ちの要素を変換せずに破棄する。元データの読み込みでエラーが発生した場合に使用する。</p>
+	 */
+	public void discard() {
+		mPending.clear();
+	}
+
+	/**
+	 * 並列変換待ちの要素の変換
+	 */
+	@SuppressWarnings("unchecked")
+	private void flush() {
+		var count = mPending.size();
+		if (count == 0) {
+			return;
+		}
+
+		// 範囲を分割して並列に変換する
+		var slots = (Slot<R>[])new Slot<?>[count];
+		var leafSize = Math.max(1, count / (ForkJoinPool.getCommonPoolParallelism() * SPLIT_FACTOR));
+		try {
+			ForkJoinPool.commonPool().invoke(new ConvertAction(slots, 0, count, leafSize));
+		} finally {
+			mPending.clear();
+		}
+
+		// 変換結果を元の順番で出力先へ渡す
+		for (var slot : slots) {
+			if (Objects.nonNull(slot.logs)) {
+				slot.logs.forEach(log -> printLog((String)log[0], (Object[])log[1]));
+			}
+			if (Objects.nonNull(slot.error)) {
+				throw slot.error;
+			}
+			if (Objects.nonNull(slot.result)) {
+				mSink.accept(slot.result);
+			}
+		}
+	}
+}
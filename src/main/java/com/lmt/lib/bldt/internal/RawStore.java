@@ -0,0 +1,136 @@
+package com.lmt.lib.bldt.internal;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 楽曲情報元データの保存先
+ *
+ * ダウンロードした楽曲情報元データを、そのハッシュ値(SHA-256)をファイル名として保存する。
+ * 同じ内容のデータは1個のファイルとして共有される。保存したデータは、パーサを改良した際にネットワークに
+ * 接続せず楽曲情報を再解析するために使用する。
+ * 難易度表情報から参照されなくなったデータは {@link #prune(Set)} で削除する。保存直後で、まだ難易度表情報から
+ * 参照されていないデータが削除されないよう、{@link #put(String, byte[])} から {@link #release(Collection)} までの間の
+ * データは削除対象から除外する。
+ *
+ * @hidden
+ */
+public class RawStore {
+	/** 保存先ファイル名として有効なハッシュ値のパターン */
+	private static final Pattern HASH_PATTERN = Pattern.compile("^[0-9a-f]{64}$");
+
+	/** 保存先ディレクトリ */
+	private Path mDirectory;
+	/** 保存後、難易度表情報からの参照待ちのハッシュ値と保存数のマップ */
+	private Map<String, Integer> mPending = new HashMap<>();
+
+	/**
+	 * コンストラクタ
+	 * @param directory 保存先ディレクトリ
+	 */
+	public RawStore(Path directory) {
+		mDirectory = directory;
+	}
+
+	/**
+	 * 保存先ディレクトリ取得
+	 * @return 保存先ディレクトリ
+	 */
+	public Path getDirectory() {
+		return mDirectory;
+	}
+
+	/**
+	 * 楽曲情報元データの保存
+	 * <p>同じハッシュ値のデータが保存済みの場合は何もしない。保存したデータは {@link #release(Collection)}
+	 * を呼び出すまで削除対象から除外される。</p>
+	 * @param hash 楽曲情報元データのハッシュ値
+	 * @param data 楽曲情報元データ
+	 * @throws IOException 楽曲情報元データの書き込みでエラーが発生した
+	 */
+	public synchronized void put(String hash, byte[] data) throws IOException {
+		var key = hash.toLowerCase(Locale.ROOT);
+		mPending.merge(key, 1, Integer::sum);
+		var path = mDirectory.resolve(key);
+		if (Files.isRegularFile(path)) {
+			return;
+		}
+
+		// 書き込み途中のファイルが残らないよう、一時ファイルに書き込んでから置き換える
+		Files.createDirectories(mDirectory);
+		var tmpPath = mDirectory.resolve(String.format(".%s.tmp", key));
+		Files.write(tmpPath, data);
+		Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * 楽曲情報元データの読み込み
+	 * @param hash 楽曲情報元データのハッシュ値
+	 * @return 楽曲情報元データ、保存されていない場合は null
+	 * @throws IOException 楽曲情報元データの読み込みでエラーが発生した、またはデータが破損している
+	 */
+	public byte[] get(String hash) throws IOException {
+		var key = hash.toLowerCase(Locale.ROOT);
+		var data = (byte[])null;
+		try {
+			data = Files.readAllBytes(mDirectory.resolve(key));
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+
+		// 保存後にデータが破損していないことを確認する
+		try {
+			var digest = MessageDigest.getInstance("SHA-256");
+			var actual = Utility.byteArrayToString(digest.digest(data));
+			if (!actual.equalsIgnoreCase(key)) {
+				throw new IOException(String.format("%s: Broken raw content", mDirectory.resolve(key)));
+			}
+		} catch (NoSuchAlgorithmException e) {
+			// SHA-256が使用できない場合は確認しない
+		}
+		return data;
+	}
+
+	/**
+	 * 難易度表情報からの参照待ちの解除
+	 * @param hashes {@link #put(String, byte[])} で保存したデータのハッシュ値
+	 */
+	public synchronized void release(Collection<String> hashes) {
+		for (var hash : hashes) {
+			mPending.computeIfPresent(hash.toLowerCase(Locale.ROOT), (k, n) -> (n > 1) ? n - 1 : null);
+		}
+	}
+
+	/**
+	 * 参照されなくなった楽曲情報元データの削除
+	 * <p>参照されているデータと、難易度表情報からの参照待ちのデータ以外のデータを全て削除する。</p>
+	 * @param referenced 難易度表情報から参照されているデータのハッシュ値(英小文字)
+	 * @throws IOException 楽曲情報元データの削除でエラーが発生した
+	 */
+	public synchronized void prune(Set<String> referenced) throws IOException {
+		if (!Files.isDirectory(mDirectory)) {
+			return;
+		}
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(mDirectory)) {
+			for (var path : stream) {
+				var name = path.getFileName().toString();
+				if (!HASH_PATTERN.matcher(name).matches() || mPending.containsKey(name) || referenced.contains(name)) {
+					continue;
+				}
+				Files.deleteIfExists(path);
+			}
+		}
+	}
+}
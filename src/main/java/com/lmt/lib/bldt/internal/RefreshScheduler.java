@@ -0,0 +1,301 @@
+package com.lmt.lib.bldt.internal;
+
+import static com.lmt.lib.bldt.DifficultyTables.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * 難易度表の自動更新スケジューラ
+ *
+ * 難易度表ごとに観測した変更履歴から次回の更新までの間隔を決定し、専用スレッドで難易度表を更新する。
+ * 頻繁に変更される難易度表は短い間隔で、変更されない難易度表は長い間隔で更新する。
+ * 変更履歴には、変更を観測した日時ではなく難易度表情報の最終更新日時(楽曲情報元データの Last-Modified)を記録する。
+ * 変更履歴はファイルに保存し、次回の自動更新開始時に読み込むため、再起動後も更新間隔の算出に使用される。
+ * 更新間隔は以下の規則で決定し、最小間隔と最大間隔の範囲に収める。
+ * <ul>
+ * <li>変更を2回以上観測している場合、変更間隔の平均(最後の変更からの経過時間の方が長い場合はその時間)の1/4</li>
+ * <li>それ以外で、今回の更新で変更を観測した場合は最小間隔</li>
+ * <li>それ以外の場合は前回の間隔の2倍</li>
+ * </ul>
+ *
+ * @hidden
+ */
+public class RefreshScheduler {
+	/** 更新間隔の算出に使用する変更履歴の最大数 */
+	private static final int MAX_HISTORY = 8;
+	/** 変更間隔に対する更新間隔の割合の逆数 */
+	private static final long INTERVAL_DIVISOR = 4L;
+
+	/**
+	 * 難易度表の更新処理
+	 */
+	@FunctionalInterface
+	public interface Task {
+		/**
+		 * 難易度表の更新
+		 * @param id 難易度表ID
+		 * @return 難易度表の内容が変更された場合は更新後の最終更新日時(不明な場合は現在日時)、変更されない場合 null
+		 * @throws Exception 更新処理でエラーが発生した
+		 */
+		Instant refresh(String id) throws Exception;
+	}
+
+	/**
+	 * 難易度表ごとの更新状態
+	 */
+	private static class TableState {
+		/** 現在の更新間隔 */
+		Duration interval;
+		/** 変更された日時の履歴(古い順) */
+		ArrayDeque<Instant> changes = new ArrayDeque<>();
+	}
+
+	/** 更新処理 */
+	private Task mTask;
+	/** 変更履歴ファイルのパス */
+	private Path mHistoryPath;
+	/** 最小の更新間隔 */
+	private Duration mMinInterval;
+	/** 最大の更新間隔 */
+	private Duration mMaxInterval;
+	/** 難易度表IDと更新状態のマップ */
+	private Map<String, TableState> mStates = new HashMap<>();
+	/** 更新対象外の難易度表IDと保存済みの変更履歴のマップ(mStates で同期する) */
+	private Map<String, List<Instant>> mOtherHistories = Map.of();
+	/** 更新処理を実行するエグゼキュータ */
+	private ScheduledThreadPoolExecutor mExecutor;
+	/** 更新処理を実行するスレッド */
+	private volatile Thread mWorker;
+
+	/**
+	 * コンストラクタ
+	 * @param task 更新処理
+	 * @param historyPath 変更履歴ファイルのパス
+	 * @param minInterval 最小の更新間隔
+	 * @param maxInterval 最大の更新間隔
+	 */
+	public RefreshScheduler(Task task, Path historyPath, Duration minInterval, Duration maxInterval) {
+		mTask = task;
+		mHistoryPath = historyPath;
+		mMinInterval = minInterval;
+		mMaxInterval = maxInterval;
+		mExecutor = new ScheduledThreadPoolExecutor(1, Utility.daemonThreadFactory("bldt-refresh"));
+		mExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+	}
+
+	/**
+	 * 自動更新の開始
+	 * <p>全ての難易度表の更新を即座に開始する。変更履歴には、保存済みの変更履歴と既知の最終変更日時を
+	 * 予め登録しておく。</p>
+	 * @param ids 更新対象の難易度表IDリスト
+	 * @param lastChanges 難易度表IDと既知の最終変更日時のマップ(不明な難易度表は含まない)
+	 */
+	public void start(List<String> ids, Map<String, Instant> lastChanges) {
+		var histories = loadHistory();
+		synchronized (mStates) {
+			for (var id : ids) {
+				var state = new TableState();
+				state.interval = mMinInterval;
+				state.changes.addAll(histories.getOrDefault(id, List.of()));
+				var lastChange = lastChanges.get(id);
+				if (Objects.nonNull(lastChange) &&
+						(state.changes.isEmpty() || lastChange.isAfter(state.changes.getLast()))) {
+					state.changes.add(lastChange);
+				}
+				while (state.changes.size() > MAX_HISTORY) {
+					state.changes.poll();
+				}
+				mStates.put(id, state);
+			}
+
+			// 更新対象外の難易度表の変更履歴も、変更履歴ファイルに残しておく
+			histories.keySet().removeAll(ids);
+			mOtherHistories = histories;
+		}
+		ids.forEach(id -> schedule(id, Duration.ZERO));
+	}
+
+	/**
+	 * 自動更新の停止
+	 * <p>実行中の更新処理には割り込みを行い、終了を待機する。更新処理を実行するスレッドから呼び出された場合は待機しない。</p>
+	 */
+	public void stop() {
+		mExecutor.shutdownNow();
+		if (Thread.currentThread() != mWorker) {
+			Utility.awaitTerminationUninterruptibly(mExecutor);
+		}
+	}
+
+	/**
+	 * 現在の更新間隔取得
+	 * @param id 難易度表ID
+	 * @return 現在の更新間隔、更新対象外の難易度表の場合 null
+	 */
+	public Duration getInterval(String id) {
+		synchronized (mStates) {
+			var state = mStates.get(id);
+			return Objects.isNull(state) ? null : state.interval;
+		}
+	}
+
+	/**
+	 * 難易度表の更新予約
+	 * @param id 難易度表ID
+	 * @param delay 更新までの時間
+	 */
+	private void schedule(String id, Duration delay) {
+		try {
+			mExecutor.schedule(() -> run(id), delay.toNanos(), TimeUnit.NANOSECONDS);
+		} catch (RejectedExecutionException e) {
+			// 自動更新が停止された後は予約しない
+		}
+	}
+
+	/**
+	 * 難易度表の更新と次回更新の予約
+	 * @param id 難易度表ID
+	 */
+	private void run(String id) {
+		mWorker = Thread.currentThread();
+		var changedAt = (Instant)null;
+		try {
+			changedAt = mTask.refresh(id);
+		} catch (InterruptedException e) {
+			// 自動更新の停止による割り込みの場合は次回の更新を予約しない
+			return;
+		} catch (Exception e) {
+			// エラーの場合は変更なしとして扱い、次回の更新で再試行する
+			printLog("REFRESH '%s' failed: %s", id, e);
+		}
+		if (Thread.currentThread().isInterrupted()) {
+			return;
+		}
+		schedule(id, onRefreshed(id, Instant.now(), changedAt));
+	}
+
+	/**
+	 * 更新結果の記録と次回の更新間隔の算出
+	 * @param id 難易度表ID
+	 * @param now 更新日時
+	 * @param changedAt 難易度表の最終更新日時、変更されなかった場合 null
+	 * @return 次回の更新間隔
+	 */
+	private Duration onRefreshed(String id, Instant now, Instant changedAt) {
+		synchronized (mStates) {
+			var state = mStates.get(id);
+			var changes = state.changes;
+			var changed = Objects.nonNull(changedAt);
+			if (changed) {
+				// 最終更新日時が記録済みの変更より古い、または未来の日時の場合は、観測した日時を変更日時とする
+				var at = changedAt;
+				if ((!changes.isEmpty() && !at.isAfter(changes.getLast())) || at.isAfter(now)) {
+					at = now;
+				}
+				changes.add(at);
+				while (changes.size() > MAX_HISTORY) {
+					changes.poll();
+				}
+				saveHistory();
+			}
+
+			var next = (Duration)null;
+			if (changes.size() >= 2) {
+				// 変更間隔の平均から更新間隔を算出する
+				// 最後の変更から平均以上の時間が経過している場合は、変更頻度が下がったものとしてその時間を使用する
+				var meanGap = Duration.between(changes.getFirst(), changes.getLast()).dividedBy(changes.size() - 1);
+				var sinceLast = Duration.between(changes.getLast(), now);
+				var gap = (sinceLast.compareTo(meanGap) > 0) ? sinceLast : meanGap;
+				next = gap.dividedBy(INTERVAL_DIVISOR);
+			} else if (changed) {
+				// 変更頻度が不明な段階で変更を観測した場合は最小間隔で様子を見る
+				next = mMinInterval;
+			} else {
+				// 変更がない場合は間隔を広げる
+				next = state.interval.multipliedBy(2L);
+			}
+
+			// 更新間隔を最小間隔と最大間隔の範囲に収める
+			next = (next.compareTo(mMinInterval) < 0) ? mMinInterval : next;
+			next = (next.compareTo(mMaxInterval) > 0) ? mMaxInterval : next;
+			state.interval = next;
+			printLog("REFRESH '%s': Changed=%s, Next=%s", id, changed, next);
+			return next;
+		}
+	}
+
+	/**
+	 * 変更履歴ファイルの読み込み
+	 * <p>変更履歴ファイルがない、または内容が不正の場合は空の変更履歴とする。</p>
+	 * @return 難易度表IDと変更履歴(古い順)のマップ
+	 */
+	private Map<String, List<Instant>> loadHistory() {
+		var histories = new HashMap<String, List<Instant>>();
+		try {
+			var root = new JSONObject(Files.readString(mHistoryPath, StandardCharsets.UTF_8));
+			for (var id : root.keySet()) {
+				var changes = new ArrayDeque<Instant>();
+				var array = root.getJSONArray(id);
+				for (var i = 0; i < array.length(); i++) {
+					var at = Instant.parse(array.getString(i));
+					if (changes.isEmpty() || at.isAfter(changes.getLast())) {
+						changes.add(at);
+					}
+				}
+				histories.put(id, List.copyOf(changes));
+			}
+		} catch (NoSuchFileException e) {
+			printLog("Refresh history is not found: Path='%s'", mHistoryPath);
+		} catch (IOException | JSONException | DateTimeParseException e) {
+			// 変更履歴は更新間隔の算出にのみ使用するため、読み込めない場合は破棄する
+			printLog("Broken refresh history: %s", e);
+			histories.clear();
+		}
+		return histories;
+	}
+
+	/**
+	 * 変更履歴ファイルの書き込み
+	 * <p>mStates で同期して呼び出すこと。書き込みに失敗した場合はログ出力のみ行う。</p>
+	 */
+	private void saveHistory() {
+		var root = new JSONObject();
+		mOtherHistories.forEach((id, changes) -> {
+			var array = new JSONArray();
+			changes.forEach(at -> array.put(at.toString()));
+			root.put(id, array);
+		});
+		mStates.forEach((id, state) -> {
+			var array = new JSONArray();
+			state.changes.forEach(at -> array.put(at.toString()));
+			root.put(id, array);
+		});
+		try {
+			// 書き込み途中のファイルが残らないよう、一時ファイルに書き込んでから置き換える
+			var tmpPath = mHistoryPath.resolveSibling(String.format("%s.tmp", mHistoryPath.getFileName()));
+			Files.writeString(tmpPath, root.toString(2), StandardCharsets.UTF_8);
+			Files.move(tmpPath, mHistoryPath, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			printLog("Failed to save refresh history: %s", e);
+		}
+	}
+}
@@ -0,0 +1,670 @@
+package com.lmt.lib.bldt.internal;
+
+import static com.lmt.lib.bldt.DifficultyTables.*;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+import com.lmt.lib.bldt.ContentCollection;
+import com.lmt.lib.bldt.ContentDescription;
+import com.lmt.lib.bldt.PlayStyle;
+
+/**
+ * 難易度表情報のスナップショットファイル
+ *
+ * 難易度表情報のJSONファイルと同じ内容を、読み込み時の解析・検証が不要なバイナリ形式で保存する。
+ * 文字列は重複を除いた文字列テーブルにまとめ、楽曲情報は文字列テーブルのインデックス値とハッシュ値のバイト列による
+ * 固定長のレコードとして記録する。ファイル末尾にはデータ部のチェックサム(CRC32)を記録する。
+ * データ部には各セクションの位置、文字列の位置表、タイトル・アーティストとハッシュ値の索引も記録するため、
+ * ファイルをメモリマップすればヒープに展開せずに楽曲情報の参照・検索が行える({@link #map(Path, Path)})。
+ * スナップショットは対応するJSONファイルのサイズ・最終更新日時とファイルキー(iノード等)を記録し、
+ * JSONファイルと一致しない場合は古いスナップショットとして使用しない。JSONファイルは一時ファイルからの置き換えで
+ * 書き込まれるため、サイズと最終更新日時が同じでもファイルキーで書き換えを検出できる。読み込み時はJSONファイルの
+ * 属性のみを参照し、内容は読まない。スナップショットはJSONファイルの読み込みを高速化するためのキャッシュであり、
+ * 使用できない場合はJSONファイルを読み込めばよいため、破損していても改ざんとは扱わない。
+ *
+ * @hidden
+ */
+public class SnapshotFile {
+	/** ファイル識別子 "BLDS" */
+	private static final int MAGIC = 0x424c4453;
+	/** ファイル形式のバージョン */
+	private static final int FORMAT_VERSION = 4;
+	/** ヘッダ部のサイズ(識別子、バージョン、JSONファイルのサイズ・最終更新日時、データ部のサイズ、JSONファイルのファイルキー) */
+	static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4;
+	/**
+	 * データ部先頭のセクション位置のサイズ(難易度表情報、楽曲情報リスト、文字列位置表、タイトル・アーティスト索引、
+	 * MD5索引、SHA-256索引のファイル先頭からの位置)
+	 */
+	static final int DIRECTORY_SIZE = 4 * 6;
+	/** チェックサムのサイズ */
+	private static final int CHECKSUM_SIZE = 4;
+	/** MD5のバイト数 */
+	static final int MD5_SIZE = 16;
+	/** SHA-256のバイト数 */
+	static final int SHA256_SIZE = 32;
+	/** 楽曲情報1件のサイズ(タイトル、アーティスト、フラグ、難易度インデックス、MD5、SHA-256、URL×2) */
+	static final int RECORD_SIZE = 4 + 4 + 1 + 4 + MD5_SIZE + SHA256_SIZE + 4 + 4;
+	/** 文字列なしを表す文字列テーブルのインデックス値 */
+	static final int NO_STRING = -1;
+	/** フラグ：DPモード */
+	static final int FLAG_DP = 0x01;
+	/** フラグ：MD5あり */
+	static final int FLAG_MD5 = 0x02;
+	/** フラグ：SHA-256あり */
+	static final int FLAG_SHA256 = 0x04;
+	/** プレースタイルの数 */
+	private static final int PLAY_STYLE_COUNT = PlayStyle.values().length;
+
+	/**
+	 * スナップショットから読み込んだ楽曲情報の生成関数
+	 */
+	@FunctionalInterface
+	public interface ContentFactory {
+		/**
+		 * 楽曲情報の生成
+		 * @param title タイトル
+		 * @param artist アーティスト
+		 * @param playStyle プレースタイル
+		 * @param levelIndex 難易度インデックス
+		 * @param bodyUrl 楽曲本体入手先URLの文字列表現(URLとして解析可能であることは確認済み)、または null
+		 * @param additionalUrl 差分譜面入手先URLの文字列表現(URLとして解析可能であることは確認済み)、または null
+		 * @param md5 MD5(英小文字)、または null
+		 * @param sha256 SHA-256(英小文字)、または null
+		 * @return 楽曲情報。難易度表定義に合わない等でスナップショットを使用できない場合は null。
+		 */
+		ContentDescription create(String title, String artist, PlayStyle playStyle, int levelIndex, String bodyUrl,
+				String additionalUrl, String md5, String sha256);
+	}
+
+	/** 難易度表ID */
+	private String mId;
+	/** 難易度表情報の最終更新日時 */
+	private ZonedDateTime mLastUpdateDateTime;
+	/** プレースタイルごとの楽曲情報元データの最終更新日時 */
+	private ZonedDateTime[] mModifiedDateTimes = new ZonedDateTime[PLAY_STYLE_COUNT];
+	/** プレースタイルごとの楽曲情報元データのハッシュ値 */
+	private String[] mModifiedDataHashes = new String[PLAY_STYLE_COUNT];
+	/** プレースタイルごとの楽曲情報元データのエンティティタグ */
+	private String[] mModifiedETags = new String[PLAY_STYLE_COUNT];
+	/** プレースタイルごとの楽曲情報元データの有効期限 */
+	private ZonedDateTime[] mModifiedExpires = new ZonedDateTime[PLAY_STYLE_COUNT];
+	/** 楽曲情報リスト(メモリマップした場合は null) */
+	private List<ContentDescription> mContents;
+	/** メモリマップした楽曲情報リスト(メモリマップしていない場合は null) */
+	private MappedContents mMappedContents;
+
+	/**
+	 * コンストラクタ
+	 */
+	private SnapshotFile() {
+		// Do nothing
+	}
+
+	/**
+	 * 難易度表ID取得
+	 * @return 難易度表ID
+	 */
+	public String getId() {
+		return mId;
+	}
+
+	/**
+	 * 難易度表情報の最終更新日時取得
+	 * @return 難易度表情報の最終更新日時
+	 */
+	public ZonedDateTime getLastUpdateDateTime() {
+		return mLastUpdateDateTime;
+	}
+
+	/**
+	 * 楽曲情報元データの最終更新日時取得
+	 * @param playStyle プレースタイル
+	 * @return 楽曲情報元データの最終更新日時、または null
+	 */
+	public ZonedDateTime getModifiedDateTime(PlayStyle playStyle) {
+		return mModifiedDateTimes[playStyle.ordinal()];
+	}
+
+	/**
+	 * 楽曲情報元データのハッシュ値取得
+	 * @param playStyle プレースタイル
+	 * @return 楽曲情報元データのハッシュ値(英小文字)、または null
+	 */
+	public String getModifiedDataHash(PlayStyle playStyle) {
+		return mModifiedDataHashes[playStyle.ordinal()];
+	}
+
+	/**
+	 * 楽曲情報元データのエンティティタグ取得
+	 * @param playStyle プレースタイル
+	 * @return 楽曲情報元データのエンティティタグ、または null
+	 */
+	public String getModifiedETag(PlayStyle playStyle) {
+		return mModifiedETags[playStyle.ordinal()];
+	}
+
+	/**
+	 * 楽曲情報元データの有効期限取得
+	 * @param playStyle プレースタイル
+	 * @return 楽曲情報元データの有効期限、または null
+	 */
+	public ZonedDateTime getModifiedExpires(PlayStyle playStyle) {
+		return mModifiedExpires[playStyle.ordinal()];
+	}
+
+	/**
+	 * 楽曲情報リスト取得
+	 * @return 楽曲情報リスト。{@link #map(Path, Path)} で読み込んだ場合は null。
+	 */
+	public List<ContentDescription> getContents() {
+		return mContents;
+	}
+
+	/**
+	 * メモリマップした楽曲情報リスト取得
+	 * @return メモリマップした楽曲情報リスト。{@link #read(Path, Path, ContentFactory)} で読み込んだ場合は null。
+	 */
+	public MappedContents getMappedContents() {
+		return mMappedContents;
+	}
+
+	/**
+	 * スナップショットの書き込み
+	 * <p>書き込み途中のファイルが残らないよう、一時ファイルに書き込んでから置き換える。
+	 * JSONファイルの書き込み完了後に呼び出すこと。</p>
+	 * @param path スナップショットファイルのパス
+	 * @param jsonPath 対応する難易度表情報のJSONファイルのパス
+	 * @param collection 難易度表情報
+	 * @throws IOException スナップショットファイルの書き込みでエラーが発生した
+	 */
+	public static void write(Path path, Path jsonPath, ContentCollection collection) throws IOException {
+		// 文字列テーブルを構築する
+		var strings = new StringTable();
+		var id = strings.indexOf(collection.getTableDescription().getId());
+		var lastUpdated = strings.indexOf(formatDateTime(collection.getLastUpdateDateTime()));
+		var modified = new int[PLAY_STYLE_COUNT * 3];
+		for (var playStyle : PlayStyle.values()) {
+			var i = playStyle.ordinal() * 3;
+			modified[i] = strings.indexOf(formatDateTime(collection.getModifiedDateTime(playStyle)));
+			modified[i + 1] = strings.indexOf(collection.getModifiedETag(playStyle));
+			modified[i + 2] = strings.indexOf(formatDateTime(collection.getModifiedExpires(playStyle)));
+		}
+		var contents = collection.all().toArray(ContentDescription[]::new);
+		var count = contents.length;
+		var records = new int[count * 4];
+		var md5s = new long[count * 2];
+		var sha256s = new long[count * 4];
+		for (var i = 0; i < count; i++) {
+			var content = contents[i];
+			records[i * 4] = strings.indexOf(content.getTitle());
+			records[i * 4 + 1] = strings.indexOf(content.getArtist());
+			records[i * 4 + 2] = strings.indexOf(Objects.toString(content.getBodyUrl(), null));
+			records[i * 4 + 3] = strings.indexOf(Objects.toString(content.getAdditionalUrl(), null));
+			parseHash(content.getMd5(), md5s, i * 2, 2);
+			parseHash(content.getSha256(), sha256s, i * 4, 4);
+		}
+
+		// 楽曲情報の索引を構築する
+		var metaIndex = OpenHashIndex.build(count, i -> true,
+				i -> OpenHashIndex.hashMeta(contents[i].getTitle(), contents[i].getArtist(), isDp(contents[i])),
+				(i, j) -> (isDp(contents[i]) == isDp(contents[j])) &&
+						(records[i * 4] == records[j * 4]) && (records[i * 4 + 1] == records[j * 4 + 1]));
+		var md5Index = OpenHashIndex.build(count, i -> Objects.nonNull(contents[i].getMd5()),
+				i -> OpenHashIndex.hashMd5(md5s[i * 2], md5s[i * 2 + 1]),
+				(i, j) -> Arrays.equals(md5s, i * 2, i * 2 + 2, md5s, j * 2, j * 2 + 2));
+		var sha256Index = OpenHashIndex.build(count, i -> Objects.nonNull(contents[i].getSha256()),
+				i -> OpenHashIndex.hashSha256(sha256s[i * 4], sha256s[i * 4 + 1], sha256s[i * 4 + 2], sha256s[i * 4 + 3]),
+				(i, j) -> Arrays.equals(sha256s, i * 4, i * 4 + 4, sha256s, j * 4, j * 4 + 4));
+
+		// データ部の各セクションの位置を決定する
+		var stringsOffset = HEADER_SIZE + DIRECTORY_SIZE;
+		var infoOffset = stringsOffset + 4 + strings.size;
+		var recordsOffset = infoOffset + 4 + 4 + PLAY_STYLE_COUNT * (4 + 1 + SHA256_SIZE + 4 + 4);
+		var stringOffsetsOffset = recordsOffset + 4 + count * RECORD_SIZE;
+		var metaIndexOffset = stringOffsetsOffset + strings.list.size() * 4;
+		var md5IndexOffset = metaIndexOffset + 4 + metaIndex.length * 4;
+		var sha256IndexOffset = md5IndexOffset + 4 + md5Index.length * 4;
+		var payloadSize = sha256IndexOffset + 4 + sha256Index.length * 4 - HEADER_SIZE;
+
+		// データ部を構築する
+		var buf = ByteBuffer.allocate(HEADER_SIZE + payloadSize + CHECKSUM_SIZE);
+		buf.position(HEADER_SIZE);
+		buf.putInt(infoOffset);
+		buf.putInt(recordsOffset);
+		buf.putInt(stringOffsetsOffset);
+		buf.putInt(metaIndexOffset);
+		buf.putInt(md5IndexOffset);
+		buf.putInt(sha256IndexOffset);
+		var stringOffsets = new int[strings.list.size()];
+		buf.putInt(strings.list.size());
+		for (var i = 0; i < stringOffsets.length; i++) {
+			var bytes = strings.list.get(i);
+			stringOffsets[i] = buf.position();
+			buf.putInt(bytes.length);
+			buf.put(bytes);
+		}
+		buf.putInt(id);
+		buf.putInt(lastUpdated);
+		for (var playStyle : PlayStyle.values()) {
+			var i = playStyle.ordinal() * 3;
+			buf.putInt(modified[i]);
+			putHash(buf, collection.getModifiedDataHash(playStyle), SHA256_SIZE);
+			buf.putInt(modified[i + 1]);
+			buf.putInt(modified[i + 2]);
+		}
+		buf.putInt(count);
+		for (var i = 0; i < count; i++) {
+			var content = contents[i];
+			var md5 = content.getMd5();
+			var sha256 = content.getSha256();
+			var flags = (isDp(content) ? FLAG_DP : 0) |
+					(Objects.nonNull(md5) ? FLAG_MD5 : 0) |
+					(Objects.nonNull(sha256) ? FLAG_SHA256 : 0);
+			buf.putInt(records[i * 4]);
+			buf.putInt(records[i * 4 + 1]);
+			buf.put((byte)flags);
+			buf.putInt(content.getLevelIndex());
+			putHashBytes(buf, md5, MD5_SIZE);
+			putHashBytes(buf, sha256, SHA256_SIZE);
+			buf.putInt(records[i * 4 + 2]);
+			buf.putInt(records[i * 4 + 3]);
+		}
+		for (var offset : stringOffsets) {
+			buf.putInt(offset);
+		}
+		for (var index : List.of(metaIndex, md5Index, sha256Index)) {
+			buf.putInt(index.length);
+			for (var slot : index) {
+				buf.putInt(slot);
+			}
+		}
+
+		// ヘッダ部とチェックサムを書き込む
+		var crc = new CRC32();
+		crc.update(buf.array(), HEADER_SIZE, payloadSize);
+		buf.putInt((int)crc.getValue());
+		buf.putInt(0, MAGIC);
+		buf.putInt(4, FORMAT_VERSION);
+		var jsonAttrs = Files.readAttributes(jsonPath, BasicFileAttributes.class);
+		buf.putLong(8, jsonAttrs.size());
+		buf.putLong(16, jsonAttrs.lastModifiedTime().toMillis());
+		buf.putInt(24, payloadSize);
+		buf.putInt(28, fileKey(jsonAttrs));
+
+		// 一時ファイルに書き込んでから置き換える
+		var tmpPath = path.resolveSibling(String.format(".%s.tmp", path.getFileName()));
+		Files.write(tmpPath, buf.array());
+		Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * スナップショットの読み込み
+	 * <p>スナップショットが存在しない、対応するJSONファイルと一致しない、または破損している場合は null を返す。</p>
+	 * @param path スナップショットファイルのパス
+	 * @param jsonPath 対応する難易度表情報のJSONファイルのパス
+	 * @param factory 楽曲情報の生成関数
+	 * @return スナップショット、または null
+	 * @throws IOException スナップショットファイルの読み込みでエラーが発生した
+	 */
+	public static SnapshotFile read(Path path, Path jsonPath, ContentFactory factory) throws IOException {
+		// スナップショットファイルを読み込む
+		var raw = (byte[])null;
+		try {
+			raw = Files.readAllBytes(path);
+		} catch (NoSuchFileException e) {
+			printLog("Snapshot is not found: Path='%s'", path);
+			return null;
+		}
+
+		try {
+			// ヘッダ部とチェックサムを検証する
+			var buf = ByteBuffer.wrap(raw);
+			var payloadSize = verify(buf, path, jsonPath);
+			if (payloadSize < 0) {
+				return null;
+			}
+
+			// 文字列テーブルを読み込む
+			buf.position(HEADER_SIZE + DIRECTORY_SIZE);
+			var numStrings = buf.getInt();
+			if ((numStrings < 0) || (numStrings > payloadSize / 4)) {
+				printLog("Snapshot string table is broken: Path='%s'", path);
+				return null;
+			}
+			var strings = new String[numStrings];
+			for (var i = 0; i < numStrings; i++) {
+				var length = buf.getInt();
+				strings[i] = new String(raw, buf.position(), length, StandardCharsets.UTF_8);
+				buf.position(buf.position() + length);
+			}
+
+			// 難易度表情報を読み込む
+			var snapshot = new SnapshotFile();
+			readInfo(snapshot, buf, i -> string(strings, i));
+
+			// 楽曲情報リストを読み込む
+			var numContents = buf.getInt();
+			if ((numContents < 0) || (numContents > buf.remaining() / RECORD_SIZE)) {
+				printLog("Snapshot contents are broken: Path='%s'", path);
+				return null;
+			}
+			var contents = new ArrayList<ContentDescription>(numContents);
+			for (var i = 0; i < numContents; i++) {
+				var title = string(strings, buf.getInt());
+				var artist = string(strings, buf.getInt());
+				var flags = buf.get();
+				var levelIndex = buf.getInt();
+				var md5 = getHashBytes(buf, (flags & FLAG_MD5) != 0, MD5_SIZE);
+				var sha256 = getHashBytes(buf, (flags & FLAG_SHA256) != 0, SHA256_SIZE);
+				var bodyUrl = url(string(strings, buf.getInt()));
+				var addUrl = url(string(strings, buf.getInt()));
+				var playStyle = ((flags & FLAG_DP) != 0) ? PlayStyle.DOUBLE : PlayStyle.SINGLE;
+				var content = (Objects.isNull(title) || Objects.isNull(artist)) ? null :
+						factory.create(title, artist, playStyle, levelIndex, bodyUrl, addUrl, md5, sha256);
+				if (Objects.isNull(content)) {
+					printLog("Snapshot contents[%d] is not acceptable: Path='%s'", i, path);
+					return null;
+				}
+				contents.add(content);
+			}
+			snapshot.mContents = contents;
+			return snapshot;
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException |
+				DateTimeParseException | MalformedURLException e) {
+			// 破損したスナップショットは使用しない
+			printLog("Snapshot is broken: Path='%s', %s", path, e);
+			return null;
+		}
+	}
+
+	/**
+	 * スナップショットのメモリマップ
+	 * <p>スナップショットファイルを読み取り専用でメモリにマップし、楽曲情報をヒープに展開せずに参照する。
+	 * 楽曲情報リストは {@link #getMappedContents()} で取得する。マップしたファイルはOSのページキャッシュを介して
+	 * 同じファイルをマップした他のプロセスと共有される。
+	 * スナップショットが存在しない、対応するJSONファイルと一致しない、または破損している場合は null を返す。</p>
+	 * @param path スナップショットファイルのパス
+	 * @param jsonPath 対応する難易度表情報のJSONファイルのパス
+	 * @return スナップショット、または null
+	 * @throws IOException スナップショットファイルの読み込みでエラーが発生した
+	 */
+	public static SnapshotFile map(Path path, Path jsonPath) throws IOException {
+		// スナップショットファイルをマップする
+		var buf = (ByteBuffer)null;
+		try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			var size = channel.size();
+			if ((size < HEADER_SIZE + DIRECTORY_SIZE + CHECKSUM_SIZE) || (size > Integer.MAX_VALUE)) {
+				printLog("Snapshot size is not acceptable: Path='%s'", path);
+				return null;
+			}
+			buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		} catch (NoSuchFileException e) {
+			printLog("Snapshot is not found: Path='%s'", path);
+			return null;
+		}
+
+		try {
+			// ヘッダ部とチェックサムを検証する
+			var payloadSize = verify(buf, path, jsonPath);
+			if (payloadSize < 0) {
+				return null;
+			}
+
+			// 各セクションの位置を検証する
+			var contents = MappedContents.of(buf, HEADER_SIZE + payloadSize);
+			if (Objects.isNull(contents)) {
+				printLog("Snapshot sections are broken: Path='%s'", path);
+				return null;
+			}
+
+			// 難易度表情報を読み込む
+			var snapshot = new SnapshotFile();
+			buf.position(buf.getInt(HEADER_SIZE));
+			readInfo(snapshot, buf, contents::string);
+			snapshot.mMappedContents = contents;
+			return snapshot;
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException |
+				DateTimeParseException e) {
+			// 破損したスナップショットは使用しない
+			printLog("Snapshot is broken: Path='%s', %s", path, e);
+			return null;
+		}
+	}
+
+	/**
+	 * ヘッダ部とチェックサムの検証
+	 * @param buf スナップショットファイルの内容
+	 * @param path スナップショットファイルのパス
+	 * @param jsonPath 対応する難易度表情報のJSONファイルのパス
+	 * @return データ部のサイズ。スナップショットを使用できない場合は負の値。
+	 * @throws IOException JSONファイルの属性取得でエラーが発生した
+	 */
+	private static int verify(ByteBuffer buf, Path path, Path jsonPath) throws IOException {
+		if ((buf.getInt(0) != MAGIC) || (buf.getInt(4) != FORMAT_VERSION)) {
+			printLog("Snapshot is unknown format: Path='%s'", path);
+			return -1;
+		}
+		var jsonAttrs = Files.readAttributes(jsonPath, BasicFileAttributes.class);
+		if ((buf.getLong(8) != jsonAttrs.size()) ||
+				(buf.getLong(16) != jsonAttrs.lastModifiedTime().toMillis()) ||
+				(buf.getInt(28) != fileKey(jsonAttrs))) {
+			printLog("Snapshot is stale: Path='%s'", path);
+			return -1;
+		}
+		var payloadSize = buf.getInt(24);
+		if ((payloadSize < DIRECTORY_SIZE) || (buf.capacity() != HEADER_SIZE + payloadSize + CHECKSUM_SIZE)) {
+			printLog("Snapshot size is not match: Path='%s'", path);
+			return -1;
+		}
+		var crc = new CRC32();
+		crc.update(buf.duplicate().limit(HEADER_SIZE + payloadSize).position(HEADER_SIZE));
+		if ((int)crc.getValue() != buf.getInt(HEADER_SIZE + payloadSize)) {
+			printLog("Snapshot checksum is not match: Path='%s'", path);
+			return -1;
+		}
+		return payloadSize;
+	}
+
+	/**
+	 * JSONファイルのファイルキーの値取得
+	 * <p>ファイルキーを提供しないファイルシステムでは0を返し、サイズと最終更新日時のみで比較する。</p>
+	 * @param attrs JSONファイルの属性
+	 * @return ファイルキーの文字列表現のハッシュ値、またはファイルキーがない場合は0
+	 */
+	private static int fileKey(BasicFileAttributes attrs) {
+		var key = attrs.fileKey();
+		return Objects.isNull(key) ? 0 : key.toString().hashCode();
+	}
+
+	/**
+	 * 難易度表情報(楽曲情報リスト以外)の読み込み
+	 * @param snapshot 読み込み先のスナップショット
+	 * @param buf 難易度表情報の位置に移動済みのバッファ
+	 * @param strings 文字列テーブルのインデックス値から文字列を取得する関数
+	 * @throws DateTimeParseException 日時の書式が不正
+	 */
+	private static void readInfo(SnapshotFile snapshot, ByteBuffer buf, IntFunction<String> strings) {
+		snapshot.mId = strings.apply(buf.getInt());
+		snapshot.mLastUpdateDateTime = parseDateTime(strings.apply(buf.getInt()));
+		for (var i = 0; i < PLAY_STYLE_COUNT; i++) {
+			snapshot.mModifiedDateTimes[i] = parseDateTime(strings.apply(buf.getInt()));
+			snapshot.mModifiedDataHashes[i] = getHash(buf, SHA256_SIZE);
+			snapshot.mModifiedETags[i] = strings.apply(buf.getInt());
+			snapshot.mModifiedExpires[i] = parseDateTime(strings.apply(buf.getInt()));
+		}
+	}
+
+	/**
+	 * 楽曲情報のDPモード判定
+	 * @param content 楽曲情報
+	 * @return DPモードの場合 true
+	 */
+	private static boolean isDp(ContentDescription content) {
+		return content.getPlayStyle() == PlayStyle.DOUBLE;
+	}
+
+	/**
+	 * 文字列表現のハッシュ値をlong値の配列へ変換
+	 * @param hash ハッシュ値、または null(何もしない)
+	 * @param dest 変換先配列
+	 * @param offset 変換先配列の開始位置
+	 * @param length 変換するlong値の数
+	 */
+	private static void parseHash(String hash, long[] dest, int offset, int length) {
+		if (Objects.nonNull(hash)) {
+			for (var i = 0; i < length; i++) {
+				dest[offset + i] = Utility.parseHexLong(hash, i * 16);
+			}
+		}
+	}
+
+	/**
+	 * 日時の文字列変換
+	 * @param dateTime 日時、または null
+	 * @return 日時の文字列表現、または null
+	 */
+	private static String formatDateTime(ZonedDateTime dateTime) {
+		return Objects.isNull(dateTime) ? null : dateTime.format(DateTimeFormatter.ISO_ZONED_DATE_TIME);
+	}
+
+	/**
+	 * 文字列の日時変換
+	 * @param str 日時の文字列表現、または null
+	 * @return 日時、または null
+	 * @throws DateTimeParseException 日時の書式が不正
+	 */
+	private static ZonedDateTime parseDateTime(String str) {
+		return Objects.isNull(str) ? null : ZonedDateTime.parse(str, DateTimeFormatter.ISO_ZONED_DATE_TIME);
+	}
+
+	/**
+	 * 文字列テーブルからの文字列取得
+	 * @param strings 文字列テーブル
+	 * @param index インデックス値
+	 * @return 文字列、または null
+	 * @throws IndexOutOfBoundsException インデックス値が文字列テーブルの範囲外
+	 */
+	private static String string(String[] strings, int index) {
+		return (index == NO_STRING) ? null : strings[index];
+	}
+
+	/**
+	 * URLの文字列表現の確認
+	 * <p>URLオブジェクトは楽曲情報の取得時に生成されるため、ここでは解析可能であることの確認のみを行う。</p>
+	 * @param str URLの文字列表現、または null
+	 * @return str
+	 * @throws MalformedURLException URLの書式が不正
+	 */
+	private static String url(String str) throws MalformedURLException {
+		if (Objects.nonNull(str)) {
+			new URL(str);
+		}
+		return str;
+	}
+
+	/**
+	 * 有無フラグ付きハッシュ値の書き込み
+	 * @param buf 書き込み先バッファ
+	 * @param hash ハッシュ値、または null
+	 * @param size ハッシュ値のバイト数
+	 */
+	private static void putHash(ByteBuffer buf, String hash, int size) {
+		buf.put((byte)(Objects.isNull(hash) ? 0 : 1));
+		putHashBytes(buf, hash, size);
+	}
+
+	/**
+	 * 有無フラグ付きハッシュ値の読み込み
+	 * @param buf 読み込み元バッファ
+	 * @param size ハッシュ値のバイト数
+	 * @return ハッシュ値(英小文字)、または null
+	 */
+	private static String getHash(ByteBuffer buf, int size) {
+		return getHashBytes(buf, buf.get() != 0, size);
+	}
+
+	/**
+	 * ハッシュ値のバイト列書き込み(null の場合は0で埋める)
+	 * @param buf 書き込み先バッファ
+	 * @param hash ハッシュ値、または null
+	 * @param size ハッシュ値のバイト数
+	 */
+	private static void putHashBytes(ByteBuffer buf, String hash, int size) {
+		if (Objects.isNull(hash)) {
+			buf.position(buf.position() + size);
+		} else {
+			for (var i = 0; i < size; i++) {
+				buf.put((byte)Integer.parseInt(hash, i * 2, i * 2 + 2, 16));
+			}
+		}
+	}
+
+	/**
+	 * ハッシュ値のバイト列読み込み
+	 * @param buf 読み込み元バッファ
+	 * @param exists ハッシュ値の有無
+	 * @param size ハッシュ値のバイト数
+	 * @return ハッシュ値(英小文字)。ハッシュ値なしの場合は読み飛ばして null。
+	 */
+	private static String getHashBytes(ByteBuffer buf, boolean exists, int size) {
+		if (!exists) {
+			buf.position(buf.position() + size);
+			return null;
+		}
+		var bytes = new byte[size];
+		buf.get(bytes);
+		return Utility.byteArrayToString(bytes);
+	}
+
+	/**
+	 * 書き込み用の文字列テーブル
+	 */
+	private static class StringTable {
+		/** 文字列とインデックス値のマップ */
+		final Map<String, Integer> map = new HashMap<>();
+		/** UTF-8に変換した文字列のリスト */
+		final List<byte[]> list = new ArrayList<>();
+		/** 文字列テーブルの書き込みサイズ */
+		int size = 0;
+
+		/**
+		 * 文字列のインデックス値取得(未登録の場合は登録する)
+		 * @param str 文字列、または null
+		 * @return インデックス値。null の場合 {@link SnapshotFile#NO_STRING}。
+		 */
+		int indexOf(String str) {
+			if (Objects.isNull(str)) {
+				return NO_STRING;
+			}
+			return map.computeIfAbsent(str, s -> {
+				var bytes = s.getBytes(StandardCharsets.UTF_8);
+				list.add(bytes);
+				size += 4 + bytes.length;
+				return list.size() - 1;
+			});
+		}
+	}
+}
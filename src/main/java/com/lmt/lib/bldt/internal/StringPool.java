@@ -0,0 +1,92 @@
+package com.lmt.lib.bldt.internal;
+
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * 楽曲情報の文字列の重複排除プール
+ *
+ * 同じ楽曲が複数の難易度表に登録されている場合、タイトル・アーティスト・URLの文字列は難易度表ごとに
+ * 別々のオブジェクトとして生成される。当クラスは同じ内容の文字列を1個に集約し、難易度表情報の間で共有させる。
+ * プールは文字列を弱参照で保持するため、どの難易度表情報からも参照されなくなった文字列は
+ * ガベージコレクションの対象となる。
+ * 重複排除で削減したメモリ量は、プールの文字列を共有している文字列テーブルから概算する({@link #sharedBytes(Collection)})。
+ * 当クラスはスレッドセーフである。
+ *
+ * @hidden
+ */
+public class StringPool {
+	/** オブジェクトヘッダ、フィールドのサイズ概算値(String) */
+	private static final int STRING_SHALLOW_SIZE = 24;
+	/** 配列ヘッダのサイズ概算値 */
+	private static final int ARRAY_HEADER_SIZE = 16;
+
+	/** 文字列のプール */
+	private Map<String, WeakReference<String>> mStrings = new WeakHashMap<>();
+
+	/**
+	 * 文字列の重複排除
+	 * <p>同じ内容の文字列がプールにある場合はプールの文字列を返し、ない場合は指定文字列をプールに追加して返す。</p>
+	 * @param s 文字列、または null
+	 * @return 重複排除された文字列。s が null の場合 null。
+	 */
+	public synchronized String string(String s) {
+		if (Objects.isNull(s)) {
+			return null;
+		}
+		var ref = mStrings.get(s);
+		var pooled = Objects.isNull(ref) ? null : ref.get();
+		if (Objects.isNull(pooled)) {
+			mStrings.put(s, new WeakReference<>(s));
+			return s;
+		}
+		return pooled;
+	}
+
+	/**
+	 * 重複排除で削減しているメモリ量の概算
+	 * <p>複数の文字列テーブルが同じ文字列オブジェクトを保持している場合、2個目以降のテーブルの分を
+	 * 重複排除で削減したメモリ量とする。各文字列テーブルは重複のない文字列のリストであること。</p>
+	 * @param tables 現在使用中の文字列テーブル
+	 * @return 重複排除で削減しているメモリ量の概算値(バイト)
+	 */
+	public static long sharedBytes(Collection<String[]> tables) {
+		var counts = new IdentityHashMap<String, Integer>();
+		for (var table : tables) {
+			for (var s : table) {
+				counts.merge(s, 1, Integer::sum);
+			}
+		}
+		var savedBytes = 0L;
+		for (var entry : counts.entrySet()) {
+			savedBytes += sizeOf(entry.getKey()) * (entry.getValue() - 1);
+		}
+		return savedBytes;
+	}
+
+	/**
+	 * 文字列のサイズ概算
+	 * @param s 文字列
+	 * @return 文字列のサイズ概算値(バイト)
+	 */
+	private static long sizeOf(String s) {
+		// 全ての文字がLatin-1の範囲内であれば1文字1バイトで格納される
+		var length = s.length();
+		var latin1 = s.chars().allMatch(c -> c <= 0xff);
+		var dataSize = align(ARRAY_HEADER_SIZE + (latin1 ? length : length * 2L));
+		return STRING_SHALLOW_SIZE + dataSize;
+	}
+
+	/**
+	 * サイズの8バイト境界への切り上げ
+	 * @param size サイズ
+	 * @return 切り上げたサイズ
+	 */
+	private static long align(long size) {
+		return (size + 7L) & ~7L;
+	}
+}
@@ -1,9 +1,18 @@
 package com.lmt.lib.bldt.internal;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -54,6 +63,26 @@ public class Utility {
 		return SHA256_PATTERN.matcher(str).matches();
 	}
 
+	/**
+	 * 指定した長さの16進数文字列かどうか判定(大文字・小文字は区別しない)
+	 * <p>検索の度に呼び出されるため、正規表現を使用せずオブジェクトを生成しない。</p>
+	 * @param str 文字列
+	 * @param length 文字数
+	 * @return 指定した長さの16進数文字列であれば true
+	 */
+	public static boolean isHex(String str, int length) {
+		if (str.length() != length) {
+			return false;
+		}
+		for (var i = 0; i < length; i++) {
+			var c = str.charAt(i);
+			if (!(((c >= '0') && (c <= '9')) || ((c >= 'a') && (c <= 'f')) || ((c >= 'A') && (c <= 'F')))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * ハッシュ値の正規化(大文字が混じっている場合は小文字へ、nullの場合はnull)。構文チェックなし。
 	 * @param hash ハッシュ値
@@ -77,6 +106,33 @@ public class Utility {
 		return sb.toString();
 	}
 
+	/**
+	 * 16進数文字列の一部をlong値へ変換(大文字・小文字は区別しない)。構文チェックなし。
+	 * @param hex 16進数文字列
+	 * @param offset 変換開始位置(ここから16文字を変換する)
+	 * @return 変換後の値
+	 */
+	public static long parseHexLong(String hex, int offset) {
+		var value = 0L;
+		for (var i = offset; i < offset + 16; i++) {
+			value = (value << 4) | Character.digit(hex.charAt(i), 16);
+		}
+		return value;
+	}
+
+	/**
+	 * long値を16進数文字列(英小文字16文字)で追加
+	 * @param sb 追加先
+	 * @param value 値
+	 * @return 追加先
+	 */
+	public static StringBuilder appendHexLong(StringBuilder sb, long value) {
+		for (var shift = 60; shift >= 0; shift -= 4) {
+			sb.append(HEX_CHARS[(int)(value >>> shift) & 0x0f]);
+		}
+		return sb;
+	}
+
 	/**
 	 * JSON項目から任意項目のハッシュ値を取り出す
 	 * @param maybeStr 文字列表現のハッシュ値
@@ -123,6 +179,54 @@ public class Utility {
 		return Objects.isNull(input) ? JSONObject.NULL : converter.apply(input);
 	}
 
+	/**
+	 * デーモンスレッドを生成するスレッドファクトリを生成
+	 * @param name スレッド名の接頭辞
+	 * @return スレッドファクトリ
+	 */
+	public static ThreadFactory daemonThreadFactory(String name) {
+		var count = new AtomicInteger(0);
+		return r -> {
+			var thread = new Thread(r, String.format("%s-%d", name, count.incrementAndGet()));
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * エグゼキュータの終了を待機(割り込みを検出しても待機を継続し、待機後に割り込み状態を復元する)
+	 * @param executor エグゼキュータ
+	 */
+	public static void awaitTerminationUninterruptibly(ExecutorService executor) {
+		var interrupted = false;
+		while (true) {
+			try {
+				if (executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+					break;
+				}
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * 非同期処理の例外から発生原因の例外を取り出す
+	 * @param e CompletionException、ExecutionException、またはその他の例外
+	 * @return CompletionException、ExecutionException を取り除いた発生原因の例外
+	 */
+	public static Throwable unwrapCompletionCause(Throwable e) {
+		var cause = e;
+		while (((cause instanceof CompletionException) || (cause instanceof ExecutionException)) &&
+				Objects.nonNull(cause.getCause())) {
+			cause = cause.getCause();
+		}
+		return cause;
+	}
+
 	/**
 	 * 指定値が null かどうかの判定(単純な null またはJSONのNULL値)
 	 * @param obj 判定対象のオブジェクト
@@ -131,4 +235,29 @@ public class Utility {
 	public static boolean isJsonNull(Object obj) {
 		return Objects.isNull(obj) || (obj == JSONObject.NULL);
 	}
+
+	/**
+	 * 入力ストリーム先頭のUTF-8のBOMを読み飛ばす
+	 * @param in 入力ストリーム
+	 * @return BOMを読み飛ばした入力ストリーム(BOMがない場合は先頭から読み込む)
+	 * @throws IOException 入力ストリームの読み込みでエラーが発生した
+	 */
+	public static InputStream skipUtf8Bom(InputStream in) throws IOException {
+		var bom = new byte[] { (byte)0xef, (byte)0xbb, (byte)0xbf };
+		var head = new byte[bom.length];
+		var length = 0;
+		while (length < head.length) {
+			var read = in.read(head, length, head.length - length);
+			if (read < 0) {
+				break;
+			}
+			length += read;
+		}
+		var pin = new PushbackInputStream(in, head.length);
+		if ((length < head.length) || (head[0] != bom[0]) || (head[1] != bom[1]) || (head[2] != bom[2])) {
+			// BOMがない場合は読み込んだデータを戻す
+			pin.unread(head, 0, length);
+		}
+		return pin;
+	}
 }
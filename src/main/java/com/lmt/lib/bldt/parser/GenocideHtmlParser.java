@@ -1,28 +1,28 @@
 package com.lmt.lib.bldt.parser;
 
-import static com.lmt.lib.bldt.DifficultyTables.*;
+import static com.lmt.lib.bldt.internal.Assertion.*;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 
 import com.lmt.lib.bldt.ContentDescription;
-import com.lmt.lib.bldt.Parser;
 import com.lmt.lib.bldt.PlayStyle;
+import com.lmt.lib.bldt.PlayStyleDescription;
+import com.lmt.lib.bldt.StreamingParser;
 import com.lmt.lib.bldt.TableDescription;
+import com.lmt.lib.bldt.internal.JsonPullReader;
+import com.lmt.lib.bldt.internal.ParallelConverter;
 
 /**
  * GENOCIDE の通常・発狂難易度表を掲載したWebページから楽曲情報を抽出するパーサです。
@@ -43,121 +43,464 @@ import com.lmt.lib.bldt.TableDescription;
  *   ], …以下複数
  * ];</pre>
  *
+ * <p>当パーサは {@link StreamingParser} を実装しており、ダウンロード中のWebページを受信と並行して読み込みます。
+ * 楽曲情報定義の終了部分以降のデータは読み込みません。楽曲情報の件数が多い場合は、楽曲情報の変換を並列に行います
+ * ({@link #GenocideHtmlParser(int)} を参照)。</p>
+ *
  * @since 0.1.0
  */
-public class GenocideHtmlParser implements Parser {
-	/** 楽曲情報定義の開始部分の正規表現パターン */
-	private static final Pattern CONTENTS_BEGIN_PATTERN = Pattern.compile("^\\s*var\\s+mname\\s*=\\s*\\[\\s*$");
-	/** 楽曲情報定義の終了部分の正規表現パターン */
-	private static final Pattern CONTENTS_END_PATTERN = Pattern.compile("^\\s*\\];\\s*$");
+public class GenocideHtmlParser implements StreamingParser {
 	/** 楽曲本体入手先URL、およびアーティスト定義部分の正規表現パターン */
 	private static final Pattern ARTIST_PATTERN = Pattern.compile("^<a\\s+href\\s*=\\s*'([^']*)'\\s*>?(.+)</a>$");
 
+	/** 並列変換を開始する楽曲情報の件数の閾値 */
+	private int mParallelThreshold;
+
+	/**
+	 * GENOCIDE 難易度表パーサオブジェクトを構築します。
+	 * <p>楽曲情報が {@value ParallelConverter#DEFAULT_THRESHOLD} 件を超える場合、超えた分の楽曲情報を並列に変換します。</p>
+	 * @since 0.1.0
+	 */
+	public GenocideHtmlParser() {
+		this(ParallelConverter.DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * 並列変換を開始する楽曲情報の件数の閾値を指定して GENOCIDE 難易度表パーサオブジェクトを構築します。
+	 * <p>閾値の扱いは {@link ScoreJsonParser#ScoreJsonParser(int)} と同じです。</p>
+	 * @param parallelThreshold 並列変換を開始する楽曲情報の件数の閾値
+	 * @throws IllegalArgumentException parallelThreshold が0以下
+	 * @since 0.3.0
+	 */
+	public GenocideHtmlParser(int parallelThreshold) {
+		assertArg(parallelThreshold > 0, "'parallelThreshold' is less than 1: %d", parallelThreshold);
+		mParallelThreshold = parallelThreshold;
+	}
+
 	/** {@inheritDoc} */
 	@Override
-	public List<ContentDescription> parse(TableDescription tableDesc, PlayStyle playStyle, byte[] raw)
-			throws IOException {
-		// 楽曲情報リストを抽出する
-		var jsonContents = (JSONArray)null;
+	public void parse(TableDescription tableDesc, PlayStyle playStyle, InputStream in,
+			Consumer<ContentDescription> sink) throws IOException {
+		// 生HTMLソースから楽曲情報部のJSONを抽出しながら、楽曲情報リストをJSON配列として解析する
+		// HTMLは1回だけ走査し、楽曲情報定義の終了部分を検出した時点で読み込みを終了する
+		var contents = new ContentsReader(new InputStreamReader(in, Charset.forName("MS932")));
+		var reader = new JsonPullReader(contents);
 		try {
-			// 生HTMLソースから楽曲情報部のJSONを抽出する
-			// GENOCIDEの楽曲情報では、厳格なJSONの仕様として一部不正なエスケープ文字として認識される箇所があり、
-			// そのままJSON解析にかけるとエラーになるので、不正エスケープ部分をスキップできるよう、その部分を
-			// エスケープなしの文字列に変換した後でJSON解析を行うようにする。
-			var end = new AtomicBoolean(false);
-			var bais = new ByteArrayInputStream(raw);
-			var isr = new InputStreamReader(bais, Charset.forName("MS932"));
-			var reader = new BufferedReader(isr);
-			var json = reader.lines()
-					.dropWhile(l -> !CONTENTS_BEGIN_PATTERN.matcher(l).matches())
-					.skip(1)
-					.peek(l -> end.set(CONTENTS_END_PATTERN.matcher(l).matches()))
-					.takeWhile(l -> !end.get())
-					.collect(Collectors.joining("\n", "[", "]"))
-					.replaceAll("\\\\([^\"/\\\\bfnrtu])", "\\\\\\\\$1");
-
-			// 楽曲情報リストをJSON配列として解析する
-			jsonContents = new JSONArray(json);
-			if (jsonContents.isEmpty() || !end.get()) {
-				// 楽曲情報リストの開始と終了を検知できなかった場合、0件の場合は解析エラーとする
-				// ※楽曲情報が空＝難易度表が正しく作成されていない、若しくは構文エラーとして解釈する
-				throw new IOException("Unknown or invalid HTML source");
-			}
+			reader.beginArray();
 		} catch (JSONException e) {
-			// JSON解析エラーの場合は処理を中止する
 			throw new IOException("JSON parse error", e);
 		}
 
-		// 楽曲情報を解体して楽曲情報リストを生成する
+		// 楽曲情報を1件読み込むごとに解体して出力先へ渡す
 		var styleDesc = tableDesc.getPlayStyleDescription(playStyle);
+		var converter = new ParallelConverter<Object, ContentDescription>(mParallelThreshold,
+				(i, element, logger) -> convert(styleDesc, playStyle, i, element, logger), sink);
+		try {
+			while (hasNextContent(reader)) {
+				converter.accept(readContent(reader));
+			}
+
+			// 楽曲情報リストの後も楽曲情報定義の終了部分までは読み込み、終了部分の有無を確認する
+			contents.skipToEnd();
+		} catch (IOException | RuntimeException e) {
+			// 解析エラーの場合は並列変換待ちの楽曲情報を変換せずに破棄し、発生したエラーをそのままスローする
+			converter.discard();
+			throw e;
+		}
+		converter.finish();
+		if ((converter.getCount() == 0) || !contents.isEnded()) {
+			// 楽曲情報リストの開始と終了を検知できなかった場合、0件の場合は解析エラーとする
+			// ※楽曲情報が空＝難易度表が正しく作成されていない、若しくは構文エラーとして解釈する
+			throw new IOException("Unknown or invalid HTML source");
+		}
+	}
+
+	/**
+	 * 楽曲情報リストの1件の楽曲情報から楽曲情報への変換
+	 * <p>当メソッドは複数のスレッドから同時に呼び出される可能性がある。</p>
+	 * @param styleDesc プレースタイル定義
+	 * @param playStyle プレースタイル
+	 * @param i 楽曲情報のインデックス
+	 * @param element 楽曲情報のJSONの値
+	 * @param logger デバッグログの出力先
+	 * @return 楽曲情報、スキップする場合 null
+	 * @throws JSONException 難易度表記が文字列ではない
+	 */
+	private static ContentDescription convert(PlayStyleDescription styleDesc, PlayStyle playStyle, int i,
+			Object element, ParallelConverter.Logger logger) {
+		// 1件ずつ楽曲情報を抽出する
 		var symbol = styleDesc.getSymbol();
-		var count = jsonContents.length();
-		var contents = new ArrayList<ContentDescription>(count);
-		for (var i = 0; i < count; i++) {
-			// 1件ずつ楽曲情報を抽出する
-			var jsonContent = jsonContents.optJSONArray(i);
-			if (Objects.isNull(jsonContent)) {
-				// 配列データではない項目はスキップする
-				printLog("contents[%d]: Skip because bad data format", i);
-				continue;
-			}
-			if (jsonContent.length() < 5) {
-				// 配列データの件数が必要要素数に満たない項目はスキップする
-				printLog("contents[%d]: Skip because too few data definition: Length=%d", i, jsonContent.length());
-				continue;
-			}
-
-			// 難易度表記から難易度インデックスを解決する
-			// GENOCIDE HTMLでは楽曲情報に難易度表記(記号+難易度ラベル)を記述しているので、インデックス値に変換する
-			var level = jsonContent.getString(1);
-			if (!level.startsWith(symbol)) {
-				// 難易度表記が記号で始まっていない場合は不正データとして扱う
-				printLog("contents[%d]: Skip because invalid level: Value='%s'", level);
-				continue;
-			}
-			var label = level.substring(symbol.length());
-			var levelIndex = styleDesc.getLevelIndex(label);
-			if (levelIndex < 0) {
-				// 難易度表に該当するラベルが存在しない場合は不正データとして扱う
-				printLog("contents[%d]: Skip because in this table, no level such '%s'", i, level);
-				continue;
-			}
-
-			// タイトルを抽出する
-			var title = jsonContent.optString(2, "");
-			if (title.isEmpty()) {
-				printLog("contents[%d]: Skip because title is empty", i);
-				continue;
-			}
-
-			// アーティストと楽曲本体入手先URLを抽出する
-			var artist = "";
-			var bodyUrlStr = (String)null;
-			var bodyUrl = (URL)null;
-			var artistOrg = jsonContent.optString(4, "");
-			var artistMatcher = ARTIST_PATTERN.matcher(artistOrg);
-			if (artistMatcher.matches()) {
-				// アーティストと楽曲本体入手先URLの両方を抽出可能
-				artist = artistMatcher.group(2);
-				bodyUrlStr = artistMatcher.group(1);
+		var jsonContent = (element instanceof JSONArray) ? (JSONArray)element : null;
+		if (Objects.isNull(jsonContent)) {
+			// 配列データではない項目はスキップする
+			logger.printLog("contents[%d]: Skip because bad data format", i);
+			return null;
+		}
+		if (jsonContent.length() < 5) {
+			// 配列データの件数が必要要素数に満たない項目はスキップする
+			logger.printLog("contents[%d]: Skip because too few data definition: Length=%d", i, jsonContent.length());
+			return null;
+		}
+
+		// 難易度表記から難易度インデックスを解決する
+		// GENOCIDE HTMLでは楽曲情報に難易度表記(記号+難易度ラベル)を記述しているので、インデックス値に変換する
+		var level = jsonContent.getString(1);
+		if (!level.startsWith(symbol)) {
+			// 難易度表記が記号で始まっていない場合は不正データとして扱う
+			logger.printLog("contents[%d]: Skip because invalid level: Value='%s'", level);
+			return null;
+		}
+		var label = level.substring(symbol.length());
+		var levelIndex = styleDesc.getLevelIndex(label);
+		if (levelIndex < 0) {
+			// 難易度表に該当するラベルが存在しない場合は不正データとして扱う
+			logger.printLog("contents[%d]: Skip because in this table, no level such '%s'", i, level);
+			return null;
+		}
+
+		// タイトルを抽出する
+		var title = jsonContent.optString(2, "");
+		if (title.isEmpty()) {
+			logger.printLog("contents[%d]: Skip because title is empty", i);
+			return null;
+		}
+
+		// アーティストと楽曲本体入手先URLを抽出する
+		var artist = "";
+		var bodyUrlStr = (String)null;
+		var bodyUrl = (URL)null;
+		var artistOrg = jsonContent.optString(4, "");
+		var artistMatcher = ARTIST_PATTERN.matcher(artistOrg);
+		if (artistMatcher.matches()) {
+			// アーティストと楽曲本体入手先URLの両方を抽出可能
+			artist = artistMatcher.group(2);
+			bodyUrlStr = artistMatcher.group(1);
+		} else {
+			// アーティストのみ抽出可能
+			logger.printLog("contents[%d]: Abnormal artist pattern: Org=%s", i, artistOrg);
+			artist = artistOrg;
+		}
+		if (Objects.nonNull(bodyUrlStr) && !bodyUrlStr.isEmpty()) {
+			try {
+				// 本体入手先URLを解析する
+				bodyUrl = new URL(bodyUrlStr);
+			} catch (MalformedURLException e) {
+				logger.printLog("contents[%d]: Invalid body URL: Value='%s'", i, bodyUrlStr);
+			}
+		}
+
+		// 楽曲情報を構築する
+		return new ContentDescription(title, artist, playStyle, levelIndex, bodyUrl, null, null, null);
+	}
+
+	/**
+	 * 楽曲情報リストの次の楽曲情報の有無判定
+	 * @param reader 楽曲情報リストのJSON読み込みオブジェクト
+	 * @return 次の楽曲情報がある場合 true
+	 * @throws IOException 入力ストリームの読み込みでエラーが発生した、またはJSON解析エラー
+	 */
+	private static boolean hasNextContent(JsonPullReader reader) throws IOException {
+		try {
+			return reader.hasNext();
+		} catch (JSONException e) {
+			throw new IOException("JSON parse error", e);
+		}
+	}
+
+	/**
+	 * 楽曲情報リストの楽曲情報1件の読み込み
+	 * @param reader 楽曲情報リストのJSON読み込みオブジェクト
+	 * @return 楽曲情報のJSONの値
+	 * @throws IOException 入力ストリームの読み込みでエラーが発生した、またはJSON解析エラー
+	 */
+	private static Object readContent(JsonPullReader reader) throws IOException {
+		try {
+			return reader.readValue();
+		} catch (JSONException e) {
+			throw new IOException("JSON parse error", e);
+		}
+	}
+
+	/**
+	 * 楽曲情報定義部分を楽曲情報リストのJSONとして読み込むリーダー
+	 * <p>WebページのHTMLを1行ずつ読み込み、楽曲情報定義の開始部分の次の行から終了部分の前の行までを改行で連結し、
+	 * 前後を '[' と ']' で囲んだJSONを1文字ずつ返す。HTML全体や楽曲情報定義全体を1個の文字列として保持しない。
+	 * GENOCIDEの楽曲情報では、厳格なJSONの仕様として一部不正なエスケープ文字として認識される箇所があり、
+	 * そのままJSON解析にかけるとエラーになるので、JSONで定義されていないエスケープ文字が続く '\' は
+	 * '\\' に変換して返し、エスケープなしの文字列として解析されるようにする。</p>
+	 */
+	private static class ContentsReader extends Reader {
+		/** JSONで定義されているエスケープ文字 */
+		private static final String ESCAPE_CHARS = "\"/\\bfnrtu";
+		/** 楽曲情報定義の開始部分の前 */
+		private static final int BEFORE = 0;
+		/** 楽曲情報リストのJSONの先頭 */
+		private static final int OPEN = 1;
+		/** 楽曲情報定義の行の読み込み中 */
+		private static final int LINE = 2;
+		/** 楽曲情報リストのJSONの末尾 */
+		private static final int CLOSE = 3;
+		/** 楽曲情報リストのJSONの終端 */
+		private static final int DONE = 4;
+
+		/** 入力元 */
+		private Reader mIn;
+		/** 入力元の読み込みバッファ */
+		private char[] mBuffer = new char[8192];
+		/** 入力元の読み込みバッファ内の次に読み込む位置 */
+		private int mPosition = 0;
+		/** 入力元の読み込みバッファ内の有効な文字数 */
+		private int mLimit = 0;
+		/** 直前の行末が '\r' だったかどうか */
+		private boolean mSkipLf = false;
+		/** 読み込み中の行 */
+		private StringBuilder mLine = new StringBuilder();
+		/** 読み込み中の行の次に返す位置 */
+		private int mLinePosition = 0;
+		/** 楽曲情報リストのJSONの読み込み状態 */
+		private int mState = BEFORE;
+		/** 楽曲情報定義の終了部分を検出したかどうか */
+		private boolean mEnded = false;
+		/** 次に返す楽曲情報リストのJSONの文字(ない場合は負の値) */
+		private int mPeek = -1;
+		/** エスケープ文字の変換により追加で返す文字(ない場合は負の値) */
+		private int mPending = -1;
+
+		/**
+		 * コンストラクタ
+		 * @param in 入力元
+		 */
+		ContentsReader(Reader in) {
+			mIn = in;
+		}
+
+		/**
+		 * 楽曲情報定義の終了部分を検出したかどうか
+		 * @return 終了部分を検出した場合 true
+		 */
+		boolean isEnded() {
+			return mEnded;
+		}
+
+		/**
+		 * 楽曲情報定義の終了部分までの読み飛ばし
+		 * @throws IOException 入力元の読み込みでエラーが発生した
+		 */
+		void skipToEnd() throws IOException {
+			while ((mState == BEFORE) || (mState == OPEN) || (mState == LINE)) {
+				if ((mState == LINE) || (mState == OPEN)) {
+					// 楽曲情報定義の行は変換せずに読み飛ばす
+					mState = nextContentLine() ? LINE : CLOSE;
+				} else {
+					nextRaw();
+				}
+			}
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, cbuf.length);
+			var n = 0;
+			while (n < len) {
+				var c = nextEscaped();
+				if (c < 0) {
+					break;
+				}
+				cbuf[off + n++] = (char)c;
+			}
+			return ((n == 0) && (len > 0)) ? -1 : n;
+		}
+
+		@Override
+		public void close() throws IOException {
+			mIn.close();
+		}
+
+		/**
+		 * 不正なエスケープ文字を変換した楽曲情報リストのJSONの1文字取得
+		 * @return 1文字、終端に達した場合は負の値
+		 * @throws IOException 入力元の読み込みでエラーが発生した
+		 */
+		private int nextEscaped() throws IOException {
+			if (mPending >= 0) {
+				var c = mPending;
+				mPending = -1;
+				return c;
+			}
+			var c = (mPeek >= 0) ? mPeek : nextRaw();
+			mPeek = -1;
+			if (c != '\\') {
+				return c;
+			}
+			var d = nextRaw();
+			if ((d >= 0) && (ESCAPE_CHARS.indexOf(d) < 0)) {
+				// JSONで定義されていないエスケープ文字は '\\' + 文字に変換する
+				mPeek = d;
+				mPending = '\\';
 			} else {
-				// アーティストのみ抽出可能
-				printLog("contents[%d]: Abnormal artist pattern: Org=%s", i, artistOrg);
-				artist = artistOrg;
-			}
-			if (Objects.nonNull(bodyUrlStr) && !bodyUrlStr.isEmpty()) {
-				try {
-					// 本体入手先URLを解析する
-					bodyUrl = new URL(bodyUrlStr);
-				} catch (MalformedURLException e) {
-					printLog("contents[%d]: Invalid body URL: Value='%s'", i, bodyUrlStr);
+				// JSONで定義されているエスケープ文字は、それ自体が次のエスケープの開始となり得るため次回判定する
+				mPeek = d;
+			}
+			return c;
+		}
+
+		/**
+		 * 楽曲情報リストのJSONの1文字取得
+		 * @return 1文字、終端に達した場合は負の値
+		 * @throws IOException 入力元の読み込みでエラーが発生した
+		 */
+		private int nextRaw() throws IOException {
+			for (;;) {
+				switch (mState) {
+				case BEFORE:
+					// 楽曲情報定義の開始部分を探す(見つからない場合は空の楽曲情報リストとなる)
+					mState = OPEN;
+					while (nextLine()) {
+						if (isBeginLine(mLine)) {
+							mState = OPEN;
+							return '[';
+						}
+					}
+					return '[';
+				case OPEN:
+					mState = nextContentLine() ? LINE : CLOSE;
+					break;
+				case LINE:
+					if (mLinePosition < mLine.length()) {
+						return mLine.charAt(mLinePosition++);
+					}
+					if (!nextContentLine()) {
+						mState = CLOSE;
+						break;
+					}
+					return '\n';
+				case CLOSE:
+					mState = DONE;
+					return ']';
+				default:
+					return -1;
+				}
+			}
+		}
+
+		/**
+		 * 楽曲情報定義の次の行の読み込み
+		 * @return 楽曲情報定義の行を読み込んだ場合 true、終了部分を検出した、または終端に達した場合 false
+		 * @throws IOException 入力元の読み込みでエラーが発生した
+		 */
+		private boolean nextContentLine() throws IOException {
+			if (!nextLine()) {
+				return false;
+			}
+			if (isEndLine(mLine)) {
+				mEnded = true;
+				return false;
+			}
+			return true;
+		}
+
+		/**
+		 * 入力元から1行読み込み
+		 * <p>行末は '\n', '\r', "\r\n" のいずれかとする。</p>
+		 * @return 1行読み込んだ場合 true、終端に達した場合 false
+		 * @throws IOException 入力元の読み込みでエラーが発生した
+		 */
+		private boolean nextLine() throws IOException {
+			var line = mLine;
+			line.setLength(0);
+			mLinePosition = 0;
+			for (;;) {
+				if (mPosition >= mLimit) {
+					mLimit = mIn.read(mBuffer, 0, mBuffer.length);
+					mPosition = 0;
+					if (mLimit <= 0) {
+						mLimit = 0;
+						return line.length() > 0;
+					}
+				}
+				var c = mBuffer[mPosition++];
+				if (mSkipLf) {
+					mSkipLf = false;
+					if (c == '\n') {
+						continue;
+					}
 				}
+				if ((c == '\n') || (c == '\r')) {
+					mSkipLf = (c == '\r');
+					return true;
+				}
+				line.append(c);
 			}
+		}
 
-			// 楽曲情報を構築する
-			contents.add(new ContentDescription(title, artist, playStyle, levelIndex, bodyUrl, null, null, null));
+		/**
+		 * 楽曲情報定義の開始部分(var mname = [)の行かどうか
+		 * @param line 行
+		 * @return 開始部分の行の場合 true
+		 */
+		private static boolean isBeginLine(CharSequence line) {
+			var p = skipSpaces(line, 0);
+			if (!startsWith(line, p, "var")) {
+				return false;
+			}
+			var q = skipSpaces(line, p + 3);
+			if ((q == p + 3) || !startsWith(line, q, "mname")) {
+				return false;
+			}
+			p = skipSpaces(line, q + 5);
+			if (!startsWith(line, p, "=")) {
+				return false;
+			}
+			p = skipSpaces(line, p + 1);
+			if (!startsWith(line, p, "[")) {
+				return false;
+			}
+			return skipSpaces(line, p + 1) == line.length();
+		}
+
+		/**
+		 * 楽曲情報定義の終了部分(];)の行かどうか
+		 * @param line 行
+		 * @return 終了部分の行の場合 true
+		 */
+		private static boolean isEndLine(CharSequence line) {
+			var p = skipSpaces(line, 0);
+			return startsWith(line, p, "];") && (skipSpaces(line, p + 2) == line.length());
+		}
+
+		/**
+		 * 空白文字の読み飛ばし
+		 * <p>空白文字は正規表現の \s と同じ文字(行末文字を除く)とする。</p>
+		 * @param line 行
+		 * @param pos 開始位置
+		 * @return 空白文字以外の文字の位置
+		 */
+		private static int skipSpaces(CharSequence line, int pos) {
+			var p = pos;
+			while ((p < line.length()) && (" \t\u000b\f".indexOf(line.charAt(p)) >= 0)) {
+				p++;
+			}
+			return p;
 		}
 
-		return contents;
+		/**
+		 * 指定位置から指定文字列で始まるかどうか
+		 * @param line 行
+		 * @param pos 位置
+		 * @param str 文字列
+		 * @return 指定文字列で始まる場合 true
+		 */
+		private static boolean startsWith(CharSequence line, int pos, String str) {
+			var length = str.length();
+			if (pos + length > line.length()) {
+				return false;
+			}
+			for (var i = 0; i < length; i++) {
+				if (line.charAt(pos + i) != str.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
 	}
 }
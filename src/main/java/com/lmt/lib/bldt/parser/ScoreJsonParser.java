@@ -1,20 +1,23 @@
 package com.lmt.lib.bldt.parser;
 
-import static com.lmt.lib.bldt.DifficultyTables.*;
+import static com.lmt.lib.bldt.internal.Assertion.*;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 
 import com.lmt.lib.bldt.ContentDescription;
-import com.lmt.lib.bldt.Parser;
 import com.lmt.lib.bldt.PlayStyle;
+import com.lmt.lib.bldt.PlayStyleDescription;
+import com.lmt.lib.bldt.StreamingParser;
 import com.lmt.lib.bldt.TableDescription;
+import com.lmt.lib.bldt.internal.JsonPullReader;
+import com.lmt.lib.bldt.internal.ParallelConverter;
 import com.lmt.lib.bldt.internal.Utility;
 
 /**
@@ -40,88 +43,206 @@ import com.lmt.lib.bldt.internal.Utility;
  *   }, …以下複数
  * ]</pre>
  *
+ * <p>当パーサは {@link StreamingParser} を実装しており、ダウンロード中の楽曲情報 JSON を受信と並行して解析します。
+ * 楽曲情報の件数が多い場合は、楽曲情報の変換を並列に行います({@link #ScoreJsonParser(int)} を参照)。</p>
+ *
  * @since 0.1.0
  */
-public class ScoreJsonParser implements Parser {
+public class ScoreJsonParser implements StreamingParser {
+	/**
+	 * 楽曲情報 JSON の1件の楽曲情報から抽出した項目
+	 * <p>各項目の値は org.json の JSONObject#optString(String) と同じ規則で文字列化する。</p>
+	 */
+	private static class JsonContent {
+		/** レベル */
+		String level = "";
+		/** タイトル */
+		String title = "";
+		/** アーティスト */
+		String artist = "";
+		/** アーティストが定義されているかどうか */
+		boolean hasArtist = false;
+		/** 楽曲本体入手先URL */
+		String url = "";
+		/** 差分譜面入手先URL */
+		String urlDiff = "";
+		/** ハッシュ値(MD5) */
+		String md5 = "";
+		/** ハッシュ値(SHA-256) */
+		String sha256 = "";
+	}
+
+	/** 並列変換を開始する楽曲情報の件数の閾値 */
+	private int mParallelThreshold;
+
+	/**
+	 * 楽曲情報 JSON パーサオブジェクトを構築します。
+	 * <p>楽曲情報が {@value ParallelConverter#DEFAULT_THRESHOLD} 件を超える場合、超えた分の楽曲情報を並列に変換します。</p>
+	 * @since 0.1.0
+	 */
+	public ScoreJsonParser() {
+		this(ParallelConverter.DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * 並列変換を開始する楽曲情報の件数の閾値を指定して楽曲情報 JSON パーサオブジェクトを構築します。
+	 * <p>楽曲情報 JSON の楽曲情報は、閾値の件数までは1件読み込むごとに変換して出力先へ渡します。
+	 * 閾値を超えた分の楽曲情報は閾値と同じ件数ずつまとめて ForkJoinPool で並列に変換し、元の順番で出力先へ渡します。
+	 * 並列に変換した場合でも、解析結果・デバッグログの順番は1件ずつ変換した場合と同じです。
+	 * 並列変換を行わない場合は {@link Integer#MAX_VALUE} を指定してください。</p>
+	 * @param parallelThreshold 並列変換を開始する楽曲情報の件数の閾値
+	 * @throws IllegalArgumentException parallelThreshold が0以下
+	 * @since 0.3.0
+	 */
+	public ScoreJsonParser(int parallelThreshold) {
+		assertArg(parallelThreshold > 0, "'parallelThreshold' is less than 1: %d", parallelThreshold);
+		mParallelThreshold = parallelThreshold;
+	}
+
+	/** {@inheritDoc} */
 	@Override
-	public List<ContentDescription> parse(TableDescription tableDesc, PlayStyle playStyle, byte[] raw)
-			throws IOException {
+	public void parse(TableDescription tableDesc, PlayStyle playStyle, InputStream in,
+			Consumer<ContentDescription> sink) throws IOException {
 		// 楽曲情報JSONを解析する
 		// 入力されるJSONはUTF-8でエンコードされていることを前提とする
-		var jsonContents = (JSONArray)null;
+		// JSON全体を文字列・DOMとして保持せず、楽曲情報を1件読み込むごとに抽出する
+		// UTF-8のBOMがある場合はBOMを読み飛ばす
+		var styleDesc = tableDesc.getPlayStyleDescription(playStyle);
+		var converter = new ParallelConverter<JsonContent, ContentDescription>(mParallelThreshold,
+				(i, jsonContent, logger) -> convert(styleDesc, playStyle, i, jsonContent, logger), sink);
+		var reader = new JsonPullReader(new InputStreamReader(Utility.skipUtf8Bom(in), StandardCharsets.UTF_8));
 		try {
-			var jsonStr = "";
-			if ((raw.length >= 3) && (raw[0] == (byte)0xef) && (raw[1] == (byte)0xbb) && (raw[2] == (byte)0xbf)) {
-				// UTF-8のBOMがある場合はBOMを読み飛ばして文字列をデコードする
-				jsonStr = new String(raw, 3, raw.length - 3, StandardCharsets.UTF_8);
-			} else {
-				// BOMなしの場合はバイトデータ全体をデコードする
-				jsonStr = new String(raw, StandardCharsets.UTF_8);
+			reader.beginArray();
+			while (reader.hasNext()) {
+				// 1件の楽曲情報を抽出する
+				converter.accept(readContent(reader));
 			}
-			jsonContents = new JSONArray(jsonStr);
 		} catch (JSONException e) {
 			// 楽曲情報リストの開始と終了を検知できなかった場合は解析エラーとする
+			// 解析エラーの場合は並列変換待ちの楽曲情報を変換せずに破棄する
+			converter.discard();
 			throw new IOException("Bad JSON format", e);
+		} catch (IOException | RuntimeException e) {
+			converter.discard();
+			throw e;
 		}
+		converter.finish();
+	}
 
-		// 楽曲情報を1件ずつ抽出する
-		var styleDesc = tableDesc.getPlayStyleDescription(playStyle);
-		var numContent = jsonContents.length();
-		var outContents = new ArrayList<ContentDescription>(numContent);
-		for (var i = 0; i < numContent; i++) {
-			// 1件の楽曲情報を抽出する
-			var jsonContent = jsonContents.optJSONObject(i);
-			if (Objects.isNull(jsonContent)) {
-				// 楽曲情報が想定外の定義の場合はスキップする
-				printLog("contents[%d]: Bad data format", i);
-				continue;
-			}
+	/**
+	 * 楽曲情報 JSON の1件の楽曲情報から楽曲情報への変換
+	 * <p>当メソッドは複数のスレッドから同時に呼び出される可能性がある。</p>
+	 * @param styleDesc プレースタイル定義
+	 * @param playStyle プレースタイル
+	 * @param i 楽曲情報のインデックス
+	 * @param jsonContent 抽出した項目、楽曲情報がオブジェクトでない場合 null
+	 * @param logger デバッグログの出力先
+	 * @return 楽曲情報、スキップする場合 null
+	 */
+	private static ContentDescription convert(PlayStyleDescription styleDesc, PlayStyle playStyle, int i,
+			JsonContent jsonContent, ParallelConverter.Logger logger) {
+		if (Objects.isNull(jsonContent)) {
+			// 楽曲情報が想定外の定義の場合はスキップする
+			logger.printLog("contents[%d]: Bad data format", i);
+			return null;
+		}
 
-			// 必須項目を抽出する
-			var label = jsonContent.optString("level");
-			var levelIndex = -1;
-			var title = jsonContent.optString("title");
-			var artist = jsonContent.optString("artist");
-			if (Objects.isNull(label) || label.isEmpty()) {
-				// レベル部が不正な場合はスキップする
-				printLog("contents[%d]: Skip because invalid level: Value='%s'", i, label);
-				continue;
-			}
-			if ((levelIndex = styleDesc.getLevelIndex(label)) < 0) {
-				// 難易度表定義に存在しないレベルを検出した場合はスキップする
-				printLog("contents[%d]: Skip because unknown level: Value='%s'", i, label);
-				continue;
-			}
-			if (Objects.isNull(title) || title.isEmpty()) {
-				// タイトルが不正な場合はスキップする
-				printLog("contents[%d]: Skip because invalid title: Value='%s'", i, title);
-				continue;
-			}
-			if (Objects.isNull(artist) || (artist.isEmpty() && !jsonContent.has("artist"))) {
-				// アーティストが不正な場合はスキップする ※空文字はOKとする
-				printLog("contents[%d]: Skip because invalid artist: Value='%s'", i, artist);
-				continue;
-			}
+		// 必須項目を抽出する
+		var label = jsonContent.level;
+		var levelIndex = -1;
+		var title = jsonContent.title;
+		var artist = jsonContent.artist;
+		if (Objects.isNull(label) || label.isEmpty()) {
+			// レベル部が不正な場合はスキップする
+			logger.printLog("contents[%d]: Skip because invalid level: Value='%s'", i, label);
+			return null;
+		}
+		if ((levelIndex = styleDesc.getLevelIndex(label)) < 0) {
+			// 難易度表定義に存在しないレベルを検出した場合はスキップする
+			logger.printLog("contents[%d]: Skip because unknown level: Value='%s'", i, label);
+			return null;
+		}
+		if (Objects.isNull(title) || title.isEmpty()) {
+			// タイトルが不正な場合はスキップする
+			logger.printLog("contents[%d]: Skip because invalid title: Value='%s'", i, title);
+			return null;
+		}
+		if (Objects.isNull(artist) || (artist.isEmpty() && !jsonContent.hasArtist)) {
+			// アーティストが不正な場合はスキップする ※空文字はOKとする
+			logger.printLog("contents[%d]: Skip because invalid artist: Value='%s'", i, artist);
+			return null;
+		}
+
+		// 任意項目を抽出する
+		var bodyUrl = Utility.optionalJsonUrl(jsonContent.url, v -> {
+			logger.printLog("contents[%d]: Invalid body URL: Value='%s'", i, v);
+		});
+		var addUrl = Utility.optionalJsonUrl(jsonContent.urlDiff, v -> {
+			logger.printLog("contents[%d]: Invalid additional URL: Value='%s'", i, v);
+		});
+		var md5 = Utility.optionalJsonHash(jsonContent.md5, Utility::isMd5, v -> {
+			logger.printLog("contents[%d]: Invalid MD5: Value='%s'", i, v);
+		});
+		var sha256 = Utility.optionalJsonHash(jsonContent.sha256, Utility::isSha256, v -> {
+			logger.printLog("contents[%d]: Invalid SHA-256: Value='%s'", i, v);
+		});
 
-			// 任意項目を抽出する
-			var fi = i;
-			var bodyUrl = Utility.optionalJsonUrl(jsonContent.optString("url"), v -> {
-				printLog("contents[%d]: Invalid body URL: Value='%s'", fi, v);
-			});
-			var addUrl = Utility.optionalJsonUrl(jsonContent.optString("url_diff"), v -> {
-				printLog("contents[%d]: Invalid additional URL: Value='%s'", fi, v);
-			});
-			var md5 = Utility.optionalJsonHash(jsonContent.optString("md5"), Utility::isMd5, v -> {
-				printLog("contents[%d]: Invalid MD5: Value='%s'", fi, v);
-			});
-			var sha256 = Utility.optionalJsonHash(jsonContent.optString("sha256"), Utility::isSha256, v -> {
-				printLog("contents[%d]: Invalid SHA-256: Value='%s'", fi, v);
-			});
+		// 楽曲情報を生成する
+		return new ContentDescription(title, artist, playStyle, levelIndex, bodyUrl, addUrl, md5, sha256);
+	}
 
-			// 楽曲情報を追加する
-			outContents.add(new ContentDescription(title, artist, playStyle, levelIndex, bodyUrl, addUrl, md5, sha256));
+	/**
+	 * 楽曲情報 JSON の1件の楽曲情報の読み込み
+	 * <p>抽出対象の項目のみ値を生成し、それ以外の項目は読み飛ばす。</p>
+	 * @param reader JSON読み込みオブジェクト
+	 * @return 抽出した項目、楽曲情報がオブジェクトでない場合 null
+	 * @throws IOException 入力ストリームの読み込みでエラーが発生した
+	 * @throws JSONException JSONの構文エラー
+	 */
+	private static JsonContent readContent(JsonPullReader reader) throws IOException {
+		if (!reader.beginObject()) {
+			reader.skipValue();
+			return null;
 		}
+		var content = new JsonContent();
+		for (var name = reader.nextName(); Objects.nonNull(name); name = reader.nextName()) {
+			switch (name) {
+			case "level":
+				content.level = optString(reader.readValue());
+				break;
+			case "title":
+				content.title = optString(reader.readValue());
+				break;
+			case "artist":
+				content.artist = optString(reader.readValue());
+				content.hasArtist = true;
+				break;
+			case "url":
+				content.url = optString(reader.readValue());
+				break;
+			case "url_diff":
+				content.urlDiff = optString(reader.readValue());
+				break;
+			case "md5":
+				content.md5 = optString(reader.readValue());
+				break;
+			case "sha256":
+				content.sha256 = optString(reader.readValue());
+				break;
+			default:
+				reader.skipValue();
+				break;
+			}
+		}
+		return content;
+	}
 
-		return outContents;
+	/**
+	 * JSONの値の文字列化
+	 * @param value JSONの値
+	 * @return 値の文字列表現、JSONのNULL値の場合は空文字
+	 */
+	private static String optString(Object value) {
+		return Utility.isJsonNull(value) ? "" : value.toString();
 	}
 }
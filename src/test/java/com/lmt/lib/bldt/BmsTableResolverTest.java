@@ -0,0 +1,295 @@
+package com.lmt.lib.bldt;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpClient.Version;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import javax.net.ssl.SSLSession;
+
+import org.json.JSONObject;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.lmt.lib.bldt.parser.ScoreJsonParser;
+
+public class BmsTableResolverTest {
+	private static final String PAGE_URL = "https://example.com/table/index.html";
+	private static final String HEADER_URL = "https://example.com/table/header.json";
+	private static final String DATA_URL = "https://example.com/table/data/score.json";
+
+	private static Path sTmpDir;
+
+	private Map<String, Function<HttpRequest, HttpResponse<InputStream>>> mServer;
+	private List<HttpRequest> mRequests;
+
+	private class TestResolver extends BmsTableResolver {
+		TestResolver(Path cacheLocation) {
+			super(cacheLocation);
+		}
+
+		@Override
+		HttpResponse<InputStream> send(HttpClient client, HttpRequest request) throws IOException {
+			mRequests.add(request);
+			var handler = mServer.get(request.uri().toString());
+			if (handler == null) {
+				return new TestResponse(404, Map.of(), "");
+			}
+			return handler.apply(request);
+		}
+	}
+
+	private static class TestResponse implements HttpResponse<InputStream> {
+		private int mStatusCode;
+		private Map<String, List<String>> mHeaders;
+		private byte[] mRaw;
+		TestResponse(int status, Map<String, List<String>> headers, String body) {
+			mStatusCode = status;
+			mHeaders = headers;
+			mRaw = body.getBytes(StandardCharsets.UTF_8);
+		}
+		@Override public int statusCode() { return mStatusCode; }
+		@Override public HttpRequest request() { return null; }
+		@Override public Optional<HttpResponse<InputStream>> previousResponse() { return Optional.empty(); }
+		@Override public HttpHeaders headers() { return HttpHeaders.of(mHeaders, (a, b) -> true); }
+		@Override public InputStream body() { return new ByteArrayInputStream(mRaw); }
+		@Override public Optional<SSLSession> sslSession() { return Optional.empty(); }
+		@Override public URI uri() { return URI.create("http://example.com"); }
+		@Override public Version version() { return Version.HTTP_1_1; }
+	}
+
+	@BeforeAll
+	public static void beforeAll() throws Exception {
+		sTmpDir = Tests.mktmpdir(BmsTableResolverTest.class);
+	}
+
+	@AfterAll
+	public static void afterAll() throws Exception {
+		Tests.rmtmpdir(BmsTableResolverTest.class);
+	}
+
+	@BeforeEach
+	public void beforeEach() throws Exception {
+		Tests.rmtmpdir(BmsTableResolverTest.class);
+		sTmpDir = Tests.mktmpdir(BmsTableResolverTest.class);
+		mServer = new HashMap<>();
+		mRequests = new ArrayList<>();
+	}
+
+	// resolve(HttpClient, String, URL, PlayStyle, Duration)
+	// Webページの meta タグからヘッダ部を辿り、ヘッダ部の内容で難易度表定義が生成されること
+	@Test
+	public void testResolve_FromPage() throws Exception {
+		servePage("header.json");
+		serveHeader("{\"name\":\"Test Table\",\"symbol\":\"t\",\"data_url\":\"data/score.json\"," +
+				"\"level_order\":[0,\"1\",\"2\",\"?\"]}", "\"v1\"");
+		var td = resolver().resolve(HttpClient.newHttpClient(), "test_table", new URL(PAGE_URL), PlayStyle.SINGLE, null);
+		assertEquals("test_table", td.getId());
+		assertEquals("Test Table", td.getName());
+		assertEquals(PAGE_URL, td.getOfficialUrl().toString());
+		assertEquals(ScoreJsonParser.class, td.getParser().getClass());
+		assertNull(td.getDoubleDescription());
+		var sp = td.getSingleDescription();
+		assertEquals("t", sp.getSymbol());
+		assertEquals(DATA_URL, sp.getContentUrl().toString());
+		assertEquals(List.of("0", "1", "2", "?"), sp.getLabels());
+		assertEquals(2, mRequests.size());
+	}
+
+	// resolve(HttpClient, String, URL, PlayStyle, Duration)
+	// 保存済みのヘッダ部がある場合、Webページを取得せずヘッダ部に条件付きリクエストを送信し、304で保存済みの内容が使用されること
+	@Test
+	public void testResolve_HeaderNotModified() throws Exception {
+		servePage("header.json");
+		serveHeader("{\"name\":\"N\",\"symbol\":\"s\",\"data_url\":\"" + DATA_URL + "\",\"level_order\":[\"1\"]}", "\"v1\"");
+		resolver().resolve(HttpClient.newHttpClient(), "test_table", new URL(PAGE_URL), PlayStyle.DOUBLE, null);
+
+		mRequests.clear();
+		mServer.put(HEADER_URL, r -> {
+			assertEquals("\"v1\"", r.headers().firstValue("If-None-Match").orElse(null));
+			return new TestResponse(304, Map.of(), "");
+		});
+		var td = resolver().resolve(HttpClient.newHttpClient(), "test_table", new URL(PAGE_URL), PlayStyle.DOUBLE, null);
+		assertEquals(1, mRequests.size());
+		assertEquals(HEADER_URL, mRequests.get(0).uri().toString());
+		assertEquals("N", td.getName());
+		assertNull(td.getSingleDescription());
+		assertEquals(List.of("1"), td.getDoubleDescription().getLabels());
+	}
+
+	// resolve(HttpClient, String, URL, PlayStyle, Duration)
+	// 難易度ラベルリストがない場合は楽曲情報から生成し、楽曲情報URLが変わらない間は楽曲情報を取得しないこと
+	@Test
+	public void testResolve_LabelsFromContent() throws Exception {
+		var header = "{\"name\":\"N\",\"symbol\":\"s\",\"data_url\":\"data/score.json\"}";
+		servePage("header.json");
+		serveHeader(header, null);
+		mServer.put(DATA_URL, r -> new TestResponse(200, Map.of(), "[" +
+				"{\"level\":\"10\",\"title\":\"A\"},{\"level\":\"?\"},{\"level\":2},{\"level\":\"10\"},{\"level\":\"1.5\"}]"));
+		var td = resolver().resolve(HttpClient.newHttpClient(), "test_table", new URL(PAGE_URL), PlayStyle.SINGLE, null);
+		assertEquals(List.of("1.5", "2", "10", "?"), td.getSingleDescription().getLabels());
+
+		mRequests.clear();
+		td = resolver().resolve(HttpClient.newHttpClient(), "test_table", new URL(PAGE_URL), PlayStyle.SINGLE, null);
+		assertEquals(1, mRequests.size());
+		assertEquals(HEADER_URL, mRequests.get(0).uri().toString());
+		assertEquals(List.of("1.5", "2", "10", "?"), td.getSingleDescription().getLabels());
+
+		// ヘッダ部が更新されても楽曲情報URLが同じであれば楽曲情報を取得しない
+		serveHeader(header.replace("\"N\"", "\"N2\""), null);
+		mRequests.clear();
+		td = resolver().resolve(HttpClient.newHttpClient(), "test_table", new URL(PAGE_URL), PlayStyle.SINGLE, null);
+		assertEquals(1, mRequests.size());
+		assertEquals("N2", td.getName());
+		assertEquals(List.of("1.5", "2", "10", "?"), td.getSingleDescription().getLabels());
+	}
+
+	// resolve(HttpClient, String, URL, PlayStyle, Duration)
+	// 楽曲情報から生成した難易度ラベルリストの難易度表定義のパーサは、未知のラベルを検出するとエラーとし、
+	// 生成し直した難易度ラベルリストが楽曲情報を取得せずに次回の難易度表定義の生成で使用されること
+	@Test
+	public void testResolve_LabelsFromContentChanged() throws Exception {
+		servePage("header.json");
+		serveHeader("{\"name\":\"N\",\"symbol\":\"s\",\"data_url\":\"data/score.json\"}", "\"v1\"");
+		mServer.put(DATA_URL, r -> new TestResponse(200, Map.of(), "[{\"level\":\"1\",\"title\":\"A\",\"artist\":\"X\"}]"));
+		var td = resolver().resolve(HttpClient.newHttpClient(), "test_table", new URL(PAGE_URL), PlayStyle.SINGLE, null);
+		assertEquals(List.of("1"), td.getSingleDescription().getLabels());
+
+		// 既知のラベルのみの場合は解析される
+		var known = "[{\"level\":\"1\",\"title\":\"A\",\"artist\":\"X\"}]".getBytes(StandardCharsets.UTF_8);
+		var contents = td.getParser().parse(td, PlayStyle.SINGLE, known);
+		assertEquals(1, contents.size());
+		assertEquals("A", contents.get(0).getTitle());
+
+		// 未知のラベルがある場合はエラーとなる
+		var added = ("[{\"level\":\"1\",\"title\":\"A\",\"artist\":\"X\"}," +
+				"{\"level\":\"2\",\"title\":\"B\",\"artist\":\"X\"}]").getBytes(StandardCharsets.UTF_8);
+		var parser = td.getParser();
+		var tableDesc = td;
+		assertThrows(IOException.class, () -> parser.parse(tableDesc, PlayStyle.SINGLE, added));
+
+		// 次回の生成では楽曲情報を取得せずに生成し直した難易度ラベルリストが使用される
+		mServer.put(HEADER_URL, r -> new TestResponse(304, Map.of(), ""));
+		mRequests.clear();
+		td = resolver().resolve(HttpClient.newHttpClient(), "test_table", new URL(PAGE_URL), PlayStyle.SINGLE, null);
+		assertEquals(1, mRequests.size());
+		assertEquals(HEADER_URL, mRequests.get(0).uri().toString());
+		assertEquals(List.of("1", "2"), td.getSingleDescription().getLabels());
+		assertEquals(2, td.getParser().parse(td, PlayStyle.SINGLE, added).size());
+	}
+
+	// resolve(HttpClient, String, URL, PlayStyle, Duration)
+	// ヘッダ部が更新されていなくても楽曲情報から難易度ラベルリストを生成した場合は保存し、以降は楽曲情報を取得しないこと
+	@Test
+	public void testResolve_LabelsFromContentNotModified() throws Exception {
+		servePage("header.json");
+		serveHeader("{\"name\":\"N\",\"symbol\":\"s\",\"data_url\":\"data/score.json\"}", "\"v1\"");
+		mServer.put(DATA_URL, r -> new TestResponse(200, Map.of(), "[{\"level\":\"2\"},{\"level\":\"1\"}]"));
+		resolver().resolve(HttpClient.newHttpClient(), "test_table", new URL(PAGE_URL), PlayStyle.SINGLE, null);
+
+		// 保存済みのヘッダ部から難易度ラベルリストを消去し、楽曲情報からの生成をやり直させる
+		var cachePath = sTmpDir.resolve("test_table.json");
+		var root = new JSONObject(Files.readString(cachePath, StandardCharsets.UTF_8));
+		root.put("labels", JSONObject.NULL);
+		Files.writeString(cachePath, root.toString(), StandardCharsets.UTF_8);
+
+		mServer.put(HEADER_URL, r -> new TestResponse(304, Map.of(), ""));
+		mRequests.clear();
+		var td = resolver().resolve(HttpClient.newHttpClient(), "test_table", new URL(PAGE_URL), PlayStyle.SINGLE, null);
+		assertEquals(List.of("1", "2"), td.getSingleDescription().getLabels());
+		assertEquals(2, mRequests.size());
+		assertEquals(DATA_URL, mRequests.get(1).uri().toString());
+
+		mRequests.clear();
+		td = resolver().resolve(HttpClient.newHttpClient(), "test_table", new URL(PAGE_URL), PlayStyle.SINGLE, null);
+		assertEquals(List.of("1", "2"), td.getSingleDescription().getLabels());
+		assertEquals(1, mRequests.size());
+		assertEquals(HEADER_URL, mRequests.get(0).uri().toString());
+	}
+
+	// resolve(HttpClient, String, URL, PlayStyle, Duration)
+	// ヘッダ部のURLを指定した場合、応答をヘッダ部として扱うこと
+	@Test
+	public void testResolve_HeaderUrl() throws Exception {
+		serveHeader("{\"name\":\"N\",\"symbol\":\"s\",\"data_url\":\"data/score.json\",\"level_order\":[\"1\"]}", null);
+		var td = resolver().resolve(HttpClient.newHttpClient(), "test_table", new URL(HEADER_URL), PlayStyle.SINGLE, null);
+		assertEquals(DATA_URL, td.getSingleDescription().getContentUrl().toString());
+		assertEquals(1, mRequests.size());
+	}
+
+	// resolve(HttpClient, String, URL, PlayStyle, Duration)
+	// IOException Webページにヘッダ部URLが記述されていない
+	@Test
+	public void testResolve_NoMeta() throws Exception {
+		mServer.put(PAGE_URL, r -> new TestResponse(200, Map.of(), "<html><head></head></html>"));
+		assertThrows(IOException.class, () -> {
+			resolver().resolve(HttpClient.newHttpClient(), "test_table", new URL(PAGE_URL), PlayStyle.SINGLE, null);
+		});
+	}
+
+	// resolve(HttpClient, String, URL, PlayStyle, Duration)
+	// IOException ヘッダ部に必須項目がない
+	@Test
+	public void testResolve_BadHeader() throws Exception {
+		servePage("header.json");
+		serveHeader("{\"name\":\"N\",\"data_url\":\"data/score.json\",\"level_order\":[\"1\"]}", null);
+		assertThrows(IOException.class, () -> {
+			resolver().resolve(HttpClient.newHttpClient(), "test_table", new URL(PAGE_URL), PlayStyle.SINGLE, null);
+		});
+	}
+
+	// resolve(HttpClient, String, URL, PlayStyle, Duration)
+	// IOException ヘッダ部の難易度ラベルリストが難易度表定義の制約を満たさない
+	@Test
+	public void testResolve_BadLabels() throws Exception {
+		servePage("header.json");
+		serveHeader("{\"name\":\"N\",\"symbol\":\"s\",\"data_url\":\"data/score.json\",\"level_order\":[\"\",null]}", null);
+		assertThrows(IOException.class, () -> {
+			resolver().resolve(HttpClient.newHttpClient(), "test_table", new URL(PAGE_URL), PlayStyle.SINGLE, null);
+		});
+		assertFalse(Files.exists(sTmpDir.resolve("test_table.json")));
+	}
+
+	// resolve(HttpClient, String, URL, PlayStyle, Duration)
+	// IllegalArgumentException IDの形式が不正
+	@Test
+	public void testResolve_BadId() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			resolver().resolve(HttpClient.newHttpClient(), "0bad", new URL(PAGE_URL), PlayStyle.SINGLE, null);
+		});
+	}
+
+	private BmsTableResolver resolver() {
+		return new TestResolver(sTmpDir);
+	}
+
+	private void servePage(String headerHref) {
+		var html = "<html><head><meta name=\"bmstable\" content=\"" + headerHref + "\"></head><body></body></html>";
+		mServer.put(PAGE_URL, r -> new TestResponse(200, Map.of(), html));
+	}
+
+	private void serveHeader(String json, String eTag) {
+		var headers = (eTag == null) ? Map.<String, List<String>>of() : Map.of("ETag", List.of(eTag));
+		mServer.put(HEADER_URL, r -> new TestResponse(200, headers, json));
+	}
+}
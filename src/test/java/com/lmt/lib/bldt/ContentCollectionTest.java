@@ -2,7 +2,9 @@ package com.lmt.lib.bldt;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.net.URL;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -43,9 +45,27 @@ public class ContentCollectionTest {
 		assertEquals(dpMdt, cc.getModifiedDateTime(PlayStyle.DOUBLE));
 		assertEquals(dpMdh, cc.getModifiedDataHash(PlayStyle.DOUBLE));
 		assertEquals(3, cc.getCount());
-		assertSame(cd1, cc.get(0));
-		assertSame(cd2, cc.get(1));
-		assertSame(cd3, cc.get(2));
+		assertContentEquals(cd1, cc.get(0));
+		assertContentEquals(cd2, cc.get(1));
+		assertContentEquals(cd3, cc.get(2));
+	}
+
+	// ContentCollection(TableDescription, ZonedDateTime, ZonedDateTime, String, ZonedDateTime, String, Collection<ContentDescription>)
+	// 楽曲情報の全項目が保持され、取得のたびに新しい楽曲情報オブジェクトが生成されること
+	@Test
+	public void testContentCollection_Columns() throws Exception {
+		var cd1 = new ContentDescription("t1", "a", PlayStyle.DOUBLE, 3, new URL("http://example.com/body"),
+				new URL("http://example.com/add"), MD5_1.toUpperCase(), SHA256_1);
+		var cd2 = new ContentDescription("t2", "a", PlayStyle.SINGLE, 1, null, null, null, SHA256_2);
+		var cd3 = new ContentDescription("t3", "", PlayStyle.SINGLE, 0, null, new URL("http://example.com/add"),
+				MD5_3, null);
+		var cc = new ContentCollection(TD, ZDT, ZDT, HASH, ZDT, HASH, List.of(cd1, cd2, cd3));
+		assertContentEquals(cd1, cc.get(0));
+		assertContentEquals(cd2, cc.get(1));
+		assertContentEquals(cd3, cc.get(2));
+		assertEquals(MD5_1, cc.get(0).getMd5());
+		assertNotSame(cc.get(0), cc.get(0));
+		assertSame(cc.get(0).getArtist(), cc.get(1).getArtist());
 	}
 
 	// ContentCollection(TableDescription, ZonedDateTime, ZonedDateTime, String, ZonedDateTime, String, Collection<ContentDescription>)
@@ -159,10 +179,60 @@ public class ContentCollectionTest {
 		var cc = new ContentCollection(TD, ZDT, ZDT, HASH, ZDT, HASH, contents);
 		var list = cc.all().collect(Collectors.toList());
 		assertEquals(4, list.size());
-		assertSame(cd1, list.get(0));
-		assertSame(cd2, list.get(1));
-		assertSame(cd3, list.get(2));
-		assertSame(cd4, list.get(3));
+		assertContentEquals(cd1, list.get(0));
+		assertContentEquals(cd2, list.get(1));
+		assertContentEquals(cd3, list.get(2));
+		assertContentEquals(cd4, list.get(3));
+	}
+
+	// all(PlayStyle)
+	// 指定したプレースタイルの楽曲情報のみが、オブジェクト生成時の順で走査されること
+	@Test
+	public void testAll_PlayStyle() {
+		var cd1 = new ContentDescription("t1", "a1", PlayStyle.DOUBLE, 0, null, null, null, null);
+		var cd2 = new ContentDescription("t2", "a2", PlayStyle.SINGLE, 0, null, null, null, null);
+		var cd3 = new ContentDescription("t3", "a3", PlayStyle.DOUBLE, 0, null, null, null, null);
+		var cc = new ContentCollection(TD, ZDT, ZDT, HASH, ZDT, HASH, List.of(cd1, cd2, cd3));
+		var dp = cc.all(PlayStyle.DOUBLE).collect(Collectors.toList());
+		assertEquals(2, dp.size());
+		assertContentEquals(cd1, dp.get(0));
+		assertContentEquals(cd3, dp.get(1));
+		var sp = cc.all(PlayStyle.SINGLE).collect(Collectors.toList());
+		assertEquals(1, sp.size());
+		assertContentEquals(cd2, sp.get(0));
+	}
+
+	// all(PlayStyle)
+	// NullPointerException playStyle が null
+	@Test
+	public void testAll_NullPlayStyle() {
+		var cc = new ContentCollection(TD, ZDT, ZDT, HASH, ZDT, HASH, List.of());
+		assertThrows(NullPointerException.class, () -> cc.all(null));
+	}
+
+	// getLevelCounts(PlayStyle)
+	// 指定したプレースタイルの難易度ごとの楽曲情報の数を返し、非サポートのプレースタイルでは空配列を返すこと
+	@Test
+	public void testGetLevelCounts_Normal() throws Exception {
+		var url = new URL("http://example.com");
+		var sp = new PlayStyleDescription("s", url, List.of("0", "1", "2"));
+		var td = new TableDescription("count", "Count", url, TableDescriptionTest.EMPTY_PARSER, sp, null);
+		var contents = List.of(
+				new ContentDescription("t1", "a", PlayStyle.SINGLE, 2, null, null, null, null),
+				new ContentDescription("t2", "a", PlayStyle.SINGLE, 0, null, null, null, null),
+				new ContentDescription("t3", "a", PlayStyle.SINGLE, 2, null, null, null, null),
+				new ContentDescription("t4", "a", PlayStyle.DOUBLE, 1, null, null, null, null));
+		var cc = new ContentCollection(td, ZDT, ZDT, HASH, ZDT, HASH, contents);
+		assertArrayEquals(new int[] { 1, 0, 2 }, cc.getLevelCounts(PlayStyle.SINGLE));
+		assertArrayEquals(new int[0], cc.getLevelCounts(PlayStyle.DOUBLE));
+	}
+
+	// getLevelCounts(PlayStyle)
+	// NullPointerException playStyle が null
+	@Test
+	public void testGetLevelCounts_NullPlayStyle() {
+		var cc = new ContentCollection(TD, ZDT, ZDT, HASH, ZDT, HASH, List.of());
+		assertThrows(NullPointerException.class, () -> cc.getLevelCounts(null));
 	}
 
 	// get(int)
@@ -249,6 +319,62 @@ public class ContentCollectionTest {
 		assertNull(cd);
 	}
 
+	// query(String, String, String, String)
+	// MD5、SHA-256は大文字・小文字を区別せずに照合されること
+	@Test
+	public void testQuery_HashIgnoreCase() throws Exception {
+		var md5 = "0123456789abcdef0123456789abcdef";
+		var sha256 = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789ABCDEF";
+		var cd1 = new ContentDescription("t1", "a1", PlayStyle.SINGLE, 0, null, null, md5, null);
+		var cd2 = new ContentDescription("t2", "a2", PlayStyle.SINGLE, 0, null, null, null, sha256);
+		var cc = new ContentCollection(TD, ZDT, ZDT, HASH, ZDT, HASH, List.of(cd1, cd2));
+		assertEquals("t1", cc.query("?", "?", PlayStyle.SINGLE, md5.toUpperCase(), null).getTitle());
+		assertEquals("t2", cc.query("?", "?", PlayStyle.SINGLE, null, sha256.toLowerCase()).getTitle());
+		assertEquals("t2", cc.query("?", "?", PlayStyle.SINGLE, null, sha256).getTitle());
+	}
+
+	// query(String, String, String, String)
+	// 同じMD5、SHA-256の楽曲情報が複数ある場合、後の楽曲情報を返すこと
+	@Test
+	public void testQuery_DuplicateHash() throws Exception {
+		var cd1 = new ContentDescription("t1", "a1", PlayStyle.SINGLE, 0, null, null, MD5_1, SHA256_1);
+		var cd2 = new ContentDescription("t2", "a2", PlayStyle.SINGLE, 0, null, null, MD5_1, SHA256_1);
+		var cc = new ContentCollection(TD, ZDT, ZDT, HASH, ZDT, HASH, List.of(cd1, cd2));
+		assertEquals("t2", cc.query("?", "?", PlayStyle.SINGLE, MD5_1, null).getTitle());
+		assertEquals("t2", cc.query("?", "?", PlayStyle.SINGLE, null, SHA256_1).getTitle());
+	}
+
+	// query(String, String, String, String)
+	// MD5、SHA-256の形式ではない値を指定した場合、タイトル、アーティスト、プレースタイルで照合されること
+	@Test
+	public void testQuery_MalformedHash() throws Exception {
+		var cc = testQuery_TestData();
+		assertEquals("t1", cc.query("t1", "a1", PlayStyle.SINGLE, "", "").getTitle());
+		assertEquals("t1", cc.query("t1", "a1", PlayStyle.SINGLE, MD5_2 + "0", SHA256_2.substring(1)).getTitle());
+		assertEquals("t1", cc.query("t1", "a1", PlayStyle.SINGLE, MD5_2.replace('2', 'g'), null).getTitle());
+	}
+
+	// query(String, String, String, String)
+	// 多数の楽曲情報の全てがMD5、SHA-256で照合でき、登録されていないハッシュ値は照合されないこと
+	@Test
+	public void testQuery_ManyContents() throws Exception {
+		var contents = new ArrayList<ContentDescription>();
+		for (var i = 0; i < 1000; i++) {
+			var md5 = String.format("%032x", i * 7919L);
+			var sha256 = (i % 3 == 0) ? null : String.format("%064x", i * 104729L);
+			contents.add(new ContentDescription("t" + i, "a", PlayStyle.SINGLE, 0, null, null, md5, sha256));
+		}
+		var cc = new ContentCollection(TD, ZDT, ZDT, HASH, ZDT, HASH, contents);
+		for (var i = 0; i < 1000; i++) {
+			var cd = contents.get(i);
+			assertEquals(cd.getTitle(), cc.query("?", "?", PlayStyle.SINGLE, cd.getMd5(), null).getTitle());
+			if (cd.getSha256() != null) {
+				assertEquals(cd.getTitle(), cc.query("?", "?", PlayStyle.SINGLE, null, cd.getSha256()).getTitle());
+			}
+		}
+		assertNull(cc.query("?", "?", PlayStyle.SINGLE, String.format("%032x", 1L), String.format("%064x", 3L)));
+	}
+
 	// query(String, String, String, String)
 	// NullPointerException title が null
 	@Test
@@ -273,6 +399,17 @@ public class ContentCollectionTest {
 		assertThrows(NullPointerException.class, () -> cc.query("t1", "a1", null, MD5_1, SHA256_1));
 	}
 
+	private static void assertContentEquals(ContentDescription expected, ContentDescription actual) {
+		assertEquals(expected.getTitle(), actual.getTitle());
+		assertEquals(expected.getArtist(), actual.getArtist());
+		assertEquals(expected.getPlayStyle(), actual.getPlayStyle());
+		assertEquals(expected.getLevelIndex(), actual.getLevelIndex());
+		assertEquals(String.valueOf(expected.getBodyUrl()), String.valueOf(actual.getBodyUrl()));
+		assertEquals(String.valueOf(expected.getAdditionalUrl()), String.valueOf(actual.getAdditionalUrl()));
+		assertEquals(expected.getMd5(), actual.getMd5());
+		assertEquals(expected.getSha256(), actual.getSha256());
+	}
+
 	private static ContentCollection testQuery_TestData() {
 		var cd1 = new ContentDescription("t1", "a1", PlayStyle.SINGLE, 0, null, null, MD5_1, SHA256_1);
 		var cd2 = new ContentDescription("t2", "a2", PlayStyle.SINGLE, 0, null, null, MD5_2, SHA256_2);
@@ -4,8 +4,10 @@ import static java.util.Objects.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URL;
 import java.net.http.HttpClient;
@@ -13,6 +15,8 @@ import java.net.http.HttpClient.Version;
 import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
@@ -20,24 +24,47 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
 import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
 import javax.net.ssl.SSLSession;
 
+import org.json.JSONException;
+import org.json.JSONObject;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
@@ -45,11 +72,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
+import com.lmt.lib.bldt.ContentDatabase.LoadOption;
 import com.lmt.lib.bldt.internal.LockFile;
 
 public class ContentDatabaseTest {
 	private static String ID_UPDATE1 = "update1";
 	private static String ID_UPDATE2 = "update2";
+	private static String ID_UPDATE_BOTH = "updateBoth";
 
 	private static Path sDefaultLocation;
 	private static Path sTmpDir;
@@ -61,12 +90,31 @@ public class ContentDatabaseTest {
 		HttpResponse<InputStream> send(HttpRequest request) throws IOException, InterruptedException;
 	}
 
+	@FunctionalInterface
+	private interface AsyncUpdateSender {
+		CompletableFuture<HttpResponse<InputStream>> send(HttpRequest request);
+	}
+
 	private static class UpdateDatabase extends ContentDatabase {
+		private static final ExecutorService ASYNC_EXECUTOR = Executors.newCachedThreadPool(r -> {
+			var thread = new Thread(r);
+			thread.setDaemon(true);
+			return thread;
+		});
+
 		private UpdateSender mSender;
+		private AsyncUpdateSender mAsyncSender;
 
-		UpdateDatabase(Path path, UpdateSender sender) throws IOException {
-			super(path, true);
+		UpdateDatabase(Path path, UpdateSender sender, LoadOption... options) throws IOException {
+			super(path, true, options);
 			mSender = sender;
+			mAsyncSender = r -> CompletableFuture.supplyAsync(() -> {
+				try {
+					return mSender.send(r);
+				} catch (IOException | InterruptedException e) {
+					throw new CompletionException(e);
+				}
+			}, ASYNC_EXECUTOR);
 		}
 
 		@Override
@@ -74,6 +122,50 @@ public class ContentDatabaseTest {
 				throws IOException, InterruptedException {
 			return mSender.send(request);
 		}
+
+		@Override
+		<T> CompletableFuture<HttpResponse<T>> sendAsync(HttpClient client, HttpRequest request,
+				HttpResponse.BodyHandler<T> handler) {
+			// 返したフューチャーのキャンセルは送信処理に伝播させる
+			var sending = mAsyncSender.send(request);
+			var future = sending.<HttpResponse<T>>thenApply(r -> new AsyncResponse<>(r, handler));
+			future.whenComplete((r, e) -> { if (future.isCancelled()) { sending.cancel(true); } });
+			return future;
+		}
+	}
+
+	private static class AsyncResponse<T> implements HttpResponse<T> {
+		private HttpResponse<InputStream> mResp;
+		private T mBody;
+		AsyncResponse(HttpResponse<InputStream> resp, HttpResponse.BodyHandler<T> handler) {
+			// 応答本文をボディハンドラが生成するサブスクライバに流し込む
+			mResp = resp;
+			var subscriber = handler.apply(new HttpResponse.ResponseInfo() {
+				@Override public int statusCode() { return resp.statusCode(); }
+				@Override public HttpHeaders headers() { return resp.headers(); }
+				@Override public Version version() { return resp.version(); }
+			});
+			try {
+				var raw = resp.body().readAllBytes();
+				subscriber.onSubscribe(new Flow.Subscription() {
+					@Override public void request(long n) { /* Do nothing */ }
+					@Override public void cancel() { /* Do nothing */ }
+				});
+				subscriber.onNext(List.of(ByteBuffer.wrap(raw)));
+				subscriber.onComplete();
+			} catch (IOException e) {
+				subscriber.onError(e);
+			}
+			mBody = subscriber.getBody().toCompletableFuture().join();
+		}
+		@Override public int statusCode() { return mResp.statusCode(); }
+		@Override public HttpRequest request() { return mResp.request(); }
+		@Override public Optional<HttpResponse<T>> previousResponse() { return Optional.empty(); }
+		@Override public HttpHeaders headers() { return mResp.headers(); }
+		@Override public T body() { return mBody; }
+		@Override public Optional<SSLSession> sslSession() { return mResp.sslSession(); }
+		@Override public URI uri() { return mResp.uri(); }
+		@Override public Version version() { return mResp.version(); }
 	}
 
 	private static class UpdateResponse implements HttpResponse<InputStream> {
@@ -352,6 +444,87 @@ public class ContentDatabaseTest {
 		});
 	}
 
+	// ContentDatabase(Path, boolean)
+	// 難易度表情報Fのmodified.eTagが未存在の場合、IOExceptionがスローされること
+	@Test
+	public void testContentDatabase2_ModifiedETagNotExist() throws Exception {
+		testContentDatabase2_ThrowIOException();
+	}
+
+	// ContentDatabase(Path, boolean)
+	// 難易度表情報Fのmodified.eTagがnullの場合、エンティティタグがnullになること
+	@Test
+	public void testContentDatabase2_ModifiedETagNull() throws Exception {
+		testContentDatabase2_SuccessAssertion(cc -> {
+			assertNull(cc.getModifiedETag(PlayStyle.SINGLE));
+			assertNull(cc.getModifiedETag(PlayStyle.DOUBLE));
+		});
+	}
+
+	// ContentDatabase(Path, boolean)
+	// 難易度表情報Fのmodified.eTagが文字列以外の場合、IOExceptionがスローされること
+	@Test
+	public void testContentDatabase2_ModifiedETagInvalid() throws Exception {
+		testContentDatabase2_ThrowIOException();
+	}
+
+	// ContentDatabase(Path, boolean)
+	// 難易度表情報Fのmodified.expiresが未存在の場合、IOExceptionがスローされること
+	@Test
+	public void testContentDatabase2_ModifiedExpiresNotExist() throws Exception {
+		testContentDatabase2_ThrowIOException();
+	}
+
+	// ContentDatabase(Path, boolean)
+	// 難易度表情報Fのmodified.expiresがnullの場合、有効期限がnullになること
+	@Test
+	public void testContentDatabase2_ModifiedExpiresNull() throws Exception {
+		testContentDatabase2_SuccessAssertion(cc -> {
+			assertNull(cc.getModifiedExpires(PlayStyle.SINGLE));
+			assertNull(cc.getModifiedExpires(PlayStyle.DOUBLE));
+		});
+	}
+
+	// ContentDatabase(Path, boolean)
+	// 難易度表情報Fのmodified.expiresが不正な記述の場合、IOExceptionがスローされること
+	@Test
+	public void testContentDatabase2_ModifiedExpiresInvalid() throws Exception {
+		testContentDatabase2_ThrowIOException();
+	}
+
+	// ContentDatabase(Path, boolean)
+	// 難易度表情報Fのmodified.expiresが正しい記述の場合、有効期限が正しく設定されること
+	@Test
+	public void testContentDatabase2_ModifiedExpiresValid() throws Exception {
+		testContentDatabase2_SuccessAssertion(cc -> {
+			assertEquals(ZonedDateTime.parse("2025-02-03T04:05:06Z"), cc.getModifiedExpires(PlayStyle.SINGLE));
+			assertEquals(ZonedDateTime.parse("2025-03-04T05:06:07+09:00[Asia/Tokyo]"),
+					cc.getModifiedExpires(PlayStyle.DOUBLE));
+		});
+	}
+
+	// ContentDatabase(Path, boolean)
+	// 難易度表情報Fのmodified.eTagが正しい記述の場合、エンティティタグが正しく設定されること
+	@Test
+	public void testContentDatabase2_ModifiedETagValid() throws Exception {
+		testContentDatabase2_SuccessAssertion(cc -> {
+			assertEquals("\"sp-etag\"", cc.getModifiedETag(PlayStyle.SINGLE));
+			assertEquals("W/\"dp-etag\"", cc.getModifiedETag(PlayStyle.DOUBLE));
+		});
+	}
+
+	// ContentDatabase(Path, boolean)
+	// バージョン1の難易度表情報Fでは、modified.eTagの記述に関わらずエンティティタグがnullになること
+	@Test
+	public void testContentDatabase2_ModifiedETagVersion1() throws Exception {
+		testContentDatabase2_SuccessAssertion(cc -> {
+			assertEquals("1111111111111111111111111111111111111111111111111111111111111111",
+					cc.getModifiedDataHash(PlayStyle.SINGLE));
+			assertNull(cc.getModifiedETag(PlayStyle.SINGLE));
+			assertNull(cc.getModifiedETag(PlayStyle.DOUBLE));
+		});
+	}
+
 	// ContentDatabase(Path, boolean)
 	// 難易度表情報Fのcontentsが未存在の場合、IOExceptionがスローされること
 	@Test
@@ -628,6 +801,88 @@ public class ContentDatabaseTest {
 		assertTrue(writeLock.test());
 	}
 
+	// ContentDatabase(Path, boolean)
+	// 複数の難易度表情報ファイルが破損している場合、難易度表定義の登録順で最初の難易度表の例外がスローされること
+	@Test
+	public void testContentDatabase2_ParallelFirstError() throws Exception {
+		setupUpdateTableDescriptions(null, null, null);
+		var path = setupTestData("common", Thread.currentThread().getStackTrace()[1].getMethodName(), false);
+		Files.writeString(path.resolve(ID_UPDATE1 + ".json"), "{", StandardCharsets.UTF_8);
+		Files.writeString(path.resolve(ID_UPDATE2 + ".json"), "{\"version\":0}", StandardCharsets.UTF_8);
+		for (var i = 0; i < 10; i++) {
+			var e = assertThrows(IOException.class, () -> new ContentDatabase(path, false));
+			assertTrue(e.getMessage().contains(ID_UPDATE1 + ".json"), e.getMessage());
+			assertTrue(e.getMessage().endsWith("Broken database"), e.getMessage());
+		}
+		Files.writeString(path.resolve(ID_UPDATE1 + ".json"), "{\"version\":0}", StandardCharsets.UTF_8);
+		var e = assertThrows(IOException.class, () -> new ContentDatabase(path, false));
+		assertTrue(e.getMessage().contains(ID_UPDATE1 + ".json"), e.getMessage());
+		assertTrue(e.getMessage().endsWith("Unacceptable tampering was detected"), e.getMessage());
+	}
+
+	// ContentDatabase(Path, boolean)
+	// 難易度表情報は並列で読み込まれ、難易度表定義の登録順に走査されること
+	@Test
+	public void testContentDatabase2_ParallelOrder() throws Exception {
+		var url = new URL("http://example.com");
+		var sp = new PlayStyleDescription("s", url, List.of("0", "1", "2"));
+		var ids = new ArrayList<String>();
+		for (var i = 0; i < 32; i++) {
+			var td = new TableDescription("t" + i, "T" + i, url, TableDescriptionTest.EMPTY_PARSER, sp, null);
+			DifficultyTables.add(td);
+		}
+		DifficultyTables.all().map(TableDescription::getId).forEach(ids::add);
+		var path = setupCommonTestData();
+		var db = new ContentDatabase(path, false);
+		assertEquals(ids, db.all().map(cc -> cc.getTableDescription().getId()).collect(Collectors.toList()));
+		assertCommonTestData(db);
+	}
+
+	// ContentDatabase(Path, boolean)
+	// 楽曲情報リストがヘッダ情報より前にある難易度表情報ファイルでも、楽曲情報が逐次読み込まれること
+	@Test
+	public void testContentDatabase2_StreamContentsFirst() throws Exception {
+		setupUpdateTableDescriptions(null, null, null);
+		var path = setupTestData("common", Thread.currentThread().getStackTrace()[1].getMethodName(), false);
+		Files.writeString(path.resolve(ID_UPDATE1 + ".json"), "{" +
+				"\"contents\":[{\"title\":\"T1\",\"artist\":\"A1\",\"levelIndex\":1,\"md5\":null,\"sha256\":null}," +
+				"1,,{\"title\":\"T2\",\"artist\":\"\",\"levelIndex\":2,\"extra\":[{\"x\":[1,2]}]}]," +
+				"\"unknown\":{\"a\":[true,null]}," +
+				"\"lastUpdated\":\"2025-01-02T03:04:05Z\"," +
+				"\"modified\":[{\"dateTime\":null,\"dataHash\":null},{\"dateTime\":null,\"dataHash\":null}]," +
+				"\"id\":\"" + ID_UPDATE1 + "\",\"version\":1}", StandardCharsets.UTF_8);
+		var cc = new ContentDatabase(path, false).get(ID_UPDATE1);
+		assertEquals("2025-01-02T03:04:05Z", cc.getLastUpdateDateTime().toString());
+		assertEquals(2, cc.getCount());
+		assertEquals("T1", cc.get(0).getTitle());
+		assertEquals("A1", cc.get(0).getArtist());
+		assertEquals(1, cc.get(0).getLevelIndex());
+		assertEquals("T2", cc.get(1).getTitle());
+		assertEquals("", cc.get(1).getArtist());
+		assertEquals(2, cc.get(1).getLevelIndex());
+	}
+
+	// ContentDatabase(Path, boolean)
+	// 楽曲情報リストが配列でない場合、ヘッダ情報の改ざん検出を優先し、ヘッダ情報が正常であれば破損と判定されること
+	@Test
+	public void testContentDatabase2_StreamContentsNotArray() throws Exception {
+		setupUpdateTableDescriptions(null, null, null);
+		var path = setupTestData("common", Thread.currentThread().getStackTrace()[1].getMethodName(), false);
+		var json = path.resolve(ID_UPDATE1 + ".json");
+		var header = "\"lastUpdated\":\"2025-01-02T03:04:05Z\"," +
+				"\"modified\":[{\"dateTime\":null,\"dataHash\":null},{\"dateTime\":null,\"dataHash\":null}]," +
+				"\"id\":\"" + ID_UPDATE1 + "\"";
+		Files.writeString(json, "{\"contents\":{\"title\":\"T\"}," + header + ",\"version\":0}", StandardCharsets.UTF_8);
+		var e = assertThrows(IOException.class, () -> new ContentDatabase(path, false));
+		assertTrue(e.getMessage().endsWith("Unacceptable tampering was detected"), e.getMessage());
+		Files.writeString(json, "{\"contents\":{\"title\":\"T\"}," + header + ",\"version\":1}", StandardCharsets.UTF_8);
+		e = assertThrows(IOException.class, () -> new ContentDatabase(path, false));
+		assertTrue(e.getMessage().endsWith("Broken database"), e.getMessage());
+		Files.writeString(json, "{" + header + ",\"version\":1}", StandardCharsets.UTF_8);
+		e = assertThrows(IOException.class, () -> new ContentDatabase(path, false));
+		assertTrue(e.getMessage().endsWith("Broken database"), e.getMessage());
+	}
+
 	private void testContentDatabase2_SuccessAssertion(Consumer<ContentCollection> asserter) throws Exception {
 		var path = setupTestData(1);
 		var db = new ContentDatabase(path, false);
@@ -641,6 +896,69 @@ public class ContentDatabaseTest {
 		assertThrows(IOException.class, () -> new ContentDatabase(path, false));
 	}
 
+	// ContentDatabase(Path, boolean, LoadOption...)
+	// 遅延読み込みモードで構築した場合、取得時に難易度表情報が読み込まれ、難易度表定義の登録順に走査されること
+	@Test
+	public void testContentDatabase3_Lazy() throws Exception {
+		var db = new ContentDatabase(setupCommonTestData(), false, LoadOption.LAZY);
+		assertCommonTestData(db);
+		var ids = db.all().map(cc -> cc.getTableDescription().getId()).collect(Collectors.toList());
+		assertEquals(DifficultyTables.all().map(TableDescription::getId).collect(Collectors.toList()), ids);
+	}
+
+	// ContentDatabase(Path, boolean, LoadOption...)
+	// 遅延読み込みモードでは構築時にファイル破損を検出せず、当該難易度表情報の取得時にUncheckedIOExceptionがスローされること
+	@Test
+	public void testContentDatabase3_Lazy_Broken() throws Exception {
+		var method = Thread.currentThread().getStackTrace()[1].getMethodName();
+		var path = setupTestData("testContentDatabase2_IdUnmatch", method, false);
+		var db = new ContentDatabase(path, false, LoadOption.LAZY);
+		assertEquals(0, db.get(Presets.GENOCIDE_NORMAL.getId()).getCount());
+		var e = assertThrows(UncheckedIOException.class, () -> db.get(Presets.SATELLITE.getId()));
+		assertInstanceOf(IOException.class, e.getCause());
+		assertThrows(UncheckedIOException.class, () -> db.all());
+	}
+
+	// ContentDatabase(Path, boolean, LoadOption...)
+	// 遅延読み込みモードでない場合、構築時にファイル破損を検出しIOExceptionがスローされること
+	@Test
+	public void testContentDatabase3_NotLazy_Broken() throws Exception {
+		var method = Thread.currentThread().getStackTrace()[1].getMethodName();
+		var path = setupTestData("testContentDatabase2_IdUnmatch", method, false);
+		assertThrows(IOException.class, () -> new ContentDatabase(path, false));
+	}
+
+	// ContentDatabase(Path, boolean, LoadOption...)
+	// NullPointerException options、または options の要素が null
+	@Test
+	public void testContentDatabase3_NullOption() throws Exception {
+		var path = setupCommonTestData();
+		assertThrows(NullPointerException.class, () -> new ContentDatabase(path, false, (LoadOption[])null));
+		assertThrows(NullPointerException.class, () -> new ContentDatabase(path, false, LoadOption.LAZY, null));
+	}
+
+	// warmUp()
+	// 未読み込みの難易度表情報がバックグラウンドで読み込まれ、以降はファイルを参照しないこと
+	@Test
+	public void testWarmUp_Normal() throws Exception {
+		var path = setupCommonTestData();
+		var db = new ContentDatabase(path, false, LoadOption.LAZY);
+		db.warmUp().get(10, TimeUnit.SECONDS);
+		Files.delete(path.resolve(Presets.SATELLITE.getId() + ".json"));
+		assertCommonTestData(db);
+	}
+
+	// warmUp()
+	// 難易度表情報の読み込みでファイル破損を検出した場合、IOExceptionを原因として例外的に完了すること
+	@Test
+	public void testWarmUp_Broken() throws Exception {
+		var method = Thread.currentThread().getStackTrace()[1].getMethodName();
+		var path = setupTestData("testContentDatabase2_IdUnmatch", method, false);
+		var db = new ContentDatabase(path, false, LoadOption.LAZY);
+		var e = assertThrows(ExecutionException.class, () -> db.warmUp().get(10, TimeUnit.SECONDS));
+		assertInstanceOf(IOException.class, e.getCause());
+	}
+
 	// getLocation()
 	// 正しい値を返すこと
 	@Test
@@ -650,6 +968,163 @@ public class ContentDatabaseTest {
 		assertEquals(path, db.getLocation());
 	}
 
+	// getDeduplicatedBytes()
+	// 複数の難易度表に同じ楽曲がある場合、文字列が共有され、削減したメモリ量が報告されること
+	@Test
+	public void testGetDeduplicatedBytes_Shared() throws Exception {
+		setupUpdateTableDescriptions(null, null, null);
+		var path = setupTestData("common", Thread.currentThread().getStackTrace()[1].getMethodName(), false);
+		var content = "{\"title\":\"Title\",\"artist\":\"Artist\",\"levelIndex\":1," +
+				"\"bodyUrl\":\"http://example.com/body.zip\",\"md5\":\"0123456789abcdef0123456789abcdef\",\"dpMode\":";
+		var modified = "\"modified\":[{\"dateTime\":null,\"dataHash\":null},{\"dateTime\":null,\"dataHash\":null}]";
+		Files.writeString(path.resolve(ID_UPDATE1 + ".json"), "{\"version\":1,\"id\":\"" + ID_UPDATE1 + "\"," +
+				"\"lastUpdated\":\"2025-01-02T03:04:05Z\"," + modified + ",\"contents\":[" + content + "false}]}",
+				StandardCharsets.UTF_8);
+		Files.writeString(path.resolve(ID_UPDATE2 + ".json"), "{\"version\":1,\"id\":\"" + ID_UPDATE2 + "\"," +
+				"\"lastUpdated\":\"2025-01-02T03:04:05Z\"," + modified + ",\"contents\":[" + content + "true}]}",
+				StandardCharsets.UTF_8);
+		var db = new ContentDatabase(path, false);
+		var cd1 = db.get(ID_UPDATE1).get(0);
+		var cd2 = db.get(ID_UPDATE2).get(0);
+		assertNotSame(cd1, cd2);
+		assertSame(cd1.getTitle(), cd2.getTitle());
+		assertSame(cd1.getArtist(), cd2.getArtist());
+		assertTrue(db.getDeduplicatedBytes() > 0L);
+	}
+
+	// getDeduplicatedBytes()
+	// 難易度表情報が更新で置き換えられ、共有する文字列がなくなった場合、削減したメモリ量が減少すること
+	@Test
+	public void testGetDeduplicatedBytes_Replaced() throws Exception {
+		var title = new AtomicReference<String>("Shared Title");
+		var db = setupUpdateDatabase(r -> new UpdateResponse(200, Map.of(), title.get().getBytes(StandardCharsets.UTF_8)),
+				(td, ps, raw) -> List.of(
+						new ContentDescription(title.get(), title.get() + " Artist", ps, 0, null, null, null, null)));
+		db.update(httpClient(), null, UpdateProgress.nop());
+		assertSame(db.get(ID_UPDATE1).get(0).getTitle(), db.get(ID_UPDATE2).get(0).getTitle());
+		assertTrue(db.getDeduplicatedBytes() > 0L);
+
+		title.set("Another Title");
+		db.update(httpClient(), ID_UPDATE1, null, UpdateProgress.nop());
+		assertEquals("Another Title", db.get(ID_UPDATE1).get(0).getTitle());
+		assertEquals(0L, db.getDeduplicatedBytes());
+	}
+
+	// getDeduplicatedBytes()
+	// 重複する楽曲がない場合、0を返すこと
+	@Test
+	public void testGetDeduplicatedBytes_NoDuplicate() throws Exception {
+		var db = setupEmptyDatabase();
+		assertEquals(0L, db.getDeduplicatedBytes());
+	}
+
+	// queryByMd5(String)
+	// 同じMD5の楽曲情報を登録している全ての難易度表情報の楽曲情報が、難易度表定義の登録順で取得されること
+	@Test
+	public void testQueryByMd5_Normal() throws Exception {
+		var db = setupHashIndexDatabase("0123456789abcdef0123456789abcdef", null);
+		db.update(httpClient(), null, UpdateProgress.nop());
+		var found = db.queryByMd5("0123456789ABCDEF0123456789ABCDEF");
+		assertEquals(List.of(ID_UPDATE1, ID_UPDATE2), new ArrayList<>(found.keySet()));
+		assertEquals("Title-" + ID_UPDATE1, found.get(ID_UPDATE1).getTitle());
+		assertEquals(PlayStyle.SINGLE, found.get(ID_UPDATE1).getPlayStyle());
+		assertEquals("Title-" + ID_UPDATE2, found.get(ID_UPDATE2).getTitle());
+		assertEquals(PlayStyle.DOUBLE, found.get(ID_UPDATE2).getPlayStyle());
+		assertTrue(db.queryByMd5("fedcba9876543210fedcba9876543210").isEmpty());
+		assertTrue(db.queryByMd5("not-md5").isEmpty());
+	}
+
+	// queryByMd5(String)
+	// 難易度表データベースの更新で難易度表情報が置き換えられた場合、置き換え後の内容で検索されること
+	@Test
+	public void testQueryByMd5_Updated() throws Exception {
+		var md5 = new AtomicReference<>("0123456789abcdef0123456789abcdef");
+		var db = setupUpdateDatabase(r -> new UpdateResponse(200, Map.of(), md5.get().getBytes()), (td, ps, raw) ->
+				List.of(new ContentDescription("Title-" + td.getId(), "Artist", ps, 0, null, null, md5.get(), null)));
+		db.update(httpClient(), null, UpdateProgress.nop());
+		assertEquals(2, db.queryByMd5(md5.get()).size());
+
+		// 索引の構築後に1個の難易度表情報を置き換える
+		md5.set("fedcba9876543210fedcba9876543210");
+		db.update(httpClient(), ID_UPDATE2, null, UpdateProgress.nop());
+		assertEquals(Set.of(ID_UPDATE1), db.queryByMd5("0123456789abcdef0123456789abcdef").keySet());
+		assertEquals(Set.of(ID_UPDATE2), db.queryByMd5("fedcba9876543210fedcba9876543210").keySet());
+		assertEquals("Title-" + ID_UPDATE2, db.queryByMd5(md5.get()).get(ID_UPDATE2).getTitle());
+	}
+
+	// queryByMd5(String)
+	// 1個の難易度表情報に同じMD5の楽曲情報が複数ある場合、ContentCollection#query() と同じ楽曲情報が取得されること
+	@Test
+	public void testQueryByMd5_Duplicate() throws Exception {
+		var md5 = "0123456789abcdef0123456789abcdef";
+		var db = setupUpdateDatabase((td, ps, raw) -> List.of(
+				new ContentDescription("First", "Artist", ps, 0, null, null, md5, null),
+				new ContentDescription("Other", "Artist", ps, 0, null, null, null, null),
+				new ContentDescription("Second", "Artist", ps, 1, null, null, md5, null)));
+		db.update(httpClient(), null, UpdateProgress.nop());
+		var found = db.queryByMd5(md5);
+		assertEquals(List.of(ID_UPDATE1, ID_UPDATE2), new ArrayList<>(found.keySet()));
+		var expected = db.get(ID_UPDATE1).query("X", "X", PlayStyle.SINGLE, md5, null);
+		assertEquals(expected.getTitle(), found.get(ID_UPDATE1).getTitle());
+		assertEquals(expected.getLevelIndex(), found.get(ID_UPDATE1).getLevelIndex());
+	}
+
+	// queryByMd5(String)
+	// メモリマップモードの難易度表情報も検索されること
+	@Test
+	public void testQueryByMd5_Mapped() throws Exception {
+		var method = Thread.currentThread().getStackTrace()[1].getMethodName();
+		var db = setupSnapshotDatabase(method, true);
+		var cc = new ContentDatabase(db.getLocation(), false, LoadOption.MAPPED);
+		var found = cc.queryByMd5("0123456789ABCDEF0123456789ABCDEF");
+		assertEquals(Set.of(ID_UPDATE1), found.keySet());
+		assertEquals("Old1", found.get(ID_UPDATE1).getTitle());
+		var sha256 = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+		assertEquals("Old1", cc.queryBySha256(sha256).get(ID_UPDATE1).getTitle());
+		assertTrue(cc.queryBySha256(sha256.replace('0', 'f')).isEmpty());
+	}
+
+	// queryByMd5(String)
+	// NullPointerException md5 が null
+	@Test
+	public void testQueryByMd5_NullMd5() throws Exception {
+		var db = setupEmptyDatabase();
+		assertThrows(NullPointerException.class, () -> db.queryByMd5(null));
+	}
+
+	// queryBySha256(String)
+	// 同じSHA-256の楽曲情報を登録している全ての難易度表情報の楽曲情報が取得されること
+	@Test
+	public void testQueryBySha256_Normal() throws Exception {
+		var sha256 = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+		var db = setupHashIndexDatabase(null, sha256);
+		db.update(httpClient(), null, UpdateProgress.nop());
+		var found = db.queryBySha256(sha256.toUpperCase());
+		assertEquals(List.of(ID_UPDATE1, ID_UPDATE2), new ArrayList<>(found.keySet()));
+		assertEquals(sha256, found.get(ID_UPDATE2).getSha256());
+		assertTrue(db.queryBySha256("0123456789abcdef0123456789abcdef").isEmpty());
+		assertTrue(db.queryByMd5("0123456789abcdef0123456789abcdef").isEmpty());
+	}
+
+	// queryBySha256(String)
+	// 遅延読み込みモードの場合、未読み込みの難易度表情報を読み込んでから検索されること
+	@Test
+	public void testQueryBySha256_Lazy() throws Exception {
+		var sha256 = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+		var db = setupHashIndexDatabase(null, sha256);
+		db.update(httpClient(), null, UpdateProgress.nop());
+		var lazy = new ContentDatabase(db.getLocation(), false, LoadOption.LAZY);
+		assertEquals(Set.of(ID_UPDATE1, ID_UPDATE2), lazy.queryBySha256(sha256).keySet());
+	}
+
+	// queryBySha256(String)
+	// NullPointerException sha256 が null
+	@Test
+	public void testQueryBySha256_NullSha256() throws Exception {
+		var db = setupEmptyDatabase();
+		assertThrows(NullPointerException.class, () -> db.queryBySha256(null));
+	}
+
 	// all()
 	// 難易度表定義の登録順で走査されること
 	@Test
@@ -1062,108 +1537,672 @@ public class ContentDatabaseTest {
 	}
 
 	// update(HttpClient, Duration, UpdateProgress)
-	// 応答データのハッシュ値が一致しない場合、UNNECESSARYが通知されず、modified.dataHashにハッシュ値が設定されること
+	// 応答データのハッシュ値が一致する場合、楽曲情報の解析が行われないこと
+	@Test
+	public void testUpdate2_DataHash_Match_NotParsed() throws Exception {
+		var numParse = new AtomicInteger(0);
+		var method = Thread.currentThread().getStackTrace()[1].getMethodName();
+		var path = setupTestData("testUpdate2_DataHash_Match", method, false);
+		setupUpdateTableDescriptions(null, (td, ps, raw) -> { numParse.incrementAndGet(); return List.of(); }, null);
+		var db = new UpdateDatabase(path, r -> new UpdateResponse(200, Map.of()));
+		db.update(httpClient(), null, UpdateProgress.nop());
+		assertEquals(0, numParse.get());
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// エンティティタグが設定されている難易度表ではIf-None-Matchヘッダにその値が設定され、未設定の難易度表では設定されないこと
 	@Test
-	public void testUpdate2_DataHash_Unmatch() throws Exception {
-		var numCall = new AtomicInteger(0);
-		var db = setupUpdateDatabase();
-		db.update(httpClient(), null, (td, ps, i, num, sts) -> {
-			if (sts == UpdateProgress.Status.UNNECESSARY) { numCall.incrementAndGet(); }
+	public void testUpdate2_IfNoneMatch() throws Exception {
+		var db = setupUpdateDatabase(r -> {
+			if (r.uri().toString().equals("http://example.com/1")) {
+				assertEquals("\"etag-1\"", r.headers().firstValue("If-None-Match").get());
+			} else if (r.uri().toString().equals("http://example.com/2")) {
+				assertTrue(r.headers().firstValue("If-None-Match").isEmpty());
+			} else {
+				fail(r.uri().toString() + ": Unexpected URL");
+			}
+			return new UpdateResponse(304, Map.of());
 		});
-		var hash = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
-		var cc1 = db.get(ID_UPDATE1);
-		var cc2 = db.get(ID_UPDATE2);
-		assertEquals(0, numCall.get());
-		assertEquals(hash, cc1.getModifiedDataHash(PlayStyle.SINGLE));
-		assertEquals(hash, cc2.getModifiedDataHash(PlayStyle.DOUBLE));
+		db.update(httpClient(), null, UpdateProgress.nop());
 	}
 
 	// update(HttpClient, Duration, UpdateProgress)
-	// 楽曲情報パーサがnullを返した場合、ERRORが通知され、IOExceptionがスローされること
+	// 応答のETagヘッダの値がエンティティタグとして難易度表情報Fに保存され、次回更新時にIf-None-Matchヘッダとして送信されること
 	@Test
-	public void testUpdate2_Parser_ReturnedNull() throws Exception {
-		var called = new AtomicBoolean(false);
-		var db = setupUpdateDatabase((td, ps, raw) -> null);
-		assertThrows(IOException.class, () -> {
-			db.update(httpClient(), null, (td, ps, i, num, sts) -> {
-				if (sts == UpdateProgress.Status.ERROR) { called.set(true); }
-			});
+	public void testUpdate2_ETag_Saved() throws Exception {
+		var ifNoneMatch = new ArrayList<String>();
+		var db = setupUpdateDatabase(r -> {
+			ifNoneMatch.add(r.headers().firstValue("If-None-Match").orElse(null));
+			return new UpdateResponse(200, Map.of("ETag", List.of("\"abc\"")));
 		});
-		assertTrue(called.get());
+		db.update(httpClient(), ID_UPDATE1, null, UpdateProgress.nop());
+		assertEquals("\"abc\"", db.get(ID_UPDATE1).getModifiedETag(PlayStyle.SINGLE));
+		assertNull(db.get(ID_UPDATE1).getModifiedETag(PlayStyle.DOUBLE));
+		var json = new JSONObject(Files.readString(db.getLocation().resolve(ID_UPDATE1 + ".json")));
+		assertEquals(ContentDatabase.VERSION, json.getInt("version"));
+		assertEquals("\"abc\"", json.getJSONArray("modified").getJSONObject(0).getString("eTag"));
+
+		var db2 = new UpdateDatabase(db.getLocation(), r -> {
+			ifNoneMatch.add(r.headers().firstValue("If-None-Match").orElse(null));
+			return new UpdateResponse(304, Map.of());
+		});
+		assertEquals("\"abc\"", db2.get(ID_UPDATE1).getModifiedETag(PlayStyle.SINGLE));
+		db2.update(httpClient(), ID_UPDATE1, null, UpdateProgress.nop());
+		assertEquals(Arrays.asList(null, "\"abc\""), ifNoneMatch);
 	}
 
 	// update(HttpClient, Duration, UpdateProgress)
-	// 楽曲情報パーサが例外をスローした場合、ERRORが通知され、IOExceptionがスローされること
+	// バージョン1の難易度表情報Fは、更新時に最新バージョンの形式で保存されること
+	@Test
+	public void testUpdate2_MigrateVersion1() throws Exception {
+		var db = setupUpdateDatabase(r -> new UpdateResponse(200, Map.of("ETag", List.of("\"v2\""))));
+		var path = db.getLocation().resolve(ID_UPDATE1 + ".json");
+		assertEquals(1, new JSONObject(Files.readString(path)).getInt("version"));
+		db.update(httpClient(), ID_UPDATE1, null, UpdateProgress.nop());
+		var json = new JSONObject(Files.readString(path));
+		assertEquals(ContentDatabase.VERSION, json.getInt("version"));
+		var modified = json.getJSONArray("modified");
+		assertEquals("\"v2\"", modified.getJSONObject(0).getString("eTag"));
+		assertTrue(modified.getJSONObject(1).isNull("eTag"));
+		var db2 = new ContentDatabase(db.getLocation(), false);
+		assertEquals("\"v2\"", db2.get(ID_UPDATE1).getModifiedETag(PlayStyle.SINGLE));
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 有効期限内のプレースタイルはWebサーバに接続せず、START, UNNECESSARYの順で進捗報告されること
 	@Test
-	public void testUpdate2_Parser_ThrownException() throws Exception {
-		var called = new AtomicBoolean(false);
-		var db = setupUpdateDatabase((td, ps, raw) -> { throw new UnsupportedOperationException(); });
-		var thrown = assertThrows(IOException.class, () -> {
-			db.update(httpClient(), null, (td, ps, i, num, sts) -> {
-				if (sts == UpdateProgress.Status.ERROR) { called.set(true); }
-			});
+	public void testUpdate2_Expires_Fresh() throws Exception {
+		var numSend = new AtomicInteger(0);
+		var statuses = new ArrayList<UpdateProgress.Status>();
+		var db = setupUpdateDatabase(r -> {
+			numSend.incrementAndGet();
+			return new UpdateResponse(200, Map.of());
 		});
-		assertTrue(called.get());
-		assertEquals(UnsupportedOperationException.class, thrown.getCause().getClass());
+		var mod1 = Files.getLastModifiedTime(db.getLocation().resolve(ID_UPDATE1 + ".json"));
+		db.update(httpClient(), null, (td, ps, i, num, sts) -> statuses.add(sts));
+		assertEquals(0, numSend.get());
+		assertEquals(List.of(UpdateProgress.Status.START, UpdateProgress.Status.UNNECESSARY,
+				UpdateProgress.Status.START, UpdateProgress.Status.UNNECESSARY), statuses);
+		assertEquals(mod1, Files.getLastModifiedTime(db.getLocation().resolve(ID_UPDATE1 + ".json")));
 	}
 
 	// update(HttpClient, Duration, UpdateProgress)
-	// 難易度表更新が行われた場合の進捗報告シーケンスが想定通りであること
+	// setForceUpdate(true)の場合、有効期限内のプレースタイルでもWebサーバに問い合わせること
 	@Test
-	public void testUpdate2_UpdateProgressSequence() throws Exception {
-		var seq = new UpdateProgress.Status[] {
-				UpdateProgress.Status.START,
-				UpdateProgress.Status.DONE,
-				UpdateProgress.Status.START,
-				UpdateProgress.Status.UNNECESSARY,
-		};
-		var n = new AtomicInteger(-1);
+	public void testUpdate2_Expires_Force() throws Exception {
+		var numSend = new AtomicInteger(0);
 		var db = setupUpdateDatabase(r -> {
-			var status = r.uri().toString().equals("http://example.com/1") ? 200 : 304;
-			return new UpdateResponse(status, Map.of());
+			numSend.incrementAndGet();
+			return new UpdateResponse(200, Map.of());
 		});
-		db.update(httpClient(), null, (td, ps, i, num, sts) -> {
-			var si = n.incrementAndGet();
-			assertEquals(seq[si], sts);
+		db.setForceUpdate(true);
+		db.update(httpClient(), null, UpdateProgress.nop());
+		assertEquals(2, numSend.get());
+		assertNull(db.get(ID_UPDATE1).getModifiedExpires(PlayStyle.SINGLE));
+		assertNull(db.get(ID_UPDATE2).getModifiedExpires(PlayStyle.DOUBLE));
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 有効期限を過ぎたプレースタイルはWebサーバに問い合わせること
+	@Test
+	public void testUpdate2_Expires_Expired() throws Exception {
+		var numSend = new AtomicInteger(0);
+		var db = setupUpdateDatabase(r -> {
+			numSend.incrementAndGet();
+			return new UpdateResponse(304, Map.of());
 		});
+		db.update(httpClient(), null, UpdateProgress.nop());
+		assertEquals(2, numSend.get());
 	}
 
 	// update(HttpClient, Duration, UpdateProgress)
-	// 難易度表情報の更新内容が正しい内容であること
+	// Cache-Control, Expires, Date, Ageヘッダから有効期限が正しく算出されること
 	@Test
-	public void testUpdate2_ContentFile() throws Exception {
-		var bodies = new URL[] {
-				new URL("http://example.com/body1-after.zip"),
-				new URL("http://example.com/body2-after.zip"),
-				new URL("http://example.com/body3-after.zip") };
-		var adds = new URL[] {
-				new URL("http://example.com/add1-after.zip"),
-				new URL("http://example.com/add2-after.zip"),
-				new URL("http://example.com/add3-after.zip") };
-		var md5s = new String[] {
-				"11111111111111111111111111111111",
-				"22222222222222222222222222222222",
-				"33333333333333333333333333333333" };
-		var sha256s = new String[] {
-				"1111111111111111111111111111111111111111111111111111111111111111",
-				"2222222222222222222222222222222222222222222222222222222222222222",
-				"3333333333333333333333333333333333333333333333333333333333333333" };
-		var db = setupUpdateDatabase(
-				r -> {
-					var upd1 = r.uri().toString().equals("http://example.com/1");
-					var mod = ZonedDateTime.parse(upd1 ? "2025-01-02T03:04:05Z" : "2025-05-04T03:02:01Z");
-					var raw = upd1 ? new byte[] { 'a' } : new byte[] { 'b' };
-					return new UpdateResponse(
-							200,
-							Map.of("Last-Modified", List.of(mod.format(DateTimeFormatter.RFC_1123_DATE_TIME))),
-							raw);
-				},
-				(td, ps, raw) -> {
-					var upd1 = td.getId().equals(ID_UPDATE1);
-					if (upd1) {
-						return List.of(
-								new ContentDescription("T1-1", "A1-1", ps, 0, bodies[0], adds[0], md5s[0], sha256s[0]),
-								new ContentDescription("T1-2", "A1-2", ps, 1, bodies[1], adds[1], md5s[1], sha256s[1]),
+	public void testUpdate2_Expires_Headers() throws Exception {
+		var now = ZonedDateTime.now();
+		var rfc = DateTimeFormatter.RFC_1123_DATE_TIME;
+		var date = now.minusDays(1);
+		var cases = new ArrayList<Map.Entry<Map<String, List<String>>, Long>>();
+		cases.add(Map.entry(Map.of(), -1L));
+		cases.add(Map.entry(Map.of("Cache-Control", List.of("public, max-age=3600")), 3600L));
+		cases.add(Map.entry(Map.of("Cache-Control", List.of("max-age=\"600\"")), 600L));
+		cases.add(Map.entry(Map.of("Cache-Control", List.of("max-age=3600"), "Age", List.of("600")), 3000L));
+		cases.add(Map.entry(Map.of("Cache-Control", List.of("max-age=3600", "no-cache")), -1L));
+		cases.add(Map.entry(Map.of("Cache-Control", List.of("no-store, max-age=3600")), -1L));
+		cases.add(Map.entry(Map.of("Cache-Control", List.of("max-age=0")), -1L));
+		cases.add(Map.entry(Map.of("Cache-Control", List.of("max-age=abc")), -1L));
+		cases.add(Map.entry(Map.of("Cache-Control", List.of("max-age=60"),
+				"Expires", List.of(now.plusDays(1).format(rfc))), 60L));
+		cases.add(Map.entry(Map.of("Expires", List.of(date.plusSeconds(7200).format(rfc)),
+				"Date", List.of(date.format(rfc))), 7200L));
+		cases.add(Map.entry(Map.of("Expires", List.of(now.plusSeconds(1800).format(rfc))), 1800L));
+		cases.add(Map.entry(Map.of("Expires", List.of("0")), -1L));
+		cases.add(Map.entry(Map.of("Expires", List.of(now.minusSeconds(60).format(rfc))), -1L));
+		for (var c : cases) {
+			var db = setupUpdateDatabase(r -> new UpdateResponse(200, c.getKey()));
+			db.setForceUpdate(true);
+			db.update(httpClient(), ID_UPDATE1, null, UpdateProgress.nop());
+			var after = ZonedDateTime.now();
+			var expires = db.get(ID_UPDATE1).getModifiedExpires(PlayStyle.SINGLE);
+			if (c.getValue() < 0L) {
+				assertNull(expires, c.getKey().toString());
+			} else {
+				// RFC 1123形式は秒未満を持たないため、1秒の誤差を許容する
+				// Expires ヘッダは全ケースの開始前の日時で生成しているため、下限は開始前の日時を基準とする
+				var lower = now.plusSeconds(c.getValue() - 1L);
+				var upper = after.plusSeconds(c.getValue() + 1L);
+				assertNotNull(expires, c.getKey().toString());
+				assertTrue(!expires.isBefore(lower) && !expires.isAfter(upper), c.getKey() + ": " + expires);
+			}
+			Files.deleteIfExists(db.getLocation().resolve(ID_UPDATE1 + ".json"));
+		}
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 応答が304でも有効期限が記録され、次回更新時はWebサーバに接続しないこと
+	@Test
+	public void testUpdate2_Expires_NotModified() throws Exception {
+		var numSend = new AtomicInteger(0);
+		var db = setupUpdateDatabase(r -> {
+			numSend.incrementAndGet();
+			return new UpdateResponse(304, Map.of("Cache-Control", List.of("max-age=3600")));
+		});
+		db.update(httpClient(), ID_UPDATE1, null, UpdateProgress.nop());
+		assertEquals(1, numSend.get());
+		assertNotNull(db.get(ID_UPDATE1).getModifiedExpires(PlayStyle.SINGLE));
+		var json = new JSONObject(Files.readString(db.getLocation().resolve(ID_UPDATE1 + ".json")));
+		assertFalse(json.getJSONArray("modified").getJSONObject(0).isNull("expires"));
+
+		var db2 = new UpdateDatabase(db.getLocation(), r -> {
+			numSend.incrementAndGet();
+			return new UpdateResponse(200, Map.of());
+		});
+		db2.update(httpClient(), ID_UPDATE1, null, UpdateProgress.nop());
+		assertEquals(1, numSend.get());
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 受信した楽曲情報元データがハッシュ値をファイル名としてrawディレクトリに保存され、参照されなくなったデータは削除されること
+	@Test
+	public void testUpdate2_RawStore_Saved() throws Exception {
+		var body = new AtomicReference<byte[]>("first".getBytes(StandardCharsets.UTF_8));
+		var db = setupUpdateDatabase(r -> new UpdateResponse(200, Map.of(), body.get()));
+		var rawDir = db.getLocation().resolve("raw");
+		db.update(httpClient(), null, UpdateProgress.nop());
+		var first = rawDir.resolve(sha256(body.get()));
+		assertArrayEquals(body.get(), Files.readAllBytes(first));
+		try (var files = Files.list(rawDir)) {
+			// 同じ内容の楽曲情報元データは1個のファイルを共有する
+			assertEquals(1L, files.count());
+		}
+
+		body.set("second".getBytes(StandardCharsets.UTF_8));
+		db.update(httpClient(), ID_UPDATE1, null, UpdateProgress.nop());
+		var second = rawDir.resolve(sha256(body.get()));
+		assertArrayEquals(body.get(), Files.readAllBytes(second));
+		assertTrue(Files.exists(first));
+
+		db.update(httpClient(), ID_UPDATE2, null, UpdateProgress.nop());
+		assertFalse(Files.exists(first));
+		assertTrue(Files.exists(second));
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 遅延読み込みモードで更新した場合、未読み込みの難易度表情報は読み込まれず、その楽曲情報元データも削除されないこと
+	@Test
+	public void testUpdate2_RawStore_Lazy() throws Exception {
+		var body = new AtomicReference<byte[]>("first".getBytes(StandardCharsets.UTF_8));
+		var db = setupUpdateDatabase(r -> new UpdateResponse(200, Map.of(), body.get()));
+		var rawDir = db.getLocation().resolve("raw");
+		db.update(httpClient(), null, UpdateProgress.nop());
+		var first = rawDir.resolve(sha256(body.get()));
+
+		var lazy = new UpdateDatabase(db.getLocation(), r -> new UpdateResponse(200, Map.of(), body.get()),
+				LoadOption.LAZY);
+		var loaded = Collections.synchronizedList(new ArrayList<String>());
+		body.set("second".getBytes(StandardCharsets.UTF_8));
+		try {
+			DifficultyTables.setLogger(s -> {
+				if (s.startsWith("Loading '" + ID_UPDATE2 + "'")) { loaded.add(s); }
+			});
+			lazy.update(httpClient(), ID_UPDATE1, null, UpdateProgress.nop());
+		} finally {
+			DifficultyTables.setLogger(null);
+		}
+		assertEquals(List.of(), loaded);
+		assertTrue(Files.exists(first));
+		assertTrue(Files.exists(rawDir.resolve(sha256(body.get()))));
+
+		lazy.update(httpClient(), ID_UPDATE2, null, UpdateProgress.nop());
+		assertFalse(Files.exists(first));
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// ハッシュ値が一致し更新不要の場合でも、楽曲情報元データが未保存であれば保存されること
+	@Test
+	public void testUpdate2_RawStore_DataHashMatch() throws Exception {
+		var method = Thread.currentThread().getStackTrace()[1].getMethodName();
+		var path = setupTestData("testUpdate2_DataHash_Match", method, false);
+		setupUpdateTableDescriptions(null, null, null);
+		var db = new UpdateDatabase(path, r -> new UpdateResponse(200, Map.of()));
+		var mod1 = Files.getLastModifiedTime(path.resolve(ID_UPDATE1 + ".json"));
+		db.update(httpClient(), ID_UPDATE1, null, UpdateProgress.nop());
+		assertEquals(mod1, Files.getLastModifiedTime(path.resolve(ID_UPDATE1 + ".json")));
+		assertTrue(Files.isRegularFile(path.resolve("raw").resolve(sha256(new byte[0]))));
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 逐次解析パーサは受信中のデータを入力ストリームから解析し、途中までしか読み込まなくても受信データ全体のハッシュ値が計算されること
+	@Test
+	public void testUpdate2_StreamingParser() throws Exception {
+		var body = new byte[200000];
+		for (var i = 0; i < body.length; i++) { body[i] = (byte)(i * 13); }
+		var numParse = new AtomicInteger(0);
+		var db = setupUpdateDatabase(
+				r -> new UpdateResponse(200, Map.of("Content-Length", List.of(String.valueOf(body.length))), body),
+				new StreamingParser() {
+					@Override
+					public void parse(TableDescription td, PlayStyle ps, InputStream in, Consumer<ContentDescription> sink)
+							throws IOException {
+						numParse.incrementAndGet();
+						var head = in.readNBytes(10);
+						assertArrayEquals(Arrays.copyOf(body, 10), head);
+						sink.accept(new ContentDescription("T1", "A", ps, 0, null, null, null, null));
+						sink.accept(new ContentDescription("T2", "A", ps, 1, null, null, null, null));
+					}
+
+					@Override
+					public List<ContentDescription> parse(TableDescription td, PlayStyle ps, byte[] raw) {
+						return fail("Parser for byte array must not be called");
+					}
+				});
+		db.update(httpClient(), ID_UPDATE1, null, UpdateProgress.nop());
+		assertEquals(1, numParse.get());
+		var hash = sha256(body);
+		var collection = db.get(ID_UPDATE1);
+		assertEquals(hash, collection.getModifiedDataHash(PlayStyle.SINGLE));
+		assertEquals(List.of("T1", "T2"), collection.all().map(ContentDescription::getTitle).collect(Collectors.toList()));
+		assertArrayEquals(body, Files.readAllBytes(db.getLocation().resolve("raw").resolve(hash)));
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 逐次解析パーサには復号後のデータが渡されること
+	@Test
+	public void testUpdate2_StreamingParser_ContentEncoding() throws Exception {
+		var body = contentEncodingTestBody();
+		var encoded = encodeContent(body, "gzip");
+		var received = new ArrayList<byte[]>();
+		var db = setupUpdateDatabase(
+				r -> new UpdateResponse(200, Map.of("Content-Encoding", List.of("gzip")), encoded),
+				(StreamingParser)(td, ps, in, sink) -> received.add(in.readAllBytes()));
+		db.update(httpClient(), ID_UPDATE1, null, UpdateProgress.nop());
+		assertEquals(1, received.size());
+		assertArrayEquals(body, received.get(0));
+		assertEquals(sha256(body), db.get(ID_UPDATE1).getModifiedDataHash(PlayStyle.SINGLE));
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 逐次解析パーサがIOExceptionをスローすると、エラーが報告され同じ例外がスローされること
+	@Test
+	public void testUpdate2_StreamingParser_Error() throws Exception {
+		var ex = new IOException("Parse error");
+		var db = setupUpdateDatabase(
+				r -> new UpdateResponse(200, Map.of(), new byte[] { 1, 2, 3 }),
+				(StreamingParser)(td, ps, in, sink) -> {
+					sink.accept(new ContentDescription("T", "A", ps, 0, null, null, null, null));
+					throw ex;
+				});
+		var statuses = new ArrayList<UpdateProgress.Status>();
+		var thrown = assertThrows(IOException.class, () -> {
+			db.update(httpClient(), ID_UPDATE1, null, (td, ps, i, num, sts) -> statuses.add(sts));
+		});
+		assertSame(ex, thrown);
+		assertEquals(List.of(UpdateProgress.Status.START, UpdateProgress.Status.ERROR), statuses);
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 受信データのハッシュ値が最終更新データハッシュと一致する場合、逐次解析パーサは呼び出されないこと
+	@Test
+	public void testUpdate2_StreamingParser_DataHashMatch() throws Exception {
+		var method = Thread.currentThread().getStackTrace()[1].getMethodName();
+		var path = setupTestData("testUpdate2_DataHash_Match", method, false);
+		var numParse = new AtomicInteger(0);
+		setupUpdateTableDescriptions(null, new StreamingParser() {
+			@Override
+			public void parse(TableDescription td, PlayStyle ps, InputStream in, Consumer<ContentDescription> sink) {
+				numParse.incrementAndGet();
+			}
+
+			@Override
+			public List<ContentDescription> parse(TableDescription td, PlayStyle ps, byte[] raw) {
+				numParse.incrementAndGet();
+				return List.of();
+			}
+		}, null);
+		var db = new UpdateDatabase(path, r -> new UpdateResponse(200, Map.of()));
+		var mod1 = Files.getLastModifiedTime(path.resolve(ID_UPDATE1 + ".json"));
+		var statuses = new ArrayList<UpdateProgress.Status>();
+		db.update(httpClient(), ID_UPDATE1, null, (td, ps, i, num, sts) -> statuses.add(sts));
+		assertEquals(0, numParse.get());
+		assertEquals(List.of(UpdateProgress.Status.START, UpdateProgress.Status.UNNECESSARY), statuses);
+		assertEquals(mod1, Files.getLastModifiedTime(path.resolve(ID_UPDATE1 + ".json")));
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 最終更新データハッシュがある場合、ETagの変化で内容の変更が明らかな時のみ受信と並行して解析し、
+	// それ以外はハッシュ値が変化した時のみ受信完了後に解析すること
+	@Test
+	public void testUpdate2_StreamingParser_ETagChanged() throws Exception {
+		var bodies = List.of("a", "b", "b", "c");
+		var etags = List.of("\"1\"", "\"2\"", "\"2\"", "\"2\"");
+		var numResp = new AtomicInteger(0);
+		var parsed = new ArrayList<String>();
+		var db = setupUpdateDatabase(
+				r -> {
+					var n = numResp.getAndIncrement();
+					var body = bodies.get(n).getBytes(StandardCharsets.UTF_8);
+					return new UpdateResponse(200, Map.of("ETag", List.of(etags.get(n))), body);
+				},
+				new StreamingParser() {
+					@Override
+					public void parse(TableDescription td, PlayStyle ps, InputStream in, Consumer<ContentDescription> sink)
+							throws IOException {
+						parsed.add("stream:" + new String(in.readAllBytes(), StandardCharsets.UTF_8));
+					}
+
+					@Override
+					public List<ContentDescription> parse(TableDescription td, PlayStyle ps, byte[] raw) {
+						parsed.add("bytes:" + new String(raw, StandardCharsets.UTF_8));
+						return List.of();
+					}
+				});
+		for (var i = 0; i < bodies.size(); i++) {
+			db.update(httpClient(), ID_UPDATE1, null, UpdateProgress.nop());
+		}
+		assertEquals(List.of("stream:a", "stream:b", "bytes:c"), parsed);
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// Content-Lengthの有無・過不足に関わらず、受信データ全体がパーサに渡されハッシュ値が計算されること
+	@Test
+	public void testUpdate2_ContentLength() throws Exception {
+		var body = new byte[200000];
+		for (var i = 0; i < body.length; i++) { body[i] = (byte)(i * 31); }
+		var hash = sha256(body);
+		var lengths = new String[] { String.valueOf(body.length), "100", String.valueOf(body.length * 2), null, "0" };
+		for (var length : lengths) {
+			var received = new ArrayList<byte[]>();
+			var db = setupUpdateDatabase(
+					r -> {
+						var headers = isNull(length) ? Map.<String, List<String>>of() :
+								Map.of("Content-Length", List.of(length));
+						return new UpdateResponse(200, headers, body);
+					},
+					(td, ps, raw) -> { received.add(raw); return List.of(); });
+			db.update(httpClient(), ID_UPDATE1, null, UpdateProgress.nop());
+			assertEquals(1, received.size());
+			assertArrayEquals(body, received.get(0));
+			assertEquals(hash, db.get(ID_UPDATE1).getModifiedDataHash(PlayStyle.SINGLE));
+			Files.delete(db.getLocation().resolve(ID_UPDATE1 + ".json"));
+		}
+	}
+
+	// updateAsync(HttpClient, String, Duration, UpdateProgress)
+	// 非同期更新でも受信データ全体がパーサに渡されハッシュ値が計算されること
+	@Test
+	public void testUpdateAsync1_ContentLength() throws Exception {
+		var body = new byte[200000];
+		for (var i = 0; i < body.length; i++) { body[i] = (byte)(i * 17); }
+		var received = new ArrayList<byte[]>();
+		var db = setupUpdateDatabase(
+				r -> new UpdateResponse(200, Map.of("Content-Length", List.of("1000")), body),
+				(td, ps, raw) -> { received.add(raw); return List.of(); });
+		var result = db.updateAsync(httpClient(), ID_UPDATE1, null, UpdateProgress.nop()).get(5, TimeUnit.SECONDS);
+		assertTrue(result.isSuccess());
+		assertEquals(1, received.size());
+		assertArrayEquals(body, received.get(0));
+		assertEquals(sha256(body), db.get(ID_UPDATE1).getModifiedDataHash(PlayStyle.SINGLE));
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 楽曲情報取得リクエストのAccept-Encodingヘッダにgzip, deflateが設定されること
+	@Test
+	public void testUpdate2_AcceptEncoding() throws Exception {
+		var db = setupUpdateDatabase(r -> {
+			assertEquals("gzip, deflate", r.headers().firstValue("Accept-Encoding").orElse(null));
+			return new UpdateResponse(200, Map.of());
+		});
+		db.update(httpClient(), null, UpdateProgress.nop());
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 符号化方式に関わらず、復号後のデータがパーサに渡され、ハッシュ値が復号後のデータで計算されること
+	@Test
+	public void testUpdate2_ContentEncoding() throws Exception {
+		var body = contentEncodingTestBody();
+		var hash = sha256(body);
+		var encodings = new String[] { "gzip", "x-gzip", "GZIP", "deflate", "deflate-raw", "identity", null };
+		for (var encoding : encodings) {
+			var encoded = encodeContent(body, encoding);
+			var headerValue = "deflate-raw".equals(encoding) ? "deflate" : encoding;
+			var received = new ArrayList<byte[]>();
+			var db = setupUpdateDatabase(
+					r -> {
+						var headers = new HashMap<String, List<String>>();
+						headers.put("Content-Length", List.of(String.valueOf(encoded.length)));
+						if (nonNull(headerValue)) { headers.put("Content-Encoding", List.of(headerValue)); }
+						return new UpdateResponse(200, headers, encoded);
+					},
+					(td, ps, raw) -> { received.add(raw); return List.of(); });
+			db.update(httpClient(), ID_UPDATE1, null, UpdateProgress.nop());
+			assertEquals(1, received.size(), encoding);
+			assertArrayEquals(body, received.get(0), encoding);
+			assertEquals(hash, db.get(ID_UPDATE1).getModifiedDataHash(PlayStyle.SINGLE), encoding);
+			Files.delete(db.getLocation().resolve(ID_UPDATE1 + ".json"));
+		}
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 符号化されたデータが細かく分割されて受信されても正しく復号されること(gzipヘッダ・トレーラの分割、連結されたgzipメンバ)
+	@Test
+	public void testUpdate2_ContentEncoding_Fragmented() throws Exception {
+		var body = contentEncodingTestBody();
+		var half = body.length / 2;
+		var first = encodeContent(Arrays.copyOfRange(body, 0, half), "gzip");
+		var second = encodeContent(Arrays.copyOfRange(body, half, body.length), "gzip");
+		var encoded = Arrays.copyOf(first, first.length + second.length);
+		System.arraycopy(second, 0, encoded, first.length, second.length);
+		var received = new ArrayList<byte[]>();
+		var db = setupUpdateDatabase(
+				r -> new UpdateResponse(200, Map.of("Content-Encoding", List.of("gzip")), encoded) {
+					@Override public InputStream body() {
+						return new ByteArrayInputStream(encoded) {
+							@Override public synchronized int read(byte[] b, int off, int len) {
+								return super.read(b, off, Math.min(len, 3));
+							}
+						};
+					}
+				},
+				(td, ps, raw) -> { received.add(raw); return List.of(); });
+		db.update(httpClient(), ID_UPDATE1, null, UpdateProgress.nop());
+		assertEquals(1, received.size());
+		assertArrayEquals(body, received.get(0));
+		assertEquals(sha256(body), db.get(ID_UPDATE1).getModifiedDataHash(PlayStyle.SINGLE));
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 符号化されたデータが不正・途中で途切れている、または非サポートの符号化方式の場合、IOExceptionがスローされ更新されないこと
+	@Test
+	public void testUpdate2_ContentEncoding_Invalid() throws Exception {
+		var body = contentEncodingTestBody();
+		var gzip = encodeContent(body, "gzip");
+		var corrupt = gzip.clone();
+		corrupt[corrupt.length - 5] ^= 0x55;
+		var cases = List.of(
+				Map.entry("gzip", Arrays.copyOf(gzip, gzip.length / 2)),
+				Map.entry("gzip", Arrays.copyOf(gzip, gzip.length - 4)),
+				Map.entry("gzip", corrupt),
+				Map.entry("gzip", body),
+				Map.entry("deflate", Arrays.copyOf(encodeContent(body, "deflate"), 100)),
+				Map.entry("br", body));
+		for (var c : cases) {
+			var numParse = new AtomicInteger(0);
+			var db = setupUpdateDatabase(
+					r -> new UpdateResponse(200, Map.of("Content-Encoding", List.of(c.getKey())), c.getValue()),
+					(td, ps, raw) -> { numParse.incrementAndGet(); return List.of(); });
+			assertThrows(IOException.class, () -> db.update(httpClient(), ID_UPDATE1, null, UpdateProgress.nop()));
+			assertEquals(0, numParse.get());
+			assertFalse(Files.exists(db.getLocation().resolve(ID_UPDATE1 + ".json")));
+		}
+	}
+
+	// updateAsync(HttpClient, String, Duration, UpdateProgress)
+	// 非同期更新でも符号化されたデータが復号され、ハッシュ値が復号後のデータで計算されること
+	@Test
+	public void testUpdateAsync1_ContentEncoding() throws Exception {
+		var body = contentEncodingTestBody();
+		var encoded = encodeContent(body, "gzip");
+		var received = new ArrayList<byte[]>();
+		var db = setupUpdateDatabase(
+				r -> new UpdateResponse(200, Map.of("Content-Encoding", List.of("gzip"),
+						"Content-Length", List.of(String.valueOf(encoded.length))), encoded),
+				(td, ps, raw) -> { received.add(raw); return List.of(); });
+		var result = db.updateAsync(httpClient(), ID_UPDATE1, null, UpdateProgress.nop()).get(5, TimeUnit.SECONDS);
+		assertTrue(result.isSuccess());
+		assertEquals(1, received.size());
+		assertArrayEquals(body, received.get(0));
+		assertEquals(sha256(body), db.get(ID_UPDATE1).getModifiedDataHash(PlayStyle.SINGLE));
+
+		var truncated = Arrays.copyOf(encoded, encoded.length / 2);
+		var db2 = setupUpdateDatabase(
+				r -> new UpdateResponse(200, Map.of("Content-Encoding", List.of("gzip")), truncated),
+				(td, ps, raw) -> List.of());
+		Files.delete(db2.getLocation().resolve(ID_UPDATE1 + ".json"));
+		var result2 = db2.updateAsync(httpClient(), ID_UPDATE1, null, UpdateProgress.nop()).get(5, TimeUnit.SECONDS);
+		assertFalse(result2.isSuccess());
+		assertInstanceOf(IOException.class, result2.getCause());
+	}
+
+	// updateAsync(HttpClient, String, Duration, UpdateProgress)
+	// 非同期更新でも有効期限内のプレースタイルはWebサーバに接続せず、UNNECESSARYが報告されること
+	@Test
+	public void testUpdateAsync1_Expires_Fresh() throws Exception {
+		var numSend = new AtomicInteger(0);
+		var statuses = new ArrayList<UpdateProgress.Status>();
+		var db = setupUpdateDatabase(r -> {
+			numSend.incrementAndGet();
+			return new UpdateResponse(200, Map.of());
+		});
+		var result = db.updateAsync(httpClient(), ID_UPDATE1, null, (td, ps, i, num, sts) -> statuses.add(sts))
+				.get(5, TimeUnit.SECONDS);
+		assertTrue(result.isSuccess());
+		assertEquals(0, numSend.get());
+		assertEquals(List.of(UpdateProgress.Status.START, UpdateProgress.Status.UNNECESSARY), statuses);
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 応答データのハッシュ値が一致しない場合、UNNECESSARYが通知されず、modified.dataHashにハッシュ値が設定されること
+	@Test
+	public void testUpdate2_DataHash_Unmatch() throws Exception {
+		var numCall = new AtomicInteger(0);
+		var db = setupUpdateDatabase();
+		db.update(httpClient(), null, (td, ps, i, num, sts) -> {
+			if (sts == UpdateProgress.Status.UNNECESSARY) { numCall.incrementAndGet(); }
+		});
+		var hash = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+		var cc1 = db.get(ID_UPDATE1);
+		var cc2 = db.get(ID_UPDATE2);
+		assertEquals(0, numCall.get());
+		assertEquals(hash, cc1.getModifiedDataHash(PlayStyle.SINGLE));
+		assertEquals(hash, cc2.getModifiedDataHash(PlayStyle.DOUBLE));
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 楽曲情報パーサがnullを返した場合、ERRORが通知され、IOExceptionがスローされること
+	@Test
+	public void testUpdate2_Parser_ReturnedNull() throws Exception {
+		var called = new AtomicBoolean(false);
+		var db = setupUpdateDatabase((td, ps, raw) -> null);
+		assertThrows(IOException.class, () -> {
+			db.update(httpClient(), null, (td, ps, i, num, sts) -> {
+				if (sts == UpdateProgress.Status.ERROR) { called.set(true); }
+			});
+		});
+		assertTrue(called.get());
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 楽曲情報パーサが例外をスローした場合、ERRORが通知され、IOExceptionがスローされること
+	@Test
+	public void testUpdate2_Parser_ThrownException() throws Exception {
+		var called = new AtomicBoolean(false);
+		var db = setupUpdateDatabase((td, ps, raw) -> { throw new UnsupportedOperationException(); });
+		var thrown = assertThrows(IOException.class, () -> {
+			db.update(httpClient(), null, (td, ps, i, num, sts) -> {
+				if (sts == UpdateProgress.Status.ERROR) { called.set(true); }
+			});
+		});
+		assertTrue(called.get());
+		assertEquals(UnsupportedOperationException.class, thrown.getCause().getClass());
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 難易度表更新が行われた場合の進捗報告シーケンスが想定通りであること
+	@Test
+	public void testUpdate2_UpdateProgressSequence() throws Exception {
+		var seq = new UpdateProgress.Status[] {
+				UpdateProgress.Status.START,
+				UpdateProgress.Status.DONE,
+				UpdateProgress.Status.START,
+				UpdateProgress.Status.UNNECESSARY,
+		};
+		var n = new AtomicInteger(-1);
+		var db = setupUpdateDatabase(r -> {
+			var status = r.uri().toString().equals("http://example.com/1") ? 200 : 304;
+			return new UpdateResponse(status, Map.of());
+		});
+		db.update(httpClient(), null, (td, ps, i, num, sts) -> {
+			var si = n.incrementAndGet();
+			assertEquals(seq[si], sts);
+		});
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 難易度表情報の更新内容が正しい内容であること
+	@Test
+	public void testUpdate2_ContentFile() throws Exception {
+		var bodies = new URL[] {
+				new URL("http://example.com/body1-after.zip"),
+				new URL("http://example.com/body2-after.zip"),
+				new URL("http://example.com/body3-after.zip") };
+		var adds = new URL[] {
+				new URL("http://example.com/add1-after.zip"),
+				new URL("http://example.com/add2-after.zip"),
+				new URL("http://example.com/add3-after.zip") };
+		var md5s = new String[] {
+				"11111111111111111111111111111111",
+				"22222222222222222222222222222222",
+				"33333333333333333333333333333333" };
+		var sha256s = new String[] {
+				"1111111111111111111111111111111111111111111111111111111111111111",
+				"2222222222222222222222222222222222222222222222222222222222222222",
+				"3333333333333333333333333333333333333333333333333333333333333333" };
+		var db = setupUpdateDatabase(
+				r -> {
+					var upd1 = r.uri().toString().equals("http://example.com/1");
+					var mod = ZonedDateTime.parse(upd1 ? "2025-01-02T03:04:05Z" : "2025-05-04T03:02:01Z");
+					var raw = upd1 ? new byte[] { 'a' } : new byte[] { 'b' };
+					return new UpdateResponse(
+							200,
+							Map.of("Last-Modified", List.of(mod.format(DateTimeFormatter.RFC_1123_DATE_TIME))),
+							raw);
+				},
+				(td, ps, raw) -> {
+					var upd1 = td.getId().equals(ID_UPDATE1);
+					if (upd1) {
+						return List.of(
+								new ContentDescription("T1-1", "A1-1", ps, 0, bodies[0], adds[0], md5s[0], sha256s[0]),
+								new ContentDescription("T1-2", "A1-2", ps, 1, bodies[1], adds[1], md5s[1], sha256s[1]),
 								new ContentDescription("T1-3", "A1-3", ps, 2, bodies[2], adds[2], md5s[2], sha256s[2]));
 					} else {
 						return List.of(
@@ -1246,138 +2285,959 @@ public class ContentDatabaseTest {
 		assertNull(cd.getSha256());
 	}
 
-	// update(HttpClient, Duration, UpdateProgress)
-	// 難易度表情報ファイルへ書き込めなかった場合、IOExceptionがスローされること
+	// update(HttpClient, Duration, UpdateProgress)
+	// 難易度表情報ファイルへ書き込めなかった場合、IOExceptionがスローされること
+	@Test
+	public void testUpdate2_ContentFile_FailedToSave() throws Exception {
+		var db = setupUpdateDatabase();
+		var upd1F = db.getLocation().resolve(ID_UPDATE1 + ".json");
+		var ex = IOException.class;
+		Files.createDirectory(upd1F);
+		Files.createFile(upd1F.resolve("file"));
+		assertThrows(ex, () -> db.update(httpClient(), null, UpdateProgress.nop()));
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 難易度表情報ファイルと一緒にスナップショットが書き込まれ、読み込み時はスナップショットの内容が使用されること
+	@Test
+	public void testUpdate2_Snapshot_Used() throws Exception {
+		var db = setupSnapshotDatabase();
+		var location = db.getLocation();
+		assertTrue(Files.isRegularFile(location.resolve(ID_UPDATE1 + ".snapshot")));
+
+		// 難易度表情報ファイルは解析されない
+		var cc = loadWithoutParse(() -> new ContentDatabase(location, false).get(ID_UPDATE1));
+		var before = db.get(ID_UPDATE1);
+		assertEquals(before.getLastUpdateDateTime(), cc.getLastUpdateDateTime());
+		assertEquals(before.getModifiedDateTime(PlayStyle.SINGLE), cc.getModifiedDateTime(PlayStyle.SINGLE));
+		assertEquals(before.getModifiedDataHash(PlayStyle.SINGLE), cc.getModifiedDataHash(PlayStyle.SINGLE));
+		assertEquals("\"snap\"", cc.getModifiedETag(PlayStyle.SINGLE));
+		assertNull(cc.getModifiedDateTime(PlayStyle.DOUBLE));
+		assertEquals(2, cc.getCount());
+		var cd1 = cc.get(0);
+		assertEquals("Old1", cd1.getTitle());
+		assertEquals("Artist", cd1.getArtist());
+		assertEquals(PlayStyle.SINGLE, cd1.getPlayStyle());
+		assertEquals(2, cd1.getLevelIndex());
+		assertEquals("http://example.com/body", cd1.getBodyUrl().toString());
+		assertEquals("http://example.com/add", cd1.getAdditionalUrl().toString());
+		assertEquals("0123456789abcdef0123456789abcdef", cd1.getMd5());
+		assertEquals("0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef", cd1.getSha256());
+		var cd2 = cc.get(1);
+		assertEquals("Old2", cd2.getTitle());
+		assertEquals("Artist", cd2.getArtist());
+		assertNull(cd2.getBodyUrl());
+		assertNull(cd2.getAdditionalUrl());
+		assertNull(cd2.getMd5());
+		assertNull(cd2.getSha256());
+		assertEquals(1, cc.query("Old2", "Artist", PlayStyle.SINGLE, null, null).getLevelIndex());
+		assertEquals("Old1", cc.query("X", "X", PlayStyle.SINGLE, "0123456789ABCDEF0123456789ABCDEF", null).getTitle());
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 難易度表情報ファイルがスナップショットより新しい場合、難易度表情報ファイルの内容が読み込まれること
+	@Test
+	public void testUpdate2_Snapshot_Stale() throws Exception {
+		var db = setupSnapshotDatabase();
+		var location = db.getLocation();
+		rewriteSnapshotJson(location, false);
+		var cc = new ContentDatabase(location, false).get(ID_UPDATE1);
+		assertEquals("New1", cc.get(0).getTitle());
+		assertEquals("New2", cc.get(1).getTitle());
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// 難易度表情報ファイルをサイズと最終更新日時を変えずに置き換えた場合、難易度表情報ファイルの内容が読み込まれること
+	@Test
+	public void testUpdate2_Snapshot_SameAttributes() throws Exception {
+		var db = setupSnapshotDatabase();
+		var location = db.getLocation();
+		rewriteSnapshotJson(location, true);
+		var cc = new ContentDatabase(location, false).get(ID_UPDATE1);
+		assertEquals("New1", cc.get(0).getTitle());
+		assertEquals("New2", cc.get(1).getTitle());
+
+		// メモリマップモードも同様
+		cc = new ContentDatabase(location, false, LoadOption.MAPPED).get(ID_UPDATE1);
+		assertEquals("New1", cc.get(0).getTitle());
+		assertEquals("New1", cc.query("New1", "Artist", PlayStyle.SINGLE, null, null).getTitle());
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// スナップショットが破損している場合、例外をスローせず難易度表情報ファイルの内容が読み込まれること
+	@Test
+	public void testUpdate2_Snapshot_Broken() throws Exception {
+		var db = setupSnapshotDatabase();
+		var location = db.getLocation();
+		var snapshot = location.resolve(ID_UPDATE1 + ".snapshot");
+		var raw = Files.readAllBytes(snapshot);
+		raw[raw.length / 2] ^= 0x5a;
+		Files.write(snapshot, raw);
+		rewriteSnapshotJson(location, true);
+		var cc = new ContentDatabase(location, false).get(ID_UPDATE1);
+		assertEquals("New1", cc.get(0).getTitle());
+		assertEquals("New2", cc.get(1).getTitle());
+
+		// 切り詰められたスナップショットも同様
+		Files.write(snapshot, Arrays.copyOf(raw, 10));
+		cc = new ContentDatabase(location, false).get(ID_UPDATE1);
+		assertEquals("New1", cc.get(0).getTitle());
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// スナップショットの楽曲情報が現在の難易度表定義に合わない場合、難易度表情報ファイルの解析結果が使用されること
+	@Test
+	public void testUpdate2_Snapshot_LabelsChanged() throws Exception {
+		var db = setupSnapshotDatabase();
+		setupUpdateTableDescriptions(null, null, List.of("0", "1"));
+		var cc = new ContentDatabase(db.getLocation(), false).get(ID_UPDATE1);
+		assertEquals(1, cc.getCount());
+		assertEquals("Old2", cc.get(0).getTitle());
+	}
+
+	// ContentDatabase(Path, boolean, LoadOption...)
+	// メモリマップモードで構築した場合、スナップショットをマップした難易度表情報が読み込まれ、検索できること
+	@Test
+	public void testContentDatabase4_Mapped() throws Exception {
+		var db = setupSnapshotDatabase();
+		var location = db.getLocation();
+
+		// 難易度表情報ファイルは解析されない
+		var cc = loadWithoutParse(() -> new ContentDatabase(location, false, LoadOption.MAPPED).get(ID_UPDATE1));
+		var before = db.get(ID_UPDATE1);
+		assertEquals(before.getLastUpdateDateTime(), cc.getLastUpdateDateTime());
+		assertEquals(before.getModifiedDataHash(PlayStyle.SINGLE), cc.getModifiedDataHash(PlayStyle.SINGLE));
+		assertEquals("\"snap\"", cc.getModifiedETag(PlayStyle.SINGLE));
+		assertEquals(2, cc.getCount());
+		var cd1 = cc.get(0);
+		assertEquals("Old1", cd1.getTitle());
+		assertEquals("Artist", cd1.getArtist());
+		assertEquals(PlayStyle.SINGLE, cd1.getPlayStyle());
+		assertEquals(2, cd1.getLevelIndex());
+		assertEquals("http://example.com/body", cd1.getBodyUrl().toString());
+		assertEquals("http://example.com/add", cd1.getAdditionalUrl().toString());
+		assertEquals("0123456789abcdef0123456789abcdef", cd1.getMd5());
+		assertEquals("0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef", cd1.getSha256());
+		var cd2 = cc.get(1);
+		assertEquals("Old2", cd2.getTitle());
+		assertNull(cd2.getBodyUrl());
+		assertNull(cd2.getMd5());
+		assertNull(cd2.getSha256());
+		assertArrayEquals(new int[] { 0, 1, 1 }, cc.getLevelCounts(PlayStyle.SINGLE));
+
+		// 索引による検索
+		var sha256 = "0123456789ABCDEF0123456789ABCDEF0123456789ABCDEF0123456789ABCDEF";
+		assertEquals(1, cc.query("Old2", "Artist", PlayStyle.SINGLE, null, null).getLevelIndex());
+		assertEquals("Old1", cc.query("X", "X", PlayStyle.SINGLE, "0123456789ABCDEF0123456789ABCDEF", null).getTitle());
+		assertEquals("Old1", cc.query("X", "X", PlayStyle.SINGLE, null, sha256).getTitle());
+		assertNull(cc.query("Old2", "Artist", PlayStyle.DOUBLE, null, null));
+		assertNull(cc.query("Old", "Artist", PlayStyle.SINGLE, null, null));
+		assertNull(cc.query("X", "X", PlayStyle.SINGLE, "not-md5", "not-sha256"));
+	}
+
+	// ContentDatabase(Path, boolean, LoadOption...)
+	// メモリマップモードでスナップショットが使用できない場合、難易度表情報ファイルの内容が読み込まれること
+	@Test
+	public void testContentDatabase4_Mapped_Fallback() throws Exception {
+		var db = setupSnapshotDatabase();
+		var location = db.getLocation();
+		var snapshot = location.resolve(ID_UPDATE1 + ".snapshot");
+		var raw = Files.readAllBytes(snapshot);
+		raw[raw.length / 2] ^= 0x5a;
+		Files.write(snapshot, raw);
+		rewriteSnapshotJson(location, true);
+		var cc = new ContentDatabase(location, false, LoadOption.MAPPED).get(ID_UPDATE1);
+		assertEquals("New1", cc.get(0).getTitle());
+		assertEquals("New1", cc.query("New1", "Artist", PlayStyle.SINGLE, null, null).getTitle());
+
+		// スナップショットがない場合も同様
+		Files.delete(snapshot);
+		cc = new ContentDatabase(location, false, LoadOption.LAZY, LoadOption.MAPPED).get(ID_UPDATE1);
+		assertEquals("New2", cc.get(1).getTitle());
+	}
+
+	// ContentDatabase(Path, boolean, LoadOption...)
+	// メモリマップモードでスナップショットの楽曲情報が現在の難易度表定義に合わない場合、難易度表情報ファイルの解析結果が使用されること
+	@Test
+	public void testContentDatabase4_Mapped_LabelsChanged() throws Exception {
+		var db = setupSnapshotDatabase();
+		setupUpdateTableDescriptions(null, null, List.of("0", "1"));
+		var cc = new ContentDatabase(db.getLocation(), false, LoadOption.MAPPED).get(ID_UPDATE1);
+		assertEquals(1, cc.getCount());
+		assertEquals("Old2", cc.get(0).getTitle());
+	}
+
+	// update(HttpClient, Duration, UpdateProgress)
+	// メモリマップモードで更新した場合、更新後の難易度表情報が参照・検索できること
+	@Test
+	public void testUpdate2_Snapshot_Mapped() throws Exception {
+		var method = Thread.currentThread().getStackTrace()[1].getMethodName();
+		var db = setupSnapshotDatabase(method, true);
+		var cc = db.get(ID_UPDATE1);
+		assertEquals(2, cc.getCount());
+		assertEquals("Old1", cc.get(0).getTitle());
+		assertEquals("\"snap\"", cc.getModifiedETag(PlayStyle.SINGLE));
+		assertEquals("Old1", cc.query("X", "X", PlayStyle.SINGLE, "0123456789abcdef0123456789abcdef", null).getTitle());
+		assertEquals(1, cc.query("Old2", "Artist", PlayStyle.SINGLE, null, null).getLevelIndex());
+
+		// 再度更新してもスナップショットを置き換えて参照できる
+		db.update(httpClient(), ID_UPDATE1, null, UpdateProgress.nop());
+		cc = db.get(ID_UPDATE1);
+		assertEquals(2, cc.getCount());
+		assertEquals("Old2", cc.get(1).getTitle());
+	}
+
+	private static ContentDatabase setupSnapshotDatabase() throws Exception {
+		var method = Thread.currentThread().getStackTrace()[2].getMethodName();
+		return setupSnapshotDatabase(method, false);
+	}
+
+	private static ContentDatabase setupSnapshotDatabase(String method, boolean mapped) throws Exception {
+		setupUpdateTableDescriptions(null, (td, ps, raw) -> List.of(
+				new ContentDescription("Old1", "Artist", ps, 2, new URL("http://example.com/body"),
+						new URL("http://example.com/add"), "0123456789ABCDEF0123456789ABCDEF",
+						"0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef"),
+				new ContentDescription("Old2", "Artist", ps, 1, null, null, null, null)), null);
+		var path = setupTestData(method, method, true);
+		var options = mapped ? new LoadOption[] { LoadOption.MAPPED } : new LoadOption[0];
+		var db = new UpdateDatabase(path, r -> new UpdateResponse(200, Map.of("ETag", List.of("\"snap\""))), options);
+		db.update(httpClient(), ID_UPDATE1, null, UpdateProgress.nop());
+		return db;
+	}
+
+	private static ContentCollection loadWithoutParse(Callable<ContentCollection> loader) throws Exception {
+		var parsed = new AtomicBoolean(false);
+		try {
+			DifficultyTables.setLogger(s -> {
+				if (s.contains("Read and parse database: ")) { parsed.set(true); }
+			});
+			var cc = loader.call();
+			assertFalse(parsed.get());
+			return cc;
+		} finally {
+			DifficultyTables.setLogger(null);
+		}
+	}
+
+	private static void rewriteSnapshotJson(Path location, boolean keepAttributes) throws Exception {
+		var json = location.resolve(ID_UPDATE1 + ".json");
+		var modified = Files.getLastModifiedTime(json);
+		var source = Files.readString(json, StandardCharsets.UTF_8);
+		var tmp = location.resolve(ID_UPDATE1 + ".json.tmp");
+		Files.writeString(tmp, source.replace("\"Old", "\"New"), StandardCharsets.UTF_8);
+		Files.move(tmp, json, StandardCopyOption.REPLACE_EXISTING);
+		Files.setLastModifiedTime(json, keepAttributes ? modified :
+				FileTime.fromMillis(modified.toMillis() + 2000L));
+	}
+
+	// update(HttpClient, Duration, UpdateProgress, Map<String, UpdateResult>)
+	// 更新中間の難易度表で例外が発生しても後続の難易度表が更新され、全ての難易度表の更新が実施されること
+	@Test
+	public void testUpdate3_UpdateAll() throws Exception {
+		var db = setupUpdateDatabase(r -> {
+			var statusCode = r.uri().toString().equals("http://example.com/1") ? 404 : 200;
+			return new UpdateResponse(statusCode, Map.of());
+		});
+		var results = new HashMap<String, UpdateResult>();
+		results.put("dummy", new UpdateResult(UpdateResult.Type.SUCCESS));
+		db.update(httpClient(), Duration.ofSeconds(1), UpdateProgress.nop(), results);
+		assertEquals(2, results.size());
+		var r1 = results.get(ID_UPDATE1);
+		assertNotNull(r1);
+		assertEquals(UpdateResult.Type.ERROR, r1.getType());
+		assertNotNull(r1.getCause());
+		assertFalse(r1.isSuccess());
+		var r2 = results.get(ID_UPDATE2);
+		assertNotNull(r2);
+		assertEquals(UpdateResult.Type.SUCCESS, r2.getType());
+		assertNull(r2.getCause());
+		assertTrue(r2.isSuccess());
+	}
+
+	// update(HttpClient, Duration, UpdateProgress, Map<String, UpdateResult>)
+	// 更新中間で割り込みを発生させるとInterruptedExceptionがスローされ、割り込み以降の更新は中止されること
+	@Test
+	public void testUpdate3_Interrupt() throws Exception {
+		var db = setupUpdateDatabase(r -> { Thread.sleep(Long.MAX_VALUE); return null; });
+		var results = new HashMap<String, UpdateResult>();
+		var thrown = new Throwable[] { null };
+		var thread = new Thread(() -> {
+			try {
+				db.update(httpClient(), Duration.ofSeconds(1), UpdateProgress.nop(),results);
+			} catch (Throwable e) {
+				thrown[0] = e;
+			}
+		});
+		thread.start();
+		thread.interrupt();
+		thread.join();
+		assertNotNull(thrown[0]);
+		assertEquals(InterruptedException.class, thrown[0].getClass());
+		assertEquals(2, results.size());
+		var r1 = results.get(ID_UPDATE1);
+		assertNotNull(r1);
+		assertEquals(UpdateResult.Type.ABORT, r1.getType());
+		assertNull(r1.getCause());
+		assertFalse(r1.isSuccess());
+		var r2 = results.get(ID_UPDATE2);
+		assertNotNull(r2);
+		assertEquals(UpdateResult.Type.ABORT, r2.getType());
+		assertNull(r2.getCause());
+		assertFalse(r2.isSuccess());
+	}
+
+	// update(HttpClient, Duration, UpdateProgress, Map<String, UpdateResult>)
+	// NullPointerException client が null
+	@Test
+	public void testUpdate3_NullClient() throws Exception {
+		var db = setupEmptyDatabase();
+		var ex = NullPointerException.class;
+		assertThrows(ex, () -> db.update(null, Duration.ofSeconds(1), UpdateProgress.nop(), new HashMap<>()));
+	}
+
+	// update(HttpClient, Duration, UpdateProgress, Map<String, UpdateResult>)
+	// NullPointerException progress が null
+	@Test
+	public void testUpdate3_NullProgress() throws Exception {
+		var db = setupEmptyDatabase();
+		var ex = NullPointerException.class;
+		assertThrows(ex, () -> db.update(httpClient(), Duration.ofSeconds(1), null, new HashMap<>()));
+	}
+
+	// update(HttpClient, Duration, UpdateProgress, Map<String, UpdateResult>)
+	// NullPointerException results が null
+	@Test
+	public void testUpdate3_NullResults() throws Exception {
+		var db = setupEmptyDatabase();
+		var ex = NullPointerException.class;
+		assertThrows(ex, () -> db.update(httpClient(), Duration.ofSeconds(1), UpdateProgress.nop(), null));
+	}
+
+	// update(HttpClient, Duration, UpdateProgress, Map<String, UpdateResult>)
+	// UnsupportedOperationException results が変更不可のマップ
+	@Test
+	public void testUpdate3_UnmodifiableResults() throws Exception {
+		var db = setupEmptyDatabase();
+		var ex = UnsupportedOperationException.class;
+		assertThrows(ex, () -> db.update(httpClient(), Duration.ofSeconds(1), UpdateProgress.nop(), Map.of()));
+	}
+
+	// update(HttpClient, Duration, UpdateProgress, Map<String, UpdateResult>)
+	// IllegalStateException 読み込み排他処理エラーが発生した
+	@Test
+	public void testUpdate3_ReadExclusiveError() throws Exception {
+		var db = setupUpdateDatabase();
+		var lockF = new LockFile(db.getLocation().resolve(readLockFileName()));
+		var ex = IllegalStateException.class;
+		try {
+			assertTrue(lockF.lock());
+			assertThrows(ex, () -> db.update(httpClient(), null, UpdateProgress.nop(), new HashMap<>()));
+		} finally {
+			lockF.unlock();
+		}
+	}
+
+	// update(HttpClient, Duration, UpdateProgress, Map<String, UpdateResult>)
+	// IllegalStateException 書き込み排他処理エラーが発生した
+	@Test
+	public void testUpdate3_WriteExclusiveError() throws Exception {
+		var db = setupUpdateDatabase();
+		var lockF = new LockFile(db.getLocation().resolve(writeLockFileName()));
+		var ex = IllegalStateException.class;
+		try {
+			assertTrue(lockF.lock());
+			assertThrows(ex, () -> db.update(httpClient(), null, UpdateProgress.nop(), new HashMap<>()));
+		} finally {
+			lockF.unlock();
+		}
+	}
+
+	// update(HttpClient, Duration, UpdateProgress, Map<String, UpdateResult>, int)
+	// 並列度2以上の場合、複数の難易度表の更新が同時に実行されること
+	@Test
+	@Timeout(10)
+	public void testUpdate4_Concurrent() throws Exception {
+		var arrived = new CountDownLatch(2);
+		var db = setupUpdateDatabase(r -> {
+			// 全ての難易度表のリクエストが揃うまで応答しない
+			arrived.countDown();
+			assertTrue(arrived.await(5, TimeUnit.SECONDS));
+			return new UpdateResponse(200, Map.of());
+		});
+		var results = new HashMap<String, UpdateResult>();
+		db.update(httpClient(), null, UpdateProgress.nop(), results, 2);
+		assertEquals(2, results.size());
+		assertTrue(results.get(ID_UPDATE1).isSuccess());
+		assertTrue(results.get(ID_UPDATE2).isSuccess());
+	}
+
+	// update(HttpClient, Duration, UpdateProgress, Map<String, UpdateResult>, int)
+	// 更新中間の難易度表で例外が発生しても後続の難易度表が更新され、全ての難易度表の更新結果が格納されること
+	@Test
+	public void testUpdate4_UpdateAll() throws Exception {
+		var db = setupUpdateDatabase(r -> {
+			var statusCode = r.uri().toString().equals("http://example.com/1") ? 404 : 200;
+			return new UpdateResponse(statusCode, Map.of());
+		});
+		var results = new LinkedHashMap<String, UpdateResult>();
+		results.put("dummy", new UpdateResult(UpdateResult.Type.SUCCESS));
+		db.update(httpClient(), Duration.ofSeconds(1), UpdateProgress.nop(), results, 4);
+		assertEquals(List.of(ID_UPDATE1, ID_UPDATE2), new ArrayList<>(results.keySet()));
+		var r1 = results.get(ID_UPDATE1);
+		assertEquals(UpdateResult.Type.ERROR, r1.getType());
+		assertEquals(IOException.class, r1.getCause().getClass());
+		var r2 = results.get(ID_UPDATE2);
+		assertEquals(UpdateResult.Type.SUCCESS, r2.getType());
+		assertNull(r2.getCause());
+	}
+
+	// update(HttpClient, Duration, UpdateProgress, Map<String, UpdateResult>, int)
+	// 並列更新時、進捗報告ハンドラが同時に呼び出されないこと
+	@Test
+	public void testUpdate4_SerializedProgress() throws Exception {
+		var db = setupUpdateDatabase(r -> new UpdateResponse(200, Map.of()));
+		var inside = new AtomicInteger(0);
+		var numCall = new AtomicInteger(0);
+		db.update(httpClient(), null, (td, ps, i, num, sts) -> {
+			assertEquals(1, inside.incrementAndGet());
+			try { Thread.sleep(20); } catch (InterruptedException e) { /* Do nothing */ }
+			numCall.incrementAndGet();
+			inside.decrementAndGet();
+		}, new HashMap<>(), 2);
+		assertEquals(4, numCall.get());
+	}
+
+	// update(HttpClient, Duration, UpdateProgress, Map<String, UpdateResult>, int)
+	// 更新中に割り込みを発生させるとInterruptedExceptionがスローされ、未完了の更新は全て中止されること
+	@Test
+	@Timeout(10)
+	public void testUpdate4_Interrupt() throws Exception {
+		var started = new CountDownLatch(2);
+		var db = setupUpdateDatabase(r -> { started.countDown(); Thread.sleep(Long.MAX_VALUE); return null; });
+		var results = new HashMap<String, UpdateResult>();
+		var thrown = new Throwable[] { null };
+		var thread = new Thread(() -> {
+			try {
+				db.update(httpClient(), Duration.ofSeconds(1), UpdateProgress.nop(), results, 2);
+			} catch (Throwable e) {
+				thrown[0] = e;
+			}
+		});
+		thread.start();
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		thread.interrupt();
+		thread.join();
+		assertNotNull(thrown[0]);
+		assertEquals(InterruptedException.class, thrown[0].getClass());
+		assertEquals(2, results.size());
+		assertEquals(UpdateResult.Type.ABORT, results.get(ID_UPDATE1).getType());
+		assertEquals(UpdateResult.Type.ABORT, results.get(ID_UPDATE2).getType());
+		var lockF = new LockFile(db.getLocation().resolve(writeLockFileName()));
+		assertTrue(lockF.test());
+	}
+
+	// update(HttpClient, Duration, UpdateProgress, Map<String, UpdateResult>, int)
+	// IllegalArgumentException parallelism が1未満
+	@Test
+	public void testUpdate4_InvalidParallelism() throws Exception {
+		var db = setupEmptyDatabase();
+		var ex = IllegalArgumentException.class;
+		assertThrows(ex, () -> db.update(httpClient(), null, UpdateProgress.nop(), new HashMap<>(), 0));
+	}
+
+	// update(HttpClient, String, Duration, UpdateProgress)
+	// SP/DP両対応の難易度表では、SP/DPの楽曲情報取得リクエストが同時に行われること
+	@Test
+	@Timeout(10)
+	public void testUpdate5_ConcurrentPlayStyles() throws Exception {
+		var arrived = new CountDownLatch(2);
+		var db = setupUpdateBothDatabase(r -> {
+			// SP/DP両方のリクエストが揃うまで応答しない
+			arrived.countDown();
+			assertTrue(arrived.await(5, TimeUnit.SECONDS));
+			return new UpdateResponse(200, Map.of());
+		}, (td, ps, raw) -> {
+			return List.of(new ContentDescription("T-" + ps.name(), "A", ps, 0, null, null, null, null));
+		});
+		db.update(httpClient(), ID_UPDATE_BOTH, null, UpdateProgress.nop());
+
+		// SP/DPの楽曲情報がマージされて1つの難易度表情報ファイルに書き込まれていること
+		var cc = new ContentDatabase(db.getLocation(), false).get(ID_UPDATE_BOTH);
+		assertEquals(2, cc.getCount());
+		assertEquals(PlayStyle.SINGLE, cc.get(0).getPlayStyle());
+		assertEquals(PlayStyle.DOUBLE, cc.get(1).getPlayStyle());
+		assertNotNull(cc.getModifiedDataHash(PlayStyle.SINGLE));
+		assertNotNull(cc.getModifiedDataHash(PlayStyle.DOUBLE));
+	}
+
+	// update(HttpClient, String, Duration, UpdateProgress)
+	// DPの応答がSPより先に完了しても、進捗報告はSP→DPの順で行われること
+	@Test
+	@Timeout(10)
+	public void testUpdate5_ProgressSequence() throws Exception {
+		var dpDone = new CountDownLatch(1);
+		var db = setupUpdateBothDatabase(r -> {
+			if (r.uri().toString().equals("http://example.com/1")) {
+				// SPはDPの解析が完了するまで応答しない
+				assertTrue(dpDone.await(5, TimeUnit.SECONDS));
+				return new UpdateResponse(200, Map.of());
+			} else {
+				return new UpdateResponse(304, Map.of());
+			}
+		}, (td, ps, raw) -> List.of());
+		var styles = new ArrayList<PlayStyle>();
+		var statuses = new ArrayList<UpdateProgress.Status>();
+		db.update(httpClient(), ID_UPDATE_BOTH, null, (td, ps, i, num, sts) -> {
+			styles.add(ps);
+			statuses.add(sts);
+			if ((ps == PlayStyle.SINGLE) && (sts == UpdateProgress.Status.START)) {
+				// SP開始後にDPの完了を待ち合わせる時間を与える
+				try { Thread.sleep(100); } catch (InterruptedException e) { /* Do nothing */ }
+				dpDone.countDown();
+			}
+		});
+		var sp = PlayStyle.SINGLE;
+		var dp = PlayStyle.DOUBLE;
+		assertEquals(List.of(sp, sp, dp, dp), styles);
+		assertEquals(List.of(
+				UpdateProgress.Status.START,
+				UpdateProgress.Status.DONE,
+				UpdateProgress.Status.START,
+				UpdateProgress.Status.UNNECESSARY), statuses);
+	}
+
+	// update(HttpClient, String, Duration, UpdateProgress)
+	// DPの取得でエラーが発生した場合、IOExceptionがスローされ難易度表情報ファイルは書き込まれないこと
+	@Test
+	public void testUpdate5_SecondStyleError() throws Exception {
+		var db = setupUpdateBothDatabase(r -> {
+			var status = r.uri().toString().equals("http://example.com/1") ? 200 : 404;
+			return new UpdateResponse(status, Map.of());
+		}, (td, ps, raw) -> List.of());
+		var statuses = new ArrayList<UpdateProgress.Status>();
+		var ex = IOException.class;
+		assertThrows(ex, () -> db.update(httpClient(), ID_UPDATE_BOTH, null, (td, ps, i, num, sts) -> {
+			statuses.add(sts);
+		}));
+		assertEquals(List.of(
+				UpdateProgress.Status.START,
+				UpdateProgress.Status.DONE,
+				UpdateProgress.Status.START,
+				UpdateProgress.Status.ERROR), statuses);
+		assertFalse(Files.exists(db.getLocation().resolve(ID_UPDATE_BOTH + ".json")));
+	}
+
+	// update(HttpClient, String, Duration, UpdateProgress)
+	// SPの取得でエラーが発生した場合、並行して実行中のDPの取得は中止され、DPの進捗は報告されないこと
+	@Test
+	@Timeout(10)
+	public void testUpdate5_FirstStyleErrorCancelsSecond() throws Exception {
+		var dpStarted = new CountDownLatch(1);
+		var dpInterrupted = new CountDownLatch(1);
+		var db = setupUpdateBothDatabase(r -> {
+			if (r.uri().toString().equals("http://example.com/1")) {
+				assertTrue(dpStarted.await(5, TimeUnit.SECONDS));
+				return new UpdateResponse(404, Map.of());
+			} else {
+				dpStarted.countDown();
+				try {
+					Thread.sleep(Long.MAX_VALUE);
+				} catch (InterruptedException e) {
+					dpInterrupted.countDown();
+					throw e;
+				}
+				return null;
+			}
+		}, (td, ps, raw) -> List.of());
+		var styles = new ArrayList<PlayStyle>();
+		var ex = IOException.class;
+		assertThrows(ex, () -> db.update(httpClient(), ID_UPDATE_BOTH, null, (td, ps, i, num, sts) -> {
+			styles.add(ps);
+		}));
+		assertEquals(List.of(PlayStyle.SINGLE, PlayStyle.SINGLE), styles);
+		assertTrue(dpInterrupted.await(5, TimeUnit.SECONDS));
+	}
+
+	// updateAsync(HttpClient, String, Duration, UpdateProgress)
+	// 指定した難易度表が更新され、フューチャーの完了時には排他が解除されていること
+	@Test
+	public void testUpdateAsync1_Normal() throws Exception {
+		var db = setupUpdateDatabase((td, ps, raw) -> {
+			return List.of(new ContentDescription("A", "B", ps, 0, null, null, null, null));
+		});
+		var result = db.updateAsync(httpClient(), ID_UPDATE1, null, UpdateProgress.nop()).get(5, TimeUnit.SECONDS);
+		assertEquals(UpdateResult.Type.SUCCESS, result.getType());
+		assertEquals(1, db.get(ID_UPDATE1).getCount());
+		assertFalse(Files.exists(db.getLocation().resolve(ID_UPDATE2 + ".json")));
+		assertTrue(new LockFile(db.getLocation().resolve(writeLockFileName())).test());
+		assertTrue(new LockFile(db.getLocation().resolve(readLockFileName())).test());
+	}
+
+	// updateAsync(HttpClient, String, Duration, UpdateProgress)
+	// 更新処理でエラーが発生した場合、フューチャーは「エラー」の更新結果で完了すること
+	@Test
+	public void testUpdateAsync1_Error() throws Exception {
+		var db = setupUpdateDatabase(r -> new UpdateResponse(404, Map.of()));
+		var statuses = new ArrayList<UpdateProgress.Status>();
+		var future = db.updateAsync(httpClient(), ID_UPDATE1, null, (td, ps, i, num, sts) -> statuses.add(sts));
+		var result = future.get(5, TimeUnit.SECONDS);
+		assertEquals(UpdateResult.Type.ERROR, result.getType());
+		assertEquals(IOException.class, result.getCause().getClass());
+		assertEquals(List.of(UpdateProgress.Status.START, UpdateProgress.Status.ERROR), statuses);
+	}
+
+	// updateAsync(HttpClient, String, Duration, UpdateProgress)
+	// 更新処理の開始中に例外がスローされた場合、排他が解除され、再度更新できること
+	@Test
+	public void testUpdateAsync1_SetupError() throws Exception {
+		var db = setupUpdateDatabase();
+		try {
+			DifficultyTables.setLogger(s -> {
+				if (s.contains("UPDATE ASYNC: ")) { throw new UnsupportedOperationException(); }
+			});
+			var ex = UnsupportedOperationException.class;
+			assertThrows(ex, () -> db.updateAsync(httpClient(), ID_UPDATE1, null, UpdateProgress.nop()));
+		} finally {
+			DifficultyTables.setLogger(null);
+		}
+		assertTrue(new LockFile(db.getLocation().resolve(writeLockFileName())).test());
+		assertTrue(new LockFile(db.getLocation().resolve(readLockFileName())).test());
+		var result = db.updateAsync(httpClient(), ID_UPDATE1, null, UpdateProgress.nop()).get(5, TimeUnit.SECONDS);
+		assertEquals(UpdateResult.Type.SUCCESS, result.getType());
+	}
+
+	// updateAsync(HttpClient, String, Duration, UpdateProgress)
+	// NullPointerException client が null
+	// NullPointerException id が null
+	// NullPointerException progress が null
+	// IllegalArgumentException id に該当する難易度表定義が存在しない
 	@Test
-	public void testUpdate2_ContentFile_FailedToSave() throws Exception {
+	public void testUpdateAsync1_InvalidArguments() throws Exception {
 		var db = setupUpdateDatabase();
-		var upd1F = db.getLocation().resolve(ID_UPDATE1 + ".json");
-		var ex = IOException.class;
-		Files.createDirectory(upd1F);
-		Files.createFile(upd1F.resolve("file"));
-		assertThrows(ex, () -> db.update(httpClient(), null, UpdateProgress.nop()));
+		var c = httpClient();
+		var p = UpdateProgress.nop();
+		assertThrows(NullPointerException.class, () -> db.updateAsync(null, ID_UPDATE1, null, p));
+		assertThrows(NullPointerException.class, () -> db.updateAsync(c, (String)null, null, p));
+		assertThrows(NullPointerException.class, () -> db.updateAsync(c, ID_UPDATE1, null, null));
+		assertThrows(IllegalArgumentException.class, () -> db.updateAsync(c, "unknown", null, p));
 	}
 
-	// update(HttpClient, Duration, UpdateProgress, Map<String, UpdateResult>)
-	// 更新中間の難易度表で例外が発生しても後続の難易度表が更新され、全ての難易度表の更新が実施されること
+	// updateAsync(HttpClient, String, Duration, UpdateProgress)
+	// IllegalStateException 読み書き排他処理エラーが発生した
 	@Test
-	public void testUpdate3_UpdateAll() throws Exception {
-		var db = setupUpdateDatabase(r -> {
-			var statusCode = r.uri().toString().equals("http://example.com/1") ? 404 : 200;
-			return new UpdateResponse(statusCode, Map.of());
-		});
-		var results = new HashMap<String, UpdateResult>();
-		results.put("dummy", new UpdateResult(UpdateResult.Type.SUCCESS));
-		db.update(httpClient(), Duration.ofSeconds(1), UpdateProgress.nop(), results);
-		assertEquals(2, results.size());
-		var r1 = results.get(ID_UPDATE1);
-		assertNotNull(r1);
-		assertEquals(UpdateResult.Type.ERROR, r1.getType());
-		assertNotNull(r1.getCause());
-		assertFalse(r1.isSuccess());
-		var r2 = results.get(ID_UPDATE2);
-		assertNotNull(r2);
-		assertEquals(UpdateResult.Type.SUCCESS, r2.getType());
-		assertNull(r2.getCause());
-		assertTrue(r2.isSuccess());
+	public void testUpdateAsync1_ExclusiveError() throws Exception {
+		var db = setupUpdateDatabase();
+		var lockF = new LockFile(db.getLocation().resolve(writeLockFileName()));
+		try {
+			lockF.lock();
+			var ex = IllegalStateException.class;
+			assertThrows(ex, () -> db.updateAsync(httpClient(), ID_UPDATE1, null, UpdateProgress.nop()));
+		} finally {
+			lockF.unlock();
+		}
 	}
 
-	// update(HttpClient, Duration, UpdateProgress, Map<String, UpdateResult>)
-	// 更新中間で割り込みを発生させるとInterruptedExceptionがスローされ、割り込み以降の更新は中止されること
+	// updateAsync(HttpClient, Duration, UpdateProgress, Map<String, CompletableFuture<UpdateResult>>)
+	// 応答を待たずに復帰し、全ての難易度表の更新結果が難易度表定義の登録順に格納されること
 	@Test
-	public void testUpdate3_Interrupt() throws Exception {
-		var db = setupUpdateDatabase(r -> { Thread.sleep(Long.MAX_VALUE); return null; });
-		var results = new HashMap<String, UpdateResult>();
-		var thrown = new Throwable[] { null };
-		var thread = new Thread(() -> {
-			try {
-				db.update(httpClient(), Duration.ofSeconds(1), UpdateProgress.nop(),results);
-			} catch (Throwable e) {
-				thrown[0] = e;
-			}
+	@Timeout(10)
+	public void testUpdateAsync2_UpdateAll() throws Exception {
+		var responses = new ConcurrentHashMap<String, CompletableFuture<HttpResponse<InputStream>>>();
+		var db = setupAsyncUpdateDatabase(r -> {
+			return responses.computeIfAbsent(r.uri().toString(), k -> new CompletableFuture<>());
 		});
-		thread.start();
-		thread.interrupt();
-		thread.join();
-		assertNotNull(thrown[0]);
-		assertEquals(InterruptedException.class, thrown[0].getClass());
-		assertEquals(2, results.size());
-		var r1 = results.get(ID_UPDATE1);
-		assertNotNull(r1);
-		assertEquals(UpdateResult.Type.ABORT, r1.getType());
-		assertNull(r1.getCause());
-		assertFalse(r1.isSuccess());
-		var r2 = results.get(ID_UPDATE2);
-		assertNotNull(r2);
-		assertEquals(UpdateResult.Type.ABORT, r2.getType());
-		assertNull(r2.getCause());
-		assertFalse(r2.isSuccess());
+		var tableFutures = new HashMap<String, CompletableFuture<UpdateResult>>();
+		tableFutures.put("dummy", new CompletableFuture<>());
+		db.setHostPolicy(2, Duration.ZERO);
+		var future = db.updateAsync(httpClient(), null, UpdateProgress.nop(), tableFutures);
+
+		// 応答前は更新処理が完了していないこと
+		assertFalse(future.isDone());
+		assertEquals(Set.of(ID_UPDATE1, ID_UPDATE2), tableFutures.keySet());
+		assertFalse(tableFutures.get(ID_UPDATE1).isDone());
+		assertFalse(tableFutures.get(ID_UPDATE2).isDone());
+
+		// 応答を返すと更新処理が完了すること
+		responses.get("http://example.com/2").complete(new UpdateResponse(200, Map.of()));
+		assertEquals(UpdateResult.Type.SUCCESS, tableFutures.get(ID_UPDATE2).get().getType());
+		assertFalse(future.isDone());
+		responses.get("http://example.com/1").complete(new UpdateResponse(404, Map.of()));
+		var results = future.get();
+		assertEquals(List.of(ID_UPDATE1, ID_UPDATE2), new ArrayList<>(results.keySet()));
+		assertEquals(UpdateResult.Type.ERROR, results.get(ID_UPDATE1).getType());
+		assertEquals(IOException.class, results.get(ID_UPDATE1).getCause().getClass());
+		assertEquals(UpdateResult.Type.SUCCESS, results.get(ID_UPDATE2).getType());
+		assertSame(results.get(ID_UPDATE1), tableFutures.get(ID_UPDATE1).get());
+		assertTrue(new LockFile(db.getLocation().resolve(writeLockFileName())).test());
+	}
+
+	// updateAsync(HttpClient, Duration, UpdateProgress, Map<String, CompletableFuture<UpdateResult>>)
+	// フューチャーをキャンセルすると全ての送信が中止され、更新結果は全て「中止」となり排他が解除されること
+	@Test
+	@Timeout(10)
+	public void testUpdateAsync2_Cancel() throws Exception {
+		var responses = new ConcurrentHashMap<String, CompletableFuture<HttpResponse<InputStream>>>();
+		var db = setupAsyncUpdateDatabase(r -> {
+			return responses.computeIfAbsent(r.uri().toString(), k -> new CompletableFuture<>());
+		});
+		var tableFutures = new HashMap<String, CompletableFuture<UpdateResult>>();
+		db.setHostPolicy(2, Duration.ZERO);
+		var future = db.updateAsync(httpClient(), null, UpdateProgress.nop(), tableFutures);
+		assertTrue(future.cancel(true));
+		assertThrows(CancellationException.class, () -> future.get());
+		assertTrue(responses.values().stream().allMatch(CompletableFuture::isCancelled));
+		assertEquals(UpdateResult.Type.ABORT, tableFutures.get(ID_UPDATE1).get().getType());
+		assertEquals(UpdateResult.Type.ABORT, tableFutures.get(ID_UPDATE2).get().getType());
+		assertFalse(Files.exists(db.getLocation().resolve(ID_UPDATE1 + ".json")));
+		assertFalse(Files.exists(db.getLocation().resolve(ID_UPDATE2 + ".json")));
+		assertTrue(new LockFile(db.getLocation().resolve(writeLockFileName())).test());
+	}
+
+	// updateAsync(HttpClient, Duration, UpdateProgress, Map<String, CompletableFuture<UpdateResult>>)
+	// 難易度表ごとのフューチャーをキャンセルすると、その難易度表の更新のみ中止されること
+	@Test
+	@Timeout(10)
+	public void testUpdateAsync2_CancelTable() throws Exception {
+		var responses = new ConcurrentHashMap<String, CompletableFuture<HttpResponse<InputStream>>>();
+		var db = setupAsyncUpdateDatabase(r -> {
+			return responses.computeIfAbsent(r.uri().toString(), k -> new CompletableFuture<>());
+		});
+		var tableFutures = new HashMap<String, CompletableFuture<UpdateResult>>();
+		db.setHostPolicy(2, Duration.ZERO);
+		var future = db.updateAsync(httpClient(), null, UpdateProgress.nop(), tableFutures);
+		assertTrue(tableFutures.get(ID_UPDATE1).cancel(true));
+		assertTrue(responses.get("http://example.com/1").isCancelled());
+		assertFalse(responses.get("http://example.com/2").isCancelled());
+		responses.get("http://example.com/2").complete(new UpdateResponse(200, Map.of()));
+		var results = future.get();
+		assertEquals(UpdateResult.Type.ABORT, results.get(ID_UPDATE1).getType());
+		assertEquals(UpdateResult.Type.SUCCESS, results.get(ID_UPDATE2).getType());
+		assertFalse(Files.exists(db.getLocation().resolve(ID_UPDATE1 + ".json")));
+		assertTrue(Files.exists(db.getLocation().resolve(ID_UPDATE2 + ".json")));
+	}
+
+	// updateAsync(HttpClient, Duration, UpdateProgress, Map<String, CompletableFuture<UpdateResult>>)
+	// SP/DP両対応の難易度表で、DPの応答がSPより先に完了しても進捗報告はSP→DPの順で行われること
+	@Test
+	@Timeout(10)
+	public void testUpdateAsync2_ProgressSequence() throws Exception {
+		var responses = new ConcurrentHashMap<String, CompletableFuture<HttpResponse<InputStream>>>();
+		var db = setupUpdateBothDatabase(r -> new UpdateResponse(200, Map.of()), (td, ps, raw) -> List.of());
+		((UpdateDatabase)db).mAsyncSender = r -> {
+			return responses.computeIfAbsent(r.uri().toString(), k -> new CompletableFuture<>());
+		};
+		var styles = new ArrayList<PlayStyle>();
+		var statuses = new ArrayList<UpdateProgress.Status>();
+		db.setHostPolicy(2, Duration.ZERO);
+		var future = db.updateAsync(httpClient(), null, (td, ps, i, num, sts) -> {
+			styles.add(ps);
+			statuses.add(sts);
+		}, new HashMap<>());
+		responses.get("http://example.com/2").complete(new UpdateResponse(304, Map.of()));
+		responses.get("http://example.com/1").complete(new UpdateResponse(200, Map.of()));
+		assertEquals(UpdateResult.Type.SUCCESS, future.get().get(ID_UPDATE_BOTH).getType());
+		var sp = PlayStyle.SINGLE;
+		var dp = PlayStyle.DOUBLE;
+		assertEquals(List.of(sp, sp, dp, dp), styles);
+		assertEquals(List.of(
+				UpdateProgress.Status.START,
+				UpdateProgress.Status.DONE,
+				UpdateProgress.Status.START,
+				UpdateProgress.Status.UNNECESSARY), statuses);
 	}
 
-	// update(HttpClient, Duration, UpdateProgress, Map<String, UpdateResult>)
-	// NullPointerException client が null
+	// updateAsync(HttpClient, Duration, UpdateProgress, Map<String, CompletableFuture<UpdateResult>>)
+	// 難易度表情報の更新内容が同期更新と同じ内容であること
 	@Test
-	public void testUpdate3_NullClient() throws Exception {
-		var db = setupEmptyDatabase();
-		var ex = NullPointerException.class;
-		assertThrows(ex, () -> db.update(null, Duration.ofSeconds(1), UpdateProgress.nop(), new HashMap<>()));
+	public void testUpdateAsync2_ContentFile() throws Exception {
+		var db = setupUpdateDatabase(
+				r -> {
+					var mod = ZonedDateTime.parse("2025-01-02T03:04:05Z");
+					return new UpdateResponse(
+							200,
+							Map.of("Last-Modified", List.of(mod.format(DateTimeFormatter.RFC_1123_DATE_TIME))),
+							new byte[] { 'a' });
+				},
+				(td, ps, raw) -> List.of(new ContentDescription("T", "A", ps, 1, null, null, null, null)));
+		var results = db.updateAsync(httpClient(), null, UpdateProgress.nop()).get(5, TimeUnit.SECONDS);
+		assertTrue(results.values().stream().allMatch(UpdateResult::isSuccess));
+
+		var db2 = new ContentDatabase(db.getLocation(), false);
+		var cc1 = db2.get(ID_UPDATE1);
+		assertEquals("2025-01-02T03:04:05Z", cc1.getModifiedDateTime(PlayStyle.SINGLE).toString());
+		assertEquals("ca978112ca1bbdcafac231b39a23dc4da786eff8147c4e72b9807785afee48bb",
+				cc1.getModifiedDataHash(PlayStyle.SINGLE));
+		assertEquals(1, cc1.getCount());
+		assertEquals("T", cc1.get(0).getTitle());
+		assertEquals(PlayStyle.SINGLE, cc1.get(0).getPlayStyle());
+		var cc2 = db2.get(ID_UPDATE2);
+		assertEquals(1, cc2.getCount());
+		assertEquals(PlayStyle.DOUBLE, cc2.get(0).getPlayStyle());
 	}
 
-	// update(HttpClient, Duration, UpdateProgress, Map<String, UpdateResult>)
+	// updateAsync(HttpClient, Duration, UpdateProgress, Map<String, CompletableFuture<UpdateResult>>)
+	// NullPointerException client が null
 	// NullPointerException progress が null
+	// NullPointerException tableFutures が null
+	// UnsupportedOperationException tableFutures が変更不可のマップ
 	@Test
-	public void testUpdate3_NullProgress() throws Exception {
-		var db = setupEmptyDatabase();
-		var ex = NullPointerException.class;
-		assertThrows(ex, () -> db.update(httpClient(), Duration.ofSeconds(1), null, new HashMap<>()));
+	public void testUpdateAsync2_InvalidArguments() throws Exception {
+		var db = setupUpdateDatabase();
+		var c = httpClient();
+		var p = UpdateProgress.nop();
+		var f = new HashMap<String, CompletableFuture<UpdateResult>>();
+		assertThrows(NullPointerException.class, () -> db.updateAsync(null, null, p, f));
+		assertThrows(NullPointerException.class, () -> db.updateAsync(c, null, null, f));
+		assertThrows(NullPointerException.class, () -> db.updateAsync(c, null, p, null));
+		assertThrows(UnsupportedOperationException.class, () -> db.updateAsync(c, null, p, Map.of()));
+	}
+
+	// updateAsync(HttpClient, Duration, UpdateProgress, Map<String, CompletableFuture<UpdateResult>>)
+	// 更新処理の開始中に例外がスローされた場合、開始済みの送信が中止されて排他が解除されること
+	@Test
+	@Timeout(10)
+	public void testUpdateAsync2_SetupError() throws Exception {
+		var responses = new ConcurrentHashMap<String, CompletableFuture<HttpResponse<InputStream>>>();
+		var db = setupAsyncUpdateDatabase(r -> {
+			return responses.computeIfAbsent(r.uri().toString(), k -> new CompletableFuture<>());
+		});
+		var tableFutures = new HashMap<String, CompletableFuture<UpdateResult>>() {
+			@Override
+			public CompletableFuture<UpdateResult> put(String key, CompletableFuture<UpdateResult> value) {
+				throw new UnsupportedOperationException();
+			}
+		};
+		db.setHostPolicy(2, Duration.ZERO);
+		var ex = UnsupportedOperationException.class;
+		assertThrows(ex, () -> db.updateAsync(httpClient(), null, UpdateProgress.nop(), tableFutures));
+		assertTrue(responses.values().stream().allMatch(CompletableFuture::isCancelled));
+		assertFalse(Files.exists(db.getLocation().resolve(ID_UPDATE1 + ".json")));
+		assertTrue(new LockFile(db.getLocation().resolve(writeLockFileName())).test());
+		assertTrue(new LockFile(db.getLocation().resolve(readLockFileName())).test());
 	}
 
-	// update(HttpClient, Duration, UpdateProgress, Map<String, UpdateResult>)
-	// NullPointerException results が null
+	// setHostPolicy(int, Duration)
+	// 同一ホストへのリクエストは同時送信数上限を超えて同時に送信されないこと
 	@Test
-	public void testUpdate3_NullResults() throws Exception {
-		var db = setupEmptyDatabase();
-		var ex = NullPointerException.class;
-		assertThrows(ex, () -> db.update(httpClient(), Duration.ofSeconds(1), UpdateProgress.nop(), null));
+	@Timeout(10)
+	public void testSetHostPolicy_MaxConcurrency() throws Exception {
+		var inside = new AtomicInteger(0);
+		var maxInside = new AtomicInteger(0);
+		var db = setupUpdateDatabase(r -> {
+			maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+			Thread.sleep(100);
+			inside.decrementAndGet();
+			return new UpdateResponse(200, Map.of());
+		});
+		db.setHostPolicy(1, Duration.ZERO);
+		var results = new HashMap<String, UpdateResult>();
+		db.update(httpClient(), null, UpdateProgress.nop(), results, 2);
+		assertTrue(results.values().stream().allMatch(UpdateResult::isSuccess));
+		assertEquals(1, maxInside.get());
 	}
 
-	// update(HttpClient, Duration, UpdateProgress, Map<String, UpdateResult>)
-	// UnsupportedOperationException results が変更不可のマップ
+	// setHostPolicy(int, Duration)
+	// 同一ホストへのリクエストの送信開始間隔が最小間隔以上空けられること
 	@Test
-	public void testUpdate3_UnmodifiableResults() throws Exception {
-		var db = setupEmptyDatabase();
-		var ex = UnsupportedOperationException.class;
-		assertThrows(ex, () -> db.update(httpClient(), Duration.ofSeconds(1), UpdateProgress.nop(), Map.of()));
+	@Timeout(10)
+	public void testSetHostPolicy_MinInterval() throws Exception {
+		var starts = Collections.synchronizedList(new ArrayList<Long>());
+		var db = setupUpdateDatabase(r -> {
+			starts.add(System.nanoTime());
+			return new UpdateResponse(200, Map.of());
+		});
+		db.setHostPolicy(2, Duration.ofMillis(300));
+		db.update(httpClient(), null, UpdateProgress.nop(), new HashMap<>(), 2);
+		assertEquals(2, starts.size());
+		assertTrue(Math.abs(starts.get(1) - starts.get(0)) >= Duration.ofMillis(300).toNanos());
+	}
+
+	// setHostPolicy(int, Duration)
+	// 異なるホストへのリクエストは互いに制限されず同時に送信されること
+	@Test
+	@Timeout(10)
+	public void testSetHostPolicy_DifferentHosts() throws Exception {
+		var sp = new PlayStyleDescription("s", new URL("http://host1.example.com/1"), List.of("0"));
+		var dp = new PlayStyleDescription("d", new URL("http://host2.example.com/2"), List.of("0"));
+		var parser = TableDescriptionTest.EMPTY_PARSER;
+		var td1 = new TableDescription(ID_UPDATE1, "Update1", new URL("http://host1.example.com/"), parser, sp, null);
+		var td2 = new TableDescription(ID_UPDATE2, "Update2", new URL("http://host2.example.com/"), parser, null, dp);
+		Map<String, TableDescription> descs = Tests.getsf(DifficultyTables.class, "sTableDescs");
+		descs.clear();
+		descs.put(td1.getId(), td1);
+		descs.put(td2.getId(), td2);
+		var arrived = new CountDownLatch(2);
+		var method = Thread.currentThread().getStackTrace()[1].getMethodName();
+		var db = new UpdateDatabase(setupTestData(method, method, true), r -> {
+			// 両ホストのリクエストが揃うまで応答しない
+			arrived.countDown();
+			assertTrue(arrived.await(5, TimeUnit.SECONDS));
+			return new UpdateResponse(200, Map.of());
+		});
+		db.setHostPolicy(1, Duration.ofSeconds(10));
+		var results = new HashMap<String, UpdateResult>();
+		db.update(httpClient(), null, UpdateProgress.nop(), results, 2);
+		assertTrue(results.get(ID_UPDATE1).isSuccess());
+		assertTrue(results.get(ID_UPDATE2).isSuccess());
 	}
 
-	// update(HttpClient, Duration, UpdateProgress, Map<String, UpdateResult>)
-	// IllegalStateException 読み込み排他処理エラーが発生した
+	// setHostPolicy(int, Duration)
+	// 非同期更新でも同一ホストへのリクエストは同時送信数上限を超えて送信されないこと
 	@Test
-	public void testUpdate3_ReadExclusiveError() throws Exception {
-		var db = setupUpdateDatabase();
-		var lockF = new LockFile(db.getLocation().resolve(readLockFileName()));
-		var ex = IllegalStateException.class;
-		try {
-			assertTrue(lockF.lock());
-			assertThrows(ex, () -> db.update(httpClient(), null, UpdateProgress.nop(), new HashMap<>()));
-		} finally {
-			lockF.unlock();
+	@Timeout(10)
+	public void testSetHostPolicy_Async() throws Exception {
+		var responses = new ConcurrentHashMap<String, CompletableFuture<HttpResponse<InputStream>>>();
+		var db = setupAsyncUpdateDatabase(r -> {
+			return responses.computeIfAbsent(r.uri().toString(), k -> new CompletableFuture<>());
+		});
+		db.setHostPolicy(1, Duration.ZERO);
+		var future = db.updateAsync(httpClient(), null, UpdateProgress.nop());
+		assertEquals(Set.of("http://example.com/1"), responses.keySet());
+		responses.get("http://example.com/1").complete(new UpdateResponse(200, Map.of()));
+		var deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (!responses.containsKey("http://example.com/2") && (System.nanoTime() < deadline)) {
+			Thread.sleep(10);
 		}
+		responses.get("http://example.com/2").complete(new UpdateResponse(200, Map.of()));
+		assertTrue(future.get().values().stream().allMatch(UpdateResult::isSuccess));
 	}
 
-	// update(HttpClient, Duration, UpdateProgress, Map<String, UpdateResult>)
-	// IllegalStateException 書き込み排他処理エラーが発生した
+	// setHostPolicy(int, Duration)
+	// IllegalStateException 更新処理の実行中
 	@Test
-	public void testUpdate3_WriteExclusiveError() throws Exception {
-		var db = setupUpdateDatabase();
-		var lockF = new LockFile(db.getLocation().resolve(writeLockFileName()));
-		var ex = IllegalStateException.class;
-		try {
-			assertTrue(lockF.lock());
-			assertThrows(ex, () -> db.update(httpClient(), null, UpdateProgress.nop(), new HashMap<>()));
-		} finally {
-			lockF.unlock();
+	@Timeout(10)
+	public void testSetHostPolicy_Updating() throws Exception {
+		var responses = new ConcurrentHashMap<String, CompletableFuture<HttpResponse<InputStream>>>();
+		var db = setupAsyncUpdateDatabase(r -> {
+			return responses.computeIfAbsent(r.uri().toString(), k -> new CompletableFuture<>());
+		});
+		db.setHostPolicy(2, Duration.ZERO);
+		var future = db.updateAsync(httpClient(), null, UpdateProgress.nop());
+		assertThrows(IllegalStateException.class, () -> db.setHostPolicy(1, Duration.ZERO));
+		var deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while ((responses.size() < 2) && (System.nanoTime() < deadline)) {
+			Thread.sleep(10);
 		}
+		responses.values().forEach(r -> r.complete(new UpdateResponse(200, Map.of())));
+		assertTrue(future.get().values().stream().allMatch(UpdateResult::isSuccess));
+		db.setHostPolicy(1, Duration.ZERO);
+	}
+
+	// setHostPolicy(int, Duration)
+	// IllegalArgumentException maxConcurrency が1未満
+	// NullPointerException minInterval が null
+	// IllegalArgumentException minInterval が負の値
+	@Test
+	public void testSetHostPolicy_InvalidArguments() throws Exception {
+		var db = setupEmptyDatabase();
+		assertThrows(IllegalArgumentException.class, () -> db.setHostPolicy(0, Duration.ZERO));
+		assertThrows(NullPointerException.class, () -> db.setHostPolicy(1, null));
+		assertThrows(IllegalArgumentException.class, () -> db.setHostPolicy(1, Duration.ofMillis(-1)));
+	}
+
+	private static String sha256(byte[] data) throws Exception {
+		var hash = MessageDigest.getInstance("SHA-256").digest(data);
+		return IntStream.range(0, hash.length).mapToObj(i -> String.format("%02x", hash[i])).collect(Collectors.joining());
 	}
 
 	private static String readLockFileName() throws Exception {
@@ -1457,6 +3317,291 @@ public class ContentDatabaseTest {
 		return setupTestData("common", method, false);
 	}
 
+	// reparse(String, UpdateProgress)
+	// 保存済みの楽曲情報元データをネットワークに接続せず解析し直し、難易度表情報が置き換えられること
+	@Test
+	public void testReparse1_Normal() throws Exception {
+		var numSend = new AtomicInteger(0);
+		var body = "raw content".getBytes(StandardCharsets.UTF_8);
+		var db = setupUpdateDatabase(
+				r -> { numSend.incrementAndGet(); return new UpdateResponse(200, Map.of(), body); },
+				(td, ps, raw) -> List.of(new ContentDescription("Old", "A", ps, 0, null, null, null, null)));
+		db.update(httpClient(), ID_UPDATE1, null, UpdateProgress.nop());
+		assertEquals(1, numSend.get());
+		var before = db.get(ID_UPDATE1);
+
+		var received = new ArrayList<byte[]>();
+		setupUpdateTableDescriptions(null, (td, ps, raw) -> {
+			received.add(raw);
+			return List.of(new ContentDescription("New", new String(raw, StandardCharsets.UTF_8), ps, 1,
+					null, null, null, null));
+		}, null);
+		var statuses = new ArrayList<UpdateProgress.Status>();
+		db.reparse(ID_UPDATE1, (td, ps, i, num, sts) -> statuses.add(sts));
+		assertEquals(1, numSend.get());
+		assertEquals(List.of(UpdateProgress.Status.START, UpdateProgress.Status.DONE), statuses);
+		assertEquals(1, received.size());
+		assertArrayEquals(body, received.get(0));
+
+		var after = db.get(ID_UPDATE1);
+		assertEquals(1, after.getCount());
+		assertEquals("New", after.all().findFirst().get().getTitle());
+		assertEquals("raw content", after.all().findFirst().get().getArtist());
+		assertEquals(before.getModifiedDataHash(PlayStyle.SINGLE), after.getModifiedDataHash(PlayStyle.SINGLE));
+		assertEquals(before.getModifiedDateTime(PlayStyle.SINGLE), after.getModifiedDateTime(PlayStyle.SINGLE));
+
+		// 再構築結果は難易度表情報ファイルにも反映されること
+		var db2 = new ContentDatabase(db.getLocation(), false);
+		assertEquals("New", db2.get(ID_UPDATE1).all().findFirst().get().getTitle());
+	}
+
+	// reparse(String, UpdateProgress)
+	// 楽曲情報元データが保存されていない場合、UNNECESSARYが報告され難易度表情報が維持されること
+	@Test
+	public void testReparse1_NoRawContent() throws Exception {
+		var numParse = new AtomicInteger(0);
+		var db = setupUpdateDatabase(
+				r -> new UpdateResponse(200, Map.of()),
+				(td, ps, raw) -> { numParse.incrementAndGet(); return List.of(); });
+		var statuses = new ArrayList<UpdateProgress.Status>();
+		db.reparse(ID_UPDATE1, (td, ps, i, num, sts) -> statuses.add(sts));
+		assertEquals(0, numParse.get());
+		assertEquals(List.of(UpdateProgress.Status.START, UpdateProgress.Status.UNNECESSARY), statuses);
+		assertFalse(Files.exists(db.getLocation().resolve(ID_UPDATE1 + ".json")));
+	}
+
+	// reparse(String, UpdateProgress)
+	// 保存済みの楽曲情報元データが破損している場合、ERRORが報告されIOExceptionがスローされること
+	@Test
+	public void testReparse1_BrokenRawContent() throws Exception {
+		var body = "raw content".getBytes(StandardCharsets.UTF_8);
+		var db = setupUpdateDatabase(r -> new UpdateResponse(200, Map.of(), body));
+		db.update(httpClient(), ID_UPDATE1, null, UpdateProgress.nop());
+		Files.write(db.getLocation().resolve("raw").resolve(sha256(body)), "broken".getBytes(StandardCharsets.UTF_8));
+		var statuses = new ArrayList<UpdateProgress.Status>();
+		assertThrows(IOException.class, () -> db.reparse(ID_UPDATE1, (td, ps, i, num, sts) -> statuses.add(sts)));
+		assertEquals(List.of(UpdateProgress.Status.START, UpdateProgress.Status.ERROR), statuses);
+	}
+
+	// reparse(String, UpdateProgress)
+	// 不正な引数で例外がスローされること
+	@Test
+	public void testReparse1_InvalidArguments() throws Exception {
+		var db = setupUpdateDatabase();
+		assertThrows(NullPointerException.class, () -> db.reparse(null, UpdateProgress.nop()));
+		assertThrows(NullPointerException.class, () -> db.reparse(ID_UPDATE1, null));
+		assertThrows(IllegalArgumentException.class, () -> db.reparse("unknown", UpdateProgress.nop()));
+	}
+
+	// reparse(UpdateProgress)
+	// 全ての難易度表が保存済みの楽曲情報元データから再構築されること
+	@Test
+	public void testReparse2_Normal() throws Exception {
+		var db = setupUpdateDatabase(
+				r -> new UpdateResponse(200, Map.of(), r.uri().toString().getBytes(StandardCharsets.UTF_8)));
+		db.update(httpClient(), null, UpdateProgress.nop());
+		setupUpdateTableDescriptions(null, (td, ps, raw) -> {
+			return List.of(new ContentDescription(new String(raw, StandardCharsets.UTF_8), "A", ps, 0,
+					null, null, null, null));
+		}, null);
+		var numDone = new AtomicInteger(0);
+		db.reparse((td, ps, i, num, sts) -> {
+			if (sts == UpdateProgress.Status.DONE) { numDone.incrementAndGet(); }
+		});
+		assertEquals(2, numDone.get());
+		assertEquals("http://example.com/1", db.get(ID_UPDATE1).all().findFirst().get().getTitle());
+		assertEquals("http://example.com/2", db.get(ID_UPDATE2).all().findFirst().get().getTitle());
+		assertThrows(NullPointerException.class, () -> db.reparse(null));
+	}
+
+	// startRefresh(HttpClient, Duration, Duration, Duration, UpdateProgress)
+	// 毎回内容が変更される難易度表の更新間隔は最小間隔になること
+	@Test
+	@Timeout(10)
+	public void testStartRefresh_Changing() throws Exception {
+		var numSend = new AtomicInteger(0);
+		var latch = new CountDownLatch(6);
+		var db = setupUpdateDatabase(r -> {
+			var body = String.valueOf(numSend.incrementAndGet()).getBytes(StandardCharsets.UTF_8);
+			return new UpdateResponse(200, Map.of(), body);
+		});
+		db.setHostPolicy(2, Duration.ZERO);
+		try {
+			db.startRefresh(httpClient(), null, Duration.ofMillis(10), Duration.ofSeconds(5), (td, ps, i, num, sts) -> {
+				if (td.getId().equals(ID_UPDATE1) && (sts == UpdateProgress.Status.DONE)) { latch.countDown(); }
+			});
+			latch.await();
+			assertEquals(Duration.ofMillis(10), db.getRefreshInterval(ID_UPDATE1));
+		} finally {
+			db.stopRefresh();
+		}
+	}
+
+	// startRefresh(HttpClient, Duration, Duration, Duration, UpdateProgress)
+	// 変更履歴には難易度表情報の最終更新日時が保存され、次回の自動更新開始時に更新間隔の算出に使用されること
+	@Test
+	@Timeout(10)
+	public void testStartRefresh_History() throws Exception {
+		var db = setupUpdateDatabase(r -> new UpdateResponse(200,
+				Map.of("Last-Modified", List.of("Wed, 01 Jan 2025 00:00:00 GMT")), new byte[] { 1, 2, 3 }));
+		var history = db.getLocation().resolve(".refresh.json");
+		Files.writeString(history, "{\"" + ID_UPDATE1 + "\":[\"2024-11-01T00:00:00Z\",\"2024-12-01T00:00:00Z\"]}",
+				StandardCharsets.UTF_8);
+		db.setHostPolicy(2, Duration.ZERO);
+		try {
+			// 最終更新日時が変更履歴に追加される
+			db.startRefresh(httpClient(), null, Duration.ofMillis(10), Duration.ofSeconds(5), UpdateProgress.nop());
+			var expected = List.of("2024-11-01T00:00:00Z", "2024-12-01T00:00:00Z", "2025-01-01T00:00:00Z");
+			while (!readHistory(history, ID_UPDATE1).equals(expected)) {
+				Thread.sleep(5L);
+			}
+		} finally {
+			db.stopRefresh();
+		}
+
+		// 再開後、変更がなくても保存済みの変更履歴から更新間隔が算出される
+		try {
+			db.startRefresh(httpClient(), null, Duration.ofMillis(10), Duration.ofSeconds(5), UpdateProgress.nop());
+			while (!Duration.ofSeconds(5).equals(db.getRefreshInterval(ID_UPDATE1))) {
+				Thread.sleep(5L);
+			}
+		} finally {
+			db.stopRefresh();
+		}
+	}
+
+	private static List<Object> readHistory(Path history, String id) throws Exception {
+		try {
+			var array = new JSONObject(Files.readString(history, StandardCharsets.UTF_8)).optJSONArray(id);
+			return isNull(array) ? List.of() : array.toList();
+		} catch (NoSuchFileException | JSONException e) {
+			return List.of();
+		}
+	}
+
+	// startRefresh(HttpClient, Duration, Duration, Duration, UpdateProgress)
+	// 内容が変更されない難易度表の更新間隔は最大間隔まで広がること
+	@Test
+	@Timeout(10)
+	public void testStartRefresh_Unchanged() throws Exception {
+		var latch = new CountDownLatch(6);
+		var statuses = Collections.synchronizedList(new ArrayList<UpdateProgress.Status>());
+		var db = setupUpdateDatabase(r -> new UpdateResponse(200, Map.of(), new byte[] { 1, 2, 3 }));
+		db.setHostPolicy(2, Duration.ZERO);
+		try {
+			db.startRefresh(httpClient(), null, Duration.ofMillis(10), Duration.ofMillis(40), (td, ps, i, num, sts) -> {
+				if (td.getId().equals(ID_UPDATE1) && (sts != UpdateProgress.Status.START)) {
+					statuses.add(sts);
+					latch.countDown();
+				}
+			});
+			latch.await();
+			assertEquals(Duration.ofMillis(40), db.getRefreshInterval(ID_UPDATE1));
+			assertEquals(UpdateProgress.Status.DONE, statuses.get(0));
+			assertTrue(statuses.subList(1, 6).stream().allMatch(s -> s == UpdateProgress.Status.UNNECESSARY));
+		} finally {
+			db.stopRefresh();
+		}
+	}
+
+	// startRefresh(HttpClient, Duration, Duration, Duration, UpdateProgress)
+	// 更新でエラーが発生しても自動更新が継続されること
+	@Test
+	@Timeout(10)
+	public void testStartRefresh_Error() throws Exception {
+		var latch = new CountDownLatch(4);
+		var db = setupUpdateDatabase(r -> {
+			latch.countDown();
+			throw new IOException("Error");
+		});
+		db.setHostPolicy(2, Duration.ZERO);
+		try {
+			db.startRefresh(httpClient(), null, Duration.ofMillis(10), Duration.ofMillis(20), UpdateProgress.nop());
+			latch.await();
+		} finally {
+			db.stopRefresh();
+		}
+	}
+
+	// stopRefresh()
+	// 自動更新を停止するとそれ以降は更新されず、再度開始できること
+	@Test
+	@Timeout(10)
+	public void testStopRefresh_Normal() throws Exception {
+		var numSend = new AtomicInteger(0);
+		var latch = new CountDownLatch(2);
+		var db = setupUpdateDatabase(r -> {
+			numSend.incrementAndGet();
+			latch.countDown();
+			return new UpdateResponse(200, Map.of());
+		});
+		db.setHostPolicy(2, Duration.ZERO);
+		try {
+			db.startRefresh(httpClient(), null, Duration.ofMillis(10), Duration.ofMillis(10), UpdateProgress.nop());
+			assertThrows(IllegalStateException.class, () -> {
+				db.startRefresh(httpClient(), null, Duration.ofMillis(10), Duration.ofMillis(10), UpdateProgress.nop());
+			});
+			latch.await();
+			db.stopRefresh();
+			assertNull(db.getRefreshInterval(ID_UPDATE1));
+			var count = numSend.get();
+			Thread.sleep(100);
+			assertEquals(count, numSend.get());
+
+			var latch2 = new CountDownLatch(1);
+			db.startRefresh(httpClient(), null, Duration.ofMillis(10), Duration.ofMillis(10), (td, ps, i, num, sts) -> {
+				latch2.countDown();
+			});
+			latch2.await();
+		} finally {
+			db.stopRefresh();
+			db.stopRefresh();
+		}
+	}
+
+	// startRefresh(HttpClient, Duration, Duration, Duration, UpdateProgress)
+	// 不正な引数で例外がスローされること
+	@Test
+	public void testStartRefresh_InvalidArguments() throws Exception {
+		var db = setupUpdateDatabase();
+		var c = httpClient();
+		var p = UpdateProgress.nop();
+		var d = Duration.ofSeconds(1);
+		assertThrows(NullPointerException.class, () -> db.startRefresh(null, null, d, d, p));
+		assertThrows(NullPointerException.class, () -> db.startRefresh(c, null, null, d, p));
+		assertThrows(NullPointerException.class, () -> db.startRefresh(c, null, d, null, p));
+		assertThrows(NullPointerException.class, () -> db.startRefresh(c, null, d, d, null));
+		assertThrows(IllegalArgumentException.class, () -> db.startRefresh(c, null, Duration.ZERO, d, p));
+		assertThrows(IllegalArgumentException.class, () -> db.startRefresh(c, null, Duration.ofMillis(-1), d, p));
+		assertThrows(IllegalArgumentException.class, () -> db.startRefresh(c, null, d, d.minusMillis(1), p));
+		assertThrows(NullPointerException.class, () -> db.getRefreshInterval(null));
+		assertNull(db.getRefreshInterval(ID_UPDATE1));
+	}
+
+	private static byte[] contentEncodingTestBody() {
+		var sb = new StringBuilder("[");
+		for (var i = 0; i < 3000; i++) {
+			sb.append(String.format("{\"title\":\"Song%d\",\"artist\":\"Artist%d\",\"level\":\"%d\"},", i, i % 50, i % 25));
+		}
+		return sb.append("{}]").toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] encodeContent(byte[] body, String encoding) throws IOException {
+		var out = new ByteArrayOutputStream();
+		if (isNull(encoding) || encoding.equals("identity")) {
+			return body;
+		} else if (encoding.equalsIgnoreCase("gzip") || encoding.equals("x-gzip")) {
+			try (var gz = new GZIPOutputStream(out)) { gz.write(body); }
+		} else if (encoding.equals("deflate")) {
+			try (var df = new DeflaterOutputStream(out)) { df.write(body); }
+		} else if (encoding.equals("deflate-raw")) {
+			try (var df = new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, true))) {
+				df.write(body);
+			}
+		}
+		return out.toByteArray();
+	}
+
 	private static Path setupTestData() throws Exception {
 		var method = Thread.currentThread().getStackTrace()[2].getMethodName();
 		return setupTestData(method, method, false);
@@ -1520,6 +3665,24 @@ public class ContentDatabaseTest {
 		return new UpdateDatabase(path, sender);
 	}
 
+	private static ContentDatabase setupAsyncUpdateDatabase(AsyncUpdateSender sender) throws Exception {
+		var db = (UpdateDatabase)setupUpdateDatabaseCore(r -> { throw new IOException(); }, (td, ps, raw) -> List.of());
+		db.mAsyncSender = sender;
+		return db;
+	}
+
+	private static ContentDatabase setupUpdateBothDatabase(UpdateSender sender, Parser parser) throws Exception {
+		var sp = new PlayStyleDescription("s", new URL("http://example.com/1"), List.of("0", "1", "2"));
+		var dp = new PlayStyleDescription("d", new URL("http://example.com/2"), List.of("0", "1", "2"));
+		var td = new TableDescription(ID_UPDATE_BOTH, "UpdateBoth", new URL("http://example.com/home"), parser, sp, dp);
+		Map<String, TableDescription> descs = Tests.getsf(DifficultyTables.class, "sTableDescs");
+		descs.clear();
+		descs.put(td.getId(), td);
+		var method = Thread.currentThread().getStackTrace()[2].getMethodName();
+		var path = setupTestData(method, method, true);
+		return new UpdateDatabase(path, sender);
+	}
+
 	private static ContentDatabase setupUpdateDatabase(UpdateSender sender, Parser parser) throws Exception {
 		return setupUpdateDatabaseCore(sender, parser);
 	}
@@ -1533,6 +3696,11 @@ public class ContentDatabaseTest {
 		return setupUpdateDatabaseCore(r -> new UpdateResponse(200, Map.of()), parser);
 	}
 
+	private static ContentDatabase setupHashIndexDatabase(String md5, String sha256) throws Exception {
+		return setupUpdateDatabaseCore(r -> new UpdateResponse(200, Map.of()), (td, ps, raw) ->
+				List.of(new ContentDescription("Title-" + td.getId(), "Artist", ps, 0, null, null, md5, sha256)));
+	}
+
 	private static ContentDatabase setupUpdateDatabase() throws Exception {
 		return setupUpdateDatabaseCore(r -> new UpdateResponse(200, Map.of()), (td, ps, raw) -> List.of());
 	}
@@ -2,7 +2,10 @@ package com.lmt.lib.bldt;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
 
 import org.junit.jupiter.api.Test;
 
@@ -53,6 +56,47 @@ public class ContentDescriptionTest {
 		assertNull(d.getSha256());
 	}
 
+	// ContentDescription(String, String, PlayStyle, int, URL, URL, String, String)
+	// ハッシュ値の英大文字は英小文字に正規化され、全ビットが保持されること
+	@Test
+	public void testContentDescription_HashNormalized() throws Exception {
+		var d = new ContentDescription("t", "a", PlayStyle.SINGLE, 0, null, null,
+				"FFEEDDCCBBAA99887766554433221100",
+				"F0E1D2C3B4A5968778695A4B3C2D1E0FFFFFFFFFFFFFFFFF0000000000000000");
+		assertEquals("ffeeddccbbaa99887766554433221100", d.getMd5());
+		assertEquals("f0e1d2c3b4a5968778695a4b3c2d1e0fffffffffffffffff0000000000000000", d.getSha256());
+	}
+
+	// ContentDescription(String, String, PlayStyle, int, URL, URL, String, String)
+	// URLはポート、クエリ、フラグメントを含めて保持され、取得のたびに等価なURLオブジェクトが生成されること
+	@Test
+	public void testContentDescription_UrlRoundTrip() throws Exception {
+		var body = new URL("https://user@example.com:8080/path/a%20b.zip?x=1&y=2#frag");
+		var d = new ContentDescription("t", "a", PlayStyle.SINGLE, 0, body, new URL("file:/tmp/add.zip"), null, null);
+		assertEquals(body.toExternalForm(), d.getBodyUrl().toExternalForm());
+		assertEquals("example.com", d.getBodyUrl().getHost());
+		assertEquals(8080, d.getBodyUrl().getPort());
+		assertEquals("frag", d.getBodyUrl().getRef());
+		assertNotSame(d.getBodyUrl(), d.getBodyUrl());
+		assertEquals("file:/tmp/add.zip", d.getAdditionalUrl().toExternalForm());
+	}
+
+	// ContentDescription(String, String, PlayStyle, int, URL, URL, String, String)
+	// IllegalArgumentException bodyUrl, additionalUrl の文字列表現からURLを再構築できない
+	@Test
+	public void testContentDescription_UnrestorableUrl() throws Exception {
+		var ex = IllegalArgumentException.class;
+		var handler = new URLStreamHandler() {
+			@Override
+			protected URLConnection openConnection(URL u) throws IOException {
+				throw new IOException();
+			}
+		};
+		var url = new URL(null, "bldt-unknown://example.com/a.zip", handler);
+		assertThrows(ex, () -> new ContentDescription("t", "a", PlayStyle.SINGLE, 0, url, null, null, null));
+		assertThrows(ex, () -> new ContentDescription("t", "a", PlayStyle.SINGLE, 0, null, url, null, null));
+	}
+
 	// ContentDescription(String, String, PlayStyle, int, URL, URL, String, String)
 	// NullPointerException title が null
 	@Test
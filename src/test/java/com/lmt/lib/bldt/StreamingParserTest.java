@@ -0,0 +1,77 @@
+package com.lmt.lib.bldt;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+public class StreamingParserTest {
+	// parse(TableDescription, PlayStyle, byte[])
+	// バイトデータが入力ストリームとして渡され、出力先へ渡した順番の楽曲情報一覧が返されること
+	@Test
+	public void testParseBytes_Normal() throws Exception {
+		var received = new ArrayList<byte[]>();
+		StreamingParser parser = (td, ps, in, sink) -> {
+			received.add(in.readAllBytes());
+			sink.accept(new ContentDescription("T1", "A", ps, 0, null, null, null, null));
+			sink.accept(new ContentDescription("T2", "A", ps, 1, null, null, null, null));
+		};
+		var raw = "RAW".getBytes(StandardCharsets.UTF_8);
+		var l = parser.parse(Presets.SATELLITE.getTableDescription(), PlayStyle.SINGLE, raw);
+		assertArrayEquals(raw, received.get(0));
+		assertEquals(2, l.size());
+		assertEquals("T1", l.get(0).getTitle());
+		assertEquals("T2", l.get(1).getTitle());
+	}
+
+	// of(Parser)
+	// 逐次解析パーサを指定するとそのまま返されること
+	@Test
+	public void testOf_StreamingParser() throws Exception {
+		StreamingParser parser = (td, ps, in, sink) -> {};
+		assertSame(parser, StreamingParser.of(parser));
+	}
+
+	// of(Parser)
+	// 逐次解析に対応しないパーサには入力ストリーム全体が渡され、楽曲情報一覧が順に出力先へ渡されること
+	@Test
+	public void testOf_Parser() throws Exception {
+		var received = new ArrayList<byte[]>();
+		var parser = StreamingParser.of((td, ps, raw) -> {
+			received.add(raw);
+			return List.of(
+					new ContentDescription("T1", "A", ps, 0, null, null, null, null),
+					new ContentDescription("T2", "A", ps, 1, null, null, null, null));
+		});
+		var raw = "RAW".getBytes(StandardCharsets.UTF_8);
+		var l = new ArrayList<ContentDescription>();
+		parser.parse(Presets.SATELLITE.getTableDescription(), PlayStyle.SINGLE, new ByteArrayInputStream(raw),
+				(Consumer<ContentDescription>)l::add);
+		assertArrayEquals(raw, received.get(0));
+		assertEquals(2, l.size());
+		assertEquals("T1", l.get(0).getTitle());
+		assertEquals("T2", l.get(1).getTitle());
+	}
+
+	// of(Parser)
+	// 逐次解析に対応しないパーサが null を返すとIOExceptionがスローされること
+	@Test
+	public void testOf_ParserReturnsNull() throws Exception {
+		var parser = StreamingParser.of((td, ps, raw) -> null);
+		assertThrows(IOException.class, () -> parser.parse(Presets.SATELLITE.getTableDescription(),
+				PlayStyle.SINGLE, new ByteArrayInputStream(new byte[0]), c -> {}));
+	}
+
+	// of(Parser)
+	// parser が null の場合、NullPointerExceptionがスローされること
+	@Test
+	public void testOf_NullParser() throws Exception {
+		assertThrows(NullPointerException.class, () -> StreamingParser.of(null));
+	}
+}
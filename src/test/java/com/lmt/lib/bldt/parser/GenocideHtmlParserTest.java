@@ -2,8 +2,12 @@ package com.lmt.lib.bldt.parser;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -102,6 +106,59 @@ public class GenocideHtmlParserTest {
 		});
 	}
 
+	// [HTML全体の構成]
+	// 行末が CR+LF, CR のHTMLでも楽曲情報定義の先頭と末尾を検出できること
+	@Test
+	public void testHtml_LineSeparators() throws Exception {
+		var l = parse(String.join("\r\n",
+				"<html>",
+				"\tvar  mname=[ ",
+				"[1,\"★1\",\"TITLE1\",\"0\",\"ARTIST1\"],\r[2,\"★2\",\"TITLE2\",\"0\",\"ARTIST2\"]",
+				" ];\t",
+				"</html>"));
+		assertEquals(2, l.size());
+		assertEquals("TITLE1", l.get(0).getTitle());
+		assertEquals("TITLE2", l.get(1).getTitle());
+	}
+
+	// [HTML全体の構成]
+	// 楽曲情報リストが楽曲情報定義の末尾より前で閉じていても、末尾までが解析対象になること
+	@Test
+	public void testHtml_ClosedBeforeEnd() throws Exception {
+		var l = parse(
+				"var mname = [",
+				"[1,\"★1\",\"TITLE1\",\"0\",\"ARTIST1\"]]",
+				"[2,\"★2\",\"TITLE2\",\"0\",\"ARTIST2\"]",
+				"];");
+		assertEquals(1, l.size());
+		assertEquals("TITLE1", l.get(0).getTitle());
+	}
+
+	// [HTML全体の構成]
+	// 楽曲情報リストが閉じていても楽曲情報定義の末尾が見つからないとIOExceptionがスローされること
+	@Test
+	public void testHtml_ClosedWithoutEnd() throws Exception {
+		assertThrows(IOException.class, () -> {
+			parse(
+					"var mname = [",
+					"[1,\"★1\",\"TITLE\",\"0\",\"ARTIST\"]]",
+					"</script>");
+		});
+	}
+
+	// [楽曲情報定義]
+	// JSONで定義されていないエスケープ文字は '\' をそのままの文字として解析されること
+	@Test
+	public void testContent_UndefinedEscape() throws Exception {
+		var l = parse(
+				"var mname = [",
+				"[1,\"★1\",\"T\\ITLE\\\\/\\\"\\u0021\",\"0\",\"AR\\TIST\\\"\"]",
+				"];");
+		assertEquals(1, l.size());
+		assertEquals("T\\ITLE\\/\"!", l.get(0).getTitle());
+		assertEquals("AR\\TIST\"", l.get(0).getArtist());
+	}
+
 	// [楽曲情報定義]
 	// 期待するフォーマットから正しく楽曲情報を抽出できること(正常系)
 	@Test
@@ -304,6 +361,87 @@ public class GenocideHtmlParserTest {
 		assertNull(l.get(0).getBodyUrl());
 	}
 
+	// [逐次解析]
+	// 楽曲情報定義の終了部分以降のデータは読み込まれないこと
+	@Test
+	public void testStream_StopAtEnd() throws Exception {
+		var html = String.join("\n",
+				"<html><script>",
+				"var mname = [",
+				"[1,\"★1\",\"TITLE1\",\"0\",\"ARTIST1\"],",
+				"[2,\"★2\",\"TITLE2\",\"0\",\"ARTIST2\"]",
+				"];",
+				"").getBytes(Charset.forName("MS932"));
+		var in = new SequenceInputStream(
+				new ByteArrayInputStream(html),
+				new InputStream() {
+					@Override public int read() throws IOException { return fail("Must not read after end"); }
+				});
+		var l = new ArrayList<ContentDescription>();
+		new GenocideHtmlParser().parse(Presets.GENOCIDE_INSANE.getTableDescription(), PlayStyle.SINGLE, in, l::add);
+		assertEquals(2, l.size());
+		assertEquals("TITLE1", l.get(0).getTitle());
+		assertEquals("TITLE2", l.get(1).getTitle());
+	}
+
+	// [逐次解析]
+	// 入力ストリームの読み込みエラーは、発生したIOExceptionがそのままスローされること
+	@Test
+	public void testStream_ReadError() throws Exception {
+		var ex = new IOException("Read error");
+		var in = new SequenceInputStream(
+				new ByteArrayInputStream("var mname = [\n".getBytes(Charset.forName("MS932"))),
+				new InputStream() {
+					@Override public int read() throws IOException { throw ex; }
+				});
+		var thrown = assertThrows(IOException.class, () -> {
+			new GenocideHtmlParser().parse(Presets.GENOCIDE_INSANE.getTableDescription(), PlayStyle.SINGLE, in,
+					c -> {});
+		});
+		assertSame(ex, thrown);
+	}
+
+	// [並列変換]
+	// 閾値を超える楽曲情報が並列に変換され、スキップ条件を満たす項目を除き定義順に出力先へ渡されること
+	@Test
+	public void testParallel_Order() throws Exception {
+		var sb = new StringBuilder("var mname = [\n");
+		for (var i = 0; i < 1000; i++) {
+			sb.append((i == 0) ? "" : ",\n");
+			sb.append(String.format("[%d,\"%s\",\"T%d\",\"0\",\"A\"]", i, (i % 10 == 9) ? "?1" : "★1", i));
+		}
+		var html = sb.append("\n];\n").toString().getBytes(Charset.forName("MS932"));
+		var l = new GenocideHtmlParser(7).parse(Presets.GENOCIDE_INSANE.getTableDescription(), PlayStyle.SINGLE, html);
+		assertEquals(900, l.size());
+		for (int i = 0, j = 0; i < 1000; i++) {
+			if (i % 10 != 9) {
+				assertEquals("T" + i, l.get(j++).getTitle());
+			}
+		}
+	}
+
+	// [並列変換]
+	// 解析エラーの場合、並列変換待ちの楽曲情報は出力先へ渡されずに IOException がスローされること
+	@Test
+	public void testParallel_ParseError() throws Exception {
+		var sb = new StringBuilder("var mname = [\n");
+		for (var i = 0; i < 10; i++) {
+			sb.append(String.format("[%d,\"★1\",\"T%d\",\"0\",\"A\"],\n", i, i));
+		}
+		var html = sb.append("[10,\n];\n").toString().getBytes(Charset.forName("MS932"));
+		var l = new ArrayList<ContentDescription>();
+		assertThrows(IOException.class, () -> new GenocideHtmlParser(7).parse(
+				Presets.GENOCIDE_INSANE.getTableDescription(), PlayStyle.SINGLE, new ByteArrayInputStream(html), l::add));
+		assertEquals(7, l.size());
+	}
+
+	// [並列変換]
+	// IllegalArgumentException 閾値が0以下
+	@Test
+	public void testParallel_BadThreshold() {
+		assertThrows(IllegalArgumentException.class, () -> new GenocideHtmlParser(0));
+	}
+
 	private static List<ContentDescription> parse(String...src) throws Exception {
 		return new GenocideHtmlParser().parse(
 				Presets.GENOCIDE_INSANE.getTableDescription(),
@@ -2,8 +2,12 @@ package com.lmt.lib.bldt.parser;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -57,6 +61,49 @@ public class ScoreJsonParserTest {
 		assertThrows(IOException.class, () -> parse(""));
 	}
 
+	// [JSON本体]
+	// 引用符なしの値・単一引用符の文字列・区切り文字';'・省略された配列要素を含むJSONが解析できること
+	@Test
+	public void testJson_LenientSyntax() throws Exception {
+		var l = parse(
+				"[",
+				"  {level:0,title:T1,artist:A1},",
+				"  ,",
+				"  {'level':'1';'title':'T2';'artist':'A2';},",
+				"]");
+		assertEquals(2, l.size());
+		assertEquals("T1", l.get(0).getTitle());
+		assertEquals("A1", l.get(0).getArtist());
+		assertEquals(0, l.get(0).getLevelIndex());
+		assertEquals("T2", l.get(1).getTitle());
+		assertEquals("A2", l.get(1).getArtist());
+		assertEquals(1, l.get(1).getLevelIndex());
+	}
+
+	// [JSON本体]
+	// 楽曲情報でキーが重複している場合、IOExceptionがスローされること
+	@Test
+	public void testJson_DuplicateKey() throws Exception {
+		assertThrows(IOException.class, () -> parse(
+				"[",
+				"  {\"level\":\"0\",\"title\":\"T\",\"artist\":\"A\",\"title\":\"T\"}",
+				"]"));
+	}
+
+	// [JSON本体]
+	// 抽出対象外の項目に構文エラーがある場合、IOExceptionがスローされること
+	@Test
+	public void testJson_ErrorInUnknownField() throws Exception {
+		assertThrows(IOException.class, () -> parse(
+				"[",
+				"  {\"level\":\"0\",\"title\":\"T\",\"artist\":\"A\",\"x\":{\"y\":[1,2}}",
+				"]"));
+		assertThrows(IOException.class, () -> parse(
+				"[",
+				"  {\"level\":\"0\",\"title\":\"T\",\"artist\":\"A\",\"x\":\"\\q\"}",
+				"]"));
+	}
+
 	// [楽曲情報]
 	// 期待するフォーマットから正しく楽曲情報を抽出できること(正常系)
 	@Test
@@ -298,6 +345,130 @@ public class ScoreJsonParserTest {
 		assertNull(l.get(2).getSha256());
 	}
 
+	// [楽曲情報]
+	// 抽出対象外の項目は値の型に関わらず読み飛ばされること
+	@Test
+	public void testContent_UnknownFields() throws Exception {
+		var l = parse(
+				"[",
+				"  {\"x\":{\"level\":\"9\",\"y\":[1,[2,{\"z\":null}],\"\\u3042\"]},",
+				"   \"level\":\"0\",\"comment\":\"C\",\"title\":\"T\",\"n\":-1.5e3,\"artist\":\"A\",\"b\":true}",
+				"]");
+		assertEquals(1, l.size());
+		assertEquals("T", l.get(0).getTitle());
+		assertEquals("A", l.get(0).getArtist());
+		assertEquals(0, l.get(0).getLevelIndex());
+	}
+
+	// [楽曲情報]
+	// 文字列以外の値は文字列表現に変換して抽出されること
+	@Test
+	public void testContent_NonStringValues() throws Exception {
+		var l = parse(
+				"[",
+				"  {\"level\":1,\"title\":100,\"artist\":[\"A\"]},",
+				"  {\"level\":\"0\",\"title\":true,\"artist\":null}",
+				"]");
+		assertEquals(2, l.size());
+		assertEquals("100", l.get(0).getTitle());
+		assertEquals("[\"A\"]", l.get(0).getArtist());
+		assertEquals(1, l.get(0).getLevelIndex());
+		assertEquals("true", l.get(1).getTitle());
+		assertEquals("", l.get(1).getArtist());
+	}
+
+	// [逐次解析]
+	// 入力ストリームから解析した楽曲情報が定義順に出力先へ渡されること
+	@Test
+	public void testStream_Normal() throws Exception {
+		var raw = String.join("\n",
+				"[",
+				"  {\"level\":\"0\",\"title\":\"T1\",\"artist\":\"A1\"},",
+				"  {\"level\":\"1\",\"title\":\"T2\",\"artist\":\"A2\"}",
+				"]").getBytes(StandardCharsets.UTF_8);
+		var l = new ArrayList<ContentDescription>();
+		new ScoreJsonParser().parse(Presets.SATELLITE.getTableDescription(), PlayStyle.SINGLE,
+				new ByteArrayInputStream(raw), l::add);
+		assertEquals(2, l.size());
+		assertEquals("T1", l.get(0).getTitle());
+		assertEquals("T2", l.get(1).getTitle());
+	}
+
+	// [逐次解析]
+	// 入力ストリーム先頭のUTF-8のBOMが読み飛ばされること
+	@Test
+	public void testStream_Bom() throws Exception {
+		var json = "[{\"level\":\"0\",\"title\":\"あ\",\"artist\":\"い\"}]".getBytes(StandardCharsets.UTF_8);
+		var raw = new byte[json.length + 3];
+		raw[0] = (byte)0xef;
+		raw[1] = (byte)0xbb;
+		raw[2] = (byte)0xbf;
+		System.arraycopy(json, 0, raw, 3, json.length);
+		var l = new ScoreJsonParser().parse(Presets.SATELLITE.getTableDescription(), PlayStyle.SINGLE, raw);
+		assertEquals(1, l.size());
+		assertEquals("あ", l.get(0).getTitle());
+	}
+
+	// [逐次解析]
+	// 入力ストリームの読み込みエラーは、発生したIOExceptionがそのままスローされること
+	@Test
+	public void testStream_ReadError() throws Exception {
+		var ex = new IOException("Read error");
+		var in = new SequenceInputStream(
+				new ByteArrayInputStream("[{\"level\":\"0\",".getBytes(StandardCharsets.UTF_8)),
+				new InputStream() {
+					@Override public int read() throws IOException { throw ex; }
+				});
+		var thrown = assertThrows(IOException.class, () -> {
+			new ScoreJsonParser().parse(Presets.SATELLITE.getTableDescription(), PlayStyle.SINGLE, in, c -> {});
+		});
+		assertSame(ex, thrown);
+	}
+
+	// [並列変換]
+	// 閾値を超える楽曲情報が並列に変換され、スキップ条件を満たす項目を除き定義順に出力先へ渡されること
+	@Test
+	public void testParallel_Order() throws Exception {
+		var sb = new StringBuilder("[");
+		for (var i = 0; i < 1000; i++) {
+			sb.append((i == 0) ? "" : ",");
+			sb.append((i % 10 == 9) ? "{\"level\":\"?\",\"title\":\"T\",\"artist\":\"A\"}" :
+					String.format("{\"level\":\"%d\",\"title\":\"T%d\",\"artist\":\"A\"}", i % 5, i));
+		}
+		var raw = sb.append("]").toString().getBytes(StandardCharsets.UTF_8);
+		var l = new ScoreJsonParser(7).parse(Presets.SATELLITE.getTableDescription(), PlayStyle.SINGLE, raw);
+		assertEquals(900, l.size());
+		for (int i = 0, j = 0; i < 1000; i++) {
+			if (i % 10 != 9) {
+				assertEquals("T" + i, l.get(j).getTitle());
+				assertEquals(i % 5, l.get(j).getLevelIndex());
+				j++;
+			}
+		}
+	}
+
+	// [並列変換]
+	// 解析エラーの場合、並列変換待ちの楽曲情報は出力先へ渡されずに IOException がスローされること
+	@Test
+	public void testParallel_ParseError() throws Exception {
+		var sb = new StringBuilder("[");
+		for (var i = 0; i < 10; i++) {
+			sb.append(String.format("{\"level\":\"0\",\"title\":\"T%d\",\"artist\":\"A\"},", i));
+		}
+		var raw = sb.append("{\"level\":").toString().getBytes(StandardCharsets.UTF_8);
+		var l = new ArrayList<ContentDescription>();
+		assertThrows(IOException.class, () -> new ScoreJsonParser(7).parse(
+				Presets.SATELLITE.getTableDescription(), PlayStyle.SINGLE, new ByteArrayInputStream(raw), l::add));
+		assertEquals(7, l.size());
+	}
+
+	// [並列変換]
+	// IllegalArgumentException 閾値が0以下
+	@Test
+	public void testParallel_BadThreshold() {
+		assertThrows(IllegalArgumentException.class, () -> new ScoreJsonParser(0));
+	}
+
 	private static List<ContentDescription> parse(PlayStyle ps, String...src) throws Exception {
 		return new ScoreJsonParser().parse(
 				Presets.SATELLITE.getTableDescription(),